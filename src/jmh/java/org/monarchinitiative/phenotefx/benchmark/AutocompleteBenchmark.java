@@ -0,0 +1,96 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.index.FuzzyIndex;
+import org.monarchinitiative.phenotefx.index.SuggestionIndex;
+import org.monarchinitiative.phenotefx.model.HPO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autocompletion lookups of HPO labels as the user types: short prefixes, longer infixes, and misspelled
+ * queries that go to the {@link FuzzyIndex}. Each invocation performs one lookup; the queries are cycled.
+ * @author Peter Robinson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutocompleteBenchmark {
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int N_QUERIES = 1024;
+
+    private SuggestionIndex suggestionIndex;
+    private FuzzyIndex fuzzyIndex;
+    private String[] prefixes;
+    private String[] infixes;
+    private String[] typos;
+    private final int[] out = new int[MAX_SUGGESTIONS];
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup(OntologyState ontologyState) {
+        suggestionIndex = ontologyState.parser.getSuggestionIndex();
+        fuzzyIndex = ontologyState.parser.getFuzzyIndex();
+        List<String> labels = new ArrayList<>();
+        for (HPO hp : BenchmarkCorpus.phenotypeTerms(ontologyState.parser.getTerms())) {
+            labels.add(hp.getHpoName());
+        }
+        Random random = new Random(42);
+        prefixes = new String[N_QUERIES];
+        infixes = new String[N_QUERIES];
+        typos = new String[N_QUERIES];
+        for (int i = 0; i < N_QUERIES; i++) {
+            String label = labels.get(random.nextInt(labels.size()));
+            prefixes[i] = label.substring(0, 1 + random.nextInt(Math.min(6, label.length())));
+            int start = label.length() / 2;
+            infixes[i] = label.substring(start, Math.min(label.length(), start + 3 + random.nextInt(6)));
+            char[] typo = label.substring(0, Math.min(label.length(), 8)).toCharArray();
+            int pos = 1 + random.nextInt(typo.length - 1);
+            char tmp = typo[pos];
+            typo[pos] = typo[pos - 1];
+            typo[pos - 1] = tmp;
+            typos[i] = new String(typo);
+        }
+    }
+
+    @Benchmark
+    public int prefix() {
+        return suggestionIndex.suggest(prefixes[next++ & (N_QUERIES - 1)], MAX_SUGGESTIONS, out);
+    }
+
+    @Benchmark
+    public int infix() {
+        return suggestionIndex.suggest(infixes[next++ & (N_QUERIES - 1)], MAX_SUGGESTIONS, out);
+    }
+
+    @Benchmark
+    public int fuzzy() {
+        return fuzzyIndex.suggest(typos[next++ & (N_QUERIES - 1)], MAX_SUGGESTIONS, out);
+    }
+}
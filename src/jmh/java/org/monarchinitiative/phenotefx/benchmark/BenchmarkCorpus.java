@@ -0,0 +1,182 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.model.HPO;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Synthetic input data for the benchmarks: the bundled test ontology ({@code hp-benchmark.obo}), small files and
+ * a MedGen file. All corpora are generated with a fixed seed so that runs are comparable.
+ * @author Peter Robinson
+ */
+final class BenchmarkCorpus {
+    static final String HPO_RESOURCE = "/hp-benchmark.obo";
+    private static final long SEED = 42L;
+    private static final String[] EVIDENCE = {"IEA", "PCS", "TAS", "ICE"};
+    private static final String[] FREQUENCY = {"", "", "HP:0040281", "HP:0040283", "3/7", "45%"};
+    private static final String[] CURATORS = {"HPO:probinson", "HPO:skoehler", "HPO:lcarmody", "HPO:iea"};
+
+    private BenchmarkCorpus() {}
+
+    static File createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory("phenotefx-" + prefix).toFile();
+    }
+
+    /**
+     * Point {@code user.home} (and therefore the PhenoteFX directory) to a fresh directory, so that the benchmarks
+     * neither use nor change the snapshot and index files of the user.
+     * @param createPhenoteFxDir if false, there is no PhenoteFX directory and no snapshot or index is used
+     * @return the new home directory
+     */
+    static File isolateHome(boolean createPhenoteFxDir) throws IOException {
+        File home = createTempDirectory("home");
+        if (createPhenoteFxDir && !new File(home, ".phenotefx").mkdir()) {
+            throw new IOException("Could not create PhenoteFX directory in " + home);
+        }
+        System.setProperty("user.home", home.getAbsolutePath());
+        return home;
+    }
+
+    /**
+     * Wait until the snapshot of a source file (which is written in the background) is in the PhenoteFX directory.
+     * @param sourceName name of the source file, e.g., hp.obo
+     */
+    static void awaitSnapshot(File home, String sourceName) throws InterruptedException {
+        File dir = new File(home, ".phenotefx");
+        for (int i = 0; i < 100; i++) {
+            String[] names = dir.list((d, name) -> name.startsWith(sourceName + "-") && name.endsWith(".snapshot"));
+            if (names != null && names.length > 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("The snapshot of " + sourceName + " was not written");
+    }
+
+    /** Copy the bundled test ontology to {@code dir/hp.obo}. */
+    static File copyHpo(File dir) throws IOException {
+        File hpo = new File(dir, "hp.obo");
+        try (InputStream in = BenchmarkCorpus.class.getResourceAsStream(HPO_RESOURCE)) {
+            if (in == null) {
+                throw new FileNotFoundException(HPO_RESOURCE);
+            }
+            Files.copy(in, hpo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return hpo;
+    }
+
+    /** @return the phenotype terms (below HP:3000000 are the top-level and modifier terms) sorted by id. */
+    static List<HPO> phenotypeTerms(Map<String, HPO> terms) {
+        List<HPO> phenotypes = new ArrayList<>();
+        for (HPO hp : terms.values()) {
+            if (hp.getHpoId().compareTo("HP:3000000") > 0) {
+                phenotypes.add(hp);
+            }
+        }
+        phenotypes.sort(Comparator.comparing(HPO::getHpoId));
+        return phenotypes;
+    }
+
+    /**
+     * Write {@code nFiles} small files with {@code rowsPerFile} annotations each, and an empty omit list.
+     * @return the paths of the small files
+     */
+    static List<File> writeSmallFiles(File dir, int nFiles, int rowsPerFile, List<HPO> terms) throws IOException {
+        Random random = new Random(SEED);
+        List<File> files = new ArrayList<>();
+        try (Writer omit = new OutputStreamWriter(new FileOutputStream(new File(dir, "omit-list.txt")), StandardCharsets.UTF_8)) {
+            omit.write("#DiseaseId\tReason\n");
+        }
+        for (int i = 0; i < nFiles; i++) {
+            int mim = 100000 + i;
+            File f = new File(dir, String.format("OMIM-%d.tab", mim));
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8))) {
+                w.write(V2SmallFileEntry.getHeaderV2());
+                w.write('\n');
+                String curator = CURATORS[random.nextInt(CURATORS.length)] + "[2018-06-15]";
+                for (int r = 0; r < rowsPerFile; r++) {
+                    HPO hp = terms.get(random.nextInt(terms.size()));
+                    String[] fields = {
+                            "OMIM:" + mim,
+                            "SYNTHETIC DISEASE " + mim,
+                            hp.getHpoId(),
+                            hp.getHpoName(),
+                            r % 5 == 0 ? "HP:0003577" : "",
+                            r % 5 == 0 ? "Congenital onset" : "",
+                            FREQUENCY[random.nextInt(FREQUENCY.length)],
+                            "",
+                            r % 17 == 0 ? "NOT" : "",
+                            "",
+                            r % 3 == 0 ? "Observed in " + (1 + random.nextInt(9)) + " patients" : "",
+                            "OMIM:" + mim,
+                            EVIDENCE[random.nextInt(EVIDENCE.length)],
+                            curator};
+                    w.write(String.join("\t", fields));
+                    w.write('\n');
+                }
+            }
+            files.add(f);
+        }
+        return files;
+    }
+
+    /** Write a gzipped file in the format of MedGen_HPO_OMIM_Mapping.txt.gz with {@code n} diseases. */
+    static File writeMedGen(File dir, int n) throws IOException {
+        Random random = new Random(SEED);
+        String[] words = {"SYNDROME", "DYSPLASIA", "CARDIOMYOPATHY", "ATAXIA", "DEAFNESS", "MUSCULAR DYSTROPHY",
+                "RETINITIS PIGMENTOSA", "NEPHRONOPHTHISIS", "EPILEPTIC ENCEPHALOPATHY", "SPASTIC PARAPLEGIA"};
+        File medgen = new File(dir, "MedGen_HPO_OMIM_Mapping.txt.gz");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(medgen)), StandardCharsets.US_ASCII))) {
+            w.write("#OMIM_CUI|MIM_number|OMIM_name|relationship|HPO_CUI|HPO_ID|HPO_name|MedGen_name|MedGen_source|STY|\n");
+            for (int i = 0; i < n; i++) {
+                String name = String.format("%s, TYPE %d", words[i % words.length], 1 + i / words.length);
+                int mim = 100000 + i;
+                // several rows per disease, as in the real file (one per HPO term)
+                for (int r = 0; r < 3; r++) {
+                    w.write(String.format("C%07d|%d|%s|manifestation of|C%07d|HP:%07d|TERM|TERM|OMIM|Finding|%n",
+                            i, mim, name, r, 3000001 + random.nextInt(1000)));
+                }
+            }
+        }
+        return medgen;
+    }
+
+    static void deleteRecursively(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!f.delete() && f.exists()) {
+            f.deleteOnExit();
+        }
+    }
+}
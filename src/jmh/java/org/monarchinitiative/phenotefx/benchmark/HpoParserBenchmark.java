@@ -0,0 +1,90 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.io.HPOParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of {@link HPOParser} from the bundled test ontology, with a full parse of the OBO file and with
+ * the maps read from an up-to-date binary snapshot.
+ * @author Peter Robinson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HpoParserBenchmark {
+
+    /** No PhenoteFX directory, so every construction parses hp.obo. */
+    @State(Scope.Benchmark)
+    public static class NoSnapshot {
+        File home;
+        File hpo;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            home = BenchmarkCorpus.isolateHome(false);
+            hpo = BenchmarkCorpus.copyHpo(home);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            BenchmarkCorpus.deleteRecursively(home);
+        }
+    }
+
+    /** A PhenoteFX directory with a current snapshot of hp.obo. */
+    @State(Scope.Benchmark)
+    public static class WithSnapshot {
+        File home;
+        File hpo;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, PhenoteFxException, InterruptedException {
+            home = BenchmarkCorpus.isolateHome(true);
+            hpo = BenchmarkCorpus.copyHpo(home);
+            new HPOParser(hpo.getAbsolutePath()); // writes the snapshot in the background
+            BenchmarkCorpus.awaitSnapshot(home, hpo.getName());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            BenchmarkCorpus.deleteRecursively(home);
+        }
+    }
+
+    @Benchmark
+    public HPOParser parseObo(NoSnapshot state) throws PhenoteFxException {
+        return new HPOParser(state.hpo.getAbsolutePath());
+    }
+
+    @Benchmark
+    public HPOParser loadSnapshot(WithSnapshot state) throws PhenoteFxException {
+        return new HPOParser(state.hpo.getAbsolutePath());
+    }
+}
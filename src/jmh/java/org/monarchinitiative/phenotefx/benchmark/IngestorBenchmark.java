@@ -0,0 +1,75 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileIngestor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingestion of a synthetic small file repository with {@link V2SmallFileIngestor}, sequentially and in parallel.
+ * With {@code indexed=true} there is a PhenoteFX directory, so after the first (warmup) invocation the files are
+ * served from the small file index; otherwise every file is parsed.
+ * @author Peter Robinson
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestorBenchmark {
+    @Param({"1000", "10000"})
+    public int files;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private File home;
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void setup(OntologyState ontologyState) throws IOException {
+        dir = BenchmarkCorpus.createTempDirectory("repository");
+        BenchmarkCorpus.writeSmallFiles(dir, files, 30, BenchmarkCorpus.phenotypeTerms(ontologyState.parser.getTerms()));
+        // OntologyState has set up a home without a PhenoteFX directory; replace it if the index is to be used
+        home = indexed ? BenchmarkCorpus.isolateHome(true) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkCorpus.deleteRecursively(dir);
+        if (home != null) {
+            BenchmarkCorpus.deleteRecursively(home);
+        }
+    }
+
+    @Benchmark
+    public V2SmallFileIngestor ingest(OntologyState ontologyState) {
+        return new V2SmallFileIngestor(dir.getAbsolutePath(), ontologyState.ontology, threads);
+    }
+}
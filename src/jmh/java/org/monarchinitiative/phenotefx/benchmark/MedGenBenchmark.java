@@ -0,0 +1,113 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.index.DiseaseNameIndex;
+import org.monarchinitiative.phenotefx.index.SuggestionIndex;
+import org.monarchinitiative.phenotefx.io.MedGenParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a synthetic MedGen file (with and without an up-to-date snapshot), and construction and lookups of
+ * the disease name indexes.
+ * @author Peter Robinson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MedGenBenchmark {
+    @Param({"5000", "20000"})
+    public int diseases;
+
+    private File home;
+    private File medgen;
+    private MedGenParser parsed;
+    private List<String> names;
+
+    /** Set up a home with a PhenoteFX directory if snapshots are to be used. */
+    private void setup(boolean withSnapshot) throws IOException, InterruptedException {
+        home = BenchmarkCorpus.isolateHome(withSnapshot);
+        medgen = BenchmarkCorpus.writeMedGen(home, diseases);
+        parsed = new MedGenParser(medgen);
+        names = new ArrayList<>(parsed.getDiseaseNameIndex().names());
+        if (withSnapshot) {
+            BenchmarkCorpus.awaitSnapshot(home, medgen.getName());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkCorpus.deleteRecursively(home);
+    }
+
+    /** No PhenoteFX directory, so the MedGen file is always scanned. */
+    @State(Scope.Benchmark)
+    public static class NoSnapshot {
+        @Setup(Level.Trial)
+        public void setup(MedGenBenchmark benchmark) throws IOException, InterruptedException {
+            benchmark.setup(false);
+        }
+    }
+
+    /** A PhenoteFX directory with a current snapshot of the MedGen file. */
+    @State(Scope.Benchmark)
+    public static class WithSnapshot {
+        @Setup(Level.Trial)
+        public void setup(MedGenBenchmark benchmark) throws IOException, InterruptedException {
+            benchmark.setup(true);
+        }
+    }
+
+    @Benchmark
+    public MedGenParser parseFile(NoSnapshot state) {
+        return new MedGenParser(medgen);
+    }
+
+    @Benchmark
+    public MedGenParser loadSnapshot(WithSnapshot state) {
+        return new MedGenParser(medgen);
+    }
+
+    /** Exact lookup of every disease name, as when a disease is chosen in the GUI. */
+    @Benchmark
+    public long lookupAllNames(NoSnapshot state) {
+        DiseaseNameIndex index = parsed.getDiseaseNameIndex();
+        long sum = 0;
+        for (String name : names) {
+            sum += index.getMimNumber(name);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public SuggestionIndex buildSuggestionIndex(NoSnapshot state) {
+        return SuggestionIndex.create(parsed.getDiseaseNameIndex().names());
+    }
+}
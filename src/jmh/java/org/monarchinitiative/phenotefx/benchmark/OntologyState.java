@@ -0,0 +1,54 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.io.HPOParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The parsed test ontology, shared by the benchmarks that need an {@link HpoOntology}. There is no PhenoteFX
+ * directory, so no snapshot or small file index is used unless a benchmark creates one.
+ * @author Peter Robinson
+ */
+@State(Scope.Benchmark)
+public class OntologyState {
+    File home;
+    HPOParser parser;
+    HpoOntology ontology;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, PhenoteFxException {
+        home = BenchmarkCorpus.isolateHome(false);
+        File hpo = BenchmarkCorpus.copyHpo(home);
+        parser = new HPOParser(hpo.getAbsolutePath());
+        ontology = parser.getHpoOntology();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkCorpus.deleteRecursively(home);
+    }
+}
@@ -0,0 +1,89 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.index.HpoAncestorIndex;
+import org.monarchinitiative.phenotefx.index.HpoAnnotationIndex;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileIngestor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the {@link HpoAnnotationIndex} of a synthetic small file repository, and querying it for the root of the
+ * phenotypic abnormalities (which matches almost every annotation) and for a single term.
+ * @author Peter Robinson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositorySearchBenchmark {
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.constructWithPrefix("HP:0000118");
+
+    @Param({"1000", "8000"})
+    public int files;
+
+    private File dir;
+    private Collection<V2SmallFile> smallFiles;
+    private HpoAncestorIndex hierarchy;
+    private HpoAnnotationIndex index;
+    /** A term that is annotated in the corpus. */
+    private TermId term;
+
+    @Setup(Level.Trial)
+    public void setup(OntologyState ontologyState) throws IOException {
+        dir = BenchmarkCorpus.createTempDirectory("repository");
+        BenchmarkCorpus.writeSmallFiles(dir, files, 30, BenchmarkCorpus.phenotypeTerms(ontologyState.parser.getTerms()));
+        smallFiles = new V2SmallFileIngestor(dir.getAbsolutePath(), ontologyState.ontology, 4).getV2SmallFileEntries();
+        hierarchy = HpoAncestorIndex.build(ontologyState.ontology);
+        index = HpoAnnotationIndex.build(smallFiles, hierarchy);
+        term = smallFiles.iterator().next().getOriginalEntryList().get(0).getPhenotypeId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkCorpus.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public HpoAnnotationIndex build() {
+        return HpoAnnotationIndex.build(smallFiles, hierarchy);
+    }
+
+    @Benchmark
+    public List<HpoAnnotationIndex.Match> searchRootWithDescendants() {
+        return index.search(PHENOTYPIC_ABNORMALITY, true, true);
+    }
+
+    @Benchmark
+    public List<HpoAnnotationIndex.Match> searchTerm() {
+        return index.search(term, false, false);
+    }
+}
@@ -0,0 +1,74 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.collections.ObservableList;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.io.SmallfileParser;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a single small file into {@link PhenoRow}s (as when a file is opened in the GUI) and into a
+ * {@link V2SmallFile} (as when the repository is ingested).
+ * @author Peter Robinson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SmallFileParserBenchmark {
+    @Param({"20", "200"})
+    public int rows;
+
+    private File dir;
+    private File smallFile;
+
+    @Setup(Level.Trial)
+    public void setup(OntologyState ontologyState) throws IOException {
+        dir = BenchmarkCorpus.createTempDirectory("smallfile");
+        smallFile = BenchmarkCorpus.writeSmallFiles(dir, 1, rows,
+                BenchmarkCorpus.phenotypeTerms(ontologyState.parser.getTerms())).get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkCorpus.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public ObservableList<PhenoRow> parse(OntologyState ontologyState) throws PhenoteFxException {
+        return new SmallfileParser(smallFile, ontologyState.ontology).parse();
+    }
+
+    @Benchmark
+    public Optional<V2SmallFile> parseV2SmallFile(OntologyState ontologyState) throws PhenoteFxException {
+        return new SmallfileParser(smallFile, ontologyState.ontology).parseV2SmallFile();
+    }
+}
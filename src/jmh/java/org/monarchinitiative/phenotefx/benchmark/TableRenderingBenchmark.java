@@ -0,0 +1,243 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.util.converter.DefaultStringConverter;
+import org.monarchinitiative.phenotefx.gui.AnnotationTableCell;
+import org.monarchinitiative.phenotefx.gui.ColumnContextMenu;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scrolling row by row through a merged annotation table with several thousand rows, as the table skin does it:
+ * for each step, the rows and cells of a viewport of {@link #VISIBLE_ROWS} rows are updated to the next
+ * index. This is done once with {@link AnnotationTableCell} and once with cells like the former ones, which
+ * created a tooltip (phenotype name and onset) or a context menu (sex, NOT, evidence, ...) on every update and
+ * looked up the row in the items of the table. The JavaFX toolkit is started in the setup, so this benchmark
+ * needs a display.
+ * @author Peter Robinson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TableRenderingBenchmark {
+    private static final int VISIBLE_ROWS = 40;
+    /** The properties of PhenoRow shown by the twelve columns of the table. */
+    private static final String[] COLUMNS = {"diseaseID", "diseaseName", "phenotypeName", "onsetName", "frequency",
+            "sex", "negation", "modifier", "description", "publication", "evidence", "biocuration"};
+
+    @Param({"2000", "10000"})
+    public int rows;
+
+    private TableView<PhenoRow> table;
+    /** The table rows and cells of the viewport with {@link AnnotationTableCell}. */
+    private Viewport annotationCells;
+    /** The table rows and cells of the viewport with the former cells. */
+    private Viewport legacyCells;
+
+    /** The rows of the table and their cells (one per column) that are reused while scrolling. */
+    private static class Viewport {
+        final List<TableRow<PhenoRow>> tableRows = new ArrayList<>();
+        final List<List<TableCell<PhenoRow, String>>> cells = new ArrayList<>();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        new JFXPanel(); // starts the JavaFX toolkit
+        Platform.setImplicitExit(false);
+        onFxThread(() -> {
+            table = new TableView<>(FXCollections.observableArrayList(mergedTable(rows)));
+            for (String property : COLUMNS) {
+                TableColumn<PhenoRow, String> column = new TableColumn<>(property);
+                column.setCellValueFactory(new PropertyValueFactory<>(property));
+                table.getColumns().add(column);
+            }
+            ColumnContextMenu menu = new ColumnContextMenu((description, row, action) -> action.apply(row))
+                    .item("Clear", row -> row.setSex(""));
+            annotationCells = viewport(i -> {
+                switch (COLUMNS[i]) {
+                    case "phenotypeName": return new AnnotationTableCell(false, PhenoRow::getPhenotypeID);
+                    case "onsetName": return new AnnotationTableCell(false, PhenoRow::getOnsetID);
+                    default: return menu.install(new AnnotationTableCell(false, null));
+                }
+            });
+            legacyCells = viewport(i -> {
+                switch (COLUMNS[i]) {
+                    case "phenotypeName": return new LegacyTooltipCell(true);
+                    case "onsetName": return new LegacyTooltipCell(false);
+                    case "diseaseID": case "diseaseName": case "modifier": case "biocuration":
+                        return new TextFieldTableCell<>(new DefaultStringConverter());
+                    default: return legacyMenuCell();
+                }
+            });
+            return null;
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        onFxThread(() -> {
+            table.getItems().clear();
+            return null;
+        });
+    }
+
+    @Benchmark
+    public long scrollAnnotationCells() throws Exception {
+        return onFxThread(() -> scroll(annotationCells));
+    }
+
+    @Benchmark
+    public long scrollLegacyCells() throws Exception {
+        return onFxThread(() -> scroll(legacyCells));
+    }
+
+    /** @return the total length of the texts shown (returned so that the work is not eliminated). */
+    private long scroll(Viewport viewport) {
+        long length = 0;
+        for (int top = 0; top + VISIBLE_ROWS <= rows; top++) {
+            for (int r = 0; r < VISIBLE_ROWS; r++) {
+                viewport.tableRows.get(r).updateIndex(top + r);
+                for (TableCell<PhenoRow, String> cell : viewport.cells.get(r)) {
+                    cell.updateIndex(top + r);
+                    String text = cell.getText();
+                    length += text == null ? 0 : text.length();
+                }
+            }
+        }
+        return length;
+    }
+
+    private interface CellMaker {
+        TableCell<PhenoRow, String> make(int columnIndex);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Viewport viewport(CellMaker maker) {
+        Viewport viewport = new Viewport();
+        for (int r = 0; r < VISIBLE_ROWS; r++) {
+            TableRow<PhenoRow> tableRow = new TableRow<>();
+            tableRow.updateTableView(table);
+            List<TableCell<PhenoRow, String>> cells = new ArrayList<>();
+            for (int c = 0; c < COLUMNS.length; c++) {
+                TableCell<PhenoRow, String> cell = maker.make(c);
+                cell.updateTableView(table);
+                cell.updateTableColumn((TableColumn<PhenoRow, String>) table.getColumns().get(c));
+                cell.updateTableRow(tableRow);
+                cells.add(cell);
+            }
+            viewport.tableRows.add(tableRow);
+            viewport.cells.add(cells);
+        }
+        return viewport;
+    }
+
+    /** Rows such as those of a small file into which many text-mined annotations have been merged. */
+    private static List<PhenoRow> mergedTable(int n) {
+        List<PhenoRow> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            PhenoRow row = new PhenoRow();
+            row.setDiseaseID("OMIM:100100");
+            row.setDiseaseName("PRUNE BELLY SYNDROME");
+            row.setPhenotypeID(String.format("HP:%07d", 1000 + i));
+            row.setPhenotypeName("Phenotypic abnormality number " + i);
+            row.setOnsetID(i % 3 == 0 ? "HP:0003577" : "");
+            row.setOnsetName(i % 3 == 0 ? "Congenital onset" : "");
+            row.setFrequency(i % 5 == 0 ? "HP:0040283" : "");
+            row.setSex("");
+            row.setNegation(i % 17 == 0 ? "NOT" : "");
+            row.setModifier("");
+            row.setDescription(i % 4 == 0 ? "Text-mined from the abstract" : "");
+            row.setPublication("PMID:" + (10000000 + i % 50));
+            row.setEvidence("PCS");
+            row.setBiocuration("HPO:probinson[2018-06-01]");
+            list.add(row);
+        }
+        return list;
+    }
+
+    /** The former cells of the phenotype name and onset columns. */
+    private static class LegacyTooltipCell extends TableCell<PhenoRow, String> {
+        private final boolean phenotype;
+
+        LegacyTooltipCell(boolean phenotype) {
+            this.phenotype = phenotype;
+        }
+
+        @Override
+        public void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            if (item == null) {
+                setTooltip(null);
+                setText(null);
+            } else {
+                Tooltip tooltip = new Tooltip();
+                PhenoRow myModel = getTableView().getItems().get(getTableRow().getIndex());
+                tooltip.setText(phenotype ? myModel.getPhenotypeID() : myModel.getOnsetID());
+                setTooltip(tooltip);
+                setText(item);
+            }
+        }
+    }
+
+    /** The former cells of the columns with a context menu, which built the menu whenever the item changed. */
+    private static TableCell<PhenoRow, String> legacyMenuCell() {
+        final TableCell<PhenoRow, String> cell = new TableCell<>();
+        cell.itemProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue != null) {
+                final ContextMenu cellMenu = new ContextMenu();
+                MenuItem maleMenuItem = new MenuItem("MALE");
+                maleMenuItem.setOnAction(e -> ((PhenoRow) cell.getTableRow().getItem()).setSex("MALE"));
+                MenuItem femaleMenuItem = new MenuItem("FEMALE");
+                femaleMenuItem.setOnAction(e -> ((PhenoRow) cell.getTableRow().getItem()).setSex("FEMALE"));
+                MenuItem clearMenuItem = new MenuItem("Clear");
+                clearMenuItem.setOnAction(e -> ((PhenoRow) cell.getTableRow().getItem()).setSex(""));
+                cellMenu.getItems().addAll(maleMenuItem, femaleMenuItem, clearMenuItem);
+                cell.setContextMenu(cellMenu);
+            } else {
+                cell.setContextMenu(null);
+            }
+        });
+        cell.textProperty().bind(cell.itemProperty());
+        return cell;
+    }
+
+    private static <T> T onFxThread(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<>(callable);
+        Platform.runLater(task);
+        return task.get();
+    }
+}
@@ -0,0 +1,106 @@
+package org.monarchinitiative.phenotefx.benchmark;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.index.HpoAncestorIndex;
+import org.monarchinitiative.phenotefx.index.SubOntologyIndex;
+import org.monarchinitiative.phenotefx.io.SmallfileParser;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+import org.monarchinitiative.phenotefx.validation.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The validators of the {@code validation} package applied to all rows of a synthetic small file repository.
+ * @author Peter Robinson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+    private static final int FILES = 100;
+
+    private File dir;
+    private List<List<PhenoRow>> smallFiles;
+    private SubOntologyIndex subOntologies;
+
+    @Setup(Level.Trial)
+    public void setup(OntologyState ontologyState) throws IOException, PhenoteFxException {
+        dir = BenchmarkCorpus.createTempDirectory("validation");
+        List<File> paths = BenchmarkCorpus.writeSmallFiles(dir, FILES, 30,
+                BenchmarkCorpus.phenotypeTerms(ontologyState.parser.getTerms()));
+        smallFiles = new ArrayList<>();
+        for (File f : paths) {
+            smallFiles.add(new ArrayList<>(new SmallfileParser(f, ontologyState.ontology).parse()));
+        }
+        subOntologies = SubOntologyIndex.build(ontologyState.ontology, HpoAncestorIndex.build(ontologyState.ontology));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkCorpus.deleteRecursively(dir);
+    }
+
+    /** @return the number of invalid fields (returned so that the work is not eliminated). */
+    @Benchmark
+    public int fieldValidators() {
+        int invalid = 0;
+        for (List<PhenoRow> rows : smallFiles) {
+            for (PhenoRow row : rows) {
+                if (!HPOValidator.isValid(row.getPhenotypeID())) invalid++;
+                if (!EvidenceValidator.isValid(row.getEvidence())) invalid++;
+                if (!NotValidator.isValid(row.getNegation())) invalid++;
+                if (!FrequencyValidator.isValid(row.getFrequency(), subOntologies)) invalid++;
+                if (!BiocurationValidator.isValid(row.getBiocuration())) invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    @Benchmark
+    public int smallFileValidator() {
+        int invalid = 0;
+        for (List<PhenoRow> rows : smallFiles) {
+            if (!new SmallFileValidator(rows).isValid()) invalid++;
+        }
+        return invalid;
+    }
+
+    /** All rules of the repository checks; compare with {@link #fieldValidators()} plus {@link #smallFileValidator()}. */
+    @Benchmark
+    public int validationEngine() {
+        ValidationEngine engine = ValidationEngine.standard(subOntologies);
+        int invalid = 0;
+        for (List<PhenoRow> rows : smallFiles) {
+            invalid += engine.validate(rows).size();
+        }
+        return invalid;
+    }
+}
@@ -45,6 +45,8 @@ import java.util.Properties;
  * @version 0.3.7 (July 13, 2018)
  */
 public class PhenoteFX extends Application {
+    /** Reference to the presenter of the main window, which is notified when the application is closed. */
+    private PhenotePresenter presenter = null;
 
     @Override
     public void start(Stage stage) {
@@ -66,13 +68,16 @@ public class PhenoteFX extends Application {
                 // Won't work on Windows or Linux. Just skip it!
             }
         }
-        PhenotePresenter presenter = (PhenotePresenter) appView.getPresenter();
+        presenter = (PhenotePresenter) appView.getPresenter();
         presenter.setPrimaryStage(stage);
         stage.show();
     }
 
     @Override
     public void stop() {
+        if (presenter != null) {
+            presenter.closeAutosaveJournal();
+        }
         Injector.forgetAll();
     }
 
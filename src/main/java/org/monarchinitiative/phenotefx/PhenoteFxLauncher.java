@@ -0,0 +1,43 @@
+package org.monarchinitiative.phenotefx;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.application.Application;
+import org.monarchinitiative.phenotefx.cli.PhenoteFxCommandLine;
+
+/**
+ * Main class of the PhenoteFX jar. Without arguments, the graphical user interface ({@link PhenoteFX}) is started.
+ * Otherwise the arguments are passed to {@link PhenoteFxCommandLine}, which runs a command without starting the
+ * JavaFX toolkit. This class must not extend {@link Application}: the java launcher starts the toolkit for such a
+ * main class before {@code main} is called, which fails on a machine without a display.
+ * @author Peter Robinson
+ */
+public class PhenoteFxLauncher {
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            Application.launch(PhenoteFX.class);
+        } else {
+            PhenoteFxCommandLine.configureLogging();
+            System.exit(PhenoteFxCommandLine.run(args));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.monarchinitiative.phenotefx.cli;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.io.HPOParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A subcommand of the {@link PhenoteFxCommandLine}. Each command fills a report (which is written as JSON) and
+ * returns one of the exit codes defined in {@link PhenoteFxCommandLine}.
+ * @author Peter Robinson
+ */
+public abstract class Command {
+    /** Directory with the small files. */
+    protected final String smallFileDirectory;
+    /** Path to hp.obo. */
+    protected final String hpoPath;
+    /** Number of worker threads. */
+    protected final int threads;
+
+    protected Command(String smallFileDirectory, String hpoPath, int threads) {
+        this.smallFileDirectory = smallFileDirectory;
+        this.hpoPath = hpoPath;
+        this.threads = threads;
+    }
+
+    /** @return the name of the command as used on the command line, e.g., validate. */
+    public abstract String getName();
+
+    /**
+     * Run the command.
+     * @param report the command adds its results to this map, which is written as the JSON report
+     * @return the exit code
+     */
+    protected abstract int execute(Map<String, Object> report) throws PhenoteFxException;
+
+    /** @return a short (one line) summary of the report for the console. */
+    protected abstract String summarize(Map<String, Object> report);
+
+    /**
+     * Run the command and write the report.
+     * @param reportStream stream to which the JSON report is written
+     * @return the exit code
+     */
+    public int run(OutputStream reportStream) throws PhenoteFxException {
+        long start = System.currentTimeMillis();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("command", getName());
+        report.put("directory", new File(smallFileDirectory).getAbsolutePath());
+        report.put("threads", threads);
+        int status = execute(report);
+        report.put("elapsedMillis", System.currentTimeMillis() - start);
+        report.put("exitCode", status);
+        ObjectMapper mapper = new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            mapper.writeValue(reportStream, report);
+            reportStream.write('\n');
+            reportStream.flush();
+        } catch (IOException e) {
+            throw new PhenoteFxException("Could not write report: " + e.getMessage());
+        }
+        System.err.println(String.format("%s: %s (%d ms)", getName(), summarize(report), report.get("elapsedMillis")));
+        return status;
+    }
+
+    /** @return the HPO ontology parsed from {@link #hpoPath}. */
+    protected HpoOntology loadOntology() throws PhenoteFxException {
+        HpoOntology ontology = new HPOParser(hpoPath).getHpoOntology();
+        if (ontology == null) {
+            throw new PhenoteFxException(String.format("Could not parse HPO ontology from %s", hpoPath));
+        }
+        return ontology;
+    }
+}
@@ -0,0 +1,210 @@
+package org.monarchinitiative.phenotefx.cli;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.ConsoleAppender;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.gui.Platform;
+import org.monarchinitiative.phenotefx.validation.HPOValidator;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Headless commands for repository-wide tasks, e.g., for continuous integration of the annotation repository.
+ * {@link org.monarchinitiative.phenotefx.PhenoteFxLauncher}, the main class of the jar, runs a command whenever it
+ * is given arguments. Commands do not start the JavaFX toolkit and can be run on a machine without a display:
+ * <pre>
+ * java -jar PhenoteFX.jar validate --dir hpo-annotation-data/rare-diseases/annotated --report report.json
+ * </pre>
+ * The command writes a JSON report (to standard output unless {@code --report} is given), prints a one-line
+ * summary and any log messages ({@link #configureLogging()}) to standard error, and exits with {@link #EXIT_OK}, {@link #EXIT_CHECKS_FAILED} (e.g., validation
+ * errors), {@link #EXIT_USAGE} (bad arguments) or {@link #EXIT_ERROR} (e.g., hp.obo could not be read).
+ * @author Peter Robinson
+ */
+public class PhenoteFxCommandLine {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_CHECKS_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_ERROR = 3;
+
+    private static final Set<String> COMMANDS = new HashSet<>(Arrays.asList("validate", "update-labels", "stats", "search"));
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java -jar PhenoteFX.jar <command> --dir <small file directory> [options]",
+            "(main class org.monarchinitiative.phenotefx.PhenoteFxLauncher; without arguments, the GUI is started)",
+            "Commands:",
+            "  validate        check all small files with the PhenoteFX validators",
+            "  update-labels   replace outdated HPO ids and labels in all small files",
+            "  stats           summary statistics about the small files",
+            "  search          find the small files annotated with an HPO term or its descendants",
+            "Options:",
+            "  --dir <path>     directory with the small files (required)",
+            "  --hpo <path>     hp.obo file (default: hp.obo in the PhenoteFX directory)",
+            "  --report <path>  write the JSON report to this file (default: standard output)",
+            "  --threads <n>    number of worker threads (default: number of cores)",
+            "  --dry-run        update-labels: only report outdated ids and labels",
+            "  --term <id>      search: HPO id to search for (may be repeated)",
+            "  --exact          search: do not include the descendants of the terms",
+            "  --negated        search: also find negated (NOT) annotations");
+
+    /**
+     * Send log messages (warnings and errors only) to standard error, so that they do not end up in the JSON report
+     * when it is written to standard output. The default log4j2 configuration logs errors to standard output. Does
+     * nothing if a configuration file was given with {@code -Dlog4j.configurationFile}.
+     */
+    public static void configureLogging() {
+        if (System.getProperty("log4j.configurationFile") != null) {
+            return;
+        }
+        ConfigurationBuilder<BuiltConfiguration> builder = ConfigurationBuilderFactory.newConfigurationBuilder();
+        builder.add(builder.newAppender("stderr", "Console")
+                .addAttribute("target", ConsoleAppender.Target.SYSTEM_ERR)
+                .addAttribute("follow", true)
+                .add(builder.newLayout("PatternLayout").addAttribute("pattern", "[%p] %m%n")));
+        builder.add(builder.newRootLogger(Level.WARN).add(builder.newAppenderRef("stderr")));
+        ((LoggerContext) LogManager.getContext(false)).start(builder.build());
+    }
+
+    /** @return true if s is the name of a command. */
+    private static boolean isCommand(String s) {
+        return COMMANDS.contains(s);
+    }
+
+    /**
+     * Parse the arguments and run the command.
+     * @return the exit code
+     */
+    public static int run(String[] args) {
+        if (args.length == 0 || !isCommand(args[0])) {
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        String commandName = args[0];
+        String dir = null;
+        String hpo = null;
+        String reportPath = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean dryRun = false;
+        List<String> terms = new ArrayList<>();
+        boolean includeDescendants = true;
+        boolean includeNegated = false;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--dir":
+                        dir = value(args, ++i);
+                        break;
+                    case "--hpo":
+                        hpo = value(args, ++i);
+                        break;
+                    case "--report":
+                        reportPath = value(args, ++i);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i));
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("--threads must be at least 1");
+                        }
+                        break;
+                    case "--dry-run":
+                        dryRun = true;
+                        break;
+                    case "--term":
+                        String term = value(args, ++i);
+                        if (!HPOValidator.isValid(term)) {
+                            throw new IllegalArgumentException(String.format("Malformed HPO id %s", term));
+                        }
+                        terms.add(term);
+                        break;
+                    case "--exact":
+                        includeDescendants = false;
+                        break;
+                    case "--negated":
+                        includeNegated = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (dir == null) {
+                throw new IllegalArgumentException("--dir is required");
+            }
+            if (commandName.equals("search") && terms.isEmpty()) {
+                throw new IllegalArgumentException("search needs at least one --term");
+            }
+            if (!new File(dir).isDirectory()) {
+                throw new IllegalArgumentException(String.format("%s is not a directory", dir));
+            }
+            if (hpo == null) {
+                File defaultHpo = Platform.getPhenoteFXDir() == null ? null : Platform.getLocalHpOboPath();
+                hpo = defaultHpo == null ? null : defaultHpo.getAbsolutePath();
+            }
+            if (hpo == null || !new File(hpo).isFile()) {
+                throw new IllegalArgumentException(String.format("Could not find hp.obo at %s (use --hpo)", hpo));
+            }
+        } catch (IllegalArgumentException e) { // includes NumberFormatException
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        Command command = createCommand(commandName, dir, hpo, threads, dryRun, terms, includeDescendants, includeNegated);
+        try (OutputStream out = reportPath == null ? new FilterOutputStream(System.out) {
+                @Override
+                public void close() throws IOException {
+                    flush(); // do not close standard output
+                }
+            } : new BufferedOutputStream(new FileOutputStream(reportPath))) {
+            return command.run(out);
+        } catch (PhenoteFxException | IOException | RuntimeException e) {
+            System.err.println(String.format("%s failed: %s", commandName, e.getMessage()));
+            return EXIT_ERROR;
+        }
+    }
+
+    private static Command createCommand(String name, String dir, String hpo, int threads, boolean dryRun,
+                                         List<String> terms, boolean includeDescendants, boolean includeNegated) {
+        switch (name) {
+            case "update-labels":
+                return new UpdateLabelsCommand(dir, hpo, threads, dryRun);
+            case "stats":
+                return new StatsCommand(dir, hpo, threads);
+            case "search":
+                return new SearchCommand(dir, hpo, threads, terms, includeDescendants, includeNegated);
+            case "validate":
+            default:
+                return new ValidateCommand(dir, hpo, threads);
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(String.format("Missing value for %s", args[i - 1]));
+        }
+        return args[i];
+    }
+}
@@ -0,0 +1,126 @@
+package org.monarchinitiative.phenotefx.cli;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.index.HpoAncestorIndex;
+import org.monarchinitiative.phenotefx.index.HpoAnnotationIndex;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileIngestor;
+
+import java.util.*;
+
+/**
+ * Finds the small files (diseases) and rows that are annotated with HPO terms, by default including the
+ * descendants of the terms and excluding negated annotations. All small files are read once into an
+ * {@link HpoAnnotationIndex}, which then answers each query. Exits with
+ * {@link PhenoteFxCommandLine#EXIT_CHECKS_FAILED} if one of the terms is not in the ontology.
+ * @author Peter Robinson
+ */
+public class SearchCommand extends Command {
+    /** The HPO ids to search for, e.g., HP:0001250. */
+    private final List<String> terms;
+    /** If true, also find the annotations of the descendants of the terms. */
+    private final boolean includeDescendants;
+    /** If true, also find negated ("NOT") annotations. */
+    private final boolean includeNegated;
+
+    public SearchCommand(String smallFileDirectory, String hpoPath, int threads, List<String> terms,
+                         boolean includeDescendants, boolean includeNegated) {
+        super(smallFileDirectory, hpoPath, threads);
+        this.terms = terms;
+        this.includeDescendants = includeDescendants;
+        this.includeNegated = includeNegated;
+    }
+
+    @Override
+    public String getName() {
+        return "search";
+    }
+
+    @Override
+    protected int execute(Map<String, Object> report) throws PhenoteFxException {
+        HpoOntology ontology = loadOntology();
+        V2SmallFileIngestor ingestor = new V2SmallFileIngestor(smallFileDirectory, ontology, threads);
+        long start = System.currentTimeMillis();
+        HpoAnnotationIndex index = HpoAnnotationIndex.build(ingestor.getV2SmallFileEntries(), HpoAncestorIndex.build(ontology));
+        report.put("indexMillis", System.currentTimeMillis() - start);
+        report.put("smallFiles", index.getNumberOfSmallFiles());
+        report.put("annotations", index.getNumberOfAnnotations());
+        report.put("unindexedAnnotations", index.getNumberOfUnindexedAnnotations());
+        report.put("includeDescendants", includeDescendants);
+        report.put("includeNegated", includeNegated);
+        List<String> unknownTerms = new ArrayList<>();
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (String term : terms) {
+            TermId tid = TermId.constructWithPrefix(term);
+            TermId current = index.getAncestorIndex().getCurrentId(tid);
+            if (current == null) {
+                unknownTerms.add(term);
+                continue;
+            }
+            start = System.currentTimeMillis();
+            List<HpoAnnotationIndex.Match> matches = index.search(tid, includeDescendants, includeNegated);
+            long queryMillis = System.currentTimeMillis() - start;
+            Set<String> smallFiles = new LinkedHashSet<>();
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (HpoAnnotationIndex.Match match : matches) {
+                smallFiles.add(match.getBasename());
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("smallFile", match.getBasename());
+                row.put("diseaseId", match.getDiseaseId());
+                row.put("diseaseName", match.getDiseaseName());
+                row.put("row", match.getRow());
+                row.put("termId", match.getTermId().getIdWithPrefix());
+                row.put("negated", match.isNegated());
+                rows.add(row);
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("termId", current.getIdWithPrefix());
+            result.put("label", ontology.getTermMap().get(current).getName());
+            result.put("queryMillis", queryMillis);
+            result.put("smallFiles", smallFiles.size());
+            result.put("annotations", matches.size());
+            result.put("matches", rows);
+            results.put(term, result);
+        }
+        report.put("results", results);
+        report.put("unknownTerms", unknownTerms);
+        return unknownTerms.isEmpty() ? PhenoteFxCommandLine.EXIT_OK : PhenoteFxCommandLine.EXIT_CHECKS_FAILED;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected String summarize(Map<String, Object> report) {
+        List<String> found = new ArrayList<>();
+        for (Map.Entry<String, Object> e : ((Map<String, Object>) report.get("results")).entrySet()) {
+            Map<String, Object> result = (Map<String, Object>) e.getValue();
+            found.add(String.format("%s in %s small files (%s annotations)", e.getKey(), result.get("smallFiles"),
+                    result.get("annotations")));
+        }
+        List<?> unknown = (List<?>) report.get("unknownTerms");
+        if (!unknown.isEmpty()) {
+            found.add(String.format("not in the ontology: %s", unknown));
+        }
+        return String.join("; ", found);
+    }
+}
@@ -0,0 +1,97 @@
+package org.monarchinitiative.phenotefx.cli;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileIngestor;
+
+import java.util.*;
+
+/**
+ * Summary statistics about the small files in the directory (number of diseases, annotations, terms, and the
+ * use of evidence codes, frequencies, negation, and biocurators).
+ * @author Peter Robinson
+ */
+public class StatsCommand extends Command {
+
+    public StatsCommand(String smallFileDirectory, String hpoPath, int threads) {
+        super(smallFileDirectory, hpoPath, threads);
+    }
+
+    @Override
+    public String getName() {
+        return "stats";
+    }
+
+    @Override
+    protected int execute(Map<String, Object> report) throws PhenoteFxException {
+        V2SmallFileIngestor ingestor = new V2SmallFileIngestor(smallFileDirectory, loadOntology(), threads);
+        Set<String> diseases = new HashSet<>();
+        Set<String> terms = new HashSet<>();
+        Map<String, Integer> evidenceCounts = new TreeMap<>();
+        Map<String, Integer> biocuratorCounts = new TreeMap<>();
+        int annotations = 0;
+        int negated = 0;
+        int withFrequency = 0;
+        int withOnset = 0;
+        for (V2SmallFile v2 : ingestor.getV2SmallFileEntries()) {
+            for (V2SmallFileEntry entry : v2.getOriginalEntryList()) {
+                annotations++;
+                diseases.add(entry.getDiseaseID());
+                terms.add(entry.getPhenotypeId().getIdWithPrefix());
+                evidenceCounts.merge(entry.getEvidenceCode(), 1, Integer::sum);
+                if ("NOT".equals(entry.getNegation())) negated++;
+                if (!isEmpty(entry.getFrequencyModifier())) withFrequency++;
+                if (!isEmpty(entry.getAgeOfOnsetId())) withOnset++;
+                for (String biocuration : entry.getBiocuration().split(";")) {
+                    int i = biocuration.indexOf('[');
+                    String curator = i > 0 ? biocuration.substring(0, i) : biocuration;
+                    if (!curator.isEmpty()) {
+                        biocuratorCounts.merge(curator, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        report.put("smallFiles", ingestor.getNumberOfSmallFiles());
+        report.put("diseases", diseases.size());
+        report.put("annotations", annotations);
+        report.put("distinctTerms", terms.size());
+        report.put("negatedAnnotations", negated);
+        report.put("annotationsWithFrequency", withFrequency);
+        report.put("annotationsWithOnset", withOnset);
+        report.put("evidenceCodes", evidenceCounts);
+        report.put("biocurators", biocuratorCounts);
+        report.put("parseErrors", ingestor.getFileErrors());
+        return PhenoteFxCommandLine.EXIT_OK;
+    }
+
+    @Override
+    protected String summarize(Map<String, Object> report) {
+        return String.format("%s annotations of %s diseases in %s small files",
+                report.get("annotations"), report.get("diseases"), report.get("smallFiles"));
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isEmpty();
+    }
+}
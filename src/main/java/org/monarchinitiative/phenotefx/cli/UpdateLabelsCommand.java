@@ -0,0 +1,75 @@
+package org.monarchinitiative.phenotefx.cli;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.smallfile.SmallFileLabelUpdater;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileIngestor;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Replaces outdated HPO ids and labels in all small files of the directory. With {@code --dry-run}, the small
+ * files are not changed and the command exits with {@link PhenoteFxCommandLine#EXIT_CHECKS_FAILED} if any of
+ * them is outdated.
+ * @author Peter Robinson
+ */
+public class UpdateLabelsCommand extends Command {
+    /** If true, report the outdated ids and labels but do not write the small files. */
+    private final boolean dryRun;
+
+    public UpdateLabelsCommand(String smallFileDirectory, String hpoPath, int threads, boolean dryRun) {
+        super(smallFileDirectory, hpoPath, threads);
+        this.dryRun = dryRun;
+    }
+
+    @Override
+    public String getName() {
+        return "update-labels";
+    }
+
+    @Override
+    protected int execute(Map<String, Object> report) throws PhenoteFxException {
+        SmallFileLabelUpdater updater = new SmallFileLabelUpdater(smallFileDirectory, loadOntology(), !dryRun);
+        V2SmallFileIngestor ingestor = updater.updateAll(threads);
+        report.put("dryRun", dryRun);
+        report.put("smallFiles", ingestor.getNumberOfSmallFiles());
+        report.put("updatedFiles", updater.getUpdatedDiseases());
+        report.put("updates", updater.getMessageCounts());
+        report.put("parseErrors", ingestor.getFileErrors());
+        report.put("writeErrors", updater.getWriteErrors());
+        if (!updater.getWriteErrors().isEmpty()) {
+            return PhenoteFxCommandLine.EXIT_ERROR;
+        }
+        if (dryRun && !updater.getUpdatedDiseases().isEmpty()) {
+            return PhenoteFxCommandLine.EXIT_CHECKS_FAILED;
+        }
+        return PhenoteFxCommandLine.EXIT_OK;
+    }
+
+    @Override
+    protected String summarize(Map<String, Object> report) {
+        return String.format("%d of %s small files %s outdated ids or labels",
+                ((Collection<?>) report.get("updatedFiles")).size(), report.get("smallFiles"),
+                dryRun ? "have" : "were updated for");
+    }
+}
@@ -0,0 +1,127 @@
+package org.monarchinitiative.phenotefx.cli;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.collections.ObservableList;
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.index.HpoAncestorIndex;
+import org.monarchinitiative.phenotefx.index.SubOntologyIndex;
+import org.monarchinitiative.phenotefx.io.SmallfileParser;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileIngestor;
+import org.monarchinitiative.phenotefx.validation.Diagnostic;
+import org.monarchinitiative.phenotefx.validation.SemanticValidator;
+import org.monarchinitiative.phenotefx.validation.ValidationEngine;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Parses every small file of the directory and checks it with {@link ValidationEngine#standard(SubOntologyIndex)}
+ * and against the HPO hierarchy with a {@link SemanticValidator}. Exits with {@link PhenoteFxCommandLine#EXIT_CHECKS_FAILED}
+ * if any small file has an error; warnings (e.g., redundant annotations) are reported but do not fail the check.
+ * @author Peter Robinson
+ */
+public class ValidateCommand extends Command {
+
+    public ValidateCommand(String smallFileDirectory, String hpoPath, int threads) {
+        super(smallFileDirectory, hpoPath, threads);
+    }
+
+    @Override
+    public String getName() {
+        return "validate";
+    }
+
+    @Override
+    protected int execute(Map<String, Object> report) throws PhenoteFxException {
+        HpoOntology ontology = loadOntology();
+        List<String> paths = V2SmallFileIngestor.streaming(smallFileDirectory, ontology).getSmallFilePaths();
+        SubOntologyIndex subOntologies = SubOntologyIndex.build(ontology, HpoAncestorIndex.build(ontology));
+        ValidationEngine engine = ValidationEngine.standard(subOntologies);
+        SemanticValidator semanticValidator = new SemanticValidator(subOntologies);
+        Map<String, List<String>> errors = new ConcurrentSkipListMap<>();
+        Map<String, List<String>> warnings = new ConcurrentSkipListMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String path : paths) {
+                futures.add(executor.submit(() -> {
+                    File f = new File(path);
+                    List<String> fileErrors = new ArrayList<>();
+                    List<String> fileWarnings = new ArrayList<>();
+                    validate(f, ontology, engine, semanticValidator, fileErrors, fileWarnings);
+                    if (!fileErrors.isEmpty()) {
+                        errors.put(f.getName(), fileErrors);
+                    }
+                    if (!fileWarnings.isEmpty()) {
+                        warnings.put(f.getName(), fileWarnings);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PhenoteFxException("Validation was interrupted");
+        } catch (ExecutionException e) {
+            throw new PhenoteFxException("Validation failed: " + e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        report.put("smallFiles", paths.size());
+        report.put("invalidFiles", errors.size());
+        report.put("filesWithWarnings", warnings.size());
+        report.put("errors", errors);
+        report.put("warnings", warnings);
+        return errors.isEmpty() ? PhenoteFxCommandLine.EXIT_OK : PhenoteFxCommandLine.EXIT_CHECKS_FAILED;
+    }
+
+    @Override
+    protected String summarize(Map<String, Object> report) {
+        return String.format("%s of %s small files have errors, %s have warnings",
+                report.get("invalidFiles"), report.get("smallFiles"), report.get("filesWithWarnings"));
+    }
+
+    /** Add the errors and warnings found in one small file to the lists (which stay empty if the file is valid). */
+    static void validate(File f, HpoOntology ontology, ValidationEngine engine, SemanticValidator semanticValidator,
+                         List<String> errors, List<String> warnings) {
+        ObservableList<PhenoRow> rows;
+        try {
+            rows = new SmallfileParser(f, ontology).parse();
+        } catch (PhenoteFxException e) {
+            errors.add(e.getMessage());
+            return;
+        }
+        List<Diagnostic> diagnostics = new ArrayList<>(engine.validate(rows));
+        diagnostics.addAll(semanticValidator.validate(rows));
+        for (Diagnostic diagnostic : diagnostics) {
+            if (diagnostic.getSeverity() == Diagnostic.Severity.ERROR) {
+                errors.add(diagnostic.toString());
+            } else {
+                warnings.add(diagnostic.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,571 @@
+package org.monarchinitiative.phenotefx.edit;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.collections.ObservableList;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the unsaved changes of the annotation table, so that work is not lost if PhenoteFX
+ * crashes or is closed without saving. There is one journal file per annotation file in the autosave directory
+ * (usually {@code ~/.phenotefx/autosave}). It starts with a snapshot of the rows, which is followed by one record
+ * per change (a field of a row was set, rows were removed or inserted, rows were sorted). Each record is framed
+ * by its length and a CRC32, so that a record that was only partially written before a crash is recognized and
+ * ignored, as is everything after it. After {@link #COMPACTION_THRESHOLD} changes, and whenever the file is saved,
+ * the journal is compacted, i.e., replaced by a new snapshot of the current rows. The snapshot records whether its
+ * rows contain changes that were not saved (e.g., rows that were recovered after a crash, or the changes before a
+ * compaction), so that such a journal is offered for recovery even if no change follows the snapshot.
+ * <p>
+ * The JavaFX application thread only captures the values of a change and hands them to a background writer, which
+ * encodes and appends the records and forces them to disk about once per second. {@link #findRecoverable(File)}
+ * lists the journals with unsaved changes at the next start.
+ * @author Peter Robinson
+ */
+public class AutosaveJournal {
+    private static final Logger logger = LogManager.getLogger();
+    /** "PFXJ" */
+    private static final int MAGIC = 0x5046584A;
+    /** Increment this whenever the layout of the journal changes. */
+    private static final int VERSION = 2;
+    /** The journal is compacted after this many changes. */
+    private static final int COMPACTION_THRESHOLD = 5000;
+    /** Appended records are forced to disk at most this long after they were written. */
+    private static final long SYNC_INTERVAL_MS = 1000;
+    private static final String SUFFIX = ".journal";
+    /** Name of the journal of a file that has not been saved yet. */
+    private static final String UNTITLED = "untitled";
+
+    private static final byte SNAPSHOT = 1;
+    private static final byte SET = 2;
+    private static final byte REMOVE = 3;
+    private static final byte INSERT = 4;
+    private static final byte PERMUTE = 5;
+
+    private final File directory;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "phenotefx-autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /* The following fields are only accessed on the JavaFX application thread. */
+    private ObservableList<PhenoRow> rows;
+    /** Position of each row in {@link #rows}; rebuilt at the first change of a field after the list has changed. */
+    private final Map<PhenoRow, Integer> positions = new IdentityHashMap<>();
+
+    private boolean positionsStale = true;
+    /** The journal file of the current annotation file (null if journaling has not been started). */
+    private File journalFile = null;
+    /** The path of the current annotation file (null if it has not been saved yet). */
+    private String sourcePath = null;
+    /** The number of changes since the last snapshot. */
+    private int changes = 0;
+    /** True if the rows of the last snapshot contain changes that were not saved to the annotation file. */
+    private boolean unsaved = false;
+
+    /* The following fields are only accessed by the writer thread. */
+    private FileOutputStream out = null;
+
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(256);
+
+    private final DataOutputStream record = new DataOutputStream(recordBuffer);
+
+    private final CRC32 crc = new CRC32();
+
+    private long lastSync = 0;
+    /** Set if the journal could not be written; no further records are appended until the next snapshot. */
+    private boolean failed = false;
+
+    /** Writes the payload of one record to {@link #record}. */
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * @param directory the directory of the journal files (created if needed)
+     * @param observer  the observer of the rows of the annotation table
+     */
+    public AutosaveJournal(File directory, RowListObserver observer) {
+        this.directory = directory;
+        observer.addListener(new RowListObserver.Listener() {
+            @Override
+            public void rowsSet(ObservableList<PhenoRow> newRows) {
+                rows = newRows;
+                positionsStale = true;
+            }
+
+            @Override
+            public void fieldChanged(PhenoRow row, int field, String oldValue, String newValue) {
+                if (journalFile == null) {
+                    return;
+                }
+                int position = position(row);
+                if (position < 0) {
+                    return;
+                }
+                append(out -> {
+                    out.writeByte(SET);
+                    out.writeInt(position);
+                    out.writeByte(field);
+                    writeString(out, newValue);
+                });
+            }
+
+            @Override
+            public void rowsReplaced(int from, List<? extends PhenoRow> removed, List<? extends PhenoRow> added) {
+                positionsStale = true;
+                if (journalFile == null) {
+                    return;
+                }
+                int removedSize = removed.size();
+                String[][] values = values(added);
+                append(out -> {
+                    if (removedSize > 0) {
+                        out.writeByte(REMOVE);
+                        out.writeInt(from);
+                        out.writeInt(removedSize);
+                    }
+                    if (values.length > 0) {
+                        out.writeByte(INSERT);
+                        out.writeInt(from);
+                        writeRows(out, values);
+                    }
+                });
+            }
+
+            @Override
+            public void rowsPermuted(int from, int[] permutation) {
+                positionsStale = true;
+                if (journalFile == null) {
+                    return;
+                }
+                append(out -> {
+                    out.writeByte(PERMUTE);
+                    out.writeInt(from);
+                    out.writeInt(permutation.length);
+                    for (int p : permutation) {
+                        out.writeInt(p);
+                    }
+                });
+            }
+        });
+    }
+
+    /** @return the position of the row in the table, or -1 if it is not in the table. */
+    private int position(PhenoRow row) {
+        if (positionsStale) {
+            positions.clear();
+            for (int i = 0; rows != null && i < rows.size(); i++) {
+                positions.put(rows.get(i), i);
+            }
+            positionsStale = false;
+        }
+        Integer position = positions.get(row);
+        return position == null ? -1 : position;
+    }
+
+    /** @return the values of the fields of the rows. */
+    private static String[][] values(List<? extends PhenoRow> rows) {
+        String[][] values = new String[rows.size()][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new String[PhenoRow.FIELD_COUNT];
+            for (int j = 0; j < PhenoRow.FIELD_COUNT; j++) {
+                values[i][j] = rows.get(i).getField(j);
+            }
+        }
+        return values;
+    }
+
+    /** @return the name of the journal of an annotation file (unique per path). */
+    private File journalFile(String sourcePath) {
+        if (sourcePath == null) {
+            return new File(directory, UNTITLED + SUFFIX);
+        }
+        String basename = new File(sourcePath).getName().replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(directory, String.format("%s-%08x%s", basename, sourcePath.hashCode(), SUFFIX));
+    }
+
+    /**
+     * Start journaling the changes of the rows that are currently shown in the table, which were just read from
+     * or saved to the annotation file.
+     * @param sourcePath the path of the annotation file, or null if the rows have not been saved yet
+     */
+    public void start(String sourcePath) {
+        start(sourcePath, false);
+    }
+
+    /**
+     * Start journaling the changes of the rows that are currently shown in the table.
+     * @param sourcePath the path of the annotation file, or null if the rows have not been saved yet
+     * @param unsaved    true if the rows contain changes that were not saved to the annotation file (e.g., the rows
+     *                   were recovered from a journal); the journal is then offered for recovery until they are saved
+     */
+    public void start(String sourcePath, boolean unsaved) {
+        File previous = journalFile;
+        this.sourcePath = sourcePath;
+        this.unsaved = unsaved;
+        journalFile = journalFile(sourcePath);
+        if (previous != null && !previous.equals(journalFile)) {
+            File obsolete = previous;
+            writer.execute(() -> {
+                closeStream();
+                if (obsolete.exists() && !obsolete.delete()) {
+                    logger.warn("Could not delete autosave journal {}", obsolete.getAbsolutePath());
+                }
+            });
+        }
+        compact();
+    }
+
+    /** The current rows were saved; replace the journal by a snapshot so that there are no changes to recover. */
+    public void markSaved(String sourcePath) {
+        if (journalFile != null) {
+            start(sourcePath);
+        }
+    }
+
+    /** Stop journaling and delete the journal (e.g., when PhenoteFX is closed without unsaved changes). */
+    public void discard() {
+        File file = journalFile;
+        journalFile = null;
+        if (file != null) {
+            writer.execute(() -> {
+                closeStream();
+                if (file.exists() && !file.delete()) {
+                    logger.warn("Could not delete autosave journal {}", file.getAbsolutePath());
+                }
+            });
+        }
+    }
+
+    /** Write all pending records to disk and stop the writer; waits at most a few seconds. */
+    public void close() {
+        writer.execute(this::closeStream);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Autosave journal was not closed within 5 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Replace the journal by a snapshot of the current rows. */
+    private void compact() {
+        changes = 0;
+        File file = journalFile;
+        String sourcePath = this.sourcePath;
+        boolean unsaved = this.unsaved;
+        String[][] values = rows == null ? new String[0][] : values(rows);
+        writer.execute(() -> {
+            closeStream();
+            failed = false;
+            try {
+                if (!directory.exists() && !directory.mkdirs()) {
+                    throw new IOException("Could not create directory " + directory.getAbsolutePath());
+                }
+                File tmp = new File(file.getAbsolutePath() + ".tmp");
+                try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                    DataOutputStream header = new DataOutputStream(fos);
+                    header.writeInt(MAGIC);
+                    header.writeInt(VERSION);
+                    writeRecord(fos, o -> {
+                        o.writeByte(SNAPSHOT);
+                        o.writeBoolean(unsaved);
+                        writeString(o, sourcePath);
+                        writeRows(o, values);
+                    });
+                    fos.getFD().sync();
+                }
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                out = new FileOutputStream(file, true);
+                lastSync = System.currentTimeMillis();
+            } catch (IOException e) {
+                logger.error("Could not write autosave journal {}: {}", file.getAbsolutePath(), e.getMessage());
+                failed = true;
+            }
+        });
+    }
+
+    /** Hand a change to the writer; called on the JavaFX application thread. */
+    private void append(RecordWriter change) {
+        writer.execute(() -> {
+            if (out == null || failed) {
+                return;
+            }
+            try {
+                writeRecord(out, change);
+                long now = System.currentTimeMillis();
+                if (now - lastSync >= SYNC_INTERVAL_MS) {
+                    out.getFD().sync();
+                    lastSync = now;
+                }
+            } catch (IOException e) {
+                logger.error("Could not append to autosave journal: {}", e.getMessage());
+                failed = true;
+            }
+        });
+        if (++changes >= COMPACTION_THRESHOLD) {
+            // the new snapshot contains the changes, which have not been saved
+            unsaved = true;
+            compact();
+        }
+    }
+
+    private void writeRecord(OutputStream os, RecordWriter change) throws IOException {
+        recordBuffer.reset();
+        change.write(record);
+        record.flush();
+        crc.reset();
+        crc.update(recordBuffer.toByteArray(), 0, recordBuffer.size());
+        DataOutputStream dos = new DataOutputStream(os);
+        dos.writeInt(recordBuffer.size());
+        recordBuffer.writeTo(dos);
+        dos.writeInt((int) crc.getValue());
+        dos.flush();
+    }
+
+    private void closeStream() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.getFD().sync();
+            out.close();
+        } catch (IOException e) {
+            logger.error("Could not close autosave journal: {}", e.getMessage());
+        }
+        out = null;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[n];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeRows(DataOutputStream out, String[][] values) throws IOException {
+        out.writeInt(values.length);
+        for (String[] row : values) {
+            for (String value : row) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static List<PhenoRow> readRows(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<PhenoRow> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            PhenoRow row = new PhenoRow();
+            for (int field = 0; field < PhenoRow.FIELD_COUNT; field++) {
+                row.setField(field, readString(in));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * @param directory the directory of the journal files
+     * @return the journals that contain changes that were not saved, most recently modified first.
+     */
+    public static List<Recovery> findRecoverable(File directory) {
+        List<Recovery> recoverable = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return recoverable;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        for (File file : files) {
+            try {
+                Recovery recovery = Recovery.read(file);
+                if (recovery != null && recovery.hasUnsavedChanges()) {
+                    recoverable.add(recovery);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not read autosave journal {}: {}", file.getAbsolutePath(), e.getMessage());
+            }
+        }
+        return recoverable;
+    }
+
+    /** The rows of an annotation file as reconstructed from its journal. */
+    public static final class Recovery {
+        private final File journal;
+
+        private final String sourcePath;
+
+        private final List<PhenoRow> rows;
+
+        private final int changes;
+
+        private final boolean unsavedSnapshot;
+
+        private Recovery(File journal, String sourcePath, List<PhenoRow> rows, int changes, boolean unsavedSnapshot) {
+            this.journal = journal;
+            this.sourcePath = sourcePath;
+            this.rows = rows;
+            this.changes = changes;
+            this.unsavedSnapshot = unsavedSnapshot;
+        }
+
+        /** @return the path of the annotation file, or null if it had not been saved yet. */
+        public String getSourcePath() { return sourcePath; }
+
+        /** @return the rows with all changes in the journal applied. */
+        public List<PhenoRow> getRows() { return rows; }
+
+        /** @return the number of changes since the last snapshot. */
+        public int getNumberOfChanges() { return changes; }
+
+        /** @return true if the recovered rows differ from the last saved version of the annotation file. */
+        public boolean hasUnsavedChanges() { return unsavedSnapshot || changes > 0; }
+
+        /** @return the time at which the last change was written. */
+        public Date getLastModified() { return new Date(journal.lastModified()); }
+
+        /** Delete the journal (e.g., if the curator does not want to recover the changes). */
+        public void delete() {
+            if (!journal.delete()) {
+                logger.warn("Could not delete autosave journal {}", journal.getAbsolutePath());
+            }
+        }
+
+        /**
+         * Read the snapshot and replay the changes; a record that is incomplete, corrupt (e.g., because of a crash)
+         * or of an unknown type and everything after it is ignored.
+         * @return the recovered rows, or null if the file is not a journal.
+         */
+        static Recovery read(File file) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return null;
+                }
+                byte[] payload = readRecord(in);
+                if (payload == null) {
+                    return null;
+                }
+                DataInputStream snapshot = new DataInputStream(new ByteArrayInputStream(payload));
+                if (snapshot.readByte() != SNAPSHOT) {
+                    return null;
+                }
+                boolean unsaved = snapshot.readBoolean();
+                String sourcePath = readString(snapshot);
+                List<PhenoRow> rows = readRows(snapshot);
+                int changes = 0;
+                while ((payload = readRecord(in)) != null) {
+                    try {
+                        apply(new DataInputStream(new ByteArrayInputStream(payload)), rows);
+                    } catch (IOException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                        logger.warn("Stopped replaying autosave journal {} at an invalid change: {}",
+                                file.getAbsolutePath(), e.toString());
+                        break;
+                    }
+                    changes++;
+                }
+                return new Recovery(file, sourcePath, rows, changes, unsaved);
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        /** @return the payload of the next record, or null at the end of the file or if the record is corrupt. */
+        private static byte[] readRecord(DataInputStream in) throws IOException {
+            try {
+                int n = in.readInt();
+                if (n < 0 || n > (1 << 28)) {
+                    return null;
+                }
+                byte[] payload = new byte[n];
+                in.readFully(payload);
+                int expected = in.readInt();
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                return (int) crc.getValue() == expected ? payload : null;
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        private static void apply(DataInputStream in, List<PhenoRow> rows) throws IOException {
+            while (in.available() > 0) {
+                byte type = in.readByte();
+                switch (type) {
+                    case SET:
+                        int position = in.readInt();
+                        int field = in.readByte();
+                        rows.get(position).setField(field, readString(in));
+                        break;
+                    case REMOVE:
+                        int from = in.readInt();
+                        int n = in.readInt();
+                        rows.subList(from, from + n).clear();
+                        break;
+                    case INSERT:
+                        int at = in.readInt();
+                        rows.addAll(at, readRows(in));
+                        break;
+                    case PERMUTE:
+                        int start = in.readInt();
+                        int[] permutation = new int[in.readInt()];
+                        for (int i = 0; i < permutation.length; i++) {
+                            permutation[i] = in.readInt();
+                        }
+                        List<PhenoRow> original = new ArrayList<>(rows.subList(start, start + permutation.length));
+                        for (int i = 0; i < permutation.length; i++) {
+                            rows.set(permutation[i], original.get(i));
+                        }
+                        break;
+                    default:
+                        throw new IOException("Unknown record type " + type);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package org.monarchinitiative.phenotefx.edit;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * A journal of the edits of the annotation table that supports undo and redo. The journal receives the changes
+ * of the rows of the table from a {@link RowListObserver}, and records each change as a small delta: the old and new value of one field, the rows that were added or removed
+ * at a position, or the permutation of a sort. No copies of rows or of the list are made, so that the cost of an
+ * edit does not depend on the size of the table or on the length of the history.
+ * <p>
+ * A sort of the table by a click on a column header only changes the view and is not recorded; a sort is only
+ * recorded if it is made within {@link #edit(String, Runnable)}. Since the rows may thus have been moved since an
+ * edit was recorded, the deltas find their rows by identity and use the recorded position only as a first guess
+ * (and as the position at which removed rows are inserted again).
+ * <p>
+ * The changes made within {@link #edit(String, Runnable)} are undone as one step. Changes that are made elsewhere
+ * (e.g., by a table cell or a context menu) are grouped with all other changes made during the same event, i.e.,
+ * until the next pulse of the JavaFX application thread. The journal is cleared whenever the table shows a new list
+ * (a file was opened). Like the table, the journal must only be used on the JavaFX application thread.
+ * @author Peter Robinson
+ */
+public class EditJournal {
+    private static final Logger logger = LogManager.getLogger();
+    /** The maximum number of edits that can be undone. */
+    private static final int CAPACITY = 200;
+
+    /** One reversible change of the list of rows or of a field of a row. */
+    private interface Delta {
+        void undo(ObservableList<PhenoRow> rows);
+
+        void redo(ObservableList<PhenoRow> rows);
+
+        /** @return a short description such as "edit of frequency", used if the edit has no description. */
+        String describe();
+    }
+
+    /** A change of one field of a row. */
+    private static final class FieldDelta implements Delta {
+        private final PhenoRow row;
+        private final int field;
+        private final String oldValue;
+        private String newValue;
+
+        FieldDelta(PhenoRow row, int field, String oldValue, String newValue) {
+            this.row = row;
+            this.field = field;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        @Override
+        public void undo(ObservableList<PhenoRow> rows) { row.setField(field, oldValue); }
+
+        @Override
+        public void redo(ObservableList<PhenoRow> rows) { row.setField(field, newValue); }
+
+        @Override
+        public String describe() {
+            // e.g., onsetName -> onset name
+            return "edit of " + PhenoRow.getFieldName(field).replaceAll("([a-z])([A-Z])", "$1 $2").toLowerCase();
+        }
+    }
+
+    /**
+     * A change of the biocuration entry that is added to a row when it is saved, so that an undone edit does not
+     * leave the row marked as updated.
+     */
+    private static final class BiocurationDelta implements Delta {
+        private final PhenoRow row;
+        private final String oldEntry;
+        private final String newEntry;
+
+        BiocurationDelta(PhenoRow row, String oldEntry, String newEntry) {
+            this.row = row;
+            this.oldEntry = oldEntry;
+            this.newEntry = newEntry;
+        }
+
+        @Override
+        public void undo(ObservableList<PhenoRow> rows) { row.setNewBiocurationEntry(oldEntry); }
+
+        @Override
+        public void redo(ObservableList<PhenoRow> rows) { row.setNewBiocurationEntry(newEntry); }
+
+        @Override
+        public String describe() { return "edit of biocuration"; }
+    }
+
+    /** Rows that were removed from and/or added to the list at a position. */
+    private static final class ListDelta implements Delta {
+        private final int from;
+        private final PhenoRow[] removed;
+        private final PhenoRow[] added;
+
+        ListDelta(int from, List<? extends PhenoRow> removed, List<? extends PhenoRow> added) {
+            this.from = from;
+            this.removed = removed.toArray(new PhenoRow[0]);
+            this.added = added.toArray(new PhenoRow[0]);
+        }
+
+        private static void replace(ObservableList<PhenoRow> rows, int from, PhenoRow[] oldRows, PhenoRow[] newRows) {
+            if (oldRows.length == newRows.length) {
+                for (int i = 0; i < newRows.length; i++) {
+                    rows.set(indexOf(rows, oldRows[i], from + i), newRows[i]);
+                }
+                return;
+            }
+            int position = oldRows.length == 0 ? from : indexOf(rows, oldRows[0], from);
+            if (isAt(rows, oldRows, position)) {
+                rows.remove(position, position + oldRows.length);
+            } else {
+                // the rows were moved by a sort of the table
+                for (PhenoRow row : oldRows) {
+                    rows.remove(indexOf(rows, row, position));
+                }
+            }
+            rows.addAll(Math.min(position, rows.size()), Arrays.asList(newRows));
+        }
+
+        /** @return true if the rows are at [position, position + rows.length) of the list. */
+        private static boolean isAt(List<PhenoRow> list, PhenoRow[] rows, int position) {
+            if (position + rows.length > list.size()) {
+                return false;
+            }
+            for (int i = 0; i < rows.length; i++) {
+                if (list.get(position + i) != rows[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void undo(ObservableList<PhenoRow> rows) { replace(rows, from, added, removed); }
+
+        @Override
+        public void redo(ObservableList<PhenoRow> rows) { replace(rows, from, removed, added); }
+
+        @Override
+        public String describe() {
+            if (removed.length == 0) {
+                return added.length == 1 ? "addition of a row" : String.format("addition of %d rows", added.length);
+            } else if (added.length == 0) {
+                return removed.length == 1 ? "deletion of a row" : String.format("deletion of %d rows", removed.length);
+            } else {
+                return removed.length == 1 ? "replacement of a row" : String.format("replacement of %d rows", removed.length);
+            }
+        }
+    }
+
+    /** The rows in [from, from + permutation.length) were sorted within an edit. */
+    private static final class PermutationDelta implements Delta {
+        private final int from;
+        /** The sorted rows in their order before and after the sort. */
+        private final PhenoRow[] before;
+        private final PhenoRow[] after;
+
+        /** @param rows the rows after the sort, in which row from + i moved to permutation[i] */
+        PermutationDelta(List<PhenoRow> rows, int from, int[] permutation) {
+            this.from = from;
+            this.before = new PhenoRow[permutation.length];
+            this.after = new PhenoRow[permutation.length];
+            for (int i = 0; i < permutation.length; i++) {
+                before[i] = rows.get(permutation[i]);
+                after[i] = rows.get(from + i);
+            }
+        }
+
+        /**
+         * Put the sorted rows into the given order at the positions that they currently take. The list is
+         * sorted in place, so that its listeners receive a single permutation rather than a new list.
+         */
+        private void permute(ObservableList<PhenoRow> rows, PhenoRow[] current, PhenoRow[] order) {
+            int[] positions = new int[current.length];
+            for (int i = 0; i < current.length; i++) {
+                positions[i] = indexOf(rows, current[i], from + i);
+            }
+            Arrays.sort(positions);
+            Map<PhenoRow, Integer> target = new IdentityHashMap<>(2 * order.length);
+            for (int i = 0; i < order.length; i++) {
+                target.put(order[i], positions[i]);
+            }
+            Map<PhenoRow, Integer> index = new IdentityHashMap<>(2 * rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                PhenoRow row = rows.get(i);
+                index.put(row, target.getOrDefault(row, i));
+            }
+            FXCollections.sort(rows, Comparator.comparingInt(index::get));
+        }
+
+        @Override
+        public void undo(ObservableList<PhenoRow> rows) { permute(rows, after, before); }
+
+        @Override
+        public void redo(ObservableList<PhenoRow> rows) { permute(rows, before, after); }
+
+        @Override
+        public String describe() { return "sort"; }
+    }
+
+    /**
+     * @param guess the position at which the row is expected
+     * @return the position of the row in the list (compared by identity)
+     */
+    private static int indexOf(List<PhenoRow> rows, PhenoRow row, int guess) {
+        if (guess >= 0 && guess < rows.size() && rows.get(guess) == row) {
+            return guess;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) == row) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Row of the edit is no longer in the table: " + row);
+    }
+
+    /** The deltas that are undone and redone as one step. */
+    private static final class Edit {
+        private final String description;
+        private final List<Delta> deltas = new ArrayList<>(2);
+
+        Edit(String description) {
+            this.description = description;
+        }
+
+        void add(Delta delta) {
+            // repeated changes of the same field (e.g., typing) only need the first old and the last new value
+            if (delta instanceof FieldDelta && !deltas.isEmpty() && deltas.get(deltas.size() - 1) instanceof FieldDelta) {
+                FieldDelta last = (FieldDelta) deltas.get(deltas.size() - 1);
+                if (last.row == ((FieldDelta) delta).row && last.field == ((FieldDelta) delta).field) {
+                    last.newValue = ((FieldDelta) delta).newValue;
+                    return;
+                }
+            }
+            deltas.add(delta);
+        }
+
+        String getDescription() {
+            return description != null ? description : deltas.get(0).describe();
+        }
+    }
+
+    private final Deque<Edit> undoStack = new ArrayDeque<>();
+
+    private final Deque<Edit> redoStack = new ArrayDeque<>();
+    /** The edit to which changes are currently added (null if there is none). */
+    private Edit current = null;
+    /** Nesting depth of {@link #edit(String, Runnable)}. */
+    private int depth = 0;
+    /** The number of deltas that have been recorded so far (tells whether an edit changed anything). */
+    private long recorded = 0;
+    /** True while an edit is undone or redone (these changes are not recorded). */
+    private boolean replaying = false;
+    /** The rows that are currently observed (may be null). */
+    private ObservableList<PhenoRow> rows;
+    /** Runs a task after the current event, to close the edit of changes made outside of {@link #edit}. */
+    private final Executor endOfEvent;
+
+    private final ReadOnlyBooleanWrapper canUndo = new ReadOnlyBooleanWrapper(this, "canUndo", false);
+
+    private final ReadOnlyBooleanWrapper canRedo = new ReadOnlyBooleanWrapper(this, "canRedo", false);
+
+    private final ReadOnlyStringWrapper undoDescription = new ReadOnlyStringWrapper(this, "undoDescription", "");
+
+    private final ReadOnlyStringWrapper redoDescription = new ReadOnlyStringWrapper(this, "redoDescription", "");
+
+    /** @param observer the observer of the rows of the annotation table */
+    public EditJournal(RowListObserver observer) {
+        this(observer, Platform::runLater);
+    }
+
+    /**
+     * @param observer   the observer of the rows of the annotation table
+     * @param endOfEvent runs a task after the current event (the next pulse of the JavaFX application thread)
+     */
+    EditJournal(RowListObserver observer, Executor endOfEvent) {
+        this.endOfEvent = endOfEvent;
+        observer.addListener(new RowListObserver.Listener() {
+            @Override
+            public void rowsSet(ObservableList<PhenoRow> newRows) {
+                rows = newRows;
+                clear();
+            }
+
+            @Override
+            public void fieldChanged(PhenoRow row, int field, String oldValue, String newValue) {
+                record(new FieldDelta(row, field, oldValue, newValue));
+            }
+
+            @Override
+            public void newBiocurationEntryChanged(PhenoRow row, String oldEntry, String newEntry) {
+                record(new BiocurationDelta(row, oldEntry, newEntry));
+            }
+
+            @Override
+            public void rowsReplaced(int from, List<? extends PhenoRow> removed, List<? extends PhenoRow> added) {
+                record(new ListDelta(from, removed, added));
+            }
+
+            @Override
+            public void rowsPermuted(int from, int[] permutation) {
+                // sorts by the table (a click on a column header) only change the view
+                if (depth > 0) {
+                    record(new PermutationDelta(rows, from, permutation));
+                }
+            }
+        });
+    }
+
+    /**
+     * Make changes to the rows that are undone as one step.
+     * @param description a short description of the edit, e.g., "deletion of annotations"
+     * @param mutation    the changes
+     * @return true if the changes were recorded, i.e., the mutation changed a row or the list of rows
+     */
+    public boolean edit(String description, Runnable mutation) {
+        if (depth == 0) {
+            close();
+            current = new Edit(description);
+        }
+        long recordedBefore = recorded;
+        depth++;
+        try {
+            mutation.run();
+        } finally {
+            depth--;
+            if (depth == 0) {
+                close();
+            }
+        }
+        return recorded != recordedBefore;
+    }
+
+    private void record(Delta delta) {
+        if (replaying) {
+            return;
+        }
+        recorded++;
+        if (current == null) {
+            current = new Edit(null);
+            endOfEvent.execute(() -> {
+                if (depth == 0) {
+                    close();
+                }
+            });
+        }
+        current.add(delta);
+    }
+
+    /** Push the current edit onto the undo stack. */
+    private void close() {
+        if (current == null) {
+            return;
+        }
+        if (!current.deltas.isEmpty()) {
+            undoStack.push(current);
+            if (undoStack.size() > CAPACITY) {
+                undoStack.removeLast();
+            }
+            redoStack.clear();
+            logger.trace(String.format("Recorded %s (%d changes)", current.getDescription(), current.deltas.size()));
+        }
+        current = null;
+        updateProperties();
+    }
+
+    /** Undo the last edit (if any). */
+    public void undo() {
+        close();
+        Edit edit = undoStack.poll();
+        if (edit == null) {
+            return;
+        }
+        replay(() -> {
+            for (int i = edit.deltas.size() - 1; i >= 0; i--) {
+                edit.deltas.get(i).undo(rows);
+            }
+        });
+        redoStack.push(edit);
+        updateProperties();
+    }
+
+    /** Redo the last edit that was undone (if any). */
+    public void redo() {
+        close();
+        Edit edit = redoStack.poll();
+        if (edit == null) {
+            return;
+        }
+        replay(() -> edit.deltas.forEach(delta -> delta.redo(rows)));
+        undoStack.push(edit);
+        updateProperties();
+    }
+
+    private void replay(Runnable r) {
+        replaying = true;
+        try {
+            r.run();
+        } finally {
+            replaying = false;
+        }
+    }
+
+    /** Forget all edits (e.g., after a new file was created). */
+    public void clear() {
+        current = null;
+        undoStack.clear();
+        redoStack.clear();
+        updateProperties();
+    }
+
+    private void updateProperties() {
+        canUndo.set(!undoStack.isEmpty());
+        canRedo.set(!redoStack.isEmpty());
+        undoDescription.set(undoStack.isEmpty() ? "" : undoStack.peek().getDescription());
+        redoDescription.set(redoStack.isEmpty() ? "" : redoStack.peek().getDescription());
+    }
+
+    public ReadOnlyBooleanProperty canUndoProperty() { return canUndo.getReadOnlyProperty(); }
+
+    public ReadOnlyBooleanProperty canRedoProperty() { return canRedo.getReadOnlyProperty(); }
+
+    /** @return a description of the edit that would be undone, e.g., "edit of frequency". */
+    public ReadOnlyStringProperty undoDescriptionProperty() { return undoDescription.getReadOnlyProperty(); }
+
+    /** @return a description of the edit that would be redone. */
+    public ReadOnlyStringProperty redoDescriptionProperty() { return redoDescription.getReadOnlyProperty(); }
+}
@@ -0,0 +1,144 @@
+package org.monarchinitiative.phenotefx.edit;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.*;
+
+/**
+ * Observes the list of rows that is shown in the annotation table (it follows the items property of the table)
+ * and the fields of each row, and passes each change to its listeners (e.g., {@link EditJournal} for undo and
+ * redo, {@link AutosaveJournal} for crash recovery). The observer is the {@link PhenoRow.FieldListener} of each
+ * row, so that observing a row neither creates the properties of its fields nor adds a listener per field.
+ * Must only be used on the JavaFX application thread.
+ * @author Peter Robinson
+ */
+public class RowListObserver {
+
+    /** Receives the changes of the rows of the table. */
+    public interface Listener {
+        /** The table shows a new list (e.g., a file was opened); called with the current list when registered. */
+        void rowsSet(ObservableList<PhenoRow> rows);
+
+        /** A field of a row was changed; the field is one of {@link PhenoRow#DISEASE_ID} etc. */
+        void fieldChanged(PhenoRow row, int field, String oldValue, String newValue);
+
+        /** The new biocuration entry of a row was set or cleared (see {@link PhenoRow#setNewBiocurationEntry}). */
+        default void newBiocurationEntryChanged(PhenoRow row, String oldEntry, String newEntry) {
+        }
+
+        /** Rows were removed from and/or added to the list at the position. */
+        void rowsReplaced(int from, List<? extends PhenoRow> removed, List<? extends PhenoRow> added);
+
+        /** The rows in [from, from + permutation.length) were sorted; row from + i moved to permutation[i]. */
+        void rowsPermuted(int from, int[] permutation);
+    }
+
+    private final List<Listener> listeners = new ArrayList<>(2);
+    /** The rows that are currently observed (may be null). */
+    private ObservableList<PhenoRow> rows;
+
+    private final ListChangeListener<PhenoRow> listListener = this::onListChanged;
+
+    private final PhenoRow.FieldListener fieldListener = new PhenoRow.FieldListener() {
+        @Override
+        public void fieldChanged(PhenoRow row, int field, String oldValue, String newValue) {
+            for (Listener listener : listeners) {
+                listener.fieldChanged(row, field, oldValue, newValue);
+            }
+        }
+
+        @Override
+        public void newBiocurationEntryChanged(PhenoRow row, String oldEntry, String newEntry) {
+            for (Listener listener : listeners) {
+                listener.newBiocurationEntryChanged(row, oldEntry, newEntry);
+            }
+        }
+    };
+
+    /**
+     * @param items the observable list of rows (e.g., {@code table.itemsProperty()}); the observer switches to the
+     *              new list whenever the property is set to a different list.
+     */
+    public RowListObserver(ObservableValue<ObservableList<PhenoRow>> items) {
+        items.addListener((observable, oldList, newList) -> setRows(newList));
+        setRows(items.getValue());
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        listener.rowsSet(rows);
+    }
+
+    /** @return the rows that are currently shown (may be null). */
+    public ObservableList<PhenoRow> getRows() {
+        return rows;
+    }
+
+    private void setRows(ObservableList<PhenoRow> newRows) {
+        if (rows != null) {
+            rows.removeListener(listListener);
+            rows.forEach(this::unobserve);
+        }
+        rows = newRows;
+        if (rows != null) {
+            rows.addListener(listListener);
+            rows.forEach(this::observe);
+        }
+        for (Listener listener : listeners) {
+            listener.rowsSet(rows);
+        }
+    }
+
+    private void observe(PhenoRow row) {
+        row.setFieldListener(fieldListener);
+    }
+
+    private void unobserve(PhenoRow row) {
+        if (row.getFieldListener() == fieldListener) {
+            row.setFieldListener(null);
+        }
+    }
+
+    private void onListChanged(ListChangeListener.Change<? extends PhenoRow> c) {
+        while (c.next()) {
+            if (c.wasPermutated()) {
+                int[] permutation = new int[c.getTo() - c.getFrom()];
+                for (int i = c.getFrom(); i < c.getTo(); i++) {
+                    permutation[i - c.getFrom()] = c.getPermutation(i);
+                }
+                for (Listener listener : listeners) {
+                    listener.rowsPermuted(c.getFrom(), permutation);
+                }
+            } else if (c.wasRemoved() || c.wasAdded()) {
+                c.getRemoved().forEach(this::unobserve);
+                c.getAddedSubList().forEach(this::observe);
+                for (Listener listener : listeners) {
+                    listener.rowsReplaced(c.getFrom(), c.getRemoved(), c.getAddedSubList());
+                }
+            }
+        }
+    }
+}
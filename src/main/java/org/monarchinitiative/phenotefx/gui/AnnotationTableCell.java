@@ -0,0 +1,97 @@
+package org.monarchinitiative.phenotefx.gui;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.scene.control.*;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.scene.input.MouseEvent;
+import javafx.util.Callback;
+import javafx.util.converter.DefaultStringConverter;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.function.Function;
+
+/**
+ * The cell used by all columns of the annotation table. Rendering a new item only sets the text of the cell,
+ * so that scrolling through a large table does not allocate anything. If the column has a tooltip (e.g., the HPO
+ * id of the phenotype name), the {@link Tooltip} is only created when the mouse first enters the cell, and its
+ * text is taken from the {@link PhenoRow} of the {@link TableRow} whenever it is shown. A column may also have
+ * a shared {@link ColumnContextMenu}.
+ * @author Peter Robinson
+ */
+public class AnnotationTableCell extends TextFieldTableCell<PhenoRow, String> {
+    /** Text of the tooltip for a row, or null if the column has no tooltip. */
+    private final Function<PhenoRow, String> tooltipText;
+    /** Created on the first hover. */
+    private Tooltip tooltip;
+
+    public AnnotationTableCell(boolean editable, Function<PhenoRow, String> tooltipText) {
+        super(new DefaultStringConverter());
+        this.tooltipText = tooltipText;
+        setEditable(editable);
+        if (tooltipText != null) {
+            addEventHandler(MouseEvent.MOUSE_ENTERED, e -> updateTooltip());
+        }
+    }
+
+    /**
+     * @param editable    if false, the cell cannot be edited even if the column is editable
+     * @param tooltipText text of the tooltip for a row, or null for no tooltip
+     * @param menu        the context menu of the column, or null for no context menu
+     * @return a factory for the cells of a column of the annotation table
+     */
+    public static Callback<TableColumn<PhenoRow, String>, TableCell<PhenoRow, String>> forColumn(
+            boolean editable, Function<PhenoRow, String> tooltipText, ColumnContextMenu menu) {
+        return column -> {
+            AnnotationTableCell cell = new AnnotationTableCell(editable, tooltipText);
+            return menu == null ? cell : menu.install(cell);
+        };
+    }
+
+    /** @return the annotation shown in this cell, or null if the cell is empty. */
+    private PhenoRow getPhenoRow() {
+        TableRow<?> tableRow = getTableRow();
+        Object item = tableRow == null || isEmpty() ? null : tableRow.getItem();
+        return item instanceof PhenoRow ? (PhenoRow) item : null;
+    }
+
+    /** Install the tooltip (creating it if needed) if the row has a tooltip text, and remove it otherwise. */
+    private void updateTooltip() {
+        PhenoRow row = getPhenoRow();
+        String text = row == null ? null : tooltipText.apply(row);
+        if (text == null || text.isEmpty()) {
+            setTooltip(null);
+            return;
+        }
+        if (tooltip == null) {
+            tooltip = new Tooltip();
+            // the cell may show another row by the time the tooltip appears (e.g., after scrolling with the wheel)
+            tooltip.setOnShowing(e -> {
+                PhenoRow current = getPhenoRow();
+                if (current != null) {
+                    tooltip.setText(tooltipText.apply(current));
+                }
+            });
+        }
+        tooltip.setText(text);
+        setTooltip(tooltip);
+    }
+}
@@ -0,0 +1,123 @@
+package org.monarchinitiative.phenotefx.gui;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.scene.control.*;
+import javafx.util.Callback;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A context menu that is shared by all cells of one column of the annotation table. The menu is only built when
+ * it is opened for the first time. When the user right-clicks a cell, the row of the cell becomes the target of
+ * the menu, and the chosen item passes its action together with that row to the {@link Dispatcher} of the table.
+ * Unlike a menu per cell, nothing is allocated when the table reuses its cells while scrolling.
+ * @author Peter Robinson
+ */
+public class ColumnContextMenu {
+
+    /** Something that the user can do with the row that was clicked. */
+    public interface RowAction {
+        void apply(PhenoRow row);
+    }
+
+    /** Applies the actions of the menu items to the rows; usually one dispatcher is shared by all columns. */
+    public interface Dispatcher {
+        void dispatch(String description, PhenoRow row, RowAction action);
+    }
+
+    private final Dispatcher dispatcher;
+    /** The labels of the items in the order of the menu (null for a separator). */
+    private final List<String> labels = new ArrayList<>();
+    /** The actions of the items (null for a separator). */
+    private final List<RowAction> actions = new ArrayList<>();
+    /** Built by {@link #getMenu()} when the menu is first opened. */
+    private ContextMenu menu;
+    /** The row whose cell was right-clicked most recently. */
+    private PhenoRow target;
+
+    public ColumnContextMenu(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /** Add an item with the given label and action at the end of the menu. */
+    public ColumnContextMenu item(String label, RowAction action) {
+        labels.add(label);
+        actions.add(action);
+        return this;
+    }
+
+    public ColumnContextMenu separator() {
+        labels.add(null);
+        actions.add(null);
+        return this;
+    }
+
+    /**
+     * Open this menu when the user right-clicks the cell (unless the cell does not belong to a row). The handler
+     * is attached once, when the cell is created.
+     * @return the cell
+     */
+    public <C extends TableCell<PhenoRow, ?>> C install(C cell) {
+        cell.setOnContextMenuRequested(e -> {
+            TableRow<?> tableRow = cell.getTableRow();
+            Object item = tableRow == null ? null : tableRow.getItem();
+            if (!(item instanceof PhenoRow)) {
+                return;
+            }
+            target = (PhenoRow) item;
+            getMenu().show(cell, e.getScreenX(), e.getScreenY());
+            e.consume();
+        });
+        return cell;
+    }
+
+    /** @return a factory for (non-editable) cells that open this menu. */
+    public Callback<TableColumn<PhenoRow, String>, TableCell<PhenoRow, String>> cellFactory() {
+        return AnnotationTableCell.forColumn(false, null, this);
+    }
+
+    private ContextMenu getMenu() {
+        if (menu == null) {
+            menu = new ContextMenu();
+            for (int i = 0; i < labels.size(); i++) {
+                String label = labels.get(i);
+                RowAction action = actions.get(i);
+                if (label == null) {
+                    menu.getItems().add(new SeparatorMenuItem());
+                    continue;
+                }
+                MenuItem menuItem = new MenuItem(label);
+                menuItem.setOnAction(e -> {
+                    PhenoRow row = target;
+                    target = null;
+                    if (row != null) {
+                        dispatcher.dispatch(label, row, action);
+                    }
+                });
+                menu.getItems().add(menuItem);
+            }
+        }
+        return menu;
+    }
+}
@@ -78,6 +78,15 @@ public class Platform {
     }
 
 
+    /**
+     * Get the directory in which the autosave journals of unsaved annotation files are kept.
+     * @return path to the autosave directory (which may not exist yet)
+     */
+    public static File getAutosaveDir() {
+        return new File(getPhenoteFXDir() + File.separator + "autosave");
+    }
+
+
     public static File getParametersFile() {
         String parametersFileName = "parameters.yml";
         return new File(getPhenoteFXDir() + File.separator + parametersFileName);
@@ -25,14 +25,22 @@ import impl.org.controlsfx.autocompletion.AutoCompletionTextFieldBinding;
 import impl.org.controlsfx.autocompletion.SuggestionProvider;
 import javafx.scene.control.TextField;
 import org.controlsfx.control.textfield.AutoCompletionBinding;
+import org.monarchinitiative.phenotefx.index.FuzzyIndex;
+import org.monarchinitiative.phenotefx.index.SuggestionIndex;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
 
 /**
  * This class adds missing (in my opinion) functionality to {@link org.controlsfx.control.textfield.TextFields} class.
  * Created by Daniel Danis on 5/31/17.
  */
 public class WidthAwareTextFields {
+    /** Maximum number of suggestions shown for a {@link SuggestionIndex}. */
+    private static final int MAX_SUGGESTIONS = 50;
 
     /**
      * Create autocompletion binding between given {@link TextField} instance and Collection of possible suggestions.
@@ -50,4 +58,60 @@ public class WidthAwareTextFields {
         return k;
     }
 
+    /**
+     * Create autocompletion binding between given {@link TextField} instance and a {@link SuggestionIndex}, which
+     * offers the best ranked suggestions without scanning all of them on every keystroke.
+     * Additionally, bind the minWidthProperty of suggestion box to widthProperty of textField.
+     * @param textField TextField to which the suggestions will be offered.
+     * @param index index of all possible suggestions.
+     * @return the binding
+     */
+    public static AutoCompletionBinding<String> bindWidthAwareAutoCompletion(
+            TextField textField, SuggestionIndex index) {
+        return bindWidthAwareAutoCompletion(textField, index, null);
+    }
+
+    /**
+     * As {@link #bindWidthAwareAutoCompletion(TextField, SuggestionIndex)}, but if the user text does not match any
+     * suggestion, suggestions within a small edit distance (i.e., with typos) are offered instead.
+     * @param textField TextField to which the suggestions will be offered.
+     * @param index index of all possible suggestions.
+     * @param fuzzyIndex typo-tolerant index of the same suggestions (may be null).
+     * @return the binding
+     */
+    public static AutoCompletionBinding<String> bindWidthAwareAutoCompletion(
+            TextField textField, SuggestionIndex index, FuzzyIndex fuzzyIndex) {
+        // ids of the suggestions of the current request, reused for every request of this binding. The requests run
+        // on background threads, so they take turns; the list that is returned is handed over to the FX thread
+        // and therefore cannot be reused.
+        int[] ids = new int[MAX_SUGGESTIONS];
+        AutoCompletionTextFieldBinding<String> k = new AutoCompletionTextFieldBinding<>(textField, request -> {
+            synchronized (ids) {
+                int n = index.suggest(request.getUserText(), MAX_SUGGESTIONS, ids);
+                if (n > 0) {
+                    return suggestions(ids, n, index::get);
+                }
+                if (fuzzyIndex != null) {
+                    n = fuzzyIndex.suggest(request.getUserText(), MAX_SUGGESTIONS, ids);
+                    return suggestions(ids, n, fuzzyIndex::get);
+                }
+                return Collections.emptyList();
+            }
+        });
+        k.minWidthProperty().bind(textField.widthProperty());
+        return k;
+    }
+
+    /** @return the suggestions for the first n ids. */
+    private static List<String> suggestions(int[] ids, int n, IntFunction<String> suggestion) {
+        if (n == 0) {
+            return Collections.emptyList();
+        }
+        String[] suggestions = new String[n];
+        for (int i = 0; i < n; i++) {
+            suggestions[i] = suggestion.apply(ids[i]);
+        }
+        return Arrays.asList(suggestions);
+    }
+
 }
\ No newline at end of file
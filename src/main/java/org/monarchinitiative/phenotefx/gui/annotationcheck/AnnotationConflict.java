@@ -0,0 +1,142 @@
+package org.monarchinitiative.phenotefx.gui.annotationcheck;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableSet;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A proposed annotation (e.g., from text mining) whose HPO id is already annotated in a row of the table, together
+ * with the decision of the curator about how to resolve it. The curator can either decide for the whole row
+ * ({@link Resolution}), or take the new values of individual fields ({@link Field}) and keep the rest of the old
+ * annotation. Unless the curator decides otherwise, the new annotation is added as an additional row, as it was
+ * before conflicts were reviewed. The decision is observable so that it can be shown and edited in a table.
+ * @author Peter Robinson
+ */
+public class AnnotationConflict {
+
+    public enum Resolution {
+        KEEP_OLD("Keep old annotation"),
+        TAKE_NEW("Take new annotation"),
+        TAKE_NEW_AND_ASSIGNED_BY("Take new annotation and update assigned By"),
+        TAKE_SELECTED_FIELDS("Take selected new values"),
+        ADD_AS_NEW_ROW("Add as additional row");
+
+        private final String name;
+
+        Resolution(String n) { this.name = n; }
+
+        @Override
+        public String toString() { return this.name; }
+    }
+
+    /** The fields of an annotation that can differ between the old and the new row of a conflict. */
+    public enum Field {
+        ONSET("Onset", PhenoRow::getOnsetName, (from, to) -> {
+            to.setOnsetID(from.getOnsetID());
+            to.setOnsetName(from.getOnsetName());
+        }),
+        FREQUENCY("Frequency", PhenoRow::getFrequency, (from, to) -> to.setFrequency(from.getFrequency())),
+        SEX("Sex", PhenoRow::getSex, (from, to) -> to.setSex(from.getSex())),
+        NEGATION("Negation", PhenoRow::getNegation, (from, to) -> to.setNegation(from.getNegation())),
+        MODIFIER("Modifier", PhenoRow::getModifier, (from, to) -> to.setModifier(from.getModifier())),
+        DESCRIPTION("Description", PhenoRow::getDescription, (from, to) -> to.setDescription(from.getDescription())),
+        PUBLICATION("Citation", PhenoRow::getPublication, (from, to) -> to.setPublication(from.getPublication())),
+        EVIDENCE("Evidence", PhenoRow::getEvidence, (from, to) -> to.setEvidence(from.getEvidence())),
+        BIOCURATION("Biocuration", PhenoRow::getBiocuration, (from, to) -> to.setBiocuration(from.getBiocuration()));
+
+        private final String name;
+        private final Function<PhenoRow, String> getter;
+        private final BiConsumer<PhenoRow, PhenoRow> copier;
+
+        Field(String n, Function<PhenoRow, String> getter, BiConsumer<PhenoRow, PhenoRow> copier) {
+            this.name = n;
+            this.getter = getter;
+            this.copier = copier;
+        }
+
+        public String getValue(PhenoRow row) { return getter.apply(row); }
+
+        /** Copy the value of this field from one row to another. */
+        void copy(PhenoRow from, PhenoRow to) { copier.accept(from, to); }
+
+        @Override
+        public String toString() { return this.name; }
+    }
+
+    /** Position of {@link #oldRow} in the table. */
+    private final int position;
+    private final PhenoRow oldRow;
+    private final PhenoRow newRow;
+
+    private final ObjectProperty<Resolution> resolution = new SimpleObjectProperty<>(this, "resolution", Resolution.ADD_AS_NEW_ROW);
+    /** The fields whose new values are taken with {@link Resolution#TAKE_SELECTED_FIELDS}. */
+    private final ObservableSet<Field> selectedFields = FXCollections.observableSet(EnumSet.noneOf(Field.class));
+
+    public AnnotationConflict(int position, PhenoRow oldRow, PhenoRow newRow) {
+        this.position = position;
+        this.oldRow = oldRow;
+        this.newRow = newRow;
+    }
+
+    public int getPosition() { return position; }
+
+    public PhenoRow getOldRow() { return oldRow; }
+
+    public PhenoRow getNewRow() { return newRow; }
+
+    public Resolution getResolution() { return resolution.get(); }
+
+    public void setResolution(Resolution resolution) { this.resolution.set(resolution); }
+
+    public ObjectProperty<Resolution> resolutionProperty() { return resolution; }
+
+    /** @return the fields whose new value is taken if the resolution is {@link Resolution#TAKE_SELECTED_FIELDS}. */
+    public ObservableSet<Field> getSelectedFields() { return selectedFields; }
+
+    /** @return true if the old and the new row have different values for the field. */
+    public boolean differs(Field field) {
+        return !Objects.equals(field.getValue(oldRow), field.getValue(newRow));
+    }
+
+    /**
+     * Take (or stop taking) the new value of one field. Selecting a field of a row whose old annotation is kept
+     * (with or without an additional row) switches the row to {@link Resolution#TAKE_SELECTED_FIELDS}.
+     */
+    public void selectField(Field field, boolean selected) {
+        if (selected) {
+            selectedFields.add(field);
+            if (getResolution() == Resolution.KEEP_OLD || getResolution() == Resolution.ADD_AS_NEW_ROW) {
+                setResolution(Resolution.TAKE_SELECTED_FIELDS);
+            }
+        } else {
+            selectedFields.remove(field);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package org.monarchinitiative.phenotefx.gui.annotationcheck;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.ChoiceBoxTableCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.*;
+
+/**
+ * Shows all conflicts of a batch of new annotations (e.g., the terms of one text-mined abstract) in one table, in
+ * which each row is a conflict and each field shows the current and the new value side by side. The curator
+ * decides per row (with the choice box of the Decision column) or per field: the check box of a new value takes
+ * that value for one row, and the check box in the header of a field takes the new values of the field for all
+ * rows. Fields that are identical in all conflicts are hidden.
+ * <p>
+ * The window and the (virtualized) table are created once and reused for every batch. The decisions are stored
+ * in the {@link AnnotationConflict} objects and applied to the annotation table with
+ * {@link #apply(List, ObservableList)}.
+ * @author Peter Robinson
+ */
+public class ConflictReviewer {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final Stage window;
+
+    private final Label header = new Label();
+
+    private final TableView<AnnotationConflict> table = new TableView<>();
+    /** The column of each field and the check box in its header. */
+    private final Map<AnnotationConflict.Field, TableColumn<AnnotationConflict, ?>> fieldColumns =
+            new EnumMap<>(AnnotationConflict.Field.class);
+    private final Map<AnnotationConflict.Field, CheckBox> fieldCheckBoxes = new EnumMap<>(AnnotationConflict.Field.class);
+    /** Set to true if the curator closed the window with the Apply button. */
+    private boolean applied = false;
+
+    /** @param owner the main window of the application */
+    public ConflictReviewer(Stage owner) {
+        window = new Stage();
+        window.initOwner(owner);
+        window.initModality(Modality.WINDOW_MODAL);
+        window.setOnCloseRequest(event -> applied = false);
+        header.setStyle("-fx-padding: 10px;\n" +
+                "    -fx-font-size: 20px;\n" +
+                "    -fx-background-color: ORANGERED;");
+        header.setMaxWidth(Double.MAX_VALUE);
+        setUpTable();
+
+        Button keepAllButton = new Button("Keep all old annotations");
+        keepAllButton.setOnAction(event -> setAllResolutions(AnnotationConflict.Resolution.KEEP_OLD));
+        Button takeAllButton = new Button("Take all new annotations");
+        takeAllButton.setOnAction(event -> setAllResolutions(AnnotationConflict.Resolution.TAKE_NEW));
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setCancelButton(true);
+        cancelButton.setOnAction(event -> {
+            applied = false;
+            window.close();
+        });
+        Button applyButton = new Button("Apply");
+        applyButton.setDefaultButton(true);
+        applyButton.setOnAction(event -> {
+            applied = true;
+            window.close();
+        });
+        HBox buttonBox = new HBox(10, keepAllButton, takeAllButton, cancelButton, applyButton);
+        buttonBox.setPadding(new Insets(5));
+        VBox vbox = new VBox(10, header, table, buttonBox);
+        vbox.setPrefSize(1200, 600);
+        window.setScene(new Scene(vbox));
+    }
+
+    private void setUpTable() {
+        table.setEditable(true);
+        TableColumn<AnnotationConflict, String> termColumn = new TableColumn<>("Term");
+        termColumn.setCellValueFactory(cdf -> new ReadOnlyStringWrapper(String.format("%s (%s)",
+                cdf.getValue().getOldRow().getPhenotypeName(), cdf.getValue().getOldRow().getPhenotypeID())));
+        termColumn.setPrefWidth(200);
+        table.getColumns().add(termColumn);
+
+        for (AnnotationConflict.Field field : AnnotationConflict.Field.values()) {
+            TableColumn<AnnotationConflict, String> fieldColumn = new TableColumn<>(field.toString());
+            CheckBox takeAll = new CheckBox();
+            takeAll.setTooltip(new Tooltip(String.format("Take the new %s of all annotations", field)));
+            takeAll.setOnAction(event -> {
+                for (AnnotationConflict conflict : table.getItems()) {
+                    if (conflict.differs(field)) {
+                        conflict.selectField(field, takeAll.isSelected());
+                    }
+                }
+                table.refresh();
+            });
+            fieldColumn.setGraphic(takeAll);
+            TableColumn<AnnotationConflict, String> currentColumn = new TableColumn<>("Current");
+            currentColumn.setCellValueFactory(cdf -> new ReadOnlyStringWrapper(field.getValue(cdf.getValue().getOldRow())));
+            TableColumn<AnnotationConflict, String> newColumn = new TableColumn<>("New");
+            newColumn.setCellValueFactory(cdf -> new ReadOnlyStringWrapper(field.getValue(cdf.getValue().getNewRow())));
+            newColumn.setCellFactory(column -> new NewValueCell(field));
+            fieldColumn.getColumns().add(currentColumn);
+            fieldColumn.getColumns().add(newColumn);
+            table.getColumns().add(fieldColumn);
+            fieldColumns.put(field, fieldColumn);
+            fieldCheckBoxes.put(field, takeAll);
+        }
+
+        TableColumn<AnnotationConflict, AnnotationConflict.Resolution> decisionColumn = new TableColumn<>("Decision");
+        decisionColumn.setCellValueFactory(cdf -> cdf.getValue().resolutionProperty());
+        decisionColumn.setCellFactory(ChoiceBoxTableCell.forTableColumn(AnnotationConflict.Resolution.values()));
+        decisionColumn.setPrefWidth(260);
+        table.getColumns().add(decisionColumn);
+    }
+
+    /** Shows the new value of a field with a check box that takes the new value for this row. */
+    private class NewValueCell extends TableCell<AnnotationConflict, String> {
+        private final AnnotationConflict.Field field;
+        private final CheckBox checkBox = new CheckBox();
+
+        NewValueCell(AnnotationConflict.Field field) {
+            this.field = field;
+            checkBox.setOnAction(event -> {
+                AnnotationConflict conflict = getConflict();
+                if (conflict != null) {
+                    conflict.selectField(field, checkBox.isSelected());
+                }
+            });
+        }
+
+        private AnnotationConflict getConflict() {
+            int i = getIndex();
+            return i >= 0 && i < getTableView().getItems().size() ? getTableView().getItems().get(i) : null;
+        }
+
+        @Override
+        protected void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            AnnotationConflict conflict = getConflict();
+            if (empty || conflict == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+            setText(item);
+            if (conflict.differs(field)) {
+                checkBox.setSelected(conflict.getSelectedFields().contains(field));
+                setGraphic(checkBox);
+                setStyle("-fx-font-weight: bold;");
+            } else {
+                setGraphic(null);
+                setStyle("");
+            }
+        }
+    }
+
+    private void setAllResolutions(AnnotationConflict.Resolution resolution) {
+        table.getItems().forEach(conflict -> conflict.setResolution(resolution));
+    }
+
+    /**
+     * Show the conflicts and wait until the curator has made a decision.
+     * @param conflicts the new annotations whose HPO ids are already in the table
+     * @return true if the curator applied the decisions (if false, the table should not be changed)
+     */
+    public boolean review(List<AnnotationConflict> conflicts) {
+        applied = false;
+        for (AnnotationConflict.Field field : AnnotationConflict.Field.values()) {
+            fieldColumns.get(field).setVisible(conflicts.stream().anyMatch(c -> c.differs(field)));
+            fieldCheckBoxes.get(field).setSelected(false);
+        }
+        table.getItems().setAll(conflicts);
+        header.setText(String.format("%d suggested annotations are already in the table", conflicts.size()));
+        window.setTitle(String.format("Proposed annotation updates (%d)", conflicts.size()));
+        window.showAndWait();
+        table.getItems().clear();
+        return applied;
+    }
+
+    /**
+     * Apply the decisions to the rows of the annotation table. Each replaced row is set at its position, and the
+     * rows that are added as additional rows are appended with a single {@code addAll}, so that listeners of the
+     * list (the table view, the index of rows) only see the rows that changed.
+     * @param conflicts conflicts with the decisions of the curator
+     * @param rows      the rows of the annotation table
+     * @return the number of rows that were replaced or added
+     */
+    public static int apply(List<AnnotationConflict> conflicts, ObservableList<PhenoRow> rows) {
+        List<PhenoRow> newRows = new ArrayList<>();
+        Set<String> addedIds = new HashSet<>();
+        int changes = 0;
+        for (AnnotationConflict conflict : conflicts) {
+            PhenoRow replacement = replacement(conflict);
+            if (replacement != null) {
+                rows.set(conflict.getPosition(), replacement);
+                changes++;
+            } else if (conflict.getResolution() == AnnotationConflict.Resolution.ADD_AS_NEW_ROW
+                    && addedIds.add(conflict.getNewRow().getPhenotypeID())) {
+                newRows.add(conflict.getNewRow());
+                changes++;
+            }
+        }
+        if (!newRows.isEmpty()) {
+            rows.addAll(newRows);
+        }
+        logger.trace(String.format("Applied %d of %d annotation conflicts", changes, conflicts.size()));
+        return changes;
+    }
+
+    /**
+     * @return the row that should replace the old row of the conflict in the table, or null if the old row is to
+     * be kept (with {@link AnnotationConflict.Resolution#ADD_AS_NEW_ROW}, the new row is added in addition to the
+     * old one). The rows of the conflict are not modified.
+     */
+    private static PhenoRow replacement(AnnotationConflict conflict) {
+        PhenoRow oldRow = conflict.getOldRow();
+        PhenoRow newRow = conflict.getNewRow();
+        switch (conflict.getResolution()) {
+            case TAKE_NEW:
+                // keep the biocuration history of the old row
+                PhenoRow taken = copy(newRow);
+                taken.setBiocuration(oldRow.getBiocuration());
+                return taken;
+            case TAKE_NEW_AND_ASSIGNED_BY:
+                return newRow;
+            case TAKE_SELECTED_FIELDS:
+                if (conflict.getSelectedFields().isEmpty()) {
+                    return null;
+                }
+                PhenoRow merged = copy(oldRow);
+                conflict.getSelectedFields().forEach(field -> field.copy(newRow, merged));
+                return merged;
+            default:
+                return null;
+        }
+    }
+
+    private static PhenoRow copy(PhenoRow row) {
+        PhenoRow copy = new PhenoRow();
+        copy.setDiseaseID(row.getDiseaseID());
+        copy.setDiseaseName(row.getDiseaseName());
+        copy.setPhenotypeID(row.getPhenotypeID());
+        copy.setPhenotypeName(row.getPhenotypeName());
+        for (AnnotationConflict.Field field : AnnotationConflict.Field.values()) {
+            field.copy(row, copy);
+        }
+        return copy;
+    }
+}
@@ -20,13 +20,12 @@ package org.monarchinitiative.phenotefx.gui.main;
  * #L%
  */
 
-import javafx.util.Callback;
+import javafx.beans.binding.Bindings;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyCombination;
@@ -40,27 +39,41 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.FileChooser;
 
+import org.controlsfx.control.textfield.AutoCompletionBinding;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.monarchinitiative.phenol.formats.hpo.HpoOnsetTermIds;
 import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
 import org.monarchinitiative.phenol.ontology.data.Term;
 import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.edit.AutosaveJournal;
+import org.monarchinitiative.phenotefx.edit.EditJournal;
+import org.monarchinitiative.phenotefx.edit.RowListObserver;
 import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
 import org.monarchinitiative.phenotefx.gui.*;
-import org.monarchinitiative.phenotefx.gui.annotationcheck.AnnotationCheckFactory;
+import org.monarchinitiative.phenotefx.gui.annotationcheck.AnnotationConflict;
+import org.monarchinitiative.phenotefx.gui.annotationcheck.ConflictReviewer;
 import org.monarchinitiative.phenotefx.gui.editrow.EditRowFactory;
 import org.monarchinitiative.phenotefx.gui.help.HelpViewFactory;
 import org.monarchinitiative.phenotefx.gui.logviewer.LogViewerFactory;
 import org.monarchinitiative.phenotefx.gui.newitem.NewItemFactory;
 import org.monarchinitiative.phenotefx.gui.progresspopup.ProgressPopup;
+import org.monarchinitiative.phenotefx.gui.repositorysearch.RepositorySearchView;
 import org.monarchinitiative.phenotefx.gui.settings.SettingsViewFactory;
+import org.monarchinitiative.phenotefx.index.DiseaseNameIndex;
+import org.monarchinitiative.phenotefx.index.FuzzyIndex;
+import org.monarchinitiative.phenotefx.index.HpoAncestorIndex;
+import org.monarchinitiative.phenotefx.index.PhenotypeRowIndex;
+import org.monarchinitiative.phenotefx.index.SubOntology;
+import org.monarchinitiative.phenotefx.index.SubOntologyIndex;
+import org.monarchinitiative.phenotefx.index.SuggestionIndex;
 import org.monarchinitiative.phenotefx.io.*;
 import org.monarchinitiative.phenotefx.model.*;
 import org.monarchinitiative.phenotefx.validation.*;
 import com.github.monarchinitiative.hpotextmining.HPOTextMining;
 import com.github.monarchinitiative.hpotextmining.TextMiningResult;
 import com.github.monarchinitiative.hpotextmining.model.PhenotypeTerm;
+import org.monarchinitiative.phenotefx.worker.RepositoryIndexer;
+import org.monarchinitiative.phenotefx.worker.StartupPipeline;
 import org.monarchinitiative.phenotefx.worker.TermLabelUpdater;
 
 import java.io.*;
@@ -68,6 +81,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.stream.Collectors;
 
 
 /**
@@ -98,12 +112,18 @@ public class PhenotePresenter implements Initializable {
     @FXML
     private MenuItem openFileMenuItem;
     @FXML
+    private MenuItem openByMimMenuItem;
+    @FXML
     private MenuItem exitMenuItem;
     @FXML
     private MenuItem closeMenuItem;
     @FXML
     private MenuItem saveAsMenuItem;
     @FXML
+    private MenuItem undoMenuItem;
+    @FXML
+    private MenuItem redoMenuItem;
+    @FXML
     private ChoiceBox<String> ageOfOnsetChoiceBox;
     @FXML
     private RadioButton IEAbutton;
@@ -132,6 +152,13 @@ public class PhenotePresenter implements Initializable {
     private Label lastSourceLabel;
     @FXML
     private CheckBox lastSourceBox;
+    @FXML
+    private Button addAnnotationButton;
+    /** Shows the progress of loading MedGen and the HPO at startup. */
+    @FXML
+    private Label statusLabel;
+    @FXML
+    private ProgressBar statusProgressBar;
 
     private ToggleGroup evidenceGroup;
 
@@ -139,15 +166,30 @@ public class PhenotePresenter implements Initializable {
 
     private Settings settings = null;
 
-    private Map<String, String> omimName2IdMap;
+    private DiseaseNameIndex diseaseNameIndex;
 
     private Map<String, String> hponame2idMap;
 
     private Map<String, String> hpoModifer2idMap;
 
     private Map<String, String> hpoSynonym2LabelMap;
+    /** Autocompletion of the disease names and HPO labels (kept so that they can be replaced). */
+    private AutoCompletionBinding<String> diseaseNameAutoCompletion, hpoNameAutoCompletion;
+    /** Typo-tolerant index of the HPO labels and synonyms, used to suggest terms for unknown labels. */
+    private FuzzyIndex hpoFuzzyIndex;
+    /** Autocompletion index of the HPO labels and synonyms (also used by the repository search). */
+    private SuggestionIndex hpoSuggestionIndex;
+    /** Positions of the rows of the table by HPO id; follows the list that is shown in the table. */
+    private PhenotypeRowIndex phenotypeRowIndex;
+    /** Window for the review of conflicting annotations; created at the first conflict and then reused. */
+    private ConflictReviewer conflictReviewer;
+    /** Window for searching all small files by HPO term; created at the first search and then reused. */
+    private RepositorySearchView repositorySearchView;
+    /** Records the edits of the table for undo and redo; follows the list that is shown in the table. */
+    private EditJournal editJournal;
+    /** Writes the unsaved changes of the table to a journal, so that they can be recovered after a crash. */
+    private AutosaveJournal autosaveJournal;
 
-    private HPOOnset hpoOnset;
     /**
      * Is there unsaved work?
      */
@@ -163,8 +205,13 @@ public class PhenotePresenter implements Initializable {
     private static HpoOntology ontology;
 
     private ontologizer.ontology.Ontology ontologizerOntology;
+    /** The HPO hierarchy; null until it has been built at startup. */
+    private HpoAncestorIndex ancestorIndex;
+    /** Labels, ids and membership of the modifier, onset, frequency and inheritance terms; null until built. */
+    private SubOntologyIndex subOntologies;
+    /** Checks of the annotations against the HPO hierarchy; null until the sub-ontology index has been built. */
+    private SemanticValidator semanticValidator;
 
-    private Frequency frequency;
     /**
      * Header of the current Phenote file.
      */
@@ -214,15 +261,25 @@ public class PhenotePresenter implements Initializable {
         loadSettings();
         boolean ready = checkReadiness();
         setDefaultHeader();
+        RowListObserver rowListObserver = new RowListObserver(table.itemsProperty());
+        phenotypeRowIndex = new PhenotypeRowIndex(rowListObserver);
+        editJournal = new EditJournal(rowListObserver);
+        autosaveJournal = new AutosaveJournal(Platform.getAutosaveDir(), rowListObserver);
+        undoMenuItem.textProperty().bind(Bindings.concat("Undo ", editJournal.undoDescriptionProperty()));
+        undoMenuItem.disableProperty().bind(editJournal.canUndoProperty().not());
+        redoMenuItem.textProperty().bind(Bindings.concat("Redo ", editJournal.redoDescriptionProperty()));
+        redoMenuItem.disableProperty().bind(editJournal.canRedoProperty().not());
         if (!ready) {
             return;
         }
-        inputHPOandMedGen();
         setupAutocomplete();
 
         anchorpane.setPrefSize(1400, 1000);
         setUpTable();
         table.setItems(getRows());
+        if (!offerRecovery()) {
+            autosaveJournal.start(null);
+        }
         // set up buttons
         exitMenuItem.setOnAction(e -> exitGui());
         openFileMenuItem.setOnAction(this::openPhenoteFile);
@@ -236,10 +293,6 @@ public class PhenotePresenter implements Initializable {
         PCSbutton.setToggleGroup(evidenceGroup);
         TASbutton.setToggleGroup(evidenceGroup);
         IEAbutton.setSelected(true);
-        hpoOnset = HPOOnset.factory();
-        ageOfOnsetChoiceBox.setItems(hpoOnset.getOnsetTermList());
-        this.frequency = Frequency.factory();
-        frequencyChoiceBox.setItems(frequency.getFrequencyTermList());
         this.descriptiontextField.setPromptText("free text description of anything not captured with standards (optional)");
         this.pubTextField.setPromptText("Source of assertion (usually PubMed, OMIM, Orphanet...)");
         this.frequencyTextField.setPromptText("A value such as 7/13 or 54% (leave empty if pulldown used)");
@@ -255,6 +308,7 @@ public class PhenotePresenter implements Initializable {
 
         this.lastSourceLabel.textProperty().bind(this.lastSource);
         setUpKeyAccelerators();
+        startResourcePipeline();
     }
 
     /**
@@ -279,25 +333,57 @@ public class PhenotePresenter implements Initializable {
     }
 
     /**
-     * Called by the initialize method. Serves to set up the
-     * Maps with HPO and Disease name information for the autocompletes.
+     * Called by the initialize method. Loads the Maps with HPO and Disease name information for the autocompletes
+     * and the HPO ontology in the background. The widgets that need one of these resources are disabled until it
+     * is ready, so that the curator can start working (e.g., open a small file) while the rest is still loading.
      */
-    private void inputHPOandMedGen() {
-        MedGenParser medGenParser = new MedGenParser();
-        omimName2IdMap = medGenParser.getOmimName2IdMap();
-        try {
-            HPOParser parser2 = new HPOParser();
-            ontology = parser2.getHpoOntology();
-            hponame2idMap = parser2.getHpoName2IDmap();
-            hpoSynonym2LabelMap = parser2.getHpoSynonym2PreferredLabelMap();
-            this.hpoModifer2idMap = parser2.getModifierMap();
-        } catch (Exception e) {
-            int ln = Thread.currentThread().getStackTrace()[1].getLineNumber();
-            String msg = String.format("Could not parse ontology file [PhenotePresenter line %d]: %s", ln, e.toString());
+    private void startResourcePipeline() {
+        diseaseNameTextField.setDisable(true);
+        hpoNameTextField.setDisable(true);
+        modifiertextField.setDisable(true);
+        ageOfOnsetChoiceBox.setDisable(true);
+        frequencyChoiceBox.setDisable(true);
+        addAnnotationButton.setDisable(true);
+        openFileMenuItem.setDisable(true);
+        openByMimMenuItem.setDisable(true);
+        StartupPipeline pipeline = new StartupPipeline();
+        pipeline.setOnMedGenReady(this::setMedGen);
+        pipeline.setOnHpoLabelsReady(parser -> {
+            hponame2idMap = parser.getHpoName2IDmap();
+            hpoSynonym2LabelMap = parser.getHpoSynonym2PreferredLabelMap();
+            hpoFuzzyIndex = parser.getFuzzyIndex();
+            bindHpoNameAutocomplete(parser.getSuggestionIndex());
+            hpoNameTextField.setDisable(false);
+            addAnnotationButton.setDisable(false);
+        });
+        pipeline.setOnOntologyReady(hpo -> {
+            ontology = hpo;
+            openFileMenuItem.setDisable(false);
+            openByMimMenuItem.setDisable(false);
+        });
+        pipeline.setOnAncestorIndexReady(index -> ancestorIndex = index);
+        pipeline.setOnSubOntologiesReady(index -> {
+            this.subOntologies = index;
+            semanticValidator = new SemanticValidator(index);
+            this.hpoModifer2idMap = index.getLabel2IdMap(SubOntology.CLINICAL_MODIFIER);
+            bindModifierAutocomplete();
+            modifiertextField.setDisable(false);
+            ageOfOnsetChoiceBox.setItems(FXCollections.observableArrayList(index.getLabels(SubOntology.ONSET)));
+            ageOfOnsetChoiceBox.setDisable(false);
+            frequencyChoiceBox.setItems(FXCollections.observableArrayList(index.getLabels(SubOntology.FREQUENCY)));
+            frequencyChoiceBox.setDisable(false);
+            setUpColumnContextMenus(); // the onset menu offers the onset terms
+            statusProgressBar.setVisible(false);
+        });
+        pipeline.setOnFailed((stage, e) -> {
+            String msg = String.format("Could not load %s: %s", stage, e.toString());
             logger.error(msg);
-            ErrorDialog.displayException("Error", msg, e);
-        }
-        logger.trace("Done input HPO/MedGen");
+            statusProgressBar.setVisible(false);
+            ErrorDialog.displayException("Error", msg, e instanceof Exception ? (Exception) e : new Exception(e));
+        });
+        statusLabel.textProperty().bind(pipeline.statusProperty());
+        statusProgressBar.progressProperty().bind(pipeline.progressProperty());
+        pipeline.start();
     }
 
     /**
@@ -337,6 +423,48 @@ public class PhenotePresenter implements Initializable {
     }
 
 
+    /**
+     * Offer to restore the unsaved changes that were recorded by the {@link AutosaveJournal} in a previous session
+     * (e.g., before a crash). If the curator accepts, the recovered rows are shown in the table.
+     * @return true if the rows of a journal were recovered
+     */
+    private boolean offerRecovery() {
+        for (AutosaveJournal.Recovery recovery : AutosaveJournal.findRecoverable(Platform.getAutosaveDir())) {
+            String name = recovery.getSourcePath() == null ? "a new annotation file" : recovery.getSourcePath();
+            boolean recover = PopUps.getBooleanFromUser(
+                    String.format("Recover unsaved changes to %s (last change: %s)?",
+                            name, recovery.getLastModified()),
+                    "Unsaved work from a previous session was found", "Recover unsaved work?");
+            if (recover) {
+                table.setItems(FXCollections.observableArrayList(recovery.getRows()));
+                if (recovery.getSourcePath() != null) {
+                    this.currentPhenoteFileFullPath = recovery.getSourcePath();
+                    this.currentPhenoteFileBaseName = new File(recovery.getSourcePath()).getName();
+                }
+                // the recovered changes have not been saved to the annotation file yet
+                autosaveJournal.start(recovery.getSourcePath(), true);
+                dirty = true;
+                return true;
+            }
+            recovery.delete();
+        }
+        return false;
+    }
+
+    /**
+     * Called when the application is closed. Unsaved changes stay in the autosave journal (and are offered
+     * for recovery at the next start), otherwise the journal is deleted.
+     */
+    public void closeAutosaveJournal() {
+        if (autosaveJournal == null) {
+            return;
+        }
+        if (!dirty) {
+            autosaveJournal.discard();
+        }
+        autosaveJournal.close();
+    }
+
     /**
      * Write the settings from the current session to file and exit.
      */
@@ -405,12 +533,11 @@ public class PhenotePresenter implements Initializable {
     }
 
     /**
-     * Uses the {@link WidthAwareTextFields} class to set up autocompletion for the disease name and the HPO name
+     * Binds the disease name and disease ID properties. The suggestions for the text fields are added by
+     * {@link #bindDiseaseNameAutocomplete(SuggestionIndex)}, {@link #bindHpoNameAutocomplete(SuggestionIndex)} and
+     * {@link #bindModifierAutocomplete()} once the corresponding resource has been loaded.
      */
     private void setupAutocomplete() {
-        if (omimName2IdMap != null) {
-            WidthAwareTextFields.bindWidthAwareAutoCompletion(diseaseNameTextField, omimName2IdMap.keySet());
-        }
         diseaseNameTextField.textProperty().addListener((observable, oldValue, newValue) -> {
             if (newValue.equals("")) {
                 diseaseID.setValue("");
@@ -423,25 +550,57 @@ public class PhenotePresenter implements Initializable {
         diseaseNameTextField.textProperty().bindBidirectional(diseaseName);
         diseaseNameTextField.setOnAction(e -> {
             String name = diseaseName.getValue();
-            diseaseID.setValue(omimName2IdMap.get(name));
+            if (diseaseNameIndex != null) {
+                int[] range = diseaseNameIndex.prefixRange(name);
+                if (diseaseNameIndex.getMimId(name) == null && range[1] - range[0] == 1) {
+                    // complete an unambiguous prefix to the full disease name
+                    name = diseaseNameIndex.getName(range[0]);
+                    diseaseName.setValue(name);
+                }
+                diseaseID.setValue(diseaseNameIndex.getMimId(name));
+            }
         });
-        if (hpoSynonym2LabelMap != null) {
-            WidthAwareTextFields.bindWidthAwareAutoCompletion(hpoNameTextField, hpoSynonym2LabelMap.keySet());
+    }
+
+    /** Uses the {@link WidthAwareTextFields} class to set up autocompletion for the disease name. */
+    private void bindDiseaseNameAutocomplete(SuggestionIndex index) {
+        if (diseaseNameAutoCompletion != null) {
+            diseaseNameAutoCompletion.dispose();
         }
+        diseaseNameAutoCompletion = WidthAwareTextFields.bindWidthAwareAutoCompletion(diseaseNameTextField, index);
+    }
 
+    /** Uses the {@link WidthAwareTextFields} class to set up autocompletion for the HPO term labels and synonyms. */
+    private void bindHpoNameAutocomplete(SuggestionIndex index) {
+        if (hpoNameAutoCompletion != null) {
+            hpoNameAutoCompletion.dispose();
+        }
+        hpoSuggestionIndex = index;
+        if (repositorySearchView != null) {
+            repositorySearchView.dispose();
+            repositorySearchView = null; // recreated with the new labels at the next search
+        }
+        hpoNameAutoCompletion = WidthAwareTextFields.bindWidthAwareAutoCompletion(hpoNameTextField, index, hpoFuzzyIndex);
+    }
+
+    /** Uses the {@link WidthAwareTextFields} class to set up autocompletion for the HPO clinical modifiers. */
+    private void bindModifierAutocomplete() {
         if (hpoModifer2idMap != null) {
-            WidthAwareTextFields.bindWidthAwareAutoCompletion(modifiertextField, hpoModifer2idMap.keySet());
+            SuggestionIndex index = SuggestionIndex.create(hpoModifer2idMap.keySet());
+            WidthAwareTextFields.bindWidthAwareAutoCompletion(modifiertextField, index);
         }
     }
 
+    /** @return true if there are no unsaved changes or if the curator agrees to discard them. */
+    private boolean discardUnsavedChanges() {
+        return !dirty || PopUps.getBooleanFromUser("Discard unsaved changes?", "Unsaved work on current annotation file", "Discard unsaved work?");
+    }
+
     /**
      * Open a main file ("small file") and populate the table with it.
      */
     private void openPhenoteFile(ActionEvent event) {
-        if (dirty) {
-            boolean discard = PopUps.getBooleanFromUser("Discard unsaved changes?", "Unsaved work on current annotation file", "Discard unsaved work?");
-            if (!discard) return;
-        }
+        if (!discardUnsavedChanges()) return;
         Stage stage = (Stage) this.anchorpane.getScene().getWindow();
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open Resource File");
@@ -469,6 +628,7 @@ public class PhenotePresenter implements Initializable {
             phenolist = parser.parse();
             logger.trace(String.format("About to add %d lines to the table", phenolist.size()));
             this.table.setItems(phenolist);
+            autosaveJournal.start(this.currentPhenoteFileFullPath);
 
         } catch (PhenoteFxException e) {
             PopUps.showException("Parse error",
@@ -501,72 +661,27 @@ public class PhenotePresenter implements Initializable {
         table.setEditable(true);
 
         diseaseIDcol.setCellValueFactory(new PropertyValueFactory<>("diseaseID"));
-        diseaseIDcol.setCellFactory(TextFieldTableCell.forTableColumn());
+        diseaseIDcol.setCellFactory(AnnotationTableCell.forColumn(true, null, null));
         diseaseIDcol.setOnEditCommit(cee -> cee.getTableView().getItems().get(cee.getTablePosition().getRow()).setDiseaseID(cee.getNewValue()));
 
         diseaseNamecol.setCellValueFactory(new PropertyValueFactory<>("diseaseName"));
-        diseaseNamecol.setCellFactory(TextFieldTableCell.forTableColumn());
+        diseaseNamecol.setCellFactory(AnnotationTableCell.forColumn(true, null, null));
         diseaseNamecol.setOnEditCommit(cee -> cee.getTableView().getItems().get(cee.getTablePosition().getRow()).setDiseaseName(cee.getNewValue()));
 
         phenotypeNameCol.setCellValueFactory(new PropertyValueFactory<>("phenotypeName"));
-        phenotypeNameCol.setCellFactory(new Callback<TableColumn<PhenoRow, String>, TableCell<PhenoRow, String>>() {
-            @Override
-            public TableCell<PhenoRow, String> call(TableColumn<PhenoRow, String> p) {
-                return new TableCell<PhenoRow, String>() {
-                    @Override
-                    public void updateItem(String item, boolean empty) {
-                        super.updateItem(item, empty);
-                        if (item == null) {
-                            setTooltip(null);
-                            setText(null);
-                        } else {
-                            Tooltip tooltip = new Tooltip();
-                            PhenoRow myModel = getTableView().getItems().get(getTableRow().getIndex());
-                            tooltip.setText(myModel.getPhenotypeID());
-                            setTooltip(tooltip);
-                            setText(item);
-                        }
-                    }
-                };
-            }
-        });
         phenotypeNameCol.setEditable(false);
         phenotypeNameCol.setSortable(true);
 
         ageOfOnsetNamecol.setCellValueFactory(new PropertyValueFactory<>("onsetName"));
-        ageOfOnsetNamecol.setCellFactory(new Callback<TableColumn<PhenoRow, String>, TableCell<PhenoRow, String>>() {
-            @Override
-            public TableCell<PhenoRow, String> call(TableColumn<PhenoRow, String> p) {
-                return new TableCell<PhenoRow, String>() {
-                    @Override
-                    public void updateItem(String item, boolean empty) {
-                        super.updateItem(item, empty);
-                        if (item == null) {
-                            setTooltip(null);
-                            setText(null);
-                        } else {
-                            Tooltip tooltip = new Tooltip();
-                            PhenoRow myModel = getTableView().getItems().get(getTableRow().getIndex());
-                            tooltip.setText(myModel.getOnsetID());
-                            setTooltip(tooltip);
-                            setText(item);
-                        }
-                    }
-                };
-            }
-        });
         ageOfOnsetNamecol.setEditable(false);
 
         frequencyCol.setCellValueFactory(new PropertyValueFactory<>("frequency"));
-        frequencyCol.setCellFactory(TextFieldTableCell.forTableColumn());
         frequencyCol.setEditable(false);
 
         sexCol.setCellValueFactory(new PropertyValueFactory<>("sex"));
-        sexCol.setCellFactory(TextFieldTableCell.forTableColumn());
         sexCol.setOnEditCommit(event -> event.getTableView().getItems().get(event.getTablePosition().getRow()).setSex(event.getNewValue()));
 
         negationCol.setCellValueFactory(new PropertyValueFactory<>("negation"));
-        negationCol.setCellFactory(TextFieldTableCell.forTableColumn());
         negationCol.setOnEditCommit(event -> {
                     if (NotValidator.isValid(event.getNewValue())) {
                         event.getTableView().getItems().get(event.getTablePosition().getRow()).setNegation(event.getNewValue());
@@ -577,310 +692,136 @@ public class PhenotePresenter implements Initializable {
         );
 
         modifierCol.setCellValueFactory(new PropertyValueFactory<>("modifier"));
-        modifierCol.setCellFactory(TextFieldTableCell.forTableColumn());
+        modifierCol.setCellFactory(AnnotationTableCell.forColumn(true, null, null));
         modifierCol.setEditable(true);
 
         descriptionCol.setCellValueFactory(new PropertyValueFactory<>("description"));
-        descriptionCol.setCellFactory(TextFieldTableCell.forTableColumn());
 
 
         pubCol.setCellValueFactory(new PropertyValueFactory<>("publication"));
-        pubCol.setCellFactory(TextFieldTableCell.forTableColumn());
 
 
         evidencecol.setCellValueFactory(new PropertyValueFactory<>("evidence"));
-        evidencecol.setCellFactory(TextFieldTableCell.forTableColumn());
         evidencecol.setEditable(true);
 
         biocurationCol.setCellValueFactory(new PropertyValueFactory<>("biocuration"));
-        biocurationCol.setCellFactory(TextFieldTableCell.forTableColumn());
+        biocurationCol.setCellFactory(AnnotationTableCell.forColumn(true, null, null));
         biocurationCol.setOnEditCommit(event -> event.getTableView().getItems().get(event.getTablePosition().getRow()).setBiocuration(event.getNewValue()));
 
         // The following makes the table only show the defined columns (otherwise, an "extra" column is shown)
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
-        setUpEvidenceContextMenu();
-        setUpPublicationPopupDialog();
-        setUpDescriptionPopupDialog();
-        setUpSexContextMenu();
-        setUpHpoContextMenu();
-        setUpOnsetContextMenu();
-        setUpNOTContextMenu();
-        setUpFrequencyPopupDialog();
+        setUpColumnContextMenus();
     }
 
 
     /**
-     * Set up the popup of the evidence menu.
+     * Set up the context menus of the columns. Each menu is built once and shared by the cells of its column; the
+     * items of all menus are applied to the row that was clicked by {@link #applyRowAction}.
      */
-    private void setUpEvidenceContextMenu() {
-        //enable individual cells to be selected, instead of entire rows, call
+    private void setUpColumnContextMenus() {
+        //enable individual cells to be selected, instead of entire rows
         table.getSelectionModel().setCellSelectionEnabled(true);
-        // The following sets up a context menu JUST for the evidence column.
-        evidencecol.setCellFactory( //Callback
-                (column) -> {
-                    final TableCell<PhenoRow, String> cell = new TableCell<>();
-                    cell.itemProperty().addListener(// ChangeListener
-                            (obs, oldValue, newValue) -> {
-                                if (newValue != null) {
-                                    final ContextMenu cellMenu = new ContextMenu();
-                                    MenuItem ieaMenuItem = new MenuItem("IEA");
-                                    ieaMenuItem.setOnAction(e -> {
-                                        PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                        item.setEvidence("IEA");
-                                        table.refresh();
-
-                                    });
-                                    MenuItem pcsMenuItem = new MenuItem("PCS");
-                                    pcsMenuItem.setOnAction(e -> {
-                                        PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                        item.setEvidence("PCS");
-                                        table.refresh();
-
-                                    });
-                                    MenuItem tasMenuItem = new MenuItem("TAS");
-                                    tasMenuItem.setOnAction(e -> {
-                                        PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                        item.setEvidence("TAS");
-                                        table.refresh();
-
-                                    });
-                                    cellMenu.getItems().addAll(ieaMenuItem, pcsMenuItem, tasMenuItem);
-                                    cell.setContextMenu(cellMenu);
-                                } else {
-                                    cell.setContextMenu(null);
-                                }
-
-                            });
-                    cell.textProperty().bind(cell.itemProperty());
-                    return cell;
-                });
-    }
-
-    /**
-     * Allow users to set the NOT (negation) field with a right click
-     */
-    private void setUpNOTContextMenu() {
-        //enable individual cells to be selected, instead of entire rows, call
-        table.getSelectionModel().setCellSelectionEnabled(true);
-        // The following sets up a context menu JUST for the evidence column.
-        negationCol.setCellFactory( // Callback
-                (column) -> {
-                    final TableCell<PhenoRow, String> cell = new TableCell<>();
-                    cell.itemProperty().addListener(// ChangeListener
-                            (observableValue, oldValue, newValue) -> {
-                                final ContextMenu cellMenu = new ContextMenu();
-                                final TableRow<?> row = cell.getTableRow();
-                                final ContextMenu rowMenu;
-                                if (row != null) {
-                                    rowMenu = cell.getTableRow().getContextMenu();
-                                    if (rowMenu != null) {
-                                        cellMenu.getItems().addAll(rowMenu.getItems());
-                                        cellMenu.getItems().add(new SeparatorMenuItem());
-                                    } else {
-                                        final ContextMenu tableMenu = cell.getTableView().getContextMenu();
-                                        if (tableMenu != null) {
-                                            cellMenu.getItems().addAll(tableMenu.getItems());
-                                            cellMenu.getItems().add(new SeparatorMenuItem());
-                                        }
-                                    }
-                                }
-                                MenuItem notMenuItem = new MenuItem("NOT");
-                                notMenuItem.setOnAction(e -> {
-                                    PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                    item.setNegation("NOT");
-                                    table.refresh();
-                                });
-                                MenuItem clearMenuItem = new MenuItem("Clear");
-                                clearMenuItem.setOnAction(e -> {
-                                    PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                    item.setNegation(EMPTY_STRING);
-                                    table.refresh();
-                                });
-                                cellMenu.getItems().addAll(notMenuItem, clearMenuItem);
-                                cell.setContextMenu(cellMenu);
-
-                            });
-                    cell.textProperty().bind(cell.itemProperty());
-                    return cell;
+        ColumnContextMenu evidenceMenu = new ColumnContextMenu(this::applyRowAction);
+        for (String evidence : new String[]{"IEA", "PCS", "TAS"}) {
+            evidenceMenu.item(evidence, row -> row.setEvidence(evidence));
+        }
+        evidencecol.setCellFactory(evidenceMenu.cellFactory());
+
+        negationCol.setCellFactory(new ColumnContextMenu(this::applyRowAction)
+                .item("NOT", row -> row.setNegation("NOT"))
+                .item("Clear", row -> row.setNegation(EMPTY_STRING))
+                .cellFactory());
+
+        sexCol.setCellFactory(new ColumnContextMenu(this::applyRowAction)
+                .item("MALE", row -> row.setSex("MALE"))
+                .item("FEMALE", row -> row.setSex("FEMALE"))
+                .item("Clear", row -> row.setSex(EMPTY_STRING))
+                .cellFactory());
+
+        // the onset terms are added once the sub-ontology index has been built at startup
+        ColumnContextMenu onsetMenu = new ColumnContextMenu(this::applyRowAction);
+        if (subOntologies != null) {
+            for (String name : subOntologies.getLabels(SubOntology.ONSET)) {
+                String id = subOntologies.getId(SubOntology.ONSET, name);
+                onsetMenu.item(name, row -> {
+                    row.setOnsetID(id);
+                    row.setOnsetName(name);
                 });
+            }
+        }
+        onsetMenu.item("Clear", row -> {
+            row.setOnsetID(EMPTY_STRING);
+            row.setOnsetName(EMPTY_STRING);
+        });
+        ageOfOnsetNamecol.setCellFactory(AnnotationTableCell.forColumn(false, PhenoRow::getOnsetID, onsetMenu));
+
+        ColumnContextMenu hpoMenu = new ColumnContextMenu(this::applyRowAction)
+                .item("Update to current ID(not shown) and name", this::updateToCurrentTerm)
+                .item("show HPO id of this term", row -> PopUps.showInfoMessage(
+                        String.format("%s [%s]", row.getPhenotypeName(), row.getPhenotypeID()), "Term Id"));
+        phenotypeNameCol.setCellFactory(AnnotationTableCell.forColumn(false, PhenoRow::getPhenotypeID, hpoMenu));
+
+        pubCol.setCellFactory(new ColumnContextMenu(this::applyRowAction)
+                .item("Update publication", row -> {
+                    String text = EditRowFactory.showPublicationEditDialog(row, primaryStage);
+                    if (text != null) {
+                        row.setPublication(text);
+                        row.setNewBiocurationEntry(getNewBiocurationEntry());
+                    }
+                })
+                .cellFactory());
+
+        descriptionCol.setCellFactory(new ColumnContextMenu(this::applyRowAction)
+                .item("Update description", row -> {
+                    String text = EditRowFactory.showDescriptionEditDialog(row, primaryStage);
+                    if (text != null) {
+                        row.setDescription(text);
+                        row.setNewBiocurationEntry(getNewBiocurationEntry());
+                    }
+                })
+                .item("Clear", row -> row.setDescription(EMPTY_STRING))
+                .cellFactory());
+
+        frequencyCol.setCellFactory(new ColumnContextMenu(this::applyRowAction)
+                .item("Update frequency", row -> {
+                    String text = EditRowFactory.showFrequencyEditDialog(row);
+                    if (text != null) {
+                        row.setFrequency(text);
+                        row.setNewBiocurationEntry(getNewBiocurationEntry());
+                    }
+                })
+                .item("Clear", row -> {
+                    row.setFrequency(EMPTY_STRING);
+                    row.setNewBiocurationEntry(getNewBiocurationEntry());
+                })
+                .cellFactory());
     }
 
-
     /**
-     * Set up the popup of the evidence menu.
+     * The single path by which the items of the column context menus change a row: the action is applied as one
+     * undoable edit, and the table is refreshed.
      */
-    private void setUpSexContextMenu() {
-        //enable individual cells to be selected, instead of entire rows, call
-        table.getSelectionModel().setCellSelectionEnabled(true);
-        // The following sets up a context menu JUST for the evidence column.
-        sexCol.setCellFactory( // Callback
-                (column) -> {
-                    final TableCell<PhenoRow, String> cell = new TableCell<>();
-                    cell.itemProperty().addListener(// ChangeListener
-                            (observableValue, oldValue, newValue) -> {
-                                if (newValue != null) {
-                                    final ContextMenu cellMenu = new ContextMenu();
-                                    final TableRow<?> row = cell.getTableRow();
-                                    final ContextMenu rowMenu;
-                                    if (row != null) {
-                                        rowMenu = cell.getTableRow().getContextMenu();
-                                        if (rowMenu != null) {
-                                            cellMenu.getItems().addAll(rowMenu.getItems());
-                                            cellMenu.getItems().add(new SeparatorMenuItem());
-                                        } else {
-                                            final ContextMenu tableMenu = cell.getTableView().getContextMenu();
-                                            if (tableMenu != null) {
-                                                cellMenu.getItems().addAll(tableMenu.getItems());
-                                                cellMenu.getItems().add(new SeparatorMenuItem());
-                                            }
-                                        }
-                                    }
-                                    MenuItem maleMenuItem = new MenuItem("MALE");
-                                    maleMenuItem.setOnAction(e -> {
-                                        PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                        item.setSex("MALE");
-                                        table.refresh();
-                                    });
-                                    MenuItem femaleMenuItem = new MenuItem("FEMALE");
-                                    femaleMenuItem.setOnAction(e -> {
-                                        PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                        item.setSex("FEMALE");
-                                        table.refresh();
-                                    });
-                                    MenuItem clearMenuItem = new MenuItem("Clear");
-                                    clearMenuItem.setOnAction(e -> {
-                                        PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                        item.setSex(EMPTY_STRING);
-                                        table.refresh();
-                                    });
-                                    cellMenu.getItems().addAll(maleMenuItem, femaleMenuItem, clearMenuItem);
-                                    cell.setContextMenu(cellMenu);
-                                } else {
-                                    cell.setContextMenu(null);
-                                }
-                            });
-                    cell.textProperty().bind(cell.itemProperty());
-                    return cell;
-                });
+    private void applyRowAction(String description, PhenoRow row, ColumnContextMenu.RowAction action) {
+        if (editJournal.edit(description, () -> action.apply(row))) {
+            dirty = true;
+        }
+        table.refresh();
     }
 
-
-    /**
-     * Set up the popup of the onset menu. If the users acitivates the menu, this updates the data in the
-     * corresponding {@link PhenoRow} (annotation) object.
-     */
-    private void setUpOnsetContextMenu() {
-        //enable individual cells to be selected, instead of entire rows, call
-        table.getSelectionModel().setCellSelectionEnabled(true);
-        // The following sets up a context menu JUST for the evidence column.
-        ageOfOnsetNamecol.setCellFactory( // Callback
-                (column) -> {
-                    final TableCell<PhenoRow, String> cell = new TableCell<>();
-                    cell.itemProperty().addListener(// ChangeListener
-                            (obs, oldValue, newValue) -> {
-                                //if (newValue != null) {
-                                final ContextMenu cellMenu = new ContextMenu();
-                                final TableRow<PhenoRow> tableRow = cell.getTableRow();
-                                final PhenoRow phenoRow = tableRow.getItem();
-                                MenuItem anteNatalOnsetItem = new MenuItem("Antenatal onset");
-                                anteNatalOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.ANTENATAL_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Antenatal onset");
-                                    table.refresh();
-                                });
-                                MenuItem embryonalOnsetItem = new MenuItem("Embryonal onset");
-                                embryonalOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.EMBRYONAL_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Embryonal onset");
-                                    table.refresh();
-                                });
-                                MenuItem fetalOnsetItem = new MenuItem("Fetal onset");
-                                fetalOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.FETAL_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Fetal onset");
-                                    table.refresh();
-                                });
-                                MenuItem congenitalOnsetItem = new MenuItem("Congenital onset");
-                                congenitalOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.CONGENITAL_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Congenital onset");
-                                    table.refresh();
-                                });
-                                MenuItem neonatalOnsetItem = new MenuItem("Neonatal onset");
-                                neonatalOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.NEONATAL_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Neonatal onset");
-                                    table.refresh();
-                                });
-                                MenuItem infantileOnsetItem = new MenuItem("Infantile onset");
-                                infantileOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.INFANTILE_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Infantile onset");
-                                    table.refresh();
-                                });
-                                MenuItem childhoodOnsetItem = new MenuItem("Childhood onset");
-                                childhoodOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.CHILDHOOD_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Childhood onset");
-                                    table.refresh();
-                                });
-                                MenuItem juvenileOnsetItem = new MenuItem("Juvenile onset");
-                                juvenileOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.JUVENILE_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Juvenile onset");
-                                    table.refresh();
-                                });
-                                MenuItem adultOnsetItem = new MenuItem("Adult onset");
-                                adultOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.ADULT_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Adult onset");
-                                    table.refresh();
-                                });
-                                MenuItem youngAdultOnsetItem = new MenuItem("Young adult onset");
-                                youngAdultOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.YOUNG_ADULT_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Young adult onset");
-                                    table.refresh();
-                                });
-                                MenuItem middleAgeOnsetItem = new MenuItem("Middle age onset");
-                                middleAgeOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.MIDDLE_AGE_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Middle age onset");
-                                    table.refresh();
-                                });
-                                MenuItem lateOnsetItem = new MenuItem("Late onset");
-                                lateOnsetItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(HpoOnsetTermIds.LATE_ONSET.getIdWithPrefix());
-                                    phenoRow.setOnsetName("Late onset");
-                                    table.refresh();
-                                });
-                                MenuItem clearMenuItem = new MenuItem("Clear");
-                                clearMenuItem.setOnAction(e -> {
-                                    phenoRow.setOnsetID(EMPTY_STRING);
-                                    phenoRow.setOnsetName(EMPTY_STRING);
-                                    table.refresh();
-                                });
-                                cellMenu.getItems().addAll(anteNatalOnsetItem,
-                                        embryonalOnsetItem,
-                                        fetalOnsetItem,
-                                        congenitalOnsetItem,
-                                        neonatalOnsetItem,
-                                        infantileOnsetItem,
-                                        childhoodOnsetItem,
-                                        juvenileOnsetItem,
-                                        adultOnsetItem,
-                                        youngAdultOnsetItem,
-                                        middleAgeOnsetItem,
-                                        lateOnsetItem,
-                                        clearMenuItem);
-                                cell.setContextMenu(cellMenu);
-//                            } else {
-//                                cell.setContextMenu(null);
-//                            }
-                            });
-                    cell.textProperty().bind(cell.itemProperty());
-                    return cell;
-                });
+    /** Replace the phenotype id and name of the row by the current (primary) id and label of the term. */
+    private void updateToCurrentTerm(PhenoRow row) {
+        if (ontology == null) {
+            logger.error("Ontology null");
+            return;
+        }
+        try {
+            Term term = ontology.getTermMap().get(TermId.constructWithPrefix(row.getPhenotypeID()));
+            row.setPhenotypeID(term.getId().getIdWithPrefix());
+            row.setPhenotypeName(term.getName());
+            row.setNewBiocurationEntry(getNewBiocurationEntry());
+        } catch (Exception exc) {
+            exc.printStackTrace();
+        }
     }
 
     private String getNewBiocurationEntry() {
@@ -888,190 +829,6 @@ public class PhenotePresenter implements Initializable {
     }
 
 
-    /**
-     * Set up the popup of the evidence menu.
-     */
-    private void setUpHpoContextMenu() {
-        //enable individual cells to be selected, instead of entire rows, call
-        table.getSelectionModel().setCellSelectionEnabled(true);
-        // The following sets up a context menu JUST for the evidence column.
-        phenotypeNameCol.setCellFactory(// Callback
-                (column) -> {
-                    final TableCell<PhenoRow, String> cell = new TableCell<>();
-                    cell.itemProperty().addListener(// ChangeListener
-                            (observableValue, oldValue, newValue) -> {
-                                if (newValue != null) {
-                                    final ContextMenu cellMenu = new ContextMenu();
-                                    MenuItem hpoUpdateMenuItem = new MenuItem("Update to current ID(not shown) and name");
-                                    hpoUpdateMenuItem.setOnAction(e -> {
-                                        PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                        String id = item.getPhenotypeID();
-                                        if (ontology == null) {
-                                            logger.error("Ontology null");
-                                            return;
-                                        }
-                                        org.monarchinitiative.phenol.ontology.data.TermId tid = TermId.constructWithPrefix(id);
-                                        try {
-                                            Term term = ontology.getTermMap().get(tid);
-                                            String label = term.getName();
-                                            item.setPhenotypeID(term.getId().getIdWithPrefix());
-                                            item.setPhenotypeName(label);
-                                            item.setNewBiocurationEntry(getNewBiocurationEntry());
-                                        } catch (Exception exc) {
-                                            exc.printStackTrace();
-                                        }
-                                        table.refresh();
-                                    });
-
-                                    MenuItem hpoIdMenuItem = new MenuItem("show HPO id of this term");
-                                    hpoIdMenuItem.setOnAction(e -> {
-                                        PhenoRow item = (PhenoRow) cell.getTableRow().getItem();
-                                        String label = item.getPhenotypeName();
-                                        String id = item.getPhenotypeID();
-                                        if (ontology == null) {
-                                            logger.error("Ontology null");
-                                            return;
-                                        }
-                                        org.monarchinitiative.phenol.ontology.data.TermId tid = TermId.constructWithPrefix(id);
-                                        try {
-                                            String msg = String.format("%s [%s]", label, id);
-                                            PopUps.showInfoMessage(msg, "Term Id");
-                                        } catch (Exception exc) {
-                                            exc.printStackTrace();
-                                        }
-                                        table.refresh();
-                                    });
-                                    cellMenu.getItems().addAll(hpoUpdateMenuItem, hpoIdMenuItem);
-                                    cell.setContextMenu(cellMenu);
-                                } else {
-                                    cell.setContextMenu(null);
-                                }
-                            });
-                    cell.textProperty().bind(cell.itemProperty());
-                    return cell;
-                });
-
-    }
-
-    /**
-     * Allow the user to update the publication if they right-click on the publication field.
-     */
-    private void setUpPublicationPopupDialog() {
-        // The following sets up a popup dialog JUST for the publication column.
-        pubCol.setCellFactory(// Callback
-                (column) -> {
-                    final TableCell<PhenoRow, String> cell = new TableCell<>();
-                    cell.itemProperty().addListener(// ChangeListener
-                            (observableValue, oldValue, newValue) -> {
-                                final ContextMenu cellMenu = new ContextMenu();
-                                final TableRow<?> row = cell.getTableRow();
-                                final ContextMenu rowMenu;
-                                MenuItem pubDummyMenuItem = new MenuItem("Update publication");
-                                PhenoRow phenoRow = (PhenoRow) cell.getTableRow().getItem();
-                                if (phenoRow == null) {
-                                    //happens at application start up--we can skip it
-                                    return;
-                                }
-                                pubDummyMenuItem.setOnAction(e -> {
-                                            String text = EditRowFactory.showPublicationEditDialog(phenoRow, primaryStage);
-                                            if (text != null) {
-                                                phenoRow.setPublication(text);
-                                                phenoRow.setNewBiocurationEntry(getNewBiocurationEntry());
-                                                table.refresh();
-                                            }
-                                        }
-                                );
-                                cellMenu.getItems().addAll(pubDummyMenuItem);
-                                cell.setContextMenu(cellMenu);
-                            });
-                    cell.textProperty().bind(cell.itemProperty());
-                    return cell;
-                });
-    }
-
-
-    /**
-     * Allow the user to update the publication if they right-click on the publication field.
-     */
-    private void setUpDescriptionPopupDialog() {
-        // The following sets up a popup dialog JUST for the Description column.
-        descriptionCol.setCellFactory( // Callback
-                (column) -> {
-                    final TableCell<PhenoRow, String> cell = new TableCell<>();
-                    cell.itemProperty().addListener(// ChangeListener
-                            (observableValue, oldValue, newValue) -> {
-                                final ContextMenu cellMenu = new ContextMenu();
-                                final TableRow<PhenoRow> tableRow = cell.getTableRow();
-                                final PhenoRow phenoRow = tableRow.getItem();
-                                if (phenoRow == null) {
-                                    return; // happens during initial population of table
-                                }
-                                MenuItem updateDescriptionMenuItem = new MenuItem("Update description");
-                                updateDescriptionMenuItem.setOnAction(e -> {
-                                            String text = EditRowFactory.showDescriptionEditDialog(phenoRow, primaryStage);
-                                            if (text != null) {
-                                                phenoRow.setDescription(text);
-                                                phenoRow.setNewBiocurationEntry(getNewBiocurationEntry());
-                                                table.refresh();
-                                            }
-                                        }
-                                );
-                                MenuItem clearDescriptionMenuItem = new MenuItem("Clear");
-                                clearDescriptionMenuItem.setOnAction(e -> {
-                                    phenoRow.setDescription(EMPTY_STRING);
-                                    table.refresh();
-                                });
-                                cellMenu.getItems().addAll(updateDescriptionMenuItem, clearDescriptionMenuItem);
-                                cell.setContextMenu(cellMenu);
-                            });
-                    cell.textProperty().bind(cell.itemProperty());
-                    return cell;
-                });
-    }
-
-
-    /**
-     * Allow the user to update the publication if they right-click on the publication field.
-     */
-    private void setUpFrequencyPopupDialog() {
-        // The following sets up a popup dialog JUST for the publication column.
-        frequencyCol.setCellFactory(// Callback
-                (col) -> {
-                    final TableCell<PhenoRow, String> cell = new TableCell<>();
-                    cell.itemProperty().addListener( // ChangeListener
-                            (observableValue, oldValue, newValue) -> {
-                                final ContextMenu cellMenu = new ContextMenu();
-                                final TableRow<PhenoRow> tableRow = cell.getTableRow();
-                                final PhenoRow phenoRow = tableRow.getItem();
-                                MenuItem updateFrequencyMenuItem = new MenuItem("Update frequency");
-                                if (phenoRow == null) {
-                                    //PopUps.showInfoMessage("Could not get reference to table row; consider restart","error");
-                                    return;
-                                }
-                                updateFrequencyMenuItem.setOnAction(e -> {
-                                            String text = EditRowFactory.showFrequencyEditDialog(phenoRow);
-                                            if (text != null) {
-                                                phenoRow.setFrequency(text);
-                                                phenoRow.setNewBiocurationEntry(getNewBiocurationEntry());
-                                                table.refresh();
-                                            }
-                                        }
-                                );
-                                MenuItem clearFrequencyMenuItem = new MenuItem("Clear");
-                                clearFrequencyMenuItem.setOnAction(e -> {
-                                    phenoRow.setFrequency(EMPTY_STRING);
-                                    phenoRow.setNewBiocurationEntry(getNewBiocurationEntry());
-                                    table.refresh();
-                                });
-                                cellMenu.getItems().addAll(updateFrequencyMenuItem, clearFrequencyMenuItem);
-                                cell.setContextMenu(cellMenu);
-                            });
-                    cell.textProperty().bind(cell.itemProperty());
-                    return cell;
-                });
-    }
-
-
     /**
      * This is called from the Edit menu and allows the user to import a local copy of
      * hp.obo (usually because the local copy is newer than the official release version of hp.obo).
@@ -1096,7 +853,8 @@ public class PhenotePresenter implements Initializable {
             HPOParser parser = new HPOParser(hpoOboPath);
             hponame2idMap = parser.getHpoName2IDmap();
             hpoSynonym2LabelMap = parser.getHpoSynonym2PreferredLabelMap();
-            setupAutocomplete();
+            hpoFuzzyIndex = parser.getFuzzyIndex();
+            bindHpoNameAutocomplete(parser.getSuggestionIndex());
         } catch (Exception ex) {
             ex.printStackTrace();
             logger.error("Unable to parse local HPO OBO file");
@@ -1123,8 +881,9 @@ public class PhenotePresenter implements Initializable {
             ppopup.close();
         });
         downloadTask.setOnFailed(e -> {
-            logger.error("Download of hp.obo failed");
-            PopUps.showInfoMessage("Download of hp.obo failed", "Error");
+            logger.error("Download of hp.obo failed", downloadTask.getException());
+            PopUps.showInfoMessage(String.format("Download of hp.obo failed: %s",
+                    downloadTask.getException().getMessage()), "Error");
             ppopup.close();
         });
         ppopup.startProgress(downloadTask);
@@ -1146,10 +905,14 @@ public class PhenotePresenter implements Initializable {
             saveSettings();
             this.settings.setMedgenFile(abspath);
             ppopup.close();
+            if (downloadTask.getResult() != FileFetcher.Result.NOT_MODIFIED) {
+                reloadMedGen();
+            }
         });
         downloadTask.setOnFailed(e -> {
-            logger.error(String.format("Download of %s failed", MEDGEN_BASENAME));
-            PopUps.showInfoMessage(String.format("Download of %s failed", MEDGEN_BASENAME), "Error");
+            logger.error(String.format("Download of %s failed", MEDGEN_BASENAME), downloadTask.getException());
+            PopUps.showInfoMessage(String.format("Download of %s failed: %s", MEDGEN_BASENAME,
+                    downloadTask.getException().getMessage()), "Error");
             ppopup.close();
         });
 
@@ -1157,6 +920,33 @@ public class PhenotePresenter implements Initializable {
 
     }
 
+    /** Use the disease names of the MedGen file for the disease name field. */
+    private void setMedGen(MedGenParser medGenParser) {
+        diseaseNameIndex = medGenParser.getDiseaseNameIndex();
+        bindDiseaseNameAutocomplete(medGenParser.getSuggestionIndex());
+        diseaseNameTextField.setDisable(false);
+    }
+
+    /**
+     * Parse a newly downloaded MedGen file in the background. The MedGen snapshot no longer matches the file, so
+     * parsing it also rebuilds the snapshot for the next launch.
+     */
+    private void reloadMedGen() {
+        Task<MedGenParser> task = new Task<MedGenParser>() {
+            @Override
+            protected MedGenParser call() {
+                MedGenParser medGenParser = new MedGenParser();
+                medGenParser.getSuggestionIndex(); // build the autocompletion index off the FX thread
+                return medGenParser;
+            }
+        };
+        task.setOnSucceeded(e -> setMedGen(task.getValue()));
+        task.setOnFailed(e -> logger.error("Could not read the new MedGen file", task.getException()));
+        Thread thread = new Thread(task, "medgen-reload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     /**
      * This function intends to set all of the disease names to the name in the text field.
      * We can use this to correct the disease names for legacy files where we are using multiple different
@@ -1169,54 +959,159 @@ public class PhenotePresenter implements Initializable {
         if (diseaseName == null) {
             return;
         }
-        for (PhenoRow pr : phenorows) {
-            pr.setDiseaseName(diseaseName);
-        }
+        editJournal.edit("change of all disease names", () -> {
+            for (PhenoRow pr : phenorows) {
+                pr.setDiseaseName(diseaseName);
+            }
+        });
         table.refresh();
     }
 
 
     @FXML
     private void updateAllOutdatedTermLabels(ActionEvent e) {
-        System.out.println("Updating outdated labels");
         String smallfilepath = settings.getDefaultDirectory();
         if (ontology == null) {
-            inputHPOandMedGen();
+            PopUps.showInfoMessage("The HPO ontology is still being loaded, please try again in a moment",
+                    "HPO not ready");
+            return;
         }
         TermLabelUpdater updater = new TermLabelUpdater(smallfilepath, ontology);
-        updater.replaceOutOfDateLabels();
+        ProgressPopup ppopup = new ProgressPopup("Updating outdated labels",
+                String.format("Checking small files in %s...", smallfilepath));
+        // a cancelled update reports what it has written itself, once it has written it
+        updater.setOnSucceeded(event -> ppopup.close());
+        updater.setOnFailed(event -> {
+            ppopup.close();
+            logger.error("Label update failed", updater.getException());
+            PopUps.showInfoMessage(String.format("Label update failed: %s", updater.getException().getMessage()),
+                    "Error");
+        });
+        ppopup.startCancellableProgress(updater);
     }
 
 
     /**
-     * This method adds one text-mined annotation as a row in the PhenoteFX table.
-     *
-     * @param hpoid     ID of newly added annotation
-     * @param hpoLabel  term label of newly added annotation
-     * @param pmid      PubMed id supporting annotation
-     * @param isNegated if true, this is a NOT annotation.
+     * Index the annotations of all small files in the default directory (in the background) and show the
+     * repository search window. The index is rebuilt each time so that it reflects the files as they were saved;
+     * small files that did not change are not parsed again.
      */
-    private void addTextMinedAnnotation(String hpoid, String hpoLabel, String pmid, boolean isNegated) {
-        PhenoRow textMinedRow = new PhenoRow();
-        textMinedRow.setPhenotypeName(hpoLabel);
-        textMinedRow.setPhenotypeID(hpoid);
+    @FXML
+    private void searchRepository(ActionEvent e) {
+        String smallfilepath = settings.getDefaultDirectory();
+        if (ontology == null || ancestorIndex == null || hpoSuggestionIndex == null) {
+            PopUps.showInfoMessage("The HPO ontology is still being loaded, please try again in a moment",
+                    "HPO not ready");
+            return;
+        }
+        if (smallfilepath == null || !new File(smallfilepath).isDirectory()) {
+            PopUps.showInfoMessage("Please set the default directory for the small files (Setup menu)",
+                    "Small file directory not set");
+            return;
+        }
+        RepositoryIndexer indexer = new RepositoryIndexer(smallfilepath, ontology, ancestorIndex);
+        ProgressPopup ppopup = new ProgressPopup("Indexing small files",
+                String.format("Reading small files in %s...", smallfilepath));
+        indexer.setOnSucceeded(event -> {
+            ppopup.close();
+            if (repositorySearchView == null) {
+                repositorySearchView = new RepositorySearchView(primaryStage, ontology, hpoSuggestionIndex,
+                        this::resolveHpoTerm, basename -> openSmallFile(new File(smallfilepath, basename)));
+            }
+            repositorySearchView.show(indexer.getValue());
+        });
+        indexer.setOnFailed(event -> {
+            ppopup.close();
+            logger.error("Indexing of the small files failed", indexer.getException());
+            PopUps.showInfoMessage(String.format("Could not index the small files: %s",
+                    indexer.getException().getMessage()), "Error");
+        });
+        ppopup.startCancellableProgress(indexer);
+    }
 
+    /** @return the HPO id for an id, label or synonym, or null if there is none. */
+    private TermId resolveHpoTerm(String text) {
+        if (HPOValidator.isValid(text)) {
+            return TermId.constructWithPrefix(text);
+        }
+        String label = hpoSynonym2LabelMap.get(text);
+        String id = hponame2idMap.get(label != null ? label : text);
+        return id == null ? null : TermId.constructWithPrefix(id);
+    }
+
+    /** Show a small file of the repository in the table (after asking whether unsaved changes may be discarded). */
+    private void openSmallFile(File f) {
+        if (!discardUnsavedChanges()) return;
+        logger.trace("Opening file " + f.getAbsolutePath());
+        populateTable(f);
+    }
+
+
+    /**
+     * Merge the terms approved by the curator in the text-mining widget into the PhenoteFX table as one batch.
+     * Terms that are not yet in the table are added with a single change of the list of rows. Terms that are
+     * already annotated (found via {@link #phenotypeRowIndex} rather than by scanning the table) are collected and
+     * shown to the curator on one review screen.
+     *
+     * @param terms text-mined terms approved by the curator
+     * @param pmid  PubMed id supporting the annotations
+     */
+    private void mergeTextMinedAnnotations(Collection<PhenotypeTerm> terms, String pmid) {
         if (pmid == null || pmid.length() == 0) {
             PopUps.showInfoMessage("Warning-attempting to update annotation without valid PMID", "PubMed Id malformed");
             return;
         }
-
         if (!pmid.startsWith("PMID"))
             pmid = String.format("PMID:%s", pmid);
+        String biocuration = String.format("%s[%s]", this.settings.getBioCuratorId(), getDate());
+
+        List<PhenoRow> newRows = new ArrayList<>();
+        Set<String> newIds = new HashSet<>();
+        List<AnnotationConflict> conflicts = new ArrayList<>();
+        for (PhenotypeTerm term : terms) {
+            List<Integer> positions = phenotypeRowIndex.getPositions(term.getHpoId());
+            if (positions.isEmpty()) {
+                if (newIds.add(term.getHpoId())) {
+                    newRows.add(textMinedRow(term, pmid, biocuration));
+                }
+            } else {
+                for (int idx : positions) {
+                    conflicts.add(new AnnotationConflict(idx, table.getItems().get(idx), textMinedRow(term, pmid, biocuration)));
+                }
+            }
+        }
+        logger.trace(String.format("Merging %d text-mined annotations: %d new, %d already in table",
+                terms.size(), newRows.size(), conflicts.size()));
+        // not duplicates -- just add the new annotations
+        if (!newRows.isEmpty()) {
+            table.getItems().addAll(newRows);
+            dirty = true;
+        }
+        if (conflicts.isEmpty()) {
+            return;
+        }
+        if (conflictReviewer == null) {
+            conflictReviewer = new ConflictReviewer(this.primaryStage);
+        }
+        if (conflictReviewer.review(conflicts) && ConflictReviewer.apply(conflicts, table.getItems()) > 0) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * @return a new row for a text-mined annotation; the disease ID and name are taken from the first row of the
+     * table (if there is one).
+     */
+    private PhenoRow textMinedRow(PhenotypeTerm term, String pmid, String biocuration) {
+        PhenoRow textMinedRow = new PhenoRow();
+        textMinedRow.setPhenotypeName(term.getName());
+        textMinedRow.setPhenotypeID(term.getHpoId());
         textMinedRow.setPublication(pmid);
-        if (isNegated) {
+        if (!term.isPresent()) {
             textMinedRow.setNegation("NOT");
         }
+        /* These annotations will always be PMIDs, so we use the code PCS */
         textMinedRow.setEvidence("PCS");
-
-        String biocuration = String.format("%s[%s]", this.settings.getBioCuratorId(), getDate());
-
-
         textMinedRow.setBiocuration(biocuration);
         /* If there is data in the table already, use it to fill in the disease ID and Name. */
         List<PhenoRow> phenorows = table.getItems();
@@ -1225,30 +1120,32 @@ public class PhenotePresenter implements Initializable {
             textMinedRow.setDiseaseName(firstrow.getDiseaseName());
             textMinedRow.setDiseaseID(firstrow.getDiseaseID());
         }
-        /* These annotations will always be PMIDs, so we use the code PCS */
-        textMinedRow.setEvidence("PCS");
+        return textMinedRow;
+    }
 
-        // Now see if we have seen this annotation before!
-        boolean textMinedItemNotCurrentlyInTable = true;
-        for (int idx = 0; idx < table.getItems().size(); idx++) {
-            PhenoRow currentTableRow = table.getItems().get(idx);
-            if (currentTableRow.getPhenotypeID().equals(textMinedRow.getPhenotypeID())) {
-                AnnotationCheckFactory factory = new AnnotationCheckFactory();
-                PhenoRow candidateRow = factory.showDialog(currentTableRow, textMinedRow, this.primaryStage);
-                if (factory.updateAnnotation()) {
-                    table.getItems().set(idx, candidateRow);
-                    dirty = true;
-                    textMinedItemNotCurrentlyInTable = false;
-                }
-            }
+
+    /**
+     * Called if the label entered by the user is not an HPO label or synonym. Offers the closest labels and
+     * synonyms (which are probably the intended term with a typo).
+     * @param hpoText text entered by the user
+     * @return the preferred label of the term chosen by the user, or null if none was chosen.
+     */
+    private String didYouMean(String hpoText) {
+        int[] ids = new int[5];
+        int n = hpoFuzzyIndex == null ? 0 : hpoFuzzyIndex.closest(hpoText, ids.length, ids);
+        if (n == 0) {
+            PopUps.showInfoMessage(String.format("Could not find HPO term \"%s\"", hpoText), "Unknown HPO term");
+            return null;
         }
-        if (textMinedItemNotCurrentlyInTable) {// not a duplicate -- just add the new annotation
-            table.getItems().add(textMinedRow);
-            dirty = true;
+        String[] choices = new String[n];
+        for (int i = 0; i < n; i++) {
+            choices[i] = hpoFuzzyIndex.get(ids[i]);
         }
+        String choice = PopUps.getToggleChoiceFromUser(choices,
+                String.format("Could not find HPO term \"%s\". Did you mean:", hpoText), "Unknown HPO term");
+        return choice == null ? null : hpoSynonym2LabelMap.get(choice);
     }
 
-
     public void addAnnotation() {
         PhenoRow row = new PhenoRow();
         // Disease ID (OMIM)
@@ -1261,7 +1158,7 @@ public class PhenotePresenter implements Initializable {
                 diseaseID = table.getItems().get(0).getDiseaseID();
             }
         } else {
-            diseaseID = this.omimName2IdMap.get(diseaseName);
+            diseaseID = this.diseaseNameIndex == null ? null : this.diseaseNameIndex.getMimId(diseaseName);
             if (diseaseID == null) {
                 diseaseID = "?";
             } else {/* the map mcontains items such as 612342, but we want OMIM:612342 */
@@ -1275,6 +1172,12 @@ public class PhenotePresenter implements Initializable {
         String hpoId;
         String hpoSynonym = this.hpoNameTextField.getText().trim();
         String hpoPreferredLabel = this.hpoSynonym2LabelMap.get(hpoSynonym);
+        if (hpoPreferredLabel == null) {
+            hpoPreferredLabel = didYouMean(hpoSynonym);
+            if (hpoPreferredLabel == null) {
+                return;
+            }
+        }
         hpoId = this.hponame2idMap.get(hpoPreferredLabel);
         row.setPhenotypeID(hpoId);
         row.setPhenotypeName(hpoPreferredLabel);
@@ -1292,7 +1195,7 @@ public class PhenotePresenter implements Initializable {
         String onsetID, onsetName;
         onsetName = ageOfOnsetChoiceBox.getValue();
         if (onsetName != null) {
-            onsetID = hpoOnset.getID(onsetName);
+            onsetID = subOntologies.getId(SubOntology.ONSET, onsetName);
             row.setOnsetID(onsetID);
             row.setOnsetName(onsetName);
         }
@@ -1338,7 +1241,7 @@ public class PhenotePresenter implements Initializable {
         }
 
         String modifier = this.modifiertextField.getText();
-        if (modifier != null && this.hpoModifer2idMap.containsKey(modifier)) {
+        if (modifier != null && this.hpoModifer2idMap != null && this.hpoModifer2idMap.containsKey(modifier)) {
             row.setModifier(hpoModifer2idMap.get(modifier));
         }
 
@@ -1383,9 +1286,9 @@ public class PhenotePresenter implements Initializable {
     private void deleteAnnotation() {
         ObservableList<PhenoRow> phenoSelected, allPheno;
         allPheno = table.getItems();
-        phenoSelected = table.getSelectionModel().getSelectedItems();
-        //phenoSelected.removeAll();
-        phenoSelected.forEach(allPheno::remove);
+        // copy the selection, which changes as rows are removed
+        phenoSelected = FXCollections.observableArrayList(table.getSelectionModel().getSelectedItems());
+        editJournal.edit("deletion of annotations", () -> allPheno.removeAll(phenoSelected));
         dirty = true;
     }
 
@@ -1437,8 +1340,7 @@ public class PhenotePresenter implements Initializable {
         Set<PhenotypeTerm> approvedTerms = result.getTerms();   // set of terms approved by the curator
         String pmid = result.getPmid();              // PMID of the publication
 
-        approvedTerms.forEach(term -> addTextMinedAnnotation(term.getHpoId(), term.getName(), pmid, !term.isPresent()));
-        if (approvedTerms.size() > 0) dirty = true;
+        editJournal.edit("text-mining merge", () -> mergeTextMinedAnnotations(approvedTerms, pmid));
     }
 
 
@@ -1467,23 +1369,39 @@ public class PhenotePresenter implements Initializable {
 
     /**
      * Check the contents of the table rows and make sure the format is valid before we start to save the file.
+     * Once the HPO hierarchy has been indexed, the annotations are also checked against it; errors prevent the
+     * file from being saved, and the curator can decide whether to save a file that has warnings.
      *
      * @return true if the phenorows are all valid.
      */
     private boolean checkFileValidity() {
         List<PhenoRow> phenorows = table.getItems();
         SmallFileValidator validator = new SmallFileValidator(phenorows);
-        if (validator.isValid()) {
-            return true;
-        } else {
+        if (!validator.isValid()) {
             PopUps.showInfoMessage(validator.errorMessage(), "Please correct error in annotation data");
             return false;
         }
+        if (semanticValidator == null) {
+            return true;
+        }
+        List<Diagnostic> diagnostics = semanticValidator.validate(phenorows);
+        String errors = diagnostics.stream()
+                .filter(d -> d.getSeverity() == Diagnostic.Severity.ERROR)
+                .map(Diagnostic::toString)
+                .collect(Collectors.joining("\n"));
+        if (!errors.isEmpty()) {
+            PopUps.showInfoMessage(errors, "Please correct error in annotation data");
+            return false;
+        }
+        String warnings = diagnostics.stream()
+                .map(Diagnostic::toString)
+                .collect(Collectors.joining("\n"));
+        return warnings.isEmpty() || PopUps.getBooleanFromUser("Save the file anyway?", warnings, "Annotation warnings");
     }
 
 
-    private void savePhenoteFileAt(File file) {
-        if (!checkFileValidity()) return;
+    /** @return true if the file was saved ({@link #dirty} is then cleared) */
+    private boolean savePhenoteFileAt(File file) {
         if (file == null) {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle("HPO Phenote");
@@ -1491,19 +1409,21 @@ public class PhenotePresenter implements Initializable {
             String s = "Could not retrieve name of file to save";
             alert.setContentText(s);
             alert.showAndWait();
-            return;
+            return false;
         }
         try {
-            BufferedWriter br = new BufferedWriter(new FileWriter(file));
-            br.write(header + "\n");
-            List<PhenoRow> phenorows = table.getItems();
-            for (PhenoRow pr : phenorows) {
-                br.write(pr.toString() + "\n");
+            List<String> rows = new ArrayList<>();
+            for (PhenoRow pr : table.getItems()) {
+                rows.add(pr.toString());
             }
-            br.close();
+            SmallFileWriter.write(file, header, rows);
             dirty = false;
+            autosaveJournal.markSaved(file.getAbsolutePath());
+            return true;
         } catch (IOException e) {
-            e.printStackTrace();
+            logger.error("Could not save {}: {}", file.getAbsolutePath(), e.getMessage());
+            PopUps.showException("HPO Phenote", "Could not save file", file.getAbsolutePath(), e);
+            return false;
         }
 
     }
@@ -1512,17 +1432,16 @@ public class PhenotePresenter implements Initializable {
      * Save the modified file at the original location, showing a file chooser so the user can confirm
      */
     public void savePhenoteFile() {
-        if (!checkFileValidity()) return;
         if (this.currentPhenoteFileFullPath == null) {
             saveAsPhenoteFile();
             return;
         }
+        if (!checkFileValidity()) return;
         boolean doWrite = PopUps.getBooleanFromUser("Overwrite original file?",
                 String.format("Save to %s", this.currentPhenoteFileFullPath), "Save file?");
         if (doWrite) {
             File f = new File(this.currentPhenoteFileFullPath);
             savePhenoteFileAt(f);
-            dirty = false;
         }
     }
 
@@ -1530,6 +1449,7 @@ public class PhenotePresenter implements Initializable {
      * Save the modified file at a location chosen by user
      */
     public void saveAsPhenoteFile() {
+        if (!checkFileValidity()) return;
         FileChooser fileChooser = new FileChooser();
         Stage stage = (Stage) this.anchorpane.getScene().getWindow();
         String defaultdir = settings.getDefaultDirectory();
@@ -1540,9 +1460,12 @@ public class PhenotePresenter implements Initializable {
         fileChooser.setInitialDirectory(new File(defaultdir));
         //Show save file dialog
         File file = fileChooser.showSaveDialog(stage);
-        savePhenoteFileAt(file);
-        this.currentPhenoteFileFullPath = file.getAbsolutePath();
-        dirty = false;
+        if (file == null) {
+            return; // the user cancelled the dialog
+        }
+        if (savePhenoteFileAt(file)) {
+            this.currentPhenoteFileFullPath = file.getAbsolutePath();
+        }
     }
 
 
@@ -1573,10 +1496,7 @@ public class PhenotePresenter implements Initializable {
 
     @FXML
     public void newFile() {
-        if (dirty) {
-            boolean discard = PopUps.getBooleanFromUser("Discard unsaved changes?", "Unsaved work on current annotation file", "Discard unsaved work?");
-            if (!discard) return;
-        }
+        if (!discardUnsavedChanges()) return;
         clearFields();
         table.getItems().clear();
         this.currentPhenoteFileFullPath = null;
@@ -1597,14 +1517,33 @@ public class PhenotePresenter implements Initializable {
         }
         dirty = true;
         table.getItems().add(row);
+        editJournal.clear();
+        autosaveJournal.start(null);
     }
 
+    /** Undo the last edit of the table. */
     @FXML
-    public void openByMIMnumber() {
-        if (dirty) {
-            boolean discard = PopUps.getBooleanFromUser("Discard unsaved changes?", "Unsaved work on current annotation file", "Discard unsaved work?");
-            if (!discard) return;
+    public void undo() {
+        if (editJournal.canUndoProperty().get()) {
+            editJournal.undo();
+            table.refresh();
+            dirty = true;
         }
+    }
+
+    /** Redo the last edit of the table that was undone. */
+    @FXML
+    public void redo() {
+        if (editJournal.canRedoProperty().get()) {
+            editJournal.redo();
+            table.refresh();
+            dirty = true;
+        }
+    }
+
+    @FXML
+    public void openByMIMnumber() {
+        if (!discardUnsavedChanges()) return;
         String dirpath = settings.getDefaultDirectory();
         if (dirpath == null) {
             PopUps.showInfoMessage("Please set default Phenote directory\n in Settings menu",
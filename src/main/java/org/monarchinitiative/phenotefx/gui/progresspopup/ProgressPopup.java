@@ -23,9 +23,11 @@ package org.monarchinitiative.phenotefx.gui.progresspopup;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 public class ProgressPopup {
@@ -55,6 +57,38 @@ public class ProgressPopup {
         thread.start();
     }
 
+    /**
+     * Show the progress and the current message of the task, with a button that cancels it. In contrast to
+     * {@link #startProgress(Task)}, the progress indicator is bound to the progress of the task. The window is
+     * closed when the task is cancelled; client code should close it (with {@link #close()}) when the task has
+     * succeeded or failed.
+     */
+    public void startCancellableProgress(final Task<?> task) {
+        Label label=new Label(progressLabel);
+        Label message=new Label();
+        message.textProperty().bind(task.messageProperty());
+        pb.progressProperty().bind(task.progressProperty());
+        Button cancel=new Button("Cancel");
+        cancel.setOnAction(e -> {
+            task.cancel();
+            close();
+        });
+        FlowPane top = new FlowPane();
+        top.setHgap(10);
+        top.getChildren().addAll(label,pb);
+        VBox root = new VBox(10, top, message, cancel);
+        root.setPadding(new Insets(10));
+        Scene scene = new Scene(root, 400, 160);
+        window = new Stage();
+        window.setTitle(this.progressTitle);
+        window.setScene(scene);
+        window.setOnCloseRequest(e -> task.cancel());
+        window.show();
+        Thread thread = new Thread(task, "phenotefx-task");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
 
     public ProgressPopup(String title, String label) {
         progressTitle=title;
@@ -0,0 +1,210 @@
+package org.monarchinitiative.phenotefx.gui.repositorysearch;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.controlsfx.control.textfield.AutoCompletionBinding;
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.gui.WidthAwareTextFields;
+import org.monarchinitiative.phenotefx.index.HpoAnnotationIndex;
+import org.monarchinitiative.phenotefx.index.SuggestionIndex;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A window that searches all small files of the annotation repository for the diseases that are annotated with an
+ * HPO term (and, optionally, its descendants) using an {@link HpoAnnotationIndex}. The term can be entered as a
+ * label (with autocompletion) or as an HPO id. A double click on a row opens the small file in the main window.
+ * <p>
+ * The window is created once and reused; {@link #show(HpoAnnotationIndex)} replaces the index, e.g., after the
+ * small files were changed.
+ * @author Peter Robinson
+ */
+public class RepositorySearchView {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final Stage window;
+
+    private final HpoOntology ontology;
+    /** Returns the HPO id for a label, synonym or id entered by the curator, or null. */
+    private final Function<String, TermId> termResolver;
+
+    private final TextField termField = new TextField();
+
+    private final CheckBox descendantsCheckBox = new CheckBox("Include descendants");
+
+    private final CheckBox negatedCheckBox = new CheckBox("Include NOT annotations");
+
+    private final Label summary = new Label();
+
+    private final TableView<HpoAnnotationIndex.Match> table = new TableView<>();
+
+    private HpoAnnotationIndex index;
+    /** The autocompletion of the term field (null if there are no suggestions or the view was disposed). */
+    private AutoCompletionBinding<String> autoCompletion;
+
+    /**
+     * @param owner the main window of the application
+     * @param ontology used for the labels of the matching terms
+     * @param suggestions autocompletion of the HPO labels and synonyms
+     * @param termResolver returns the HPO id for a label, synonym or id, or null if there is none
+     * @param openSmallFile called with the basename of a small file that the curator wants to open
+     */
+    public RepositorySearchView(Stage owner, HpoOntology ontology, SuggestionIndex suggestions,
+                                Function<String, TermId> termResolver, Consumer<String> openSmallFile) {
+        this.ontology = ontology;
+        this.termResolver = termResolver;
+        window = new Stage();
+        window.initOwner(owner);
+        window.setTitle("Search annotation repository");
+
+        termField.setPromptText("HPO term label or id, e.g., Seizure or HP:0001250");
+        HBox.setHgrow(termField, Priority.ALWAYS);
+        if (suggestions != null) {
+            autoCompletion = WidthAwareTextFields.bindWidthAwareAutoCompletion(termField, suggestions);
+        }
+        termField.setOnAction(e -> search());
+        descendantsCheckBox.setSelected(true);
+        descendantsCheckBox.setOnAction(e -> search());
+        negatedCheckBox.setOnAction(e -> search());
+        Button searchButton = new Button("Search");
+        searchButton.setDefaultButton(true);
+        searchButton.setOnAction(e -> search());
+        HBox controls = new HBox(10, termField, descendantsCheckBox, negatedCheckBox, searchButton);
+
+        setUpTable();
+        table.setRowFactory(tv -> {
+            TableRow<HpoAnnotationIndex.Match> row = new TableRow<>();
+            row.setOnMouseClicked(event -> {
+                if (event.getClickCount() == 2 && !row.isEmpty()) {
+                    openSmallFile.accept(row.getItem().getBasename());
+                }
+            });
+            return row;
+        });
+        VBox vbox = new VBox(10, controls, summary, table);
+        vbox.setPadding(new Insets(10));
+        VBox.setVgrow(table, Priority.ALWAYS);
+        vbox.setPrefSize(1000, 600);
+        window.setScene(new Scene(vbox));
+    }
+
+    private void setUpTable() {
+        TableColumn<HpoAnnotationIndex.Match, String> fileColumn = new TableColumn<>("Small file");
+        fileColumn.setCellValueFactory(cdf -> new ReadOnlyStringWrapper(cdf.getValue().getBasename()));
+        fileColumn.setPrefWidth(140);
+        TableColumn<HpoAnnotationIndex.Match, String> diseaseIdColumn = new TableColumn<>("Disease ID");
+        diseaseIdColumn.setCellValueFactory(cdf -> new ReadOnlyStringWrapper(cdf.getValue().getDiseaseId()));
+        diseaseIdColumn.setPrefWidth(110);
+        TableColumn<HpoAnnotationIndex.Match, String> diseaseNameColumn = new TableColumn<>("Disease name");
+        diseaseNameColumn.setCellValueFactory(cdf -> new ReadOnlyStringWrapper(cdf.getValue().getDiseaseName()));
+        diseaseNameColumn.setPrefWidth(300);
+        // rows are shown as they are counted in the file, starting after the header line
+        TableColumn<HpoAnnotationIndex.Match, Integer> rowColumn = new TableColumn<>("Row");
+        rowColumn.setCellValueFactory(cdf -> new ReadOnlyObjectWrapper<>(cdf.getValue().getRow() + 1));
+        rowColumn.setPrefWidth(50);
+        TableColumn<HpoAnnotationIndex.Match, String> termIdColumn = new TableColumn<>("HPO Id");
+        termIdColumn.setCellValueFactory(cdf -> new ReadOnlyStringWrapper(cdf.getValue().getTermId().getIdWithPrefix()));
+        termIdColumn.setPrefWidth(100);
+        TableColumn<HpoAnnotationIndex.Match, String> termNameColumn = new TableColumn<>("HPO Term");
+        termNameColumn.setCellValueFactory(cdf -> new ReadOnlyStringWrapper(label(cdf.getValue().getTermId())));
+        termNameColumn.setPrefWidth(220);
+        TableColumn<HpoAnnotationIndex.Match, String> negationColumn = new TableColumn<>("Negation");
+        negationColumn.setCellValueFactory(cdf -> new ReadOnlyStringWrapper(cdf.getValue().isNegated() ? "NOT" : ""));
+        negationColumn.setPrefWidth(70);
+        table.getColumns().add(fileColumn);
+        table.getColumns().add(diseaseIdColumn);
+        table.getColumns().add(diseaseNameColumn);
+        table.getColumns().add(rowColumn);
+        table.getColumns().add(termIdColumn);
+        table.getColumns().add(termNameColumn);
+        table.getColumns().add(negationColumn);
+    }
+
+    private String label(TermId tid) {
+        Term term = ontology.getTermMap().get(tid);
+        return term == null ? "" : term.getName();
+    }
+
+    /** Show the window with a new index of the small files, and repeat the current search (if any). */
+    public void show(HpoAnnotationIndex index) {
+        this.index = index;
+        summary.setText(String.format("%d annotations of %d small files",
+                index.getNumberOfAnnotations(), index.getNumberOfSmallFiles()));
+        if (!termField.getText().trim().isEmpty()) {
+            search();
+        }
+        window.show();
+        window.toFront();
+        termField.requestFocus();
+    }
+
+    /** Close the window and release the autocompletion (e.g., because the HPO labels were reloaded). */
+    public void dispose() {
+        if (autoCompletion != null) {
+            autoCompletion.dispose();
+            autoCompletion = null;
+        }
+        window.close();
+    }
+
+    private void search() {
+        String text = termField.getText().trim();
+        if (index == null || text.isEmpty()) {
+            return;
+        }
+        TermId tid = termResolver.apply(text);
+        if (tid == null || index.getAncestorIndex().getCurrentId(tid) == null) {
+            table.getItems().clear();
+            summary.setText(String.format("Could not find the HPO term \"%s\"", text));
+            return;
+        }
+        long start = System.nanoTime();
+        List<HpoAnnotationIndex.Match> matches = index.search(tid, descendantsCheckBox.isSelected(),
+                negatedCheckBox.isSelected());
+        double millis = (System.nanoTime() - start) / 1e6;
+        Set<String> smallFiles = new HashSet<>();
+        for (HpoAnnotationIndex.Match match : matches) {
+            smallFiles.add(match.getBasename());
+        }
+        table.getItems().setAll(matches);
+        summary.setText(String.format("%s (%s): %d annotations in %d small files (%.1f ms)",
+                label(index.getAncestorIndex().getCurrentId(tid)), tid.getIdWithPrefix(), matches.size(),
+                smallFiles.size(), millis));
+        logger.trace(summary.getText());
+    }
+}
@@ -0,0 +1,407 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact, immutable map from disease names to MIM numbers. The names are sorted (ignoring case) and stored
+ * back to back in one character array with an array of offsets, and the MIM numbers are stored as ints, so that
+ * the index needs about two bytes per character of the names plus eight bytes per disease, instead of two
+ * {@code String} objects and a hash map entry per disease. Names are looked up by binary search, either exactly
+ * ({@link #getMimNumber(String)}) or by prefix ({@link #prefixRange(String)}). Because the index consists of three
+ * arrays, it can be written to and read from a binary file without any per-name work ({@link #write(DataOutput)},
+ * {@link #read(ByteBuffer)}).
+ * @author Peter Robinson
+ */
+public final class DiseaseNameIndex {
+    /** The names in sorted order, back to back. */
+    private final char[] chars;
+    /** Name i is chars[offsets[i]] (inclusive) to chars[offsets[i+1]] (exclusive). */
+    private final int[] offsets;
+    /** mimNumbers[i] is the MIM number of name i. */
+    private final int[] mimNumbers;
+
+    private DiseaseNameIndex(char[] chars, int[] offsets, int[] mimNumbers) {
+        this.chars = chars;
+        this.offsets = offsets;
+        this.mimNumbers = mimNumbers;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** @return number of distinct disease names. */
+    public int size() {
+        return mimNumbers.length;
+    }
+
+    public String getName(int i) {
+        return new String(chars, offsets[i], offsets[i + 1] - offsets[i]);
+    }
+
+    public int getMimNumber(int i) {
+        return mimNumbers[i];
+    }
+
+    /** @return the MIM number of the disease with exactly this name, or -1 if there is none. */
+    public int getMimNumber(String name) {
+        int i = lowerBound(name, false);
+        // names that only differ in case are adjacent
+        for (; i < size() && compare(i, name, false) == 0; i++) {
+            if (equalsExactly(i, name)) {
+                return mimNumbers[i];
+            }
+        }
+        return -1;
+    }
+
+    /** @return the MIM number (e.g., 613962) of the disease with exactly this name as a string, or null. */
+    public String getMimId(String name) {
+        int mim = getMimNumber(name);
+        return mim < 0 ? null : Integer.toString(mim);
+    }
+
+    /**
+     * @param prefix the beginning of a disease name (case is ignored)
+     * @return {from, to}: the names {@code from} (inclusive) to {@code to} (exclusive) start with the prefix
+     */
+    public int[] prefixRange(String prefix) {
+        return new int[]{lowerBound(prefix, true), upperBound(prefix)};
+    }
+
+    /** Write the index in the format expected by {@link #read(ByteBuffer)}. */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(mimNumbers.length);
+        out.writeInt(chars.length);
+        for (char c : chars) {
+            out.writeChar(c);
+        }
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        for (int mim : mimNumbers) {
+            out.writeInt(mim);
+        }
+    }
+
+    /**
+     * Read an index written by {@link #write(DataOutput)} from the current position of the buffer (which must be
+     * big-endian, the default).
+     * @throws IllegalArgumentException if the data are not a valid index
+     */
+    public static DiseaseNameIndex read(ByteBuffer buffer) {
+        try {
+            int n = buffer.getInt();
+            int length = buffer.getInt();
+            if (n < 0 || length < 0 || 2L * length + 8L * n + 4 > buffer.remaining()) {
+                throw new IllegalArgumentException("Truncated disease name index");
+            }
+            char[] chars = new char[length];
+            buffer.asCharBuffer().get(chars);
+            buffer.position(buffer.position() + 2 * length);
+            int[] offsets = new int[n + 1];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + 4 * (n + 1));
+            int[] mimNumbers = new int[n];
+            buffer.asIntBuffer().get(mimNumbers);
+            buffer.position(buffer.position() + 4 * n);
+            if (offsets[0] != 0 || offsets[n] != length) {
+                throw new IllegalArgumentException("Invalid offsets in disease name index");
+            }
+            for (int i = 0; i < n; i++) {
+                if (offsets[i] > offsets[i + 1]) {
+                    throw new IllegalArgumentException("Invalid offsets in disease name index");
+                }
+            }
+            return new DiseaseNameIndex(chars, offsets, mimNumbers);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated disease name index", e);
+        }
+    }
+
+    /** @return a view of the names in sorted order (the strings are created on access). */
+    public List<String> names() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int i) {
+                return getName(i);
+            }
+
+            @Override
+            public int size() {
+                return DiseaseNameIndex.this.size();
+            }
+        };
+    }
+
+    /** @return the first name that is not less than s (or, if prefix is set, than s as a prefix). */
+    private int lowerBound(String s, boolean prefix) {
+        int lo = 0;
+        int hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, s, prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** @return the first name that is greater than every name starting with the prefix. */
+    private int upperBound(String prefix) {
+        int lo = 0;
+        int hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, prefix, true) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Compare name i with s, ignoring case.
+     * @param prefix if set, a name that starts with s compares as equal to it
+     */
+    private int compare(int i, String s, boolean prefix) {
+        int start = offsets[i];
+        int len = offsets[i + 1] - start;
+        int n = Math.min(len, s.length());
+        for (int j = 0; j < n; j++) {
+            int c = fold(chars[start + j]) - fold(s.charAt(j));
+            if (c != 0) {
+                return c;
+            }
+        }
+        if (prefix && len >= s.length()) {
+            return 0;
+        }
+        return len - s.length();
+    }
+
+    private boolean equalsExactly(int i, String s) {
+        int start = offsets[i];
+        if (offsets[i + 1] - start != s.length()) {
+            return false;
+        }
+        for (int j = 0; j < s.length(); j++) {
+            if (chars[start + j] != s.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fold(char c) {
+        return Character.toUpperCase(c);
+    }
+
+    /**
+     * Collects names and MIM numbers. The characters of the names are copied into one growing array, so that
+     * a parser can add names directly from its input buffer without creating strings. If a name is added more than
+     * once, the MIM number that was added last is used; duplicates are detected as they are added (with a hash
+     * table of the names added so far), so that their characters are not kept.
+     */
+    public static final class Builder {
+        private char[] chars = new char[1 << 16];
+        private int length = 0;
+        private int[] offsets = new int[1 << 10];
+        private int[] mimNumbers = new int[1 << 10];
+        /** hashes[i] is the hash code of name i. */
+        private int[] hashes = new int[1 << 10];
+        private int count = 0;
+        /** Open-addressing hash table of the ids of the names (-1 marks a free slot; size is a power of two). */
+        private int[] table = emptyTable(1 << 11);
+
+        private Builder() {}
+
+        public Builder add(String name, int mimNumber) {
+            ensureCapacity(name.length());
+            name.getChars(0, name.length(), chars, length);
+            return addName(name.length(), mimNumber);
+        }
+
+        /** Add the name in {@code name[offset..offset+len)}; the characters are copied. */
+        public Builder add(char[] name, int offset, int len, int mimNumber) {
+            ensureCapacity(len);
+            System.arraycopy(name, offset, chars, length, len);
+            return addName(len, mimNumber);
+        }
+
+        /** Keep the name that was copied to {@code chars[length..length+len)}, unless it was added before. */
+        private Builder addName(int len, int mimNumber) {
+            int h = 0;
+            for (int j = length; j < length + len; j++) {
+                h = 31 * h + chars[j];
+            }
+            int mask = table.length - 1;
+            int slot = mix(h) & mask;
+            int id;
+            while ((id = table[slot]) >= 0) {
+                if (hashes[id] == h && equalsCandidate(id, len)) {
+                    mimNumbers[id] = mimNumber;
+                    return this;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (count + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+                mimNumbers = Arrays.copyOf(mimNumbers, 2 * mimNumbers.length);
+                hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+            }
+            offsets[count] = length;
+            mimNumbers[count] = mimNumber;
+            hashes[count] = h;
+            table[slot] = count;
+            count++;
+            length += len;
+            if (count > table.length / 2) {
+                rehash();
+            }
+            return this;
+        }
+
+        /** @return true if name id equals the candidate name in {@code chars[length..length+len)}. */
+        private boolean equalsCandidate(int id, int len) {
+            int start = offsets[id];
+            int end = id + 1 < count ? offsets[id + 1] : length;
+            if (end - start != len) {
+                return false;
+            }
+            for (int j = 0; j < len; j++) {
+                if (chars[start + j] != chars[length + j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            table = emptyTable(2 * table.length);
+            int mask = table.length - 1;
+            for (int id = 0; id < count; id++) {
+                int slot = mix(hashes[id]) & mask;
+                while (table[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = id;
+            }
+        }
+
+        private static int[] emptyTable(int size) {
+            int[] t = new int[size];
+            Arrays.fill(t, -1);
+            return t;
+        }
+
+        private static int mix(int h) {
+            return h ^ (h >>> 16);
+        }
+
+        private void ensureCapacity(int len) {
+            if (length + len > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(2 * chars.length, length + len));
+            }
+        }
+
+        public DiseaseNameIndex build() {
+            offsets[count] = length;
+            int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            // the names are distinct, since duplicates were merged by add
+            mergeSort(order, new int[count], 0, count);
+            char[] packed = new char[length];
+            int[] packedOffsets = new int[count + 1];
+            int[] packedMims = new int[count];
+            int pos = 0;
+            for (int i = 0; i < count; i++) {
+                int k = order[i];
+                int len = offsets[k + 1] - offsets[k];
+                System.arraycopy(chars, offsets[k], packed, pos, len);
+                packedOffsets[i] = pos;
+                packedMims[i] = mimNumbers[k];
+                pos += len;
+            }
+            packedOffsets[count] = pos;
+            return new DiseaseNameIndex(packed, packedOffsets, packedMims);
+        }
+
+        /** Order by name ignoring case, then by name, which keeps names that only differ in case adjacent. */
+        private int compareOrder(int a, int b) {
+            int c = compareRanges(a, b, true);
+            return c != 0 ? c : compareRanges(a, b, false);
+        }
+
+        private int compareRanges(int a, int b, boolean ignoreCase) {
+            int sa = offsets[a];
+            int la = offsets[a + 1] - sa;
+            int sb = offsets[b];
+            int lb = offsets[b + 1] - sb;
+            int n = Math.min(la, lb);
+            for (int j = 0; j < n; j++) {
+                char ca = chars[sa + j];
+                char cb = chars[sb + j];
+                int c = ignoreCase ? fold(ca) - fold(cb) : ca - cb;
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return la - lb;
+        }
+
+        private void mergeSort(int[] a, int[] tmp, int from, int to) {
+            if (to - from < 2) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            mergeSort(a, tmp, from, mid);
+            mergeSort(a, tmp, mid, to);
+            if (compareOrder(a[mid - 1], a[mid]) <= 0) {
+                return;
+            }
+            System.arraycopy(a, from, tmp, from, to - from);
+            int i = from;
+            int j = mid;
+            for (int k = from; k < to; k++) {
+                if (j >= to || (i < mid && compareOrder(tmp[i], tmp[j]) <= 0)) {
+                    a[k] = tmp[i++];
+                } else {
+                    a[k] = tmp[j++];
+                }
+            }
+        }
+    }
+}
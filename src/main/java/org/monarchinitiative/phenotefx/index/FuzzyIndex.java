@@ -0,0 +1,267 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.*;
+
+/**
+ * Typo-tolerant lookup of suggestions (e.g., HPO labels and synonyms) with a bounded edit distance. Candidates
+ * are found with trigram filtering: if two strings are within edit distance k, the padded query and the
+ * suggestion share at least {@code (number of query trigrams) - 3k} trigrams. The candidates are then verified
+ * with a Levenshtein computation that stops as soon as the distance must exceed k.
+ * <p>
+ * {@link #suggest(String, int, int[])} compares the query with prefixes of the suggestions (for autocompletion
+ * of partially typed text), {@link #closest(String, int, int[])} compares it with the whole suggestion (for "did
+ * you mean" prompts). Results are ranked by edit distance, then primary labels before synonyms, then shorter
+ * suggestions first. Both methods use scratch arrays that are allocated once, and are synchronized.
+ * @author Peter Robinson
+ */
+public final class FuzzyIndex {
+    /** Pads the start of a string so that its first characters occur in (two) trigrams of their own. */
+    private static final char START = '\u0001';
+    /** Pads the end of a string. */
+    private static final char END = '\u0002';
+    /** Largest edit distance that is searched. */
+    private static final int MAX_DISTANCE = 2;
+
+    /** The suggestions in alphabetical order; the index of a suggestion in this array is its id. */
+    private final String[] suggestions;
+    /** The normalized suggestions. */
+    private final char[][] normalized;
+    /** Bit i is set if suggestion i is a synonym rather than a primary label. */
+    private final BitSet synonyms;
+    /** Key: trigram packed into a long; value: index into {@link #postings}. */
+    private final Map<Long, Integer> trigramIds = new HashMap<>();
+    /** For each trigram, the ids of the suggestions that contain it (ascending, without duplicates). */
+    private final int[][] postings;
+
+    /* Scratch space for the queries. */
+    private final int[] stamp;
+    private final int[] counts;
+    private final int[] touched;
+    private int queryCount = 0;
+    private char[] query = new char[64];
+    private int[] previousRow = new int[64];
+    private int[] currentRow = new int[64];
+    private final TopK topK = new TopK();
+
+    /** @param suggestions the strings to be suggested; all are treated as primary labels. */
+    public static FuzzyIndex create(Collection<String> suggestions) {
+        return new FuzzyIndex(suggestions, null);
+    }
+
+    /**
+     * @param suggestions the strings to be suggested (labels and synonyms)
+     * @param primaryLabels the subset of suggestions that are primary labels; these rank higher than synonyms
+     */
+    public static FuzzyIndex create(Collection<String> suggestions, Set<String> primaryLabels) {
+        return new FuzzyIndex(suggestions, primaryLabels);
+    }
+
+    private FuzzyIndex(Collection<String> suggestionCollection, Set<String> primaryLabels) {
+        this.suggestions = suggestionCollection.toArray(new String[0]);
+        Arrays.sort(this.suggestions);
+        int n = suggestions.length;
+        this.normalized = new char[n][];
+        this.synonyms = new BitSet(n);
+        // first pass: assign trigram ids and count postings
+        List<int[]> trigramsPerSuggestion = new ArrayList<>(n);
+        int[] postingCounts = new int[1024];
+        StringBuilder sb = new StringBuilder();
+        for (int id = 0; id < n; id++) {
+            if (primaryLabels != null && !primaryLabels.contains(suggestions[id])) {
+                synonyms.set(id);
+            }
+            sb.setLength(0);
+            TextNormalizer.appendNormalized(suggestions[id], sb);
+            char[] chars = new char[sb.length()];
+            sb.getChars(0, sb.length(), chars, 0);
+            normalized[id] = chars;
+            int[] grams = distinctTrigrams(chars, chars.length);
+            for (int i = 0; i < grams.length; i++) {
+                long packed = packedTrigram(chars, chars.length, grams[i]);
+                Integer tid = trigramIds.get(packed);
+                if (tid == null) {
+                    tid = trigramIds.size();
+                    trigramIds.put(packed, tid);
+                    if (tid == postingCounts.length) {
+                        postingCounts = Arrays.copyOf(postingCounts, 2 * postingCounts.length);
+                    }
+                }
+                grams[i] = tid;
+                postingCounts[tid]++;
+            }
+            trigramsPerSuggestion.add(grams);
+        }
+        // second pass: fill the posting lists (ids are visited in ascending order)
+        this.postings = new int[trigramIds.size()][];
+        for (int t = 0; t < postings.length; t++) {
+            postings[t] = new int[postingCounts[t]];
+        }
+        int[] fill = new int[postings.length];
+        for (int id = 0; id < n; id++) {
+            for (int tid : trigramsPerSuggestion.get(id)) {
+                postings[tid][fill[tid]++] = id;
+            }
+        }
+        this.stamp = new int[n];
+        this.counts = new int[n];
+        this.touched = new int[n];
+    }
+
+    /** @return number of suggestions in the index. */
+    public int size() {
+        return suggestions.length;
+    }
+
+    /** @return the suggestion with the given id. */
+    public String get(int id) {
+        return suggestions[id];
+    }
+
+    /**
+     * Find suggestions that begin with a string that is within a small edit distance of the user text (one edit
+     * for texts of 4 to 6 characters, two edits for longer texts; shorter texts are not searched).
+     * @param out receives the ids of the suggestions, best first (must have room for k ids)
+     * @return the number of ids written to {@code out}
+     */
+    public synchronized int suggest(String userText, int k, int[] out) {
+        return search(userText, true, k, out);
+    }
+
+    /**
+     * Find suggestions that are within a small edit distance of the text (one edit for texts of 3 to 5
+     * characters, two edits for longer texts; shorter texts are not searched).
+     * @param out receives the ids of the suggestions, best first (must have room for k ids)
+     * @return the number of ids written to {@code out}
+     */
+    public synchronized int closest(String text, int k, int[] out) {
+        return search(text, false, k, out);
+    }
+
+    private int search(String text, boolean prefix, int k, int[] out) {
+        if (text == null || k <= 0) {
+            return 0;
+        }
+        if (query.length < text.length()) {
+            query = new char[Math.max(text.length(), 2 * query.length)];
+        }
+        int m = TextNormalizer.normalize(text, query);
+        // number of padded trigrams of the query; in prefix mode the trigram with the end marker is left out
+        int nGrams = prefix ? m : m + 1;
+        int maxDistance = Math.min(MAX_DISTANCE, (nGrams - 1) / 3);
+        if (maxDistance < 1) {
+            return 0;
+        }
+        int threshold = nGrams - 3 * maxDistance;
+        if (++queryCount == 0) { // the stamps have wrapped around
+            Arrays.fill(stamp, 0);
+            queryCount = 1;
+        }
+        int nTouched = 0;
+        for (int g = 0; g < nGrams; g++) {
+            Integer tid = trigramIds.get(packedTrigram(query, m, g));
+            if (tid == null) continue;
+            for (int id : postings[tid]) {
+                if (stamp[id] != queryCount) {
+                    stamp[id] = queryCount;
+                    counts[id] = 0;
+                    touched[nTouched++] = id;
+                }
+                counts[id]++;
+            }
+        }
+        topK.reset(k);
+        for (int i = 0; i < nTouched; i++) {
+            int id = touched[i];
+            if (counts[id] < threshold) continue;
+            char[] candidate = normalized[id];
+            if (!prefix && Math.abs(candidate.length - m) > maxDistance) continue;
+            int d = distance(m, candidate, prefix, maxDistance);
+            if (d > maxDistance) continue;
+            int score = 2 * d + (synonyms.get(id) ? 1 : 0);
+            topK.offer(TopK.key(score, candidate.length, id));
+        }
+        return topK.drainIds(out);
+    }
+
+    /**
+     * Levenshtein distance between the first m characters of {@link #query} and the candidate (or, in prefix mode,
+     * the closest prefix of the candidate). Returns early with a value greater than maxDistance as soon as all
+     * entries of a row exceed it.
+     */
+    private int distance(int m, char[] candidate, boolean prefix, int maxDistance) {
+        if (previousRow.length <= m) {
+            previousRow = new int[2 * (m + 1)];
+            currentRow = new int[2 * (m + 1)];
+        }
+        int[] prev = previousRow, cur = currentRow;
+        for (int i = 0; i <= m; i++) {
+            prev[i] = i;
+        }
+        int best = prefix ? prev[m] : Integer.MAX_VALUE;
+        int columns = prefix ? Math.min(candidate.length, m + maxDistance) : candidate.length;
+        for (int j = 1; j <= columns; j++) {
+            char c = candidate[j - 1];
+            cur[0] = j;
+            int rowMin = cur[0];
+            for (int i = 1; i <= m; i++) {
+                int cost = query[i - 1] == c ? 0 : 1;
+                int v = Math.min(Math.min(cur[i - 1] + 1, prev[i] + 1), prev[i - 1] + cost);
+                cur[i] = v;
+                if (v < rowMin) rowMin = v;
+            }
+            if (prefix && cur[m] < best) {
+                best = cur[m];
+            }
+            if (rowMin > maxDistance) {
+                return prefix ? best : rowMin;
+            }
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prefix ? best : prev[m];
+    }
+
+    /** @return the g-th trigram of the padded string {@code START START s[0..len) END}, packed into a long. */
+    private static long packedTrigram(char[] s, int len, int g) {
+        long packed = 0;
+        for (int i = g - 2; i <= g; i++) {
+            char c = i < 0 ? START : (i < len ? s[i] : END);
+            packed = (packed << 16) | c;
+        }
+        return packed;
+    }
+
+    /** @return the positions of the distinct padded trigrams of s (there are len + 1 trigrams in all). */
+    private static int[] distinctTrigrams(char[] s, int len) {
+        Set<Long> seen = new HashSet<>();
+        int[] positions = new int[len + 1];
+        int n = 0;
+        for (int g = 0; g <= len; g++) {
+            if (seen.add(packedTrigram(s, len, g))) {
+                positions[n++] = g;
+            }
+        }
+        return Arrays.copyOf(positions, n);
+    }
+}
@@ -0,0 +1,168 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getParentTerms;
+
+/**
+ * The is-a hierarchy of the HPO, precomputed once so that the semantic checks of the small files do not have to
+ * walk the ontology graph. Each current term gets a dense integer index; for each term we keep the sorted indices
+ * of all of its ancestors and of all of its descendants, and a subhierarchy (e.g., all terms below Onset) is a {@link BitSet} over the indices,
+ * so that membership is a single bit lookup. Obsolete and alternate ids are mapped to the current id.
+ * <p>
+ * The index is immutable and can be shared between threads.
+ * @author Peter Robinson
+ */
+public final class HpoAncestorIndex {
+    /** The current (primary, non-obsolete) ids, in the order of their index. */
+    private final TermId[] termIds;
+    /** Key: a current id; value: its index in {@link #termIds}. */
+    private final Map<TermId, Integer> indexMap;
+    /** Sorted indices of the (proper) ancestors of each term. */
+    private final int[][] ancestors;
+    /** Sorted indices of the (proper) descendants of each term, i.e., the inverse of {@link #ancestors}. */
+    private final int[][] descendants;
+    /** Key: an obsolete or alternate id; value: the current id. */
+    private final Map<TermId, TermId> replacedBy;
+
+    private HpoAncestorIndex(TermId[] termIds, Map<TermId, Integer> indexMap, int[][] ancestors, Map<TermId, TermId> replacedBy) {
+        this.termIds = termIds;
+        this.indexMap = indexMap;
+        this.ancestors = ancestors;
+        this.descendants = invert(ancestors);
+        this.replacedBy = replacedBy;
+    }
+
+    /** Compute the ancestors of all current terms of the ontology. */
+    public static HpoAncestorIndex build(HpoOntology ontology) {
+        TermId[] termIds = ontology.getNonObsoleteTermIds().stream().sorted().toArray(TermId[]::new);
+        Map<TermId, Integer> indexMap = new HashMap<>(2 * termIds.length);
+        for (int i = 0; i < termIds.length; i++) {
+            indexMap.put(termIds[i], i);
+        }
+        int[][] ancestors = new int[termIds.length][];
+        for (int i = 0; i < termIds.length; i++) {
+            computeAncestors(i, ontology, termIds, indexMap, ancestors);
+        }
+        Map<TermId, TermId> replacedBy = new HashMap<>();
+        for (TermId tid : ontology.getTermMap().keySet()) {
+            if (!indexMap.containsKey(tid)) {
+                TermId primary = ontology.getPrimaryTermId(tid);
+                if (primary != null && indexMap.containsKey(primary)) {
+                    replacedBy.put(tid, primary);
+                }
+            }
+        }
+        return new HpoAncestorIndex(termIds, indexMap, ancestors, replacedBy);
+    }
+
+    /** Fill in the ancestors of term i, after those of its parents (the HPO is shallow, so recursion is fine). */
+    private static int[] computeAncestors(int i, HpoOntology ontology, TermId[] termIds, Map<TermId, Integer> indexMap,
+                                          int[][] ancestors) {
+        if (ancestors[i] != null) {
+            return ancestors[i];
+        }
+        ancestors[i] = new int[0]; // guards against cycles in a malformed ontology
+        BitSet closure = new BitSet();
+        for (TermId parent : getParentTerms(ontology, termIds[i], false)) {
+            Integer p = indexMap.get(parent);
+            if (p == null || p == i) continue;
+            closure.set(p);
+            for (int a : computeAncestors(p, ontology, termIds, indexMap, ancestors)) {
+                closure.set(a);
+            }
+        }
+        ancestors[i] = closure.stream().toArray();
+        return ancestors[i];
+    }
+
+    /** @return for each term, the sorted terms that list it in {@code ancestors}. */
+    private static int[][] invert(int[][] ancestors) {
+        int[] counts = new int[ancestors.length];
+        for (int[] anc : ancestors) {
+            for (int a : anc) {
+                counts[a]++;
+            }
+        }
+        int[][] descendants = new int[ancestors.length][];
+        for (int i = 0; i < ancestors.length; i++) {
+            descendants[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        // visiting the descendants in increasing order keeps each list sorted
+        for (int d = 0; d < ancestors.length; d++) {
+            for (int a : ancestors[d]) {
+                descendants[a][counts[a]++] = d;
+            }
+        }
+        return descendants;
+    }
+
+    /** @return the number of current terms. */
+    public int size() {
+        return termIds.length;
+    }
+
+    /** @return the index of a current term, or -1 if the id is not a current term (see {@link #getCurrentId}). */
+    public int indexOf(TermId tid) {
+        Integer i = indexMap.get(tid);
+        return i == null ? -1 : i;
+    }
+
+    public TermId getTermId(int index) {
+        return termIds[index];
+    }
+
+    /** @return the sorted indices of the ancestors of the term (not including the term itself); do not modify. */
+    public int[] getAncestors(int index) {
+        return ancestors[index];
+    }
+
+    /** @return the sorted indices of the descendants of the term (not including the term itself); do not modify. */
+    public int[] getDescendants(int index) {
+        return descendants[index];
+    }
+
+    /**
+     * @return the current id of an obsolete or alternate id, the id itself if it is current, or null if the id is
+     * not in the ontology.
+     */
+    public TermId getCurrentId(TermId tid) {
+        return indexMap.containsKey(tid) ? tid : replacedBy.get(tid);
+    }
+
+    /** @return the indices of the root and all of its descendants (empty if the root is not a current term). */
+    public BitSet getSubhierarchy(TermId root) {
+        BitSet bits = new BitSet(termIds.length);
+        int r = indexOf(root);
+        if (r < 0) return bits;
+        bits.set(r);
+        for (int d : descendants[r]) {
+            bits.set(d);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,228 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry;
+
+import java.util.*;
+
+/**
+ * An inverted index from HPO terms to the small files (diseases) and rows that annotate them, built from the output
+ * of {@link org.monarchinitiative.phenotefx.smallfile.V2SmallFileIngestor}. It answers questions such as "which
+ * diseases are annotated with HP:0001250 or any of its descendants?" without reading the small files again.
+ * <p>
+ * Each annotation (row of a small file) is identified by a global annotation number; the rows of the first small
+ * file come first, then those of the second, and so on. The postings of each term are the ascending annotation
+ * numbers of its rows, and all postings are stored in one {@code int} array together with the offset of each
+ * term's postings (the terms are numbered as in {@link HpoAncestorIndex}). A second {@code int} array records the
+ * term and the negation of each annotation. A query for a term and its descendants merges the postings of the
+ * precomputed descendants of the term (see {@link HpoAncestorIndex#getDescendants(int)}) in a {@link BitSet} over
+ * the annotation numbers, so that the result is in the order of the small files and rows without sorting.
+ * <p>
+ * Obsolete and alternate ids are indexed under the current id. The index is immutable and can be shared between
+ * threads.
+ * @author Peter Robinson
+ */
+public final class HpoAnnotationIndex {
+    /** Marks an annotation whose HPO id is not in the ontology. */
+    private static final int NOT_INDEXED = -1;
+
+    private final HpoAncestorIndex hpo;
+    /** Basename, disease id and disease name of each small file, sorted by basename. */
+    private final String[] basenames;
+    private final String[] diseaseIds;
+    private final String[] diseaseNames;
+    /** The annotation number of the first row of each small file (with a final entry for the total). */
+    private final int[] fileStart;
+    /** For each annotation, the term index shifted left by one with the NOT flag in the lowest bit, or NOT_INDEXED. */
+    private final int[] annotationTerms;
+    /** The postings of term i are {@code postings[termStart[i]]} to {@code postings[termStart[i+1]-1]}. */
+    private final int[] termStart;
+    private final int[] postings;
+
+    /** One row of a small file that matches a query. */
+    public static final class Match {
+        private final String basename;
+        private final String diseaseId;
+        private final String diseaseName;
+        private final int row;
+        private final TermId termId;
+        private final boolean negated;
+
+        private Match(String basename, String diseaseId, String diseaseName, int row, TermId termId, boolean negated) {
+            this.basename = basename;
+            this.diseaseId = diseaseId;
+            this.diseaseName = diseaseName;
+            this.row = row;
+            this.termId = termId;
+            this.negated = negated;
+        }
+
+        public String getBasename() { return basename; }
+
+        public String getDiseaseId() { return diseaseId; }
+
+        public String getDiseaseName() { return diseaseName; }
+
+        /** @return the (zero-based) position of the annotation among the annotations of its small file. */
+        public int getRow() { return row; }
+
+        /** @return the current id of the annotated term (which may be an alternate id in the small file). */
+        public TermId getTermId() { return termId; }
+
+        /** @return true if the annotation is negated ("NOT"). */
+        public boolean isNegated() { return negated; }
+    }
+
+    private HpoAnnotationIndex(HpoAncestorIndex hpo, String[] basenames, String[] diseaseIds, String[] diseaseNames,
+                               int[] fileStart, int[] annotationTerms, int[] termStart, int[] postings) {
+        this.hpo = hpo;
+        this.basenames = basenames;
+        this.diseaseIds = diseaseIds;
+        this.diseaseNames = diseaseNames;
+        this.fileStart = fileStart;
+        this.annotationTerms = annotationTerms;
+        this.termStart = termStart;
+        this.postings = postings;
+    }
+
+    /**
+     * Index the annotations of the small files.
+     * @param smallFiles the small files, in any order (e.g., as parsed by several threads)
+     * @param hpo the hierarchy of the HPO version with which the small files were parsed
+     */
+    public static HpoAnnotationIndex build(Collection<V2SmallFile> smallFiles, HpoAncestorIndex hpo) {
+        V2SmallFile[] files = smallFiles.toArray(new V2SmallFile[0]);
+        Arrays.sort(files, Comparator.comparing(V2SmallFile::getBasename));
+        int n = files.length;
+        String[] basenames = new String[n];
+        String[] diseaseIds = new String[n];
+        String[] diseaseNames = new String[n];
+        int[] fileStart = new int[n + 1];
+        for (int f = 0; f < n; f++) {
+            List<V2SmallFileEntry> entries = files[f].getOriginalEntryList();
+            basenames[f] = files[f].getBasename();
+            diseaseIds[f] = entries.isEmpty() ? basenames[f] : entries.get(0).getDiseaseID();
+            diseaseNames[f] = entries.isEmpty() ? "" : entries.get(0).getDiseaseName();
+            fileStart[f + 1] = fileStart[f] + entries.size();
+        }
+        // first pass: the term of each annotation and the number of postings of each term
+        int[] annotationTerms = new int[fileStart[n]];
+        int[] termStart = new int[hpo.size() + 1];
+        int a = 0;
+        for (V2SmallFile file : files) {
+            for (V2SmallFileEntry entry : file.getOriginalEntryList()) {
+                TermId current = hpo.getCurrentId(entry.getPhenotypeId());
+                int t = current == null ? -1 : hpo.indexOf(current);
+                if (t < 0) {
+                    annotationTerms[a++] = NOT_INDEXED;
+                    continue;
+                }
+                annotationTerms[a++] = t << 1 | ("NOT".equals(entry.getNegation()) ? 1 : 0);
+                termStart[t + 1]++;
+            }
+        }
+        for (int t = 0; t < hpo.size(); t++) {
+            termStart[t + 1] += termStart[t];
+        }
+        // second pass: the annotations are visited in increasing order, so the postings of each term are sorted
+        int[] postings = new int[termStart[hpo.size()]];
+        int[] next = Arrays.copyOf(termStart, hpo.size());
+        for (int i = 0; i < annotationTerms.length; i++) {
+            if (annotationTerms[i] != NOT_INDEXED) {
+                postings[next[annotationTerms[i] >>> 1]++] = i;
+            }
+        }
+        return new HpoAnnotationIndex(hpo, basenames, diseaseIds, diseaseNames, fileStart, annotationTerms,
+                termStart, postings);
+    }
+
+    /** @return the number of indexed small files. */
+    public int getNumberOfSmallFiles() {
+        return basenames.length;
+    }
+
+    /** @return the total number of annotations of the indexed small files. */
+    public int getNumberOfAnnotations() {
+        return annotationTerms.length;
+    }
+
+    /** @return the number of annotations whose HPO id is not in the ontology (and which can therefore not be found). */
+    public int getNumberOfUnindexedAnnotations() {
+        return annotationTerms.length - postings.length;
+    }
+
+    /** @return the hierarchy with which this index was built. */
+    public HpoAncestorIndex getAncestorIndex() {
+        return hpo;
+    }
+
+    /**
+     * Find the annotations of a term.
+     * @param termId an HPO id (obsolete and alternate ids are replaced by the current id)
+     * @param includeDescendants if true, also find the annotations of all descendants of the term
+     * @param includeNegated if true, also find "NOT" annotations
+     * @return the matching annotations in the order of the small files (by basename) and their rows; empty if the
+     * term is not in the ontology
+     */
+    public List<Match> search(TermId termId, boolean includeDescendants, boolean includeNegated) {
+        int[] hits = annotations(termId, includeDescendants);
+        List<Match> matches = new ArrayList<>(hits.length);
+        int f = 0;
+        for (int a : hits) {
+            int code = annotationTerms[a];
+            boolean negated = (code & 1) != 0;
+            if (negated && !includeNegated) continue;
+            while (fileStart[f + 1] <= a) {
+                f++; // the hits are sorted, so the small file can only move forward
+            }
+            matches.add(new Match(basenames[f], diseaseIds[f], diseaseNames[f], a - fileStart[f],
+                    hpo.getTermId(code >>> 1), negated));
+        }
+        return matches;
+    }
+
+    /** @return the sorted annotation numbers of the term (and its descendants). */
+    private int[] annotations(TermId termId, boolean includeDescendants) {
+        TermId current = hpo.getCurrentId(termId);
+        int root = current == null ? -1 : hpo.indexOf(current);
+        if (root < 0) {
+            return new int[0];
+        }
+        if (!includeDescendants) {
+            return Arrays.copyOfRange(postings, termStart[root], termStart[root + 1]);
+        }
+        BitSet hits = new BitSet(annotationTerms.length);
+        addPostings(root, hits);
+        for (int d : hpo.getDescendants(root)) {
+            addPostings(d, hits);
+        }
+        return hits.stream().toArray();
+    }
+
+    private void addPostings(int term, BitSet hits) {
+        for (int i = termStart[term]; i < termStart[term + 1]; i++) {
+            hits.set(postings[i]);
+        }
+    }
+}
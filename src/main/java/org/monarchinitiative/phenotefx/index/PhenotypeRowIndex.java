@@ -0,0 +1,146 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.collections.ObservableList;
+import org.monarchinitiative.phenotefx.edit.RowListObserver;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.*;
+
+/**
+ * A live index from HPO phenotype id to the positions of the rows with that id in the annotation table. The
+ * index follows the list that is currently shown (it listens to the {@link RowListObserver} of the table), and is kept up
+ * to date while rows are appended or replaced, which covers the common cases of adding new annotations and of
+ * merging text-mined annotations. Any other change (removal, sorting, or an edit of the phenotype id of a row)
+ * marks the index as stale, and it is rebuilt in one pass at the next lookup. A lookup is therefore O(1) instead
+ * of a scan over all rows.
+ * <p>
+ * The index is not thread safe; like the table it must only be used on the JavaFX application thread.
+ * @author Peter Robinson
+ */
+public final class PhenotypeRowIndex {
+    /** Key: an HPO id such as HP:0001250; value: the (ascending) positions of the rows with this id. */
+    private final Map<String, List<Integer>> positions = new HashMap<>();
+    /** The rows that are currently indexed (may be null). */
+    private ObservableList<PhenoRow> rows;
+    /** If true, {@link #positions} must be rebuilt before it is used. */
+    private boolean stale = true;
+
+    /** @param observer the observer of the rows of the annotation table; the index follows the rows it reports. */
+    public PhenotypeRowIndex(RowListObserver observer) {
+        observer.addListener(new RowListObserver.Listener() {
+            @Override
+            public void rowsSet(ObservableList<PhenoRow> newRows) {
+                rows = newRows;
+                stale = true;
+            }
+
+            @Override
+            public void fieldChanged(PhenoRow row, int field, String oldValue, String newValue) {
+                if (field == PhenoRow.PHENOTYPE_ID) {
+                    stale = true;
+                }
+            }
+
+            @Override
+            public void rowsReplaced(int from, List<? extends PhenoRow> removed, List<? extends PhenoRow> added) {
+                onRowsReplaced(from, removed, added);
+            }
+
+            @Override
+            public void rowsPermuted(int from, int[] permutation) {
+                stale = true;
+            }
+        });
+    }
+
+    /**
+     * @param phenotypeId an HPO id such as HP:0001250
+     * @return the positions (in ascending order) of the rows with this phenotype id; empty if there are none.
+     */
+    public List<Integer> getPositions(String phenotypeId) {
+        if (stale) {
+            rebuild();
+        }
+        List<Integer> list = positions.get(phenotypeId);
+        return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    /** @return true if at least one row is annotated to the given phenotype id. */
+    public boolean contains(String phenotypeId) {
+        return !getPositions(phenotypeId).isEmpty();
+    }
+
+    private void rebuild() {
+        positions.clear();
+        if (rows != null) {
+            for (int i = 0; i < rows.size(); i++) {
+                add(rows.get(i).getPhenotypeID(), i);
+            }
+        }
+        stale = false;
+    }
+
+    private void add(String phenotypeId, int position) {
+        List<Integer> list = positions.computeIfAbsent(phenotypeId, k -> new ArrayList<>(1));
+        if (list.isEmpty() || list.get(list.size() - 1) < position) {
+            list.add(position);
+        } else {
+            int i = Collections.binarySearch(list, position);
+            if (i < 0) {
+                list.add(-i - 1, position);
+            }
+        }
+    }
+
+    private void remove(String phenotypeId, int position) {
+        List<Integer> list = positions.get(phenotypeId);
+        if (list != null) {
+            list.remove(Integer.valueOf(position));
+            if (list.isEmpty()) {
+                positions.remove(phenotypeId);
+            }
+        }
+    }
+
+    private void onRowsReplaced(int from, List<? extends PhenoRow> removed, List<? extends PhenoRow> added) {
+        if (stale) {
+            return;
+        }
+        if (removed.size() == added.size()) {
+            // rows were replaced in place, so that the positions of all other rows are unchanged
+            for (int i = 0; i < removed.size(); i++) {
+                remove(removed.get(i).getPhenotypeID(), from + i);
+            }
+            for (int i = 0; i < added.size(); i++) {
+                add(added.get(i).getPhenotypeID(), from + i);
+            }
+        } else if (removed.isEmpty() && rows != null && from + added.size() == rows.size()) {
+            // rows were appended at the end of the table
+            for (int i = 0; i < added.size(); i++) {
+                add(added.get(i).getPhenotypeID(), from + i);
+            }
+        } else {
+            stale = true;
+        }
+    }
+}
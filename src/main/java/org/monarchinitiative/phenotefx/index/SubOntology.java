@@ -0,0 +1,72 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.monarchinitiative.phenol.formats.hpo.HpoOnsetTermIds.*;
+
+/**
+ * The subhierarchies of the HPO whose terms are used in the fields of an annotation other than the phenotype
+ * (see {@link SubOntologyIndex}).
+ * @author Peter Robinson
+ */
+public enum SubOntology {
+    CLINICAL_MODIFIER("Clinical modifier", "HP:0012823"),
+    ONSET("Onset", "HP:0003674", ANTENATAL_ONSET, EMBRYONAL_ONSET, FETAL_ONSET, CONGENITAL_ONSET, NEONATAL_ONSET,
+            INFANTILE_ONSET, CHILDHOOD_ONSET, JUVENILE_ONSET, ADULT_ONSET, YOUNG_ADULT_ONSET, MIDDLE_AGE_ONSET, LATE_ONSET),
+    FREQUENCY("Frequency", "HP:0040279"),
+    MODE_OF_INHERITANCE("Mode of inheritance", "HP:0000005");
+
+    private final String name;
+
+    private final TermId root;
+    /** Terms in the order in which they are shown to the curator (e.g., onset by age); empty to order by id. */
+    private final List<TermId> order;
+
+    SubOntology(String name, String root, TermId... order) {
+        this.name = name;
+        this.root = TermId.constructWithPrefix(root);
+        this.order = Collections.unmodifiableList(Arrays.asList(order));
+    }
+
+    /** @return the id of the top term of the subhierarchy, e.g., HP:0003674 (Onset). */
+    public TermId getRoot() {
+        return root;
+    }
+
+    /**
+     * @return terms of the subhierarchy in the order in which siblings are shown, e.g., the onset terms from
+     * Antenatal onset to Late onset; empty if siblings are ordered by id (e.g., Obligate to Excluded).
+     */
+    public List<TermId> getOrder() {
+        return order;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,172 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getChildTerms;
+
+/**
+ * The terms of the {@link SubOntology subhierarchies} of the HPO that are used for the clinical modifier, onset,
+ * frequency and mode of inheritance, computed once per ontology load from the {@link HpoAncestorIndex}. For each
+ * subhierarchy we keep the membership as a {@link BitSet} over the term indices of the {@link HpoAncestorIndex}, a
+ * map from label to id (sorted by label, for lookup), and the labels of the terms below the root in the order of
+ * the hierarchy (for choice boxes and menus), so that the GUI and the validators never need to walk the ontology
+ * graph. In that order, each term is followed by its descendants, and siblings are ordered as given by
+ * {@link SubOntology#getOrder()} (e.g., onset from Antenatal onset to Late onset) or else by id (e.g., frequency
+ * from Obligate to Excluded).
+ * <p>
+ * The index is immutable and can be shared between threads.
+ * @author Peter Robinson
+ */
+public final class SubOntologyIndex {
+
+    private final HpoAncestorIndex hpo;
+    /** Indices of the root and all descendants of each subhierarchy. */
+    private final Map<SubOntology, BitSet> members = new EnumMap<>(SubOntology.class);
+    /** Key: label of a term of the subhierarchy (including the root); value: its id, e.g., HP:0003577. */
+    private final Map<SubOntology, Map<String, String>> label2id = new EnumMap<>(SubOntology.class);
+    /** Labels of the descendants of the root of each subhierarchy, in the order of the hierarchy. */
+    private final Map<SubOntology, List<String>> labels = new EnumMap<>(SubOntology.class);
+    /** Key: index of a term of any of the subhierarchies; value: its label. */
+    private final Map<Integer, String> id2label = new HashMap<>();
+
+    private SubOntologyIndex(HpoOntology ontology, HpoAncestorIndex hpo) {
+        this.hpo = hpo;
+        for (SubOntology sub : SubOntology.values()) {
+            BitSet bits = hpo.getSubhierarchy(sub.getRoot());
+            Map<String, String> map = new TreeMap<>();
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                TermId tid = hpo.getTermId(i);
+                Term term = ontology.getTermMap().get(tid);
+                String label = term == null || term.getName() == null ? tid.getIdWithPrefix() : term.getName();
+                map.put(label, tid.getIdWithPrefix());
+                id2label.put(i, label);
+            }
+            List<String> descendantLabels = new ArrayList<>(bits.cardinality());
+            if (hpo.indexOf(sub.getRoot()) >= 0) {
+                addDescendantLabels(ontology, sub.getRoot(), siblingOrder(sub), new BitSet(hpo.size()), descendantLabels);
+            }
+            members.put(sub, bits);
+            label2id.put(sub, Collections.unmodifiableMap(map));
+            labels.put(sub, Collections.unmodifiableList(descendantLabels));
+        }
+    }
+
+    /**
+     * @return orders sibling terms (given by their index) by the earliest position of the term or one of its
+     * descendants in {@link SubOntology#getOrder()} (so that, e.g., Pediatric onset comes before Adult onset),
+     * and then by id.
+     */
+    private Comparator<Integer> siblingOrder(SubOntology sub) {
+        Map<Integer, Integer> position = new HashMap<>();
+        for (TermId tid : sub.getOrder()) {
+            int i = hpo.indexOf(tid);
+            if (i >= 0) {
+                position.putIfAbsent(i, position.size());
+            }
+        }
+        Map<Integer, Integer> rank = new HashMap<>();
+        return Comparator.<Integer>comparingInt(i -> rank.computeIfAbsent(i, t -> {
+            int r = position.getOrDefault(t, Integer.MAX_VALUE);
+            for (int d : hpo.getDescendants(t)) {
+                r = Math.min(r, position.getOrDefault(d, Integer.MAX_VALUE));
+            }
+            return r;
+        })).thenComparing(hpo::getTermId);
+    }
+
+    /**
+     * Add the labels of the descendants of a term depth first, i.e., each term is followed by its own descendants.
+     * A term with several parents is listed once, below the first of them.
+     */
+    private void addDescendantLabels(HpoOntology ontology, TermId parent, Comparator<Integer> siblingOrder,
+                                     BitSet listed, List<String> labels) {
+        List<Integer> children = new ArrayList<>();
+        for (TermId child : getChildTerms(ontology, parent, false)) {
+            int c = hpo.indexOf(child);
+            if (c >= 0 && !listed.get(c)) {
+                listed.set(c);
+                children.add(c);
+            }
+        }
+        children.sort(siblingOrder);
+        for (int c : children) {
+            labels.add(id2label.get(c));
+            addDescendantLabels(ontology, hpo.getTermId(c), siblingOrder, listed, labels);
+        }
+    }
+
+    /**
+     * @param ontology used for the labels of the terms
+     * @param hpo the hierarchy of the same ontology
+     */
+    public static SubOntologyIndex build(HpoOntology ontology, HpoAncestorIndex hpo) {
+        return new SubOntologyIndex(ontology, hpo);
+    }
+
+    /** @return the hierarchy from which the subhierarchies were taken. */
+    public HpoAncestorIndex getAncestorIndex() {
+        return hpo;
+    }
+
+    /**
+     * @return true if the id (which may be an obsolete or alternate id) is the root or a descendant of the root of
+     * the subhierarchy.
+     */
+    public boolean contains(SubOntology sub, TermId tid) {
+        TermId current = hpo.getCurrentId(tid);
+        return current != null && members.get(sub).get(hpo.indexOf(current));
+    }
+
+    /** @return true if the term with the given index of the {@link HpoAncestorIndex} belongs to the subhierarchy. */
+    public boolean contains(SubOntology sub, int index) {
+        return index >= 0 && members.get(sub).get(index);
+    }
+
+    /** @return the id (e.g., HP:0003577) of the term of the subhierarchy with this label, or null. */
+    public String getId(SubOntology sub, String label) {
+        return label2id.get(sub).get(label);
+    }
+
+    /** @return the label of a term of one of the subhierarchies, or null if it is not in any of them. */
+    public String getLabel(TermId tid) {
+        TermId current = hpo.getCurrentId(tid);
+        return current == null ? null : id2label.get(hpo.indexOf(current));
+    }
+
+    /** @return map from the label to the id of each term of the subhierarchy (including the root), sorted by label. */
+    public Map<String, String> getLabel2IdMap(SubOntology sub) {
+        return label2id.get(sub);
+    }
+
+    /**
+     * @return the labels of the terms below the root of the subhierarchy in the order of the hierarchy (the root
+     * itself, e.g., Onset, is not a meaningful annotation).
+     */
+    public List<String> getLabels(SubOntology sub) {
+        return labels.get(sub);
+    }
+}
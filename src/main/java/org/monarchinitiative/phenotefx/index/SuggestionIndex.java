@@ -0,0 +1,315 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.*;
+
+/**
+ * A suggestion engine for autocompletion (e.g., of HPO term labels and synonyms or of disease names). The
+ * suggestions are normalized (lower case, single spaces) and concatenated into one character array, over which
+ * a suffix array is built. A query is answered by two binary searches in the suffix array, so that the cost of a
+ * keystroke depends on the number of matches rather than on the number of suggestions. Queries of one or two
+ * characters only use the (much smaller) array of word starts.
+ * <p>
+ * Matches are ranked as exact match, then prefix match, then match at the start of a word, then infix match.
+ * Within each class, primary labels come before synonyms, and shorter suggestions before longer ones.
+ * {@link #suggest(String, int, int[])} uses scratch arrays that are allocated once, and is synchronized.
+ * @author Peter Robinson
+ */
+public final class SuggestionIndex {
+    /** Terminates each normalized suggestion in {@link #text}; sorts before any other character. */
+    private static final char SEPARATOR = '\u0000';
+    /** Queries up to this length are only matched against word starts. */
+    private static final int SHORT_QUERY_LENGTH = 2;
+    /** Ranges up to this size are sorted with insertion sort. */
+    private static final int INSERTION_SORT_CUTOFF = 12;
+
+    private static final int EXACT = 0;
+    private static final int PREFIX = 1;
+    private static final int WORD_START = 2;
+    private static final int INFIX = 3;
+
+    /** The suggestions in alphabetical order; the index of a suggestion in this array is its id. */
+    private final String[] suggestions;
+    /** Bit i is set if suggestion i is a synonym rather than a primary label. */
+    private final BitSet synonyms;
+    /** The normalized suggestions, each followed by {@link #SEPARATOR}. */
+    private final char[] text;
+    /** starts[i] is the offset of suggestion i in {@link #text}; starts[n] is the length of the text. */
+    private final int[] starts;
+    /** Offsets of all suffixes of {@link #text} (except the separators) in lexicographic order. */
+    private final int[] suffixes;
+    /** Offsets of the suffixes that begin a word, in lexicographic order. */
+    private final int[] wordStarts;
+
+    /* Scratch space for {@link #suggest}. */
+    private final int[] stamp;
+    private final int[] bestScore;
+    private final int[] touched;
+    private int queryCount = 0;
+    private char[] query = new char[64];
+    private final TopK topK = new TopK();
+
+    /**
+     * Create an index in which all suggestions are primary labels.
+     * @param suggestions the strings to be suggested
+     */
+    public static SuggestionIndex create(Collection<String> suggestions) {
+        return new SuggestionIndex(suggestions, null);
+    }
+
+    /**
+     * @param suggestions the strings to be suggested (labels and synonyms)
+     * @param primaryLabels the subset of suggestions that are primary labels; these rank higher than synonyms
+     */
+    public static SuggestionIndex create(Collection<String> suggestions, Set<String> primaryLabels) {
+        return new SuggestionIndex(suggestions, primaryLabels);
+    }
+
+    private SuggestionIndex(Collection<String> suggestionCollection, Set<String> primaryLabels) {
+        this.suggestions = suggestionCollection.toArray(new String[0]);
+        Arrays.sort(this.suggestions);
+        int n = suggestions.length;
+        this.synonyms = new BitSet(n);
+        this.starts = new int[n + 1];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (primaryLabels != null && !primaryLabels.contains(suggestions[i])) {
+                synonyms.set(i);
+            }
+            starts[i] = sb.length();
+            TextNormalizer.appendNormalized(suggestions[i], sb);
+            sb.append(SEPARATOR);
+        }
+        starts[n] = sb.length();
+        this.text = new char[sb.length()];
+        sb.getChars(0, sb.length(), text, 0);
+
+        int nSuffixes = 0;
+        int nWordStarts = 0;
+        for (int pos = 0; pos < text.length; pos++) {
+            if (text[pos] != SEPARATOR) {
+                nSuffixes++;
+                if (isWordStart(pos)) nWordStarts++;
+            }
+        }
+        this.suffixes = new int[nSuffixes];
+        this.wordStarts = new int[nWordStarts];
+        int s = 0, w = 0;
+        for (int pos = 0; pos < text.length; pos++) {
+            if (text[pos] != SEPARATOR) {
+                suffixes[s++] = pos;
+                if (isWordStart(pos)) wordStarts[w++] = pos;
+            }
+        }
+        sortSuffixes(suffixes, 0, suffixes.length - 1, 0);
+        sortSuffixes(wordStarts, 0, wordStarts.length - 1, 0);
+
+        this.stamp = new int[n];
+        this.bestScore = new int[n];
+        this.touched = new int[n];
+    }
+
+    /** @return number of suggestions in the index. */
+    public int size() {
+        return suggestions.length;
+    }
+
+    /** @return the suggestion with the given id. */
+    public String get(int id) {
+        return suggestions[id];
+    }
+
+    /** @return true if the suggestion with the given id is a synonym rather than a primary label. */
+    public boolean isSynonym(int id) {
+        return synonyms.get(id);
+    }
+
+    /**
+     * Find the best {@code k} suggestions for the user text.
+     * @param userText text typed by the user
+     * @param k maximum number of suggestions
+     * @param out receives the ids of the suggestions, best first (must have room for k ids)
+     * @return the number of ids written to {@code out}
+     */
+    public synchronized int suggest(String userText, int k, int[] out) {
+        int m = normalizeQuery(userText);
+        if (m == 0 || k <= 0) {
+            return 0;
+        }
+        if (++queryCount == 0) { // the stamps have wrapped around
+            Arrays.fill(stamp, 0);
+            queryCount = 1;
+        }
+        int[] sa = m <= SHORT_QUERY_LENGTH ? wordStarts : suffixes;
+        int from = lowerBound(sa, m);
+        int to = upperBound(sa, from, m);
+        int nTouched = 0;
+        for (int i = from; i < to; i++) {
+            int pos = sa[i];
+            int id = owner(pos);
+            int score = 2 * category(pos, id, m) + (synonyms.get(id) ? 1 : 0);
+            if (stamp[id] != queryCount) {
+                stamp[id] = queryCount;
+                bestScore[id] = score;
+                touched[nTouched++] = id;
+            } else if (score < bestScore[id]) {
+                bestScore[id] = score;
+            }
+        }
+        return selectTopK(nTouched, k, out);
+    }
+
+    /** Keep the k best of the touched suggestions and write them to out, best first. */
+    private int selectTopK(int nTouched, int k, int[] out) {
+        topK.reset(k);
+        for (int i = 0; i < nTouched; i++) {
+            int id = touched[i];
+            topK.offer(TopK.key(bestScore[id], starts[id + 1] - starts[id] - 1, id));
+        }
+        return topK.drainIds(out);
+    }
+
+    /** @return how the match of the query (of length m) at pos relates to suggestion id. */
+    private int category(int pos, int id, int m) {
+        if (pos == starts[id]) {
+            return starts[id + 1] - starts[id] - 1 == m ? EXACT : PREFIX;
+        }
+        return isWordStart(pos) ? WORD_START : INFIX;
+    }
+
+    /** @return the id of the suggestion that contains position pos of the text. */
+    private int owner(int pos) {
+        int lo = 0, hi = suggestions.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= pos) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private boolean isWordStart(int pos) {
+        return Character.isLetterOrDigit(text[pos])
+                && (pos == 0 || !Character.isLetterOrDigit(text[pos - 1]));
+    }
+
+    /** @return first index in sa whose suffix is not smaller than the query. */
+    private int lowerBound(int[] sa, int m) {
+        int lo = 0, hi = sa.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareToQuery(sa[mid], m) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** @return first index in sa (starting from {@code from}) whose suffix does not begin with the query. */
+    private int upperBound(int[] sa, int from, int m) {
+        int lo = from, hi = sa.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareToQuery(sa[mid], m) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Compare the suffix at pos with the first m characters of {@link #query}; 0 means the suffix starts with it. */
+    private int compareToQuery(int pos, int m) {
+        for (int j = 0; j < m; j++) {
+            char c = text[pos + j];
+            if (c != query[j]) {
+                return c - query[j];
+            }
+            // a separator cannot match, since the normalized query does not contain any
+        }
+        return 0;
+    }
+
+    /** Normalize the user text into {@link #query}. @return its length. */
+    private int normalizeQuery(String userText) {
+        if (userText == null) {
+            return 0;
+        }
+        if (query.length < userText.length()) {
+            query = new char[Math.max(userText.length(), 2 * query.length)];
+        }
+        return TextNormalizer.normalize(userText, query);
+    }
+
+    /**
+     * Sort the suffixes a[lo..hi] (which have the first d characters in common) with three-way radix quicksort.
+     * Suffixes are compared up to and including the separator that ends their suggestion.
+     */
+    private void sortSuffixes(int[] a, int lo, int hi, int d) {
+        while (hi - lo > INSERTION_SORT_CUTOFF) {
+            int mid = lo + ((hi - lo) >>> 1);
+            swap(a, lo, medianOfThree(a, lo, mid, hi, d));
+            char v = text[a[lo] + d];
+            int lt = lo, gt = hi, i = lo + 1;
+            while (i <= gt) {
+                char c = text[a[i] + d];
+                if (c < v) swap(a, lt++, i++);
+                else if (c > v) swap(a, i, gt--);
+                else i++;
+            }
+            sortSuffixes(a, lo, lt - 1, d);
+            if (v != SEPARATOR) {
+                sortSuffixes(a, lt, gt, d + 1);
+            }
+            lo = gt + 1;
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            int p = a[i];
+            int j = i;
+            while (j > lo && compareSuffixes(a[j - 1], p, d) > 0) {
+                a[j] = a[j - 1];
+                j--;
+            }
+            a[j] = p;
+        }
+    }
+
+    private int medianOfThree(int[] a, int i, int j, int k, int d) {
+        char x = text[a[i] + d], y = text[a[j] + d], z = text[a[k] + d];
+        if (x < y) {
+            return y < z ? j : (x < z ? k : i);
+        }
+        return x < z ? i : (y < z ? k : j);
+    }
+
+    private int compareSuffixes(int p, int q, int d) {
+        while (true) {
+            char c1 = text[p + d], c2 = text[q + d];
+            if (c1 != c2) return c1 - c2;
+            if (c1 == SEPARATOR) return 0;
+            d++;
+        }
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
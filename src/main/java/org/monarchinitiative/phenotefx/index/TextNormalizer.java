@@ -0,0 +1,78 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Normalization shared by the indexes in this package: characters are converted to lower case one by one (so
+ * that offsets in the normalized text correspond to characters), runs of whitespace and control characters
+ * become a single space, and leading and trailing whitespace is removed.
+ * @author Peter Robinson
+ */
+final class TextNormalizer {
+
+    private TextNormalizer() {}
+
+    /** Append the normalized form of s to sb. */
+    static void appendNormalized(String s, StringBuilder sb) {
+        boolean space = false;
+        boolean any = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (isSpace(c)) {
+                space = any;
+            } else {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(Character.toLowerCase(c));
+                any = true;
+            }
+        }
+    }
+
+    /**
+     * Write the normalized form of s to dest.
+     * @param dest must have room for at least {@code s.length()} characters
+     * @return the length of the normalized form
+     */
+    static int normalize(String s, char[] dest) {
+        int m = 0;
+        boolean space = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (isSpace(c)) {
+                space = m > 0;
+            } else {
+                if (space) {
+                    dest[m++] = ' ';
+                    space = false;
+                }
+                dest[m++] = Character.toLowerCase(c);
+            }
+        }
+        return m;
+    }
+
+    private static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || Character.isISOControl(c);
+    }
+}
@@ -0,0 +1,102 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * Selects the best k suggestions of a query without sorting all of the candidates. Each candidate is offered as
+ * a key made by {@link #key(int, int, int)}, and the k smallest keys are kept in a bounded max-heap. One instance
+ * is reused for all queries of an index (callers must synchronize).
+ * @author Peter Robinson
+ */
+final class TopK {
+    private long[] heap = new long[16];
+    private int k;
+    private int size;
+
+    /**
+     * @param score rank of the match (smaller is better)
+     * @param length length of the suggestion (ties are broken in favour of shorter suggestions)
+     * @param id id of the suggestion
+     * @return a key that orders candidates by score, then length, then id
+     */
+    static long key(int score, int length, int id) {
+        return ((long) score << 48) | ((long) Math.min(length, 0xFFFF) << 32) | id;
+    }
+
+    /** Start a new selection of at most k keys. */
+    void reset(int k) {
+        if (heap.length < k) {
+            heap = new long[Math.max(k, 2 * heap.length)];
+        }
+        this.k = k;
+        this.size = 0;
+    }
+
+    void offer(long key) {
+        if (size < k) {
+            heap[size] = key;
+            siftUp(size++);
+        } else if (size > 0 && key < heap[0]) {
+            heap[0] = key;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Write the ids of the kept keys to out, best first.
+     * @return the number of ids written
+     */
+    int drainIds(int[] out) {
+        Arrays.sort(heap, 0, size);
+        for (int i = 0; i < size; i++) {
+            out[i] = (int) heap[i];
+        }
+        int n = size;
+        size = 0;
+        return n;
+    }
+
+    private void siftUp(int i) {
+        long key = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] >= key) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    private void siftDown(int i, int size) {
+        long key = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] > heap[child]) child++;
+            if (key >= heap[child]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+}
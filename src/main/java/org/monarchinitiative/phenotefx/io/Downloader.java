@@ -20,21 +20,15 @@ package org.monarchinitiative.phenotefx.io;
  * #L%
  */
 
-import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.scene.control.ProgressIndicator;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.monarchinitiative.phenotefx.gui.PopUps;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
 
 /**
  * This class is used to download files to the local file system of the user (chromFa.tar.gz and refGene.txt.gz).
@@ -62,6 +56,8 @@ public class Downloader extends Task<Void> {
     /** This is the URL of the file we want to download */
     private String urlstring=null;
 
+    private FileFetcher.Result result=null;
+
     private Downloader(File directoryPath, String url, String basename) {
         this.localDir = directoryPath;
         this.urlstring=url;
@@ -100,68 +96,33 @@ public class Downloader extends Task<Void> {
     }
 
     /**
-     * This method downloads a file to the specified local file path. If the file already exists, it emits a warning
-     * message and does nothing.
+     * This method downloads a file to the specified local file path with a {@link FileFetcher}: the existing file
+     * is only replaced once the new one has been downloaded completely, nothing is transferred if the file on the
+     * server has not changed since the last download, and an interrupted download is resumed.
+     * @throws IOException if the download failed (the task then fails; the existing file is unchanged)
      */
     @Override
-    protected Void call() {
+    protected Void call() throws IOException {
         logger.debug("[INFO] Downloading: \"" + urlstring + "\"");
-        InputStream reader;
-        FileOutputStream writer;
-
-        int threshold = 0;
-        int block = 250000;
-        try {
-            URL url = new URL(urlstring);
-            URLConnection urlc = url.openConnection();
-            reader = urlc.getInputStream();
-            logger.trace("URL host: "+ url.getHost() + "\n reader available="+reader.available());
-            logger.trace("LocalFilePath: "+localFilePath);
-            writer = new FileOutputStream(localFilePath);
-            byte[] buffer = new byte[153600];
-            int totalBytesRead = 0;
-            int bytesRead;
-            int size = urlc.getContentLength();
-            if (progress!=null) { updateProgress(0.01); }
-            logger.trace("Size of file to be downloaded: "+size);
-            if (size >= 0)
-                block = size /100;
-            while ((bytesRead = reader.read(buffer)) > 0) {
-                writer.write(buffer, 0, bytesRead);
-                buffer = new byte[153600];
-                totalBytesRead += bytesRead;
-                if (size>0 && totalBytesRead > threshold) {
-                    updateProgress((double)totalBytesRead/size);
-                    threshold += block;
-                }
-            }
-            logger.info("Successful download from "+urlstring+": " + (Integer.toString(totalBytesRead)) + "(" + size + ") bytes read.");
-            writer.close();
-        } catch (MalformedURLException e) {
-            updateProgress(0.00);
-            showException(String.format("Malformed url: \"%s\"\n%s", urlstring, e.toString()));
-        } catch (IOException e) {
-            updateProgress(0.00);
-            showException(String.format("IO Exception reading from URL: \"%s\" to local file \"%s\"\n%s", urlstring,localFilePath, e.toString()));
-        } catch (Exception e){
-            updateProgress(0.00);
-            showException(e.getMessage());
-        }
+        logger.trace("LocalFilePath: "+localFilePath);
+        if (progress!=null) { updateProgress(0.01); }
+        FileFetcher fetcher = new FileFetcher(new URL(urlstring), localFilePath)
+                .setProgressListener(pr -> {
+                    if (pr >= 0) {
+                        updateProgress(pr);
+                    }
+                });
+        result = fetcher.fetch();
+        logger.info("Download from {} finished: {}", urlstring, result);
         updateProgress(1.000); /* show 100% completion */
         return null;
     }
 
-
-    private void showException (String e) {
-        Platform.runLater( () -> { // new Runnable
-                PopUps.showInfoMessage(e,"Download Error");
-        });
+    /** @return the result of the download, or null if it has not completed successfully. */
+    public FileFetcher.Result getResult() {
+        return result;
     }
 
-
-
-
-
     /** Update the progress bar of the GUI in a separate thread.
      * @param pr Current progress.
      */
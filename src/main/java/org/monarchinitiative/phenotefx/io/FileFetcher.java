@@ -0,0 +1,318 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Downloads a file (e.g., hp.obo) to the local file system without ever leaving a broken file behind, and without
+ * transferring it again if it has not changed.
+ * <ul>
+ * <li>The data are written to {@code <target>.part} and only moved over the target (atomically) once the download
+ * is complete and its SHA-256 hash has been computed (and, if one was given, checked against the expected
+ * hash).</li>
+ * <li>The ETag and Last-Modified headers of the server are stored in a sidecar file {@code <target>.meta} together
+ * with the hash of the downloaded file. The next fetch is a conditional request (If-None-Match,
+ * If-Modified-Since), so that the server answers "304 Not Modified" if the file is unchanged; the local file is
+ * only trusted if it still has the recorded hash.</li>
+ * <li>If a download is interrupted, the next fetch asks for the rest of the file (Range, If-Range), provided the
+ * server sent a validator for the partial file. If the partial file turns out to be complete already (the server
+ * answers "416 Range Not Satisfiable"), it is discarded and the file is downloaded again.</li>
+ * </ul>
+ * Conditional requests and resuming are only possible over HTTP(S); other URLs (e.g., ftp) are downloaded in full,
+ * but still atomically.
+ * @author Peter Robinson
+ */
+public class FileFetcher {
+    private static final Logger logger = LogManager.getLogger();
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int CONNECT_TIMEOUT_MS = 30_000;
+    private static final int READ_TIMEOUT_MS = 60_000;
+    /** HTTP status for a Range that starts beyond the end of the file (no constant in {@link HttpURLConnection}). */
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+    private static final String URL_KEY = "url";
+    private static final String ETAG_KEY = "etag";
+    private static final String LAST_MODIFIED_KEY = "last-modified";
+    private static final String SHA256_KEY = "sha256";
+    private static final String PARTIAL_ETAG_KEY = "partial.etag";
+    private static final String PARTIAL_LAST_MODIFIED_KEY = "partial.last-modified";
+
+    /** The outcome of {@link #fetch()}. */
+    public enum Result {
+        /** The whole file was downloaded. */
+        DOWNLOADED,
+        /** The rest of a previously interrupted download was downloaded. */
+        RESUMED,
+        /** The server reported that the local file is up to date; nothing was transferred. */
+        NOT_MODIFIED
+    }
+
+    private final URL url;
+    private final File target;
+    private final File partFile;
+    private final File metaFile;
+    /** Hex-encoded SHA-256 hash that the downloaded file must have, or null if it is not known. */
+    private String expectedSha256 = null;
+    /** Receives the fraction of the file that has been downloaded (from 0 to 1, or -1 if the size is unknown). */
+    private DoubleConsumer progressListener = p -> {};
+
+    public FileFetcher(URL url, File target) {
+        this.url = url;
+        this.target = target;
+        this.partFile = new File(target.getAbsolutePath() + ".part");
+        this.metaFile = new File(target.getAbsolutePath() + ".meta");
+    }
+
+    /** @param sha256 hex-encoded SHA-256 hash that the downloaded file must have */
+    public FileFetcher setExpectedSha256(String sha256) {
+        this.expectedSha256 = sha256 == null ? null : sha256.toLowerCase();
+        return this;
+    }
+
+    /** @param listener receives the downloaded fraction (from 0 to 1), or -1 if the size of the file is unknown */
+    public FileFetcher setProgressListener(DoubleConsumer listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * Fetch the file. If the current thread is interrupted, the download stops with an
+     * {@link InterruptedIOException} and can be resumed by the next call.
+     * @throws IOException if the file could not be downloaded; the target is unchanged in this case
+     */
+    public Result fetch() throws IOException {
+        return fetch(true);
+    }
+
+    /** @param resume if true, an interrupted download is resumed, otherwise it is started over */
+    private Result fetch(boolean resume) throws IOException {
+        Properties meta = readMeta();
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        if (!(connection instanceof HttpURLConnection)) {
+            partFile.delete();
+            try (InputStream in = connection.getInputStream()) {
+                download(in, 0L, connection.getContentLengthLong());
+            }
+            return complete(new Properties(), Result.DOWNLOADED);
+        }
+        HttpURLConnection http = (HttpURLConnection) connection;
+        try {
+            if (isTargetCurrent(meta)) {
+                if (meta.getProperty(ETAG_KEY) != null) {
+                    http.setRequestProperty("If-None-Match", meta.getProperty(ETAG_KEY));
+                }
+                if (meta.getProperty(LAST_MODIFIED_KEY) != null) {
+                    http.setRequestProperty("If-Modified-Since", meta.getProperty(LAST_MODIFIED_KEY));
+                }
+            }
+            long offset = 0L;
+            String partialValidator = meta.getProperty(PARTIAL_ETAG_KEY, meta.getProperty(PARTIAL_LAST_MODIFIED_KEY));
+            if (resume && partFile.length() > 0 && partialValidator != null) {
+                offset = partFile.length();
+                http.setRequestProperty("Range", "bytes=" + offset + "-");
+                // if the file has changed in the meantime, the server sends all of it
+                http.setRequestProperty("If-Range", partialValidator);
+            }
+            int status = http.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                logger.info("{} has not been modified since the last download", url);
+                progressListener.accept(1.0);
+                return Result.NOT_MODIFIED;
+            }
+            if (status == HTTP_RANGE_NOT_SATISFIABLE && offset > 0) {
+                // the partial file already has all of the bytes (e.g., the move into place failed); start over
+                logger.info("Partial download of {} is already complete, downloading it again", url);
+                http.disconnect();
+                Files.deleteIfExists(partFile.toPath());
+                removePartialValidators(meta);
+                writeMeta(meta);
+                return fetch(false);
+            }
+            if (status == HttpURLConnection.HTTP_PARTIAL && offset > 0 && rangeStart(http) == offset) {
+                logger.info("Resuming download of {} at byte {}", url, offset);
+            } else if (status == HttpURLConnection.HTTP_OK) {
+                offset = 0L;
+            } else {
+                if (status == HttpURLConnection.HTTP_PARTIAL) {
+                    Files.deleteIfExists(partFile.toPath()); // not the range we asked for; start over next time
+                }
+                throw new IOException(String.format("Could not download %s: HTTP %d %s", url, status,
+                        http.getResponseMessage()));
+            }
+            // remember the validators of the partial file, so that an interrupted download can be resumed
+            removePartialValidators(meta);
+            setIfPresent(meta, PARTIAL_ETAG_KEY, http.getHeaderField("ETag"));
+            setIfPresent(meta, PARTIAL_LAST_MODIFIED_KEY, http.getHeaderField("Last-Modified"));
+            meta.setProperty(URL_KEY, url.toString());
+            writeMeta(meta);
+            long length = http.getContentLengthLong();
+            try (InputStream in = http.getInputStream()) {
+                download(in, offset, length < 0 ? -1 : offset + length);
+            }
+            Properties completed = new Properties();
+            setIfPresent(completed, ETAG_KEY, http.getHeaderField("ETag"));
+            setIfPresent(completed, LAST_MODIFIED_KEY, http.getHeaderField("Last-Modified"));
+            return complete(completed, offset > 0 ? Result.RESUMED : Result.DOWNLOADED);
+        } finally {
+            http.disconnect();
+        }
+    }
+
+    /** @return true if the target exists and has the hash recorded after the last download. */
+    private boolean isTargetCurrent(Properties meta) throws IOException {
+        String sha = meta.getProperty(SHA256_KEY);
+        return sha != null && target.isFile() && sha.equals(toHex(Checksums.sha256(target)));
+    }
+
+    /**
+     * Write the data to {@link #partFile}, starting at offset (the bytes before offset are already there).
+     * @param totalLength expected length of the complete file, or -1 if unknown
+     */
+    private void download(InputStream in, long offset, long totalLength) throws IOException {
+        try (FileChannel out = FileChannel.open(partFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            out.truncate(offset);
+            out.position(offset);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            long done = offset;
+            long nextReport = 0;
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                wrapped.clear().limit(n);
+                while (wrapped.hasRemaining()) {
+                    out.write(wrapped);
+                }
+                done += n;
+                if (done >= nextReport) {
+                    progressListener.accept(totalLength > 0 ? (double) done / totalLength : -1.0);
+                    nextReport = done + Math.max(BUFFER_SIZE, totalLength / 100);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException(String.format("Download of %s interrupted after %d bytes", url, done));
+                }
+            }
+            if (totalLength >= 0 && done != totalLength) {
+                throw new IOException(String.format("Download of %s incomplete: got %d of %d bytes", url, done, totalLength));
+            }
+            out.force(true);
+        }
+    }
+
+    /** Check the hash of the downloaded file, move it into place and record its metadata. */
+    private Result complete(Properties meta, Result result) throws IOException {
+        String sha = toHex(Checksums.sha256(partFile));
+        if (expectedSha256 != null && !expectedSha256.equals(sha)) {
+            Files.deleteIfExists(partFile.toPath());
+            // the partial file is gone, but the validators and hash of the target are still valid
+            Properties previous = readMeta();
+            removePartialValidators(previous);
+            writeMeta(previous);
+            throw new IOException(String.format("Checksum mismatch for %s: expected SHA-256 %s but got %s", url,
+                    expectedSha256, sha));
+        }
+        try {
+            Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        meta.setProperty(URL_KEY, url.toString());
+        meta.setProperty(SHA256_KEY, sha);
+        writeMeta(meta);
+        progressListener.accept(1.0);
+        logger.info("Downloaded {} to {} ({} bytes, SHA-256 {})", url, target.getAbsolutePath(), target.length(), sha);
+        return result;
+    }
+
+    /** @return the metadata of the last download, or empty properties if there are none (or they are for another URL). */
+    private Properties readMeta() {
+        Properties meta = new Properties();
+        if (metaFile.isFile()) {
+            try (InputStream in = new FileInputStream(metaFile)) {
+                meta.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Could not read {}: {}", metaFile.getAbsolutePath(), e.toString());
+                return new Properties();
+            }
+        }
+        if (!url.toString().equals(meta.getProperty(URL_KEY))) {
+            return new Properties();
+        }
+        return meta;
+    }
+
+    private void writeMeta(Properties meta) throws IOException {
+        File tmp = new File(metaFile.getAbsolutePath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            meta.store(out, "PhenoteFX download metadata");
+        }
+        Files.move(tmp.toPath(), metaFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** @return the first byte position of a "Content-Range: bytes start-end/total" header, or -1. */
+    private static long rangeStart(HttpURLConnection http) {
+        String range = http.getHeaderField("Content-Range");
+        if (range == null || !range.startsWith("bytes ")) {
+            return -1;
+        }
+        int dash = range.indexOf('-');
+        try {
+            return dash < 0 ? -1 : Long.parseLong(range.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void removePartialValidators(Properties meta) {
+        meta.remove(PARTIAL_ETAG_KEY);
+        meta.remove(PARTIAL_LAST_MODIFIED_KEY);
+    }
+
+    private static void setIfPresent(Properties p, String key, String value) {
+        if (value != null) {
+            p.setProperty(key, value);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
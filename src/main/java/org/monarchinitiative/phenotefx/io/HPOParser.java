@@ -20,7 +20,6 @@ package org.monarchinitiative.phenotefx.io;
  * #L%
  */
 
-import com.google.common.collect.ImmutableMap;
 import ontologizer.io.obo.OBOParserException;
 import ontologizer.ontology.TermContainer;
 import org.monarchinitiative.phenol.base.PhenolException;
@@ -31,6 +30,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
 import org.monarchinitiative.phenotefx.gui.Platform;
+import org.monarchinitiative.phenotefx.index.FuzzyIndex;
+import org.monarchinitiative.phenotefx.index.SuggestionIndex;
 import org.monarchinitiative.phenotefx.model.HPO;
 
 import java.io.File;
@@ -56,7 +57,13 @@ public class HPOParser {
     private Map<String,String> hpoName2IDmap;
     /** Key: any label (can be a synonym). Value: corresponding main preferred label. */
     private Map<String,String> hpoSynonym2PreferredLabelMap;
-    /** Ontology */
+    /** key: label of a term in the Clinical modifier subhierarchy; value: corresponding HP id. */
+    private Map<String,String> modifierMap;
+    /** Autocompletion index of the labels and synonyms, built on first use. */
+    private SuggestionIndex suggestionIndex=null;
+    /** Typo-tolerant index of the labels and synonyms, built on first use. */
+    private FuzzyIndex fuzzyIndex=null;
+    /** Ontology. This is parsed lazily if the maps were read from the {@link HpoSnapshot}. */
     private HpoOntology ontology=null;
 
     /**
@@ -69,11 +76,23 @@ public class HPOParser {
         this.hpoMap=new HashMap<>();
         hpoName2IDmap=new HashMap<>();
         this.hpoSynonym2PreferredLabelMap=new HashMap<>();
+        this.modifierMap=new HashMap<>();
         inputFile();
     }
 
 
-    public HpoOntology getHpoOntology() {
+    /**
+     * If the maps were read from the snapshot, the ontology itself is parsed the first time it is requested.
+     * @return the HPO ontology, or null if hp.obo could not be parsed.
+     */
+    public synchronized HpoOntology getHpoOntology() {
+        if (ontology == null) {
+            try {
+                parseOboFile();
+            } catch (PhenoteFxException e) {
+                logger.error(e.getMessage());
+            }
+        }
         return ontology;
     }
 
@@ -86,6 +105,7 @@ public class HPOParser {
         this.hpoMap=new HashMap<>();
         hpoName2IDmap=new HashMap<>();
         this.hpoSynonym2PreferredLabelMap=new HashMap<>();
+        this.modifierMap=new HashMap<>();
         inputFile();
     }
 
@@ -96,30 +116,45 @@ public class HPOParser {
     public Map<String,String> getHpoName2IDmap() { return this.hpoName2IDmap; }
     public Map<String,String> getHpoSynonym2PreferredLabelMap() { return hpoSynonym2PreferredLabelMap; }
 
-    /**@return map with key: label and value HPO Id for just the Clinical Modifier subhierarchy */
-    public Map<String,String> getModifierMap() {
-        ImmutableMap.Builder<String,String> builder = new ImmutableMap.Builder<>();
-        TermId clinicalModifier = TermId.constructWithPrefix("HP:0012823");
-        Set<TermId> modifierIds = getDescendents(ontology,clinicalModifier);
-        for (TermId tid:modifierIds) {
-            Term term = ontology.getTermMap().get(tid);
-            builder.put(term.getName(),tid.getIdWithPrefix());
+    /** @return an autocompletion index of all labels and synonyms, in which the labels rank above synonyms. */
+    public synchronized SuggestionIndex getSuggestionIndex() {
+        if (suggestionIndex == null) {
+            suggestionIndex = SuggestionIndex.create(hpoSynonym2PreferredLabelMap.keySet(), hpoName2IDmap.keySet());
+        }
+        return suggestionIndex;
+    }
+
+    /** @return a typo-tolerant index of all labels and synonyms, in which the labels rank above synonyms. */
+    public synchronized FuzzyIndex getFuzzyIndex() {
+        if (fuzzyIndex == null) {
+            fuzzyIndex = FuzzyIndex.create(hpoSynonym2PreferredLabelMap.keySet(), hpoName2IDmap.keySet());
         }
-        return builder.build();
+        return fuzzyIndex;
+    }
+
+    /**
+     * The GUI takes the modifiers from the {@link org.monarchinitiative.phenotefx.index.SubOntologyIndex}, which
+     * also covers onset, frequency and mode of inheritance.
+     * @return map with key: label and value HPO Id for just the Clinical Modifier subhierarchy (unmodifiable)
+     */
+    public Map<String,String> getModifierMap() {
+        return Collections.unmodifiableMap(modifierMap);
     }
 
     /**
-     * Inputs the hp.obo file and fills {@link #hpoMap} with the contents.
+     * Inputs the maps from the binary snapshot if it is up to date with hp.obo. Otherwise, inputs the hp.obo file,
+     * fills {@link #hpoMap} and the other maps with its contents and rebuilds the snapshot in the background. There
+     * is no snapshot if the PhenoteFX directory does not exist (e.g., when a command is run on a build server).
      */
     private void inputFile() throws PhenoteFxException {
-        try {
-            HpOboParser hpoOboParser = new HpOboParser(hpoPath);
-            this.ontology = hpoOboParser.parse();
-        } catch (PhenolException | FileNotFoundException e) {
-            logger.error(String.format("Unable to parse HPO OBO file at %s", hpoPath.getAbsolutePath() ));
-            logger.error(e,e);
-                throw new PhenoteFxException(String.format("Unable to parse HPO OBO file at %s [%s]", hpoPath.getAbsolutePath(),e.toString()));
+        File snapshotDirectory = SnapshotFile.defaultDirectory();
+        HpoSnapshot snapshot = snapshotDirectory == null ? null : new HpoSnapshot(hpoPath, snapshotDirectory);
+        if (snapshot != null && snapshot.load(hpoMap, hpoName2IDmap, hpoSynonym2PreferredLabelMap, modifierMap)) {
+            logger.trace(String.format("Read %d HPO terms from snapshot at %s", hpoMap.size(),
+                    snapshot.getSnapshotFile().getAbsolutePath()));
+            return;
         }
+        parseOboFile();
         Map<TermId,Term> termmap=ontology.getTermMap();
 
         for (TermId termId : termmap.keySet()) {
@@ -141,6 +176,27 @@ public class HPOParser {
                 }
             }
         }
+        TermId clinicalModifier = TermId.constructWithPrefix("HP:0012823");
+        Set<TermId> modifierIds = getDescendents(ontology,clinicalModifier);
+        for (TermId tid:modifierIds) {
+            Term term = ontology.getTermMap().get(tid);
+            modifierMap.put(term.getName(),tid.getIdWithPrefix());
+        }
+        if (snapshot != null) {
+            snapshot.writeInBackground(hpoMap, hpoName2IDmap, hpoSynonym2PreferredLabelMap, modifierMap);
+        }
+    }
+
+    /** Parse the hp.obo file into {@link #ontology}. */
+    private void parseOboFile() throws PhenoteFxException {
+        try {
+            HpOboParser hpoOboParser = new HpOboParser(hpoPath);
+            this.ontology = hpoOboParser.parse();
+        } catch (PhenolException | FileNotFoundException e) {
+            logger.error(String.format("Unable to parse HPO OBO file at %s", hpoPath.getAbsolutePath() ));
+            logger.error(e,e);
+                throw new PhenoteFxException(String.format("Unable to parse HPO OBO file at %s [%s]", hpoPath.getAbsolutePath(),e.toString()));
+        }
     }
 
 
@@ -0,0 +1,166 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.model.HPO;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * A compact binary snapshot of the maps that {@link HPOParser} derives from hp.obo, stored as a
+ * {@link SnapshotFile} in the PhenoteFX directory. If the snapshot is current, it is used instead of parsing the OBO file;
+ * otherwise (or if the snapshot is corrupt) the caller falls back to the full parse and rebuilds the snapshot.
+ * <p>
+ * Payload: a {@link StringTable} followed by four sections of string-table indices (HPO terms, label to id,
+ * synonym to label, modifiers).
+ * @author Peter Robinson
+ */
+class HpoSnapshot {
+    private static final Logger logger = LogManager.getLogger();
+    /** "PFXH" */
+    private static final int MAGIC = 0x50465848;
+    /** Increment this whenever the layout of the payload changes. */
+    private static final int VERSION = 1;
+
+    private final SnapshotFile file;
+
+    /**
+     * @param oboFile the hp.obo file
+     * @param directory the directory in which the snapshot is stored
+     */
+    HpoSnapshot(File oboFile, File directory) {
+        this.file = new SnapshotFile("HPO", MAGIC, VERSION, oboFile, SnapshotFile.locationFor(oboFile, directory));
+    }
+
+    File getSnapshotFile() {
+        return file.getFile();
+    }
+
+    /**
+     * Fill the maps with the contents of the snapshot.
+     * @return true if the snapshot was current and could be read, false if it is missing, stale or corrupt (in
+     * which case the maps are left empty).
+     */
+    boolean load(Map<String, HPO> hpoMap,
+                 Map<String, String> hpoName2IDmap,
+                 Map<String, String> synonym2labelMap,
+                 Map<String, String> modifierMap) {
+        ByteBuffer buffer = file.map();
+        if (buffer == null) {
+            return false;
+        }
+        try {
+            String[] strings = StringTable.read(buffer);
+            int n = buffer.getInt();
+            for (int i = 0; i < n; i++) {
+                String id = strings[buffer.getInt()];
+                String label = strings[buffer.getInt()];
+                HPO hp = new HPO();
+                hp.setHpoId(id);
+                hp.setHpoName(label);
+                hpoMap.put(id, hp);
+            }
+            readPairs(buffer, strings, hpoName2IDmap);
+            readPairs(buffer, strings, synonym2labelMap);
+            readPairs(buffer, strings, modifierMap);
+            return true;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            logger.warn("Could not read HPO snapshot at {}: {}", getSnapshotFile().getAbsolutePath(), e.toString());
+            hpoMap.clear();
+            hpoName2IDmap.clear();
+            synonym2labelMap.clear();
+            modifierMap.clear();
+            return false;
+        }
+    }
+
+    void write(Map<String, HPO> hpoMap,
+               Map<String, String> hpoName2IDmap,
+               Map<String, String> synonym2labelMap,
+               Map<String, String> modifierMap) throws IOException {
+        file.write(out -> writePayload(out, hpoMap, hpoName2IDmap, synonym2labelMap, modifierMap));
+    }
+
+    /**
+     * Rebuild the snapshot on a daemon thread so that the caller (usually startup) does not have to wait for it.
+     * The maps must not be modified after this method has been called.
+     */
+    void writeInBackground(Map<String, HPO> hpoMap,
+                           Map<String, String> hpoName2IDmap,
+                           Map<String, String> synonym2labelMap,
+                           Map<String, String> modifierMap) {
+        file.writeInBackground(out -> writePayload(out, hpoMap, hpoName2IDmap, synonym2labelMap, modifierMap));
+    }
+
+    private static void writePayload(DataOutputStream out,
+                                     Map<String, HPO> hpoMap,
+                                     Map<String, String> hpoName2IDmap,
+                                     Map<String, String> synonym2labelMap,
+                                     Map<String, String> modifierMap) throws IOException {
+        StringTable strings = new StringTable();
+        for (HPO hp : hpoMap.values()) {
+            strings.intern(hp.getHpoId());
+            strings.intern(hp.getHpoName());
+        }
+        internAll(strings, hpoName2IDmap);
+        internAll(strings, synonym2labelMap);
+        internAll(strings, modifierMap);
+        strings.write(out);
+        out.writeInt(hpoMap.size());
+        for (HPO hp : hpoMap.values()) {
+            out.writeInt(strings.indexOf(hp.getHpoId()));
+            out.writeInt(strings.indexOf(hp.getHpoName()));
+        }
+        writePairs(out, strings, hpoName2IDmap);
+        writePairs(out, strings, synonym2labelMap);
+        writePairs(out, strings, modifierMap);
+    }
+
+    private static void readPairs(ByteBuffer buffer, String[] strings, Map<String, String> map) {
+        int n = buffer.getInt();
+        for (int i = 0; i < n; i++) {
+            String key = strings[buffer.getInt()];
+            String value = strings[buffer.getInt()];
+            map.put(key, value);
+        }
+    }
+
+    private static void writePairs(DataOutputStream out, StringTable strings, Map<String, String> map)
+            throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            out.writeInt(strings.indexOf(e.getKey()));
+            out.writeInt(strings.indexOf(e.getValue()));
+        }
+    }
+
+    private static void internAll(StringTable strings, Map<String, String> map) {
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            strings.intern(e.getKey());
+            strings.intern(e.getValue());
+        }
+    }
+}
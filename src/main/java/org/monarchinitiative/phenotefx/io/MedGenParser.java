@@ -20,11 +20,14 @@ package org.monarchinitiative.phenotefx.io;
  * #L%
  */
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.monarchinitiative.phenotefx.gui.Platform;
+import org.monarchinitiative.phenotefx.index.DiseaseNameIndex;
+import org.monarchinitiative.phenotefx.index.SuggestionIndex;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -35,20 +38,29 @@ import java.util.zip.GZIPInputStream;
  * file -i MedGen_HPO_OMIM_Mapping.txt
  * MedGen_HPO_OMIM_Mapping.txt: text/plain; charset=us-ascii
  * </pre>
+ * The file has one line per disease and HPO term, with fields separated by '|'; we only need the MIM number (field 2)
+ * and the disease name (field 3). The decompressed bytes are scanned in a single pass without creating a
+ * {@code String} per line, and the names are stored in a {@link DiseaseNameIndex}. The index is cached in a
+ * {@link MedGenSnapshot} in the PhenoteFX directory, which is used as long as the MedGen file is unchanged.
  * @author Peter Robinson
  */
 public class MedGenParser {
+    private static final Logger logger = LogManager.getLogger();
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MIM_FIELD = 1;
+    private static final int NAME_FIELD = 2;
 
     private File absolutepath;
-    /** Value: e.g., 613962, Key e.g., ACTIVATED PI3K-DELTA SYNDROME */
-    private Map<String,String> omimName2IdMap;
+    /** The disease names, e.g., ACTIVATED PI3K-DELTA SYNDROME, with their MIM numbers, e.g., 613962. */
+    private DiseaseNameIndex diseaseNameIndex;
+    /** Autocompletion index of the disease names. */
+    private SuggestionIndex suggestionIndex=null;
 
 /** The constructor sets {@link #absolutepath} to
  * the absolute path of  MedGen_HPO_OMIM_Mapping.txt.gz
  * and calls the function to parse the file.
  * */
     public MedGenParser(){
-        this.omimName2IdMap = new HashMap<>();
         File dir = Platform.getPhenoteFXDir();
         String basename="MedGen_HPO_OMIM_Mapping.txt.gz";
         absolutepath = new File(dir + File.separator + basename);
@@ -56,38 +68,137 @@ public class MedGenParser {
             parseFile();
     }
 
-    /** @return OMIM Map (name:ID). Will always be initialized but can be empty.*/
-    public Map<String,String> getOmimName2IdMap() { return omimName2IdMap; }
+    /**
+     * Parse the MedGen file at a custom location.
+     * @param medgenFile path to a MedGen_HPO_OMIM_Mapping.txt.gz file
+     */
+    public MedGenParser(File medgenFile) {
+        this.absolutepath = medgenFile;
+        parseFile();
+    }
+
+    /** @return the disease names with their MIM numbers. Will always be initialized but can be empty.*/
+    public DiseaseNameIndex getDiseaseNameIndex() { return diseaseNameIndex; }
+
+    /** @return an autocompletion index of the disease names, built on first use. */
+    public synchronized SuggestionIndex getSuggestionIndex() {
+        if (suggestionIndex == null) {
+            suggestionIndex = SuggestionIndex.create(diseaseNameIndex.names());
+        }
+        return suggestionIndex;
+    }
 
 
+    /**
+     * Reads the disease names from the snapshot if it is up to date with the MedGen file. Otherwise, scans the
+     * MedGen file and rebuilds the snapshot in the background.
+     */
     private void parseFile() {
-        if (! inputFileExists())
+        if (! inputFileExists()) {
+            this.diseaseNameIndex = DiseaseNameIndex.builder().build();
             return;
-        try {
-            InputStream fileStream = new FileInputStream(absolutepath);
-            InputStream gzipStream = new GZIPInputStream(fileStream);
-            Reader decoder = new InputStreamReader(gzipStream, java.nio.charset.StandardCharsets.US_ASCII);
-            BufferedReader br = new BufferedReader(decoder);
-            String line;
-            while ((line=br.readLine())!=null){
-                if (line.startsWith("#"))
-                    continue; // skip header
-                String F[] = line.split("\\|");
-                if (F.length < 2)
+        }
+        File snapshotDirectory = SnapshotFile.defaultDirectory();
+        MedGenSnapshot snapshot = snapshotDirectory == null ? null : new MedGenSnapshot(absolutepath, snapshotDirectory);
+        DiseaseNameIndex index = snapshot == null ? null : snapshot.load();
+        if (index != null) {
+            this.diseaseNameIndex = index;
+            logger.trace("Read {} disease names from snapshot at {}", index.size(),
+                    snapshot.getSnapshotFile().getAbsolutePath());
+            return;
+        }
+        DiseaseNameIndex.Builder builder = DiseaseNameIndex.builder();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(absolutepath), BUFFER_SIZE)) {
+            scan(in, builder);
+        } catch (IOException e) {
+            logger.error("Could not parse MedGen file at {}: {}", absolutepath.getAbsolutePath(), e.toString());
+            this.diseaseNameIndex = builder.build();
+            return; // do not cache the result of a failed parse
+        }
+        this.diseaseNameIndex = builder.build();
+        logger.trace("Read {} disease names from MedGen", diseaseNameIndex.size());
+        if (snapshot != null) {
+            snapshot.writeInBackground(diseaseNameIndex);
+        }
+    }
+
+    /**
+     * Scan the lines of the file. Comment lines (#) and lines whose MIM number is not an integer are skipped. Bytes
+     * outside of US-ASCII become U+FFFD, as with an US-ASCII decoder.
+     */
+    private void scan(InputStream in, DiseaseNameIndex.Builder builder) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        char[] name = new char[256];
+        int nameLength = 0;
+        int field = 0;
+        int mim = 0;
+        int mimDigits = 0;
+        boolean lineStart = true;
+        /* set for comment lines, malformed lines, and once the name has been read */
+        boolean skipLine = false;
+        int malformed = 0;
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            for (int i = 0; i < n; i++) {
+                int b = buffer[i] & 0xFF;
+                if (b == '\n' || b == '\r') {
+                    if (!skipLine && !lineStart) {
+                        // the name is the last field of the line
+                        if (field == NAME_FIELD && nameLength > 0) {
+                            builder.add(name, 0, nameLength, mim);
+                        } else {
+                            malformed++;
+                        }
+                    }
+                    field = 0;
+                    mim = 0;
+                    mimDigits = 0;
+                    nameLength = 0;
+                    lineStart = true;
+                    skipLine = false;
                     continue;
-                try {
-                    String idString = F[1];
-                    // Note we just parse this field to check the format
-                    // but it is more convenient to store the String representation.
-                    Integer id = Integer.parseInt(idString);
-                    String name = F[2];
-                    omimName2IdMap.put(name,idString);
-                } catch (NumberFormatException n) {
-                    n.printStackTrace();
+                }
+                if (lineStart) {
+                    lineStart = false;
+                    skipLine = (b == '#');
+                }
+                if (skipLine) {
+                    continue;
+                }
+                if (b == '|') {
+                    if (field == MIM_FIELD && mimDigits == 0) {
+                        malformed++;
+                        skipLine = true;
+                    } else if (field == NAME_FIELD) {
+                        if (nameLength > 0) {
+                            builder.add(name, 0, nameLength, mim);
+                        } else {
+                            malformed++;
+                        }
+                        skipLine = true; // the remaining fields are not needed
+                    }
+                    field++;
+                } else if (field == MIM_FIELD) {
+                    if (b >= '0' && b <= '9' && mimDigits < 9) {
+                        mim = 10 * mim + (b - '0');
+                        mimDigits++;
+                    } else {
+                        malformed++;
+                        skipLine = true;
+                    }
+                } else if (field == NAME_FIELD) {
+                    if (nameLength == name.length) {
+                        name = Arrays.copyOf(name, 2 * name.length);
+                    }
+                    name[nameLength++] = b < 0x80 ? (char) b : '\uFFFD';
                 }
             }
-        } catch (IOException e){
-            e.printStackTrace();
+        }
+        if (!skipLine && !lineStart && field == NAME_FIELD && nameLength > 0) {
+            builder.add(name, 0, nameLength, mim); // last line without line break
+        }
+        if (malformed > 0) {
+            logger.warn("Skipped {} malformed lines in MedGen file {}", malformed, absolutepath.getAbsolutePath());
         }
     }
 
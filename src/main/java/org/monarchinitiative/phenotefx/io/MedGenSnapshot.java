@@ -0,0 +1,85 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.index.DiseaseNameIndex;
+
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A binary snapshot of the {@link DiseaseNameIndex} that {@link MedGenParser} derives from
+ * MedGen_HPO_OMIM_Mapping.txt.gz, so that the file does not have to be decompressed and scanned at every launch.
+ * It is stored as a {@link SnapshotFile} in the PhenoteFX directory; if the MedGen file has changed (e.g., after
+ * "download MedGen") or the snapshot is corrupt, the caller parses the MedGen file and rebuilds the snapshot.
+ * <p>
+ * Payload: the index (see {@link DiseaseNameIndex#write(DataOutput)}).
+ * @author Peter Robinson
+ */
+class MedGenSnapshot {
+    private static final Logger logger = LogManager.getLogger();
+    /** "PFXM" */
+    private static final int MAGIC = 0x5046584D;
+    /** Increment this whenever the layout of the payload changes. */
+    private static final int VERSION = 1;
+
+    private final SnapshotFile file;
+
+    /**
+     * @param medgenFile the MedGen file
+     * @param directory the directory in which the snapshot is stored
+     */
+    MedGenSnapshot(File medgenFile, File directory) {
+        this.file = new SnapshotFile("MedGen", MAGIC, VERSION, medgenFile,
+                SnapshotFile.locationFor(medgenFile, directory));
+    }
+
+    File getSnapshotFile() {
+        return file.getFile();
+    }
+
+    /** @return the index, or null if the snapshot is missing, stale or corrupt. */
+    DiseaseNameIndex load() {
+        ByteBuffer buffer = file.map();
+        if (buffer == null) {
+            return null;
+        }
+        try {
+            return DiseaseNameIndex.read(buffer);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Could not read MedGen snapshot at {}: {}", getSnapshotFile().getAbsolutePath(), e.toString());
+            return null;
+        }
+    }
+
+    void write(DiseaseNameIndex index) throws IOException {
+        file.write(index::write);
+    }
+
+    /** Rebuild the snapshot on a daemon thread so that the caller (usually startup) does not have to wait for it. */
+    void writeInBackground(DiseaseNameIndex index) {
+        file.writeInBackground(index::write);
+    }
+}
@@ -0,0 +1,248 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes small files so that a crash or a full disk never leaves a truncated file behind. The content is encoded
+ * as UTF-8 into a temporary file in the directory of the target, which is forced to disk and then atomically
+ * renamed to the target; a reader therefore sees either the old or the new version of the file.
+ * <p>
+ * To rewrite many files at once, create an instance, {@link #add} each file (this may be done from several
+ * threads), and then {@link #commit()} (or {@link #abort()}). The temporary files are written as they are added, to
+ * the subdirectory {@value #STAGING_DIRECTORY} of the directory of the target (so that they do not show up among
+ * the small files, but can still be renamed atomically), and are only moved into place by {@link #commit()}, which
+ * also syncs each directory just once instead of once per file. The staging directory is removed by
+ * {@link #commit()} and {@link #abort()}.
+ * @author Peter Robinson
+ */
+public class SmallFileWriter {
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Name of the subdirectory of the directory of the targets in which {@link #add} writes the new contents. */
+    public static final String STAGING_DIRECTORY = ".phenotefx-staging";
+    /** Key: target file; value: the temporary file with its new content (in the staging directory). */
+    private final Map<File, File> pending = new LinkedHashMap<>();
+    /** The staging directories that have been created by {@link #add}. */
+    private final Set<File> stagingDirectories = new LinkedHashSet<>();
+
+    /**
+     * Write one small file.
+     * @param target the file to be (over)written
+     * @param header the header line (without line break)
+     * @param rows the data lines (without line breaks)
+     * @throws IOException if the file could not be written; the target is unchanged in this case
+     */
+    public static void write(File target, String header, Iterable<String> rows) throws IOException {
+        File tmp = writeTemporary(directoryOf(target), target, header, rows);
+        try {
+            moveIntoPlace(tmp, target);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        syncDirectory(directoryOf(target));
+    }
+
+    /**
+     * Write the new content of {@code target} to a temporary file. The target is replaced by {@link #commit()}.
+     * May be called concurrently.
+     * @throws IOException if the temporary file could not be written
+     */
+    public void add(File target, String header, Iterable<String> rows) throws IOException {
+        File tmp = writeTemporary(stagingDirectory(target), target, header, rows);
+        File previous;
+        synchronized (pending) {
+            previous = pending.put(target.getAbsoluteFile(), tmp);
+        }
+        if (previous != null) {
+            Files.deleteIfExists(previous.toPath());
+        }
+    }
+
+    /** @return number of files that have been added but not yet committed. */
+    public int getNumberOfPendingFiles() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Move all added files into place.
+     * @return map from the files that could not be replaced to the reason (empty if all went well)
+     */
+    public Map<File, String> commit() {
+        Map<File, File> batch;
+        synchronized (pending) {
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        Map<File, String> failures = new LinkedHashMap<>();
+        Set<File> directories = new LinkedHashSet<>();
+        for (Map.Entry<File, File> e : batch.entrySet()) {
+            File target = e.getKey();
+            File tmp = e.getValue();
+            try {
+                moveIntoPlace(tmp, target);
+                directories.add(directoryOf(target));
+            } catch (IOException ex) {
+                logger.error("Could not replace {}: {}", target.getAbsolutePath(), ex.toString());
+                failures.put(target, ex.getMessage() == null ? ex.toString() : ex.getMessage());
+                deleteQuietly(tmp);
+            }
+        }
+        for (File dir : directories) {
+            syncDirectory(dir);
+        }
+        removeStagingDirectories();
+        return failures;
+    }
+
+    /** Delete the temporary files of all files that have been added but not committed. */
+    public void abort() {
+        synchronized (pending) {
+            for (File tmp : pending.values()) {
+                deleteQuietly(tmp);
+            }
+            pending.clear();
+        }
+        removeStagingDirectories();
+    }
+
+    /** @return the staging directory for the target, which is created if necessary. */
+    private File stagingDirectory(File target) throws IOException {
+        File dir = new File(directoryOf(target), STAGING_DIRECTORY);
+        synchronized (stagingDirectories) {
+            if (!stagingDirectories.contains(dir)) {
+                Files.createDirectories(dir.toPath());
+                stagingDirectories.add(dir);
+            }
+        }
+        return dir;
+    }
+
+    /**
+     * Remove the staging directories once they are empty. A directory that still contains files (e.g., of another
+     * writer that has not committed yet) is left alone.
+     */
+    private void removeStagingDirectories() {
+        synchronized (stagingDirectories) {
+            for (File dir : stagingDirectories) {
+                try {
+                    Files.deleteIfExists(dir.toPath());
+                } catch (DirectoryNotEmptyException e) {
+                    logger.trace("Staging directory {} is still in use", dir.getAbsolutePath());
+                } catch (IOException e) {
+                    logger.warn("Could not remove staging directory {}: {}", dir.getAbsolutePath(), e.toString());
+                }
+            }
+            stagingDirectories.clear();
+        }
+    }
+
+    /**
+     * Write the content to a new temporary file in dir. The temporary file replaces the target, so it gets the
+     * permissions of the target if that exists, and otherwise those of any new file (unlike
+     * {@link Files#createTempFile}, which makes the file readable by its owner only).
+     */
+    private static File writeTemporary(File dir, File target, String header, Iterable<String> rows) throws IOException {
+        File tmp = createTemporary(dir, target);
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            if (target.exists()) {
+                copyPermissions(target, tmp);
+            }
+            writer.write(header);
+            writer.write('\n');
+            for (String row : rows) {
+                writer.write(row);
+                writer.write('\n');
+            }
+            writer.flush();
+            fos.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(tmp);
+            throw e;
+        }
+        return tmp;
+    }
+
+    /** @return a new empty file in dir with a unique name that starts with a dot and the name of the target. */
+    private static File createTemporary(File dir, File target) throws IOException {
+        while (true) {
+            String name = String.format(".%s.%016x.tmp", target.getName(), ThreadLocalRandom.current().nextLong());
+            try {
+                return Files.createFile(dir.toPath().resolve(name)).toFile();
+            } catch (FileAlreadyExistsException e) {
+                logger.trace("Temporary file {} exists, trying another name", name);
+            }
+        }
+    }
+
+    /** Give the file the POSIX permissions of the source. Does nothing on other file systems (e.g., Windows). */
+    private static void copyPermissions(File source, File file) throws IOException {
+        try {
+            Files.setPosixFilePermissions(file.toPath(), Files.getPosixFilePermissions(source.toPath()));
+        } catch (UnsupportedOperationException e) {
+            logger.trace("No POSIX permissions for {}", source.getAbsolutePath());
+        }
+    }
+
+    private static void moveIntoPlace(File tmp, File target) throws IOException {
+        try {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            logger.warn("Atomic move not supported for {}, replacing it non-atomically", target.getAbsolutePath());
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Force the directory entry of a renamed file to disk. Not supported on all platforms (e.g., Windows). */
+    private static void syncDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.trace("Could not sync directory {}: {}", dir.getAbsolutePath(), e.toString());
+        }
+    }
+
+    private static File directoryOf(File target) {
+        File dir = target.getAbsoluteFile().getParentFile();
+        return dir == null ? new File(".") : dir;
+    }
+
+    private static void deleteQuietly(File f) {
+        try {
+            Files.deleteIfExists(f.toPath());
+        } catch (IOException e) {
+            logger.warn("Could not delete temporary file {}: {}", f.getAbsolutePath(), e.toString());
+        }
+    }
+}
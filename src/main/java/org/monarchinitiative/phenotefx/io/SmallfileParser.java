@@ -31,14 +31,9 @@ import org.monarchinitiative.phenotefx.model.PhenoRow;
 import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
 import org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class SmallfileParser {
@@ -81,6 +76,8 @@ public class SmallfileParser {
 
 
     private final HpoOntology ontology;
+    /** Key: an (interned) HPO id as it occurs in the file. */
+    private final Map<String, TermId> termIdCache = new HashMap<>();
 
     public SmallfileParser(File file, HpoOntology onto) {
         this.currentPhenoteFileFullPath = file.getAbsolutePath();
@@ -95,51 +92,28 @@ public class SmallfileParser {
 
     public ObservableList<PhenoRow> parse() throws PhenoteFxException {
         ObservableList<PhenoRow> phenolist = FXCollections.observableArrayList();
-             try {
-            BufferedReader br = new BufferedReader(new FileReader(this.currentPhenoteFileFullPath));
-            String line=br.readLine();
-            qcHeaderLine(line);
-            while ((line=br.readLine())!=null) {
-                //System.out.println(line);
-                if (line.startsWith("#")) {
-                    throw new PhenoteFxException(String.format("Invalid comment line in annotation file: %s",line));
+        try (Reader reader = new InputStreamReader(new FileInputStream(this.currentPhenoteFileFullPath), StandardCharsets.UTF_8)) {
+            decodeRows(reader, false, tokenizer -> {
+                TermId ageOfOnsetId = null;
+                if (tokenizer.fieldStartsWith(AGEOFONSETID_IDX, "HP")) {
+                    ageOfOnsetId = termId(tokenizer, AGEOFONSETID_IDX);
                 }
-                String A[] = line.split("\t");
-                if (A.length!= expectedFields.length) {
-                    throw new PhenoteFxException(String.format("We were expecting %d fields but got %d for line %s",
-                            expectedFields.length,
-                            A.length,line ));
-                }
-                String diseaseID=A[DISEASEID_IDX];
-                String diseaseName=A[DISEASENAME_IDX];
-                TermId phenotypeId = TermId.constructWithPrefix(A[PHENOTYPEID_IDX]);
-                if (! ontology.getTermMap().containsKey(phenotypeId)) {
-                    throw new PhenoteFxException(String.format("HPO TermId %s was not found in ontology. " +
-                            "Are you using the same ontology and annotation file versions?", A[2]));
-                }
-                String phenotypeName=A[PHENOTYPENAME_IDX];
-                TermId ageOfOnsetId=null;
-                if (A[4]!=null && A[4].startsWith("HP")) {
-                    ageOfOnsetId=TermId.constructWithPrefix(A[AGEOFONSETID_IDX]);
-                }
-                String ageOfOnsetName=A[AGEOFONSETNAME_IDX];
-                String frequencyString=A[FREQUENCY_IDX];
-                String sex=A[SEX_ID];
-                String negation=A[NEGATIVE_IDX];
-                String modifier=A[MODIFIER_IDX];
-                String description=A[DESCRIPTION_IDX];
-                String publication=A[PUBLICATION_IDX];
-                String evidenceCode=A[EVIDENCE_IDX];
-                String biocuration=A[BIOCURATION_IDX];
-
-                PhenoRow row = new PhenoRow(diseaseID,diseaseName,phenotypeId,phenotypeName,ageOfOnsetId,ageOfOnsetName,
-                        frequencyString,sex,negation,modifier,description,publication,evidenceCode,biocuration);
+                PhenoRow row = new PhenoRow(tokenizer.internedField(DISEASEID_IDX),
+                        tokenizer.internedField(DISEASENAME_IDX),
+                        phenotypeId(tokenizer),
+                        tokenizer.internedField(PHENOTYPENAME_IDX),
+                        ageOfOnsetId,
+                        tokenizer.internedField(AGEOFONSETNAME_IDX),
+                        tokenizer.internedField(FREQUENCY_IDX),
+                        tokenizer.internedField(SEX_ID),
+                        tokenizer.internedField(NEGATIVE_IDX),
+                        tokenizer.internedField(MODIFIER_IDX),
+                        tokenizer.field(DESCRIPTION_IDX),
+                        tokenizer.internedField(PUBLICATION_IDX),
+                        tokenizer.internedField(EVIDENCE_IDX),
+                        tokenizer.internedField(BIOCURATION_IDX));
                 phenolist.add(row);
-                //System.err.println(row.toString());
-            }
-            br.close();
-
-
+            });
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -152,72 +126,36 @@ public class SmallfileParser {
         String basename=(new File(this.currentPhenoteFileFullPath).getName());
         List<V2SmallFileEntry> entryList=new ArrayList<>();
 
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(this.currentPhenoteFileFullPath));
-            String line=br.readLine();
-            qcHeaderLine(line);
-            while ((line=br.readLine())!=null) {
-                //System.out.println(line);
-                if (line.startsWith("#")) continue;
-                String A[] = line.split("\t");
-                if (A.length!= expectedFields.length) {
-                    logger.error(String.format("We were expecting %d fields but got %d for line %s",expectedFields.length,A.length,line ));
-                    throw new PhenoteFxException(String.format("We were expecting %d fields but got %d for line %s",expectedFields.length,A.length,line ));
+        try (Reader reader = new InputStreamReader(new FileInputStream(this.currentPhenoteFileFullPath), StandardCharsets.UTF_8)) {
+            decodeRows(reader, true, tokenizer -> {
+                V2SmallFileEntry.Builder builder=new V2SmallFileEntry.Builder(tokenizer.internedField(DISEASEID_IDX),
+                        tokenizer.internedField(DISEASENAME_IDX),
+                        phenotypeId(tokenizer),
+                        tokenizer.internedField(PHENOTYPENAME_IDX),
+                        tokenizer.internedField(EVIDENCE_IDX),
+                        tokenizer.internedField(PUBLICATION_IDX),
+                        tokenizer.internedField(BIOCURATION_IDX));
+                if (! tokenizer.isFieldEmpty(FREQUENCY_IDX)) {
+                    builder=builder.frequencyString(tokenizer.internedField(FREQUENCY_IDX));
                 }
-                String diseaseID=A[DISEASEID_IDX];
-                String diseaseName=A[DISEASENAME_IDX];
-                TermId phenotypeId = TermId.constructWithPrefix(A[PHENOTYPEID_IDX]);
-                if (! ontology.getTermMap().containsKey(phenotypeId)) {
-                    throw new PhenoteFxException(String.format("HPO TermId %s was not found in ontology. " +
-                            "Are you using the same ontology and annotation file versions?", A[2]));
+                if (! tokenizer.isFieldEmpty(SEX_ID)) {
+                    builder=builder.sex(tokenizer.internedField(SEX_ID));
                 }
-                String phenotypeName=A[PHENOTYPENAME_IDX];
-                TermId ageOfOnsetId=null;
-                if (A[4]!=null && A[4].startsWith("HP")) {
-                    ageOfOnsetId=TermId.constructWithPrefix(A[AGEOFONSETID_IDX]);
+                if (! tokenizer.isFieldEmpty(NEGATIVE_IDX)) {
+                    builder=builder.negation(tokenizer.internedField(NEGATIVE_IDX));
                 }
-                String ageOfOnsetName=A[AGEOFONSETNAME_IDX];
-                String frequencyString=A[FREQUENCY_IDX];
-                String sex=A[SEX_ID];
-                String negation=A[NEGATIVE_IDX];
-                String modifier=A[MODIFIER_IDX];
-                String description=A[DESCRIPTION_IDX];
-                String publication=A[PUBLICATION_IDX];
-                String evidenceCode=A[EVIDENCE_IDX];
-                String biocuration=A[BIOCURATION_IDX];
-
-
-                V2SmallFileEntry.Builder builder=new V2SmallFileEntry.Builder(diseaseID,
-                        diseaseName,
-                        phenotypeId,
-                        phenotypeName,
-                        evidenceCode,
-                        publication,
-                        biocuration);
-                if (frequencyString!=null && ! frequencyString.isEmpty()) {
-                    builder=builder.frequencyString(frequencyString);
-                }
-                if (sex!=null && !sex.isEmpty()) {
-                    builder=builder.sex(sex);
-                }
-                if (negation!=null && !negation.isEmpty()) {
-                    builder=builder.negation(negation);
-                }
-                if (modifier!=null && !modifier.isEmpty()) {
-                    builder=builder.modifier(modifier);
+                if (! tokenizer.isFieldEmpty(MODIFIER_IDX)) {
+                    builder=builder.modifier(tokenizer.internedField(MODIFIER_IDX));
                 }
-                if (description!=null && ! description.isEmpty()) {
-                    builder=builder.description(description);
+                if (! tokenizer.isFieldEmpty(DESCRIPTION_IDX)) {
+                    builder=builder.description(tokenizer.field(DESCRIPTION_IDX));
                 }
-                if (ageOfOnsetId!=null) {
-                    builder=builder.ageOfOnsetId(ageOfOnsetId.getIdWithPrefix());
-                }
-                if (ageOfOnsetName!=null) {
-                    builder=builder.ageOfOnsetName(ageOfOnsetName);
+                if (tokenizer.fieldStartsWith(AGEOFONSETID_IDX, "HP")) {
+                    builder=builder.ageOfOnsetId(termId(tokenizer, AGEOFONSETID_IDX).getIdWithPrefix());
                 }
+                builder=builder.ageOfOnsetName(tokenizer.internedField(AGEOFONSETNAME_IDX));
                 entryList.add(builder.build());
-            }
-            br.close();
+            });
             return  Optional.of(new V2SmallFile(basename,entryList));
         } catch (IOException e) {
             e.printStackTrace();
@@ -225,6 +163,52 @@ public class SmallfileParser {
         return Optional.empty();
     }
 
+    /** Receives the tokenizer positioned on each data line of a small file. */
+    private interface RowDecoder {
+        void decode(TabTokenizer tokenizer) throws PhenoteFxException;
+    }
+
+    /**
+     * Check the header and the number of fields of each line, and pass the data lines to the decoder. This is
+     * shared by {@link #parse()} and {@link #parseV2SmallFile()}, which only differ in what they build from a line.
+     * @param skipComments if true, lines starting with # are skipped, otherwise they are an error
+     */
+    private void decodeRows(Reader reader, boolean skipComments, RowDecoder decoder) throws IOException, PhenoteFxException {
+        TabTokenizer tokenizer = new TabTokenizer(reader);
+        if (! tokenizer.nextLine()) {
+            throw new PhenoteFxException(String.format("Empty small file: %s", this.currentPhenoteFileFullPath));
+        }
+        qcHeaderLine(tokenizer.line());
+        while (tokenizer.nextLine()) {
+            if (tokenizer.lineStartsWith('#')) {
+                if (skipComments) continue;
+                throw new PhenoteFxException(String.format("Invalid comment line in annotation file: %s",tokenizer.line()));
+            }
+            if (tokenizer.getFieldCount()!= expectedFields.length) {
+                String msg = String.format("We were expecting %d fields but got %d for line %s",
+                        expectedFields.length, tokenizer.getFieldCount(), tokenizer.line());
+                logger.error(msg);
+                throw new PhenoteFxException(msg);
+            }
+            decoder.decode(tokenizer);
+        }
+    }
+
+    /** @return the phenotype id of the current line, which must be a term of the ontology. */
+    private TermId phenotypeId(TabTokenizer tokenizer) throws PhenoteFxException {
+        TermId phenotypeId = termId(tokenizer, PHENOTYPEID_IDX);
+        if (! ontology.getTermMap().containsKey(phenotypeId)) {
+            throw new PhenoteFxException(String.format("HPO TermId %s was not found in ontology. " +
+                    "Are you using the same ontology and annotation file versions?", tokenizer.field(PHENOTYPEID_IDX)));
+        }
+        return phenotypeId;
+    }
+
+    /** @return the TermId in the given field; repeated ids (e.g., onset terms) share one object. */
+    private TermId termId(TabTokenizer tokenizer, int idx) {
+        return termIdCache.computeIfAbsent(tokenizer.internedField(idx), TermId::constructWithPrefix);
+    }
+
 
 
 
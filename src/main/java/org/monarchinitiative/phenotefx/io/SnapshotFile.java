@@ -0,0 +1,239 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenotefx.gui.Platform;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The file format shared by the binary snapshots of the data that PhenoteFX derives from a source file (e.g.,
+ * {@link HpoSnapshot} for hp.obo and {@link MedGenSnapshot} for the MedGen file) and by caches that keep track of
+ * their sources themselves (the small file index); they only differ in their payload. The snapshots are stored in
+ * the PhenoteFX directory (see {@link #locationFor(File, File)}) rather than next to the source, which may be in a
+ * read-only or shared location.
+ * <p>
+ * Layout: a fixed header (magic, version, source size, source mtime, source SHA-256 hash), the payload, and a
+ * trailing CRC32 of the payload. A snapshot is only used if the size, modification time and hash of the source
+ * all match the header (if there is a source; otherwise these fields are zero) and the CRC matches the payload. It
+ * is written to a uniquely named temporary file which is then moved into place, so that a reader never sees a
+ * partially written snapshot and concurrent writers do not interfere.
+ * @author Peter Robinson
+ */
+public final class SnapshotFile {
+    private static final Logger logger = LogManager.getLogger();
+    /** Suffix of the names of the snapshot files. */
+    static final String SUFFIX = ".snapshot";
+    private static final int HASH_LENGTH = 32;
+    /** magic, version, size, mtime and hash. */
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + HASH_LENGTH;
+
+    /** Writes the payload of a snapshot. */
+    public interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /** Name of the snapshot for log messages, e.g., "HPO". */
+    private final String name;
+    private final int magic;
+    private final int version;
+    /** The file from which the snapshot is derived, or null. */
+    private final File source;
+    /** The location of the snapshot file. */
+    private final File snapshotFile;
+
+    /**
+     * @param name name of the snapshot for log messages
+     * @param magic identifies the kind of snapshot
+     * @param version version of the layout of the payload; increment it whenever the layout changes
+     * @param source the file from which the snapshot is derived
+     * @param snapshotFile the location of the snapshot
+     */
+    SnapshotFile(String name, int magic, int version, File source, File snapshotFile) {
+        this.name = name;
+        this.magic = magic;
+        this.version = version;
+        this.source = source;
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * A snapshot without a source file; it is used whenever its magic, version and CRC are correct.
+     * @param name name of the snapshot for log messages
+     * @param magic identifies the kind of snapshot
+     * @param version version of the layout of the payload; increment it whenever the layout changes
+     * @param snapshotFile the location of the snapshot
+     */
+    public SnapshotFile(String name, int magic, int version, File snapshotFile) {
+        this(name, magic, version, null, snapshotFile);
+    }
+
+    /**
+     * @return the PhenoteFX directory, in which the snapshots are stored, or null if it does not exist (then no
+     * snapshots are used).
+     */
+    static File defaultDirectory() {
+        File dir = Platform.getPhenoteFXDir();
+        return dir != null && dir.isDirectory() ? dir : null;
+    }
+
+    /**
+     * @param source a source file
+     * @param directory the directory in which the snapshots are stored
+     * @return the location of the snapshot of the source. The name includes a hash of the absolute path of the
+     * source, so that two sources with the same name (e.g., a second copy of hp.obo) do not share a snapshot.
+     */
+    static File locationFor(File source, File directory) {
+        String key = Checksums.shortSha256(source.getAbsolutePath());
+        return new File(directory, String.format("%s-%s%s", source.getName(), key, SUFFIX));
+    }
+
+    public File getFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Memory-map the snapshot (which is fastest for large snapshots that are only read).
+     * @return the payload (positioned at its start and limited to its end), or null if the snapshot is missing,
+     * stale or corrupt.
+     */
+    ByteBuffer map() {
+        return load(true);
+    }
+
+    /**
+     * Read the snapshot into memory. Unlike {@link #map()}, this does not keep the file mapped, so that it can be
+     * replaced on all platforms (a mapped file cannot be replaced on Windows) while the payload is still in use.
+     * @return the payload (positioned at its start and limited to its end), or null if the snapshot is missing,
+     * stale or corrupt.
+     */
+    public ByteBuffer read() {
+        return load(false);
+    }
+
+    private ByteBuffer load(boolean mapped) {
+        if (!snapshotFile.exists() || (source != null && !source.exists())) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH + 8) {
+                logger.warn("{} snapshot at {} is truncated", name, snapshotFile.getAbsolutePath());
+                return null;
+            }
+            ByteBuffer buffer;
+            if (mapped) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } else {
+                buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // keep reading
+                }
+                buffer.flip();
+            }
+            if (buffer.getInt() != magic || buffer.getInt() != version) {
+                logger.warn("{} snapshot at {} has an unknown format", name, snapshotFile.getAbsolutePath());
+                return null;
+            }
+            long size = buffer.getLong();
+            long mtime = buffer.getLong();
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(hash);
+            if (source != null && (size != source.length() || mtime != source.lastModified()
+                    || !Arrays.equals(hash, Checksums.sha256(source)))) {
+                logger.trace("{} snapshot is stale, {} has changed since it was written", name, source.getName());
+                return null;
+            }
+            int payloadEnd = buffer.limit() - 8;
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(HEADER_LENGTH);
+            payload.limit(payloadEnd);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.position(payloadEnd);
+            if (crc.getValue() != buffer.getLong()) {
+                logger.warn("{} snapshot at {} is corrupt (checksum mismatch)", name, snapshotFile.getAbsolutePath());
+                return null;
+            }
+            buffer.position(HEADER_LENGTH);
+            buffer.limit(payloadEnd);
+            return buffer;
+        } catch (IOException e) {
+            logger.warn("Could not read {} snapshot at {}: {}", name, snapshotFile.getAbsolutePath(), e.toString());
+            return null;
+        }
+    }
+
+    /** Write the snapshot to a temporary file and move it into place. */
+    public void write(PayloadWriter payloadWriter) throws IOException {
+        long size = source == null ? 0L : source.length();
+        long mtime = source == null ? 0L : source.lastModified();
+        byte[] hash = source == null ? new byte[HASH_LENGTH] : Checksums.sha256(source);
+        File dir = snapshotFile.getAbsoluteFile().getParentFile();
+        File tmp = Files.createTempFile(dir.toPath(), snapshotFile.getName() + ".", ".tmp").toFile();
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+                out.writeInt(magic);
+                out.writeInt(version);
+                out.writeLong(size);
+                out.writeLong(mtime);
+                out.write(hash);
+                CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32());
+                DataOutputStream payload = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16));
+                payloadWriter.write(payload);
+                payload.flush();
+                out.writeLong(checked.getChecksum().getValue());
+                out.flush();
+                fos.getFD().sync();
+            }
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        logger.trace("Wrote {} snapshot to {}", name, snapshotFile.getAbsolutePath());
+    }
+
+    /**
+     * Write the snapshot on a daemon thread so that the caller (usually startup) does not have to wait for it.
+     * The data that the payload writer reads must not be modified after this method has been called.
+     */
+    void writeInBackground(PayloadWriter payloadWriter) {
+        Thread writer = new Thread(() -> {
+            try {
+                write(payloadWriter);
+            } catch (IOException e) {
+                logger.error("Could not write {} snapshot to {}: {}", name, snapshotFile.getAbsolutePath(), e.toString());
+            }
+        }, name.toLowerCase() + "-snapshot-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+}
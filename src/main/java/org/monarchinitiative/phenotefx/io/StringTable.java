@@ -0,0 +1,89 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The table of distinct strings of a binary file written by PhenoteFX (e.g., the HPO snapshot or the small file
+ * index). Each string is stored once, and the rest of the file refers to it by its index in the table. The table
+ * is written as the number of strings followed by the length and the UTF-8 bytes of each string.
+ * @author Peter Robinson
+ */
+public final class StringTable {
+    /** Index that stands for a null string. */
+    public static final int NULL_INDEX = -1;
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    /** Add the string to the table unless it is already there (null is never added). */
+    public void intern(String s) {
+        if (s != null && !indices.containsKey(s)) {
+            indices.put(s, strings.size());
+            strings.add(s);
+        }
+    }
+
+    /** @return the index of a string that was interned, or {@link #NULL_INDEX} for null. */
+    public int indexOf(String s) {
+        return s == null ? NULL_INDEX : indices.get(s);
+    }
+
+    public int size() {
+        return strings.size();
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(strings.size());
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Read a table that was written with {@link #write(DataOutput)}.
+     * @return the strings of the table, in the order of their indices
+     */
+    public static String[] read(ByteBuffer buffer) {
+        int n = buffer.getInt();
+        String[] strings = new String[n];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < n; i++) {
+            int len = buffer.getInt();
+            if (len > scratch.length) {
+                scratch = new byte[Math.max(len, 2 * scratch.length)];
+            }
+            buffer.get(scratch, 0, len);
+            strings[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,234 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads tab-separated lines from a {@link Reader} into a reusable character buffer and records the boundaries of
+ * the fields of the current line, so that no intermediate {@code String} objects (as with
+ * {@code line.split("\t")}) are created. Fields can be materialized as new strings ({@link #field(int)}) or as
+ * interned strings ({@link #internedField(int)}) for values that repeat on many lines, such as the disease id or
+ * the biocurator; an interned field only allocates the first time a value is seen.
+ * <p>
+ * {@link #getFieldCount()} follows the semantics of {@link String#split(String)}, i.e., trailing empty fields are
+ * not counted. Not thread safe.
+ * @author Peter Robinson
+ */
+final class TabTokenizer {
+    private static final int INITIAL_BUFFER_SIZE = 1 << 13;
+
+    private final Reader reader;
+    /** The characters read so far that have not been consumed; the current line starts at {@link #lineStart}. */
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private int lineStart = 0;
+    private int lineEnd = 0;
+    /** Start and end offsets (in {@link #buffer}) of the fields of the current line. */
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int fieldCount = 0;
+    private boolean eof = false;
+    /** Open-addressing hash table of the interned strings (size is a power of two). */
+    private String[] internTable = new String[256];
+    private int internCount = 0;
+
+    TabTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Advance to the next line (without line terminator; "\r\n" is accepted as well as "\n").
+     * @return false if the end of the input has been reached
+     */
+    boolean nextLine() throws IOException {
+        position = Math.max(position, lineEnd);
+        if (position < limit && buffer[position] == '\r') position++;
+        if (position < limit && buffer[position] == '\n') position++;
+        lineStart = position;
+        int i = lineStart;
+        while (true) {
+            while (i < limit) {
+                char c = buffer[i];
+                if (c == '\n' || c == '\r') {
+                    if (c == '\r' && i + 1 == limit && !eof) {
+                        break; // need to know whether a '\n' follows
+                    }
+                    lineEnd = i;
+                    tokenize();
+                    return true;
+                }
+                i++;
+            }
+            if (eof) {
+                if (lineStart == limit) {
+                    return false;
+                }
+                lineEnd = limit;
+                tokenize();
+                return true;
+            }
+            i -= lineStart;
+            fill();
+        }
+    }
+
+    /** @return the number of fields of the current line, as {@code line.split("\t").length} would. */
+    int getFieldCount() {
+        return fieldCount;
+    }
+
+    /** @return the current line (for error messages). */
+    String line() {
+        return new String(buffer, lineStart, lineEnd - lineStart);
+    }
+
+    boolean lineStartsWith(char c) {
+        return lineEnd > lineStart && buffer[lineStart] == c;
+    }
+
+    boolean isLineEmpty() {
+        return lineEnd == lineStart;
+    }
+
+    String field(int i) {
+        return new String(buffer, fieldStart[i], fieldEnd[i] - fieldStart[i]);
+    }
+
+    boolean fieldStartsWith(int i, String prefix) {
+        int len = prefix.length();
+        if (fieldEnd[i] - fieldStart[i] < len) {
+            return false;
+        }
+        for (int j = 0; j < len; j++) {
+            if (buffer[fieldStart[i] + j] != prefix.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isFieldEmpty(int i) {
+        return fieldEnd[i] == fieldStart[i];
+    }
+
+    /** @return the field as a string that is shared with all previous occurrences of the same value. */
+    String internedField(int i) {
+        int start = fieldStart[i];
+        int len = fieldEnd[i] - start;
+        int h = 0;
+        for (int j = start; j < start + len; j++) {
+            h = 31 * h + buffer[j];
+        }
+        int mask = internTable.length - 1;
+        int slot = mix(h) & mask;
+        String s;
+        while ((s = internTable[slot]) != null) {
+            if (s.hashCode() == h && regionEquals(s, start, len)) {
+                return s;
+            }
+            slot = (slot + 1) & mask;
+        }
+        s = new String(buffer, start, len);
+        internTable[slot] = s;
+        if (++internCount > internTable.length / 2) {
+            rehash();
+        }
+        return s;
+    }
+
+    /** Split the current line at tabs, dropping trailing empty fields as {@link String#split(String)} does. */
+    private void tokenize() {
+        int n = 0;
+        int start = lineStart;
+        for (int i = lineStart; i <= lineEnd; i++) {
+            if (i == lineEnd || buffer[i] == '\t') {
+                if (n == fieldStart.length) {
+                    fieldStart = Arrays.copyOf(fieldStart, 2 * n);
+                    fieldEnd = Arrays.copyOf(fieldEnd, 2 * n);
+                }
+                fieldStart[n] = start;
+                fieldEnd[n] = i;
+                n++;
+                start = i + 1;
+            }
+        }
+        while (n > 0 && fieldEnd[n - 1] == fieldStart[n - 1]) {
+            n--;
+        }
+        // an empty line yields one (empty) field, like "".split("\t")
+        fieldCount = lineEnd == lineStart ? 1 : n;
+    }
+
+    /** Move the current (incomplete) line to the front of the buffer and read more characters. */
+    private void fill() throws IOException {
+        int remaining = limit - lineStart;
+        if (lineStart > 0) {
+            System.arraycopy(buffer, lineStart, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+        }
+        lineStart = 0;
+        position = 0;
+        lineEnd = 0;
+        limit = remaining;
+        int n = reader.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    private boolean regionEquals(String s, int start, int len) {
+        if (s.length() != len) {
+            return false;
+        }
+        for (int j = 0; j < len; j++) {
+            if (s.charAt(j) != buffer[start + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        String[] old = internTable;
+        internTable = new String[2 * old.length];
+        int mask = internTable.length - 1;
+        for (String s : old) {
+            if (s != null) {
+                int slot = mix(s.hashCode()) & mask;
+                while (internTable[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                internTable[slot] = s;
+            }
+        }
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+}
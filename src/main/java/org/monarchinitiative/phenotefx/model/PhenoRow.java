@@ -24,7 +24,7 @@ import javafx.beans.property.SimpleStringProperty;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 
 import java.util.Arrays;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 /**
  * This class represents one row of the Phenotype model. We are using the new V2 small file format (which was
@@ -53,32 +53,71 @@ import java.util.stream.Collectors;
  *     <li>Pub (e.g., OMIM:134600 or PMID:123456)</li>
  *     <li>biocuration (e.g., HPO:skoehler[2017-02-17])</li>
  * </ul>
+ * The values of the fields are kept in a plain array. The JavaFX property of a field is only created when it is
+ * requested (e.g., by a visible cell of the table), so that a large table mostly consists of arrays of (shared,
+ * interned) strings. Every change of a field, whether made with a setter or through its property, is reported to
+ * the {@link FieldListener} of the row.
  * Created by robinp on 5/22/17.
  * * @author <a href="mailto:peter.robinson@jax.org">Peter Robinson</a>
  */
 public class PhenoRow {
-    private final SimpleStringProperty diseaseID;
-    private final SimpleStringProperty diseaseName;
-    private final SimpleStringProperty phenotypeID;
-    private final SimpleStringProperty phenotypeName;
-    private final SimpleStringProperty onsetID;
-    private final SimpleStringProperty onsetName;
-    private final SimpleStringProperty frequency;
-    private final SimpleStringProperty sex;
-    private final SimpleStringProperty negation;
-    private final SimpleStringProperty modifier;
-    private final SimpleStringProperty description;
-    private final SimpleStringProperty publication;
-    private final SimpleStringProperty evidence;
-    private final SimpleStringProperty biocuration;
-    /** This variable gets set to true if the user updates this row -- in this case, we will add a new
-     * biocuration entry (biocuration history).
-     */
-    private boolean updated=false;
+    /* Indices of the fields, in the order of the columns of a small file. */
+    public static final int DISEASE_ID = 0;
+    public static final int DISEASE_NAME = 1;
+    public static final int PHENOTYPE_ID = 2;
+    public static final int PHENOTYPE_NAME = 3;
+    public static final int ONSET_ID = 4;
+    public static final int ONSET_NAME = 5;
+    public static final int FREQUENCY = 6;
+    public static final int SEX = 7;
+    public static final int NEGATION = 8;
+    public static final int MODIFIER = 9;
+    public static final int DESCRIPTION = 10;
+    public static final int PUBLICATION = 11;
+    public static final int EVIDENCE = 12;
+    public static final int BIOCURATION = 13;
+    /** The number of fields of a row. */
+    public static final int FIELD_COUNT = 14;
+    /** The names of the fields (and of their properties). */
+    private static final String[] FIELD_NAMES = {
+            "diseaseID", "diseaseName", "phenotypeID", "phenotypeName", "onsetID", "onsetName", "frequency",
+            "sex", "negation", "modifier", "description", "publication", "evidence", "biocuration"};
+
+    /** Receives every change of a field of a row. */
+    public interface FieldListener {
+        void fieldChanged(PhenoRow row, int field, String oldValue, String newValue);
+
+        /** The new biocuration entry of the row was set or cleared (either value may be null). */
+        default void newBiocurationEntryChanged(PhenoRow row, String oldEntry, String newEntry) {
+        }
+    }
 
+    /** The values of the fields, indexed by {@link #DISEASE_ID} etc. */
+    private final String[] values = new String[FIELD_COUNT];
+    /** The properties of the fields that have been requested so far (null until the first request). */
+    private FieldProperty[] properties;
+    /** There is at most one listener, usually the observer of the rows of the annotation table. */
+    private FieldListener fieldListener;
     private final static String EMPTY_STRING="";
-    /** This will be set to the biocurator id and current date if the user modifies the current entry. */
-    private String newBiocurationEntry=EMPTY_STRING;
+    /** This will be set to the biocurator id and current date if the user modifies the current entry -- in this
+     * case, we will add a new biocuration entry (biocuration history). Null if the row was not updated.
+     */
+    private String newBiocurationEntry=null;
+
+    /** The property of a field, which reads and writes the value in the array of the row. */
+    private final class FieldProperty extends SimpleStringProperty {
+        private final int field;
+
+        FieldProperty(int field) {
+            super(PhenoRow.this, FIELD_NAMES[field], values[field]);
+            this.field = field;
+        }
+
+        @Override
+        protected void invalidated() {
+            store(field, get());
+        }
+    }
 
 
 
@@ -96,208 +135,257 @@ public class PhenoRow {
                     String publication,
                     String evidenceCode,
                     String biocuration){
-        this.diseaseID = new SimpleStringProperty(diseaseID);
-        this.diseaseName = new SimpleStringProperty(diseaseName);
-        this.phenotypeID=new SimpleStringProperty(phenotypeId.getIdWithPrefix());
-        this.phenotypeName=new SimpleStringProperty(phenotypeName);
-        this.onsetID=new SimpleStringProperty(ageOfOnsetId!=null?ageOfOnsetId.getIdWithPrefix():EMPTY_STRING);
-        this.onsetName=new SimpleStringProperty(ageOfOnsetName);
-        this.frequency=new SimpleStringProperty(frequencyString);
-        this.sex=new SimpleStringProperty(sex);
-        this.negation=new SimpleStringProperty(negation);
-        this.modifier=new SimpleStringProperty(modifier);
-        this.description=new SimpleStringProperty(description);
-        this.publication=new SimpleStringProperty(publication);
-        this.evidence=new SimpleStringProperty(evidenceCode);
-        this.biocuration=new SimpleStringProperty(biocuration);
-
+        values[DISEASE_ID] = diseaseID;
+        values[DISEASE_NAME] = diseaseName;
+        values[PHENOTYPE_ID] = phenotypeId.getIdWithPrefix();
+        values[PHENOTYPE_NAME] = phenotypeName;
+        values[ONSET_ID] = ageOfOnsetId!=null?ageOfOnsetId.getIdWithPrefix():EMPTY_STRING;
+        values[ONSET_NAME] = ageOfOnsetName;
+        values[FREQUENCY] = frequencyString;
+        values[SEX] = sex;
+        values[NEGATION] = negation;
+        values[MODIFIER] = modifier;
+        values[DESCRIPTION] = description;
+        values[PUBLICATION] = publication;
+        values[EVIDENCE] = evidenceCode;
+        values[BIOCURATION] = biocuration;
     }
     public PhenoRow() {
-        this.diseaseID = new SimpleStringProperty("");
-        this.diseaseName = new SimpleStringProperty("");
-        this.phenotypeID = new SimpleStringProperty("");
-        this.phenotypeName = new SimpleStringProperty("");
-        this.onsetID = new SimpleStringProperty("");
-        this.onsetName = new SimpleStringProperty("");
-        this.frequency = new SimpleStringProperty("");
-        this.sex = new SimpleStringProperty("");
-        this.negation = new SimpleStringProperty("");
-        this.modifier = new SimpleStringProperty("");
-        this.description = new SimpleStringProperty("");
-        this.publication = new SimpleStringProperty("");
-        this.evidence = new SimpleStringProperty("");
-        this.biocuration = new SimpleStringProperty("");
+        Arrays.fill(values, EMPTY_STRING);
     }
 
 
-    public void setNewBiocurationEntry(String entry) { this.newBiocurationEntry=entry;  updated=true; }
+    /** @param entry the biocuration entry to add when the row is saved, or null if none is to be added. */
+    public void setNewBiocurationEntry(String entry) {
+        String old = newBiocurationEntry;
+        if (!Objects.equals(old, entry)) {
+            newBiocurationEntry = entry;
+            if (fieldListener != null) {
+                fieldListener.newBiocurationEntryChanged(this, old, entry);
+            }
+        }
+    }
+
+    /** @return the biocuration entry that is added when the row is saved (null if the row was not updated). */
+    public String getNewBiocurationEntry() {
+        return newBiocurationEntry;
+    }
+
+    /** @return the name of a field, e.g., onsetName */
+    public static String getFieldName(int field) {
+        return FIELD_NAMES[field];
+    }
+
+    /** @return the value of a field, e.g., {@code getField(PhenoRow.ONSET_NAME)} */
+    public String getField(int field) {
+        return values[field];
+    }
+
+    /** Set the value of a field (through its property, if it has been created). */
+    public void setField(int field, String value) {
+        if (properties != null && properties[field] != null) {
+            properties[field].set(value);
+        } else {
+            store(field, value);
+        }
+    }
+
+    /** Set the listener that is told about every change of a field (replaces the current listener; may be null). */
+    public void setFieldListener(FieldListener listener) {
+        this.fieldListener = listener;
+    }
+
+    public FieldListener getFieldListener() {
+        return fieldListener;
+    }
+
+    private void store(int field, String value) {
+        String old = values[field];
+        if (!Objects.equals(old, value)) {
+            values[field] = value;
+            if (fieldListener != null) {
+                fieldListener.fieldChanged(this, field, old, value);
+            }
+        }
+    }
+
+    /** @return the property of a field, which is created at the first request. */
+    private SimpleStringProperty property(int field) {
+        if (properties == null) {
+            properties = new FieldProperty[FIELD_COUNT];
+        }
+        if (properties[field] == null) {
+            properties[field] = new FieldProperty(field);
+        }
+        return properties[field];
+    }
 
     public String getDiseaseID() {
-        return diseaseID.get();
+        return values[DISEASE_ID];
     }
 
     public SimpleStringProperty diseaseIDProperty() {
-        return diseaseID;
+        return property(DISEASE_ID);
     }
 
     public void setDiseaseID(String diseaseID) {
-        this.diseaseID.set(diseaseID);
+        setField(DISEASE_ID, diseaseID);
     }
 
     public String getDiseaseName() {
-        return diseaseName.get();
+        return values[DISEASE_NAME];
     }
 
     public SimpleStringProperty diseaseNameProperty() {
-        return diseaseName;
+        return property(DISEASE_NAME);
     }
 
     public void setDiseaseName(String diseaseName) {
-        this.diseaseName.set(diseaseName);
+        setField(DISEASE_NAME, diseaseName);
     }
 
     public String getPhenotypeID() {
-        return phenotypeID.get();
+        return values[PHENOTYPE_ID];
     }
 
     public SimpleStringProperty phenotypeIDProperty() {
-        return phenotypeID;
+        return property(PHENOTYPE_ID);
     }
 
     public void setPhenotypeID(String phenotypeID) {
-        this.phenotypeID.set(phenotypeID);
+        setField(PHENOTYPE_ID, phenotypeID);
     }
 
     public String getPhenotypeName() {
-        return phenotypeName.get();
+        return values[PHENOTYPE_NAME];
     }
 
     public SimpleStringProperty phenotypeNameProperty() {
-        return phenotypeName;
+        return property(PHENOTYPE_NAME);
     }
 
     public void setPhenotypeName(String phenotypeName) {
-        this.phenotypeName.set(phenotypeName);
+        setField(PHENOTYPE_NAME, phenotypeName);
     }
 
     public String getOnsetID() {
-        return onsetID.get();
+        return values[ONSET_ID];
     }
 
     public SimpleStringProperty onsetIDProperty() {
-        return onsetID;
+        return property(ONSET_ID);
     }
 
     public void setOnsetID(String onsetID) {
-        this.onsetID.set(onsetID);
+        setField(ONSET_ID, onsetID);
     }
 
     public String getOnsetName() {
-        return onsetName.get();
+        return values[ONSET_NAME];
     }
 
     public SimpleStringProperty onsetNameProperty() {
-        return onsetName;
+        return property(ONSET_NAME);
     }
 
     public void setOnsetName(String onsetName) {
-        this.onsetName.set(onsetName);
+        setField(ONSET_NAME, onsetName);
     }
 
     public String getFrequency() {
-        return frequency.get();
+        return values[FREQUENCY];
     }
 
     public SimpleStringProperty frequencyProperty() {
-        return frequency;
+        return property(FREQUENCY);
     }
 
     public void setFrequency(String frequency) {
-        this.frequency.set(frequency);
+        setField(FREQUENCY, frequency);
     }
 
     public String getSex() {
-        return sex.get();
+        return values[SEX];
     }
 
     public SimpleStringProperty sexProperty() {
-        return sex;
+        return property(SEX);
     }
 
     public void setSex(String sex) {
-        this.sex.set(sex);
+        setField(SEX, sex);
     }
 
     public String getNegation() {
-        return negation.get();
+        return values[NEGATION];
     }
 
     public SimpleStringProperty negationProperty() {
-        return negation;
+        return property(NEGATION);
     }
 
     public void setNegation(String negation) {
-        this.negation.set(negation);
+        setField(NEGATION, negation);
     }
 
     public String getModifier() {
-        return modifier.get();
+        return values[MODIFIER];
     }
 
     public SimpleStringProperty modifierProperty() {
-        return modifier;
+        return property(MODIFIER);
     }
 
     public void setModifier(String modifier) {
-        this.modifier.set(modifier);
+        setField(MODIFIER, modifier);
     }
 
     public String getDescription() {
-        return description.get();
+        return values[DESCRIPTION];
     }
 
     public SimpleStringProperty descriptionProperty() {
-        return description;
+        return property(DESCRIPTION);
     }
 
     public void setDescription(String description) {
-        this.description.set(description);
+        setField(DESCRIPTION, description);
     }
 
     public String getPublication() {
-        return publication.get();
+        return values[PUBLICATION];
     }
 
     public SimpleStringProperty publicationProperty() {
-        return publication;
+        return property(PUBLICATION);
     }
 
     public void setPublication(String publication) {
-        this.publication.set(publication);
+        setField(PUBLICATION, publication);
     }
 
     public String getEvidence() {
-        return evidence.get();
+        return values[EVIDENCE];
     }
 
     public SimpleStringProperty evidenceProperty() {
-        return evidence;
+        return property(EVIDENCE);
     }
 
     public void setEvidence(String evidence) {
-        this.evidence.set(evidence);
+        setField(EVIDENCE, evidence);
     }
 
     public String getBiocuration() {
-        return biocuration.get();
+        return values[BIOCURATION];
     }
 
     public SimpleStringProperty biocurationProperty() {
-        return biocuration;
+        return property(BIOCURATION);
     }
 
     public void setBiocuration(String biocuration) {
-        this.biocuration.set(biocuration);
+        setField(BIOCURATION, biocuration);
     }
 
 
@@ -307,26 +395,15 @@ public class PhenoRow {
      * if this line was changed in the current session. */
     @Override
     public String toString() {
-        String biocurationentry = this.biocuration.get();
-        if (updated) {
-            biocurationentry = String.format("%s;%s",this.biocuration.get(),newBiocurationEntry);
+        String biocurationentry = values[BIOCURATION];
+        if (newBiocurationEntry != null) {
+            biocurationentry = String.format("%s;%s",values[BIOCURATION],newBiocurationEntry);
         }
-
-        String s[]  ={
-                this.diseaseID.get(),
-                this.diseaseName.get(),
-                this.phenotypeID.get(),
-                this.phenotypeName.get(),
-                this.onsetID.get(),
-                this.onsetName.get(),
-                this.frequency.get(),
-                this.sex.get(),
-                this.negation.get(),
-                this.modifier.get(),
-                this.description.get(),
-                this.publication.get(),
-                this.evidence.get(),
-                biocurationentry};
-        return Arrays.stream(s).collect(Collectors.joining("\t"));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (i > 0) sb.append('\t');
+            sb.append(i == BIOCURATION ? biocurationentry : values[i]);
+        }
+        return sb.toString();
     }
 }
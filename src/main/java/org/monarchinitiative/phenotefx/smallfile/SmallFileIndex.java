@@ -0,0 +1,291 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.io.Checksums;
+import org.monarchinitiative.phenotefx.io.SnapshotFile;
+import org.monarchinitiative.phenotefx.io.StringTable;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent index of the parsed contents of the small files in one directory. For each small file, the index
+ * records the size, modification time and SHA-256 hash of the file together with its {@link V2SmallFileEntry}
+ * objects (stored as indices into a shared string table). A small file whose size and modification time are
+ * unchanged, or whose hash is unchanged (e.g., after a {@code git pull} that touched the file without changing
+ * it), is served from the index; all other files are parsed as usual and then added to the index. The index is
+ * stored as a {@link SnapshotFile} (without a source file, since it keeps track of the small files itself).
+ * <p>
+ * Lookups and updates may be performed concurrently by the workers of {@link V2SmallFileIngestor}.
+ * @author Peter Robinson
+ */
+class SmallFileIndex {
+    private static final Logger logger = LogManager.getLogger();
+    /** "PFXI" */
+    private static final int MAGIC = 0x50465849;
+    /** Increment this whenever the layout of the index or the way small files are parsed changes. */
+    private static final int VERSION = 2;
+    /** Number of fields of a {@link V2SmallFileEntry}. */
+    private static final int N_FIELDS = 14;
+    private static final int HASH_LENGTH = 32;
+
+    private final File indexFile;
+    private final SnapshotFile snapshot;
+
+    private final HpoOntology ontology;
+    /** The entries that were read from {@link #indexFile}, key: absolute path of the small file. */
+    private final Map<String, IndexedFile> previous = new HashMap<>();
+    /** The entries for the small files that were looked up or added in this run. */
+    private final Map<String, IndexedFile> current = new ConcurrentHashMap<>();
+    /** Set to true whenever {@link #current} differs from {@link #previous} in something other than order. */
+    private volatile boolean modified = false;
+
+    /** The cached state of one small file. */
+    private static final class IndexedFile {
+        final long size;
+        final long mtime;
+        final byte[] hash;
+        final V2SmallFile smallFile;
+
+        IndexedFile(long size, long mtime, byte[] hash, V2SmallFile smallFile) {
+            this.size = size;
+            this.mtime = mtime;
+            this.hash = hash;
+            this.smallFile = smallFile;
+        }
+    }
+
+    /**
+     * @param indexFile the file in which the index is stored (it need not exist yet)
+     * @param ontology the HPO; cached entries whose phenotype id is no longer in the ontology are re-parsed (so
+     *                 that the parser can report them)
+     */
+    SmallFileIndex(File indexFile, HpoOntology ontology) {
+        this.indexFile = indexFile;
+        this.snapshot = new SnapshotFile("Small file index", MAGIC, VERSION, indexFile);
+        this.ontology = ontology;
+        load();
+    }
+
+    /**
+     * @param directoryPath the small file directory
+     * @param phenoteFxDir the directory with the PhenoteFX settings
+     * @return the location of the index file for small files in {@code directoryPath}; its name contains a hash of
+     * the absolute path of the directory
+     */
+    static File indexFileFor(String directoryPath, File phenoteFxDir) {
+        String key = Checksums.shortSha256(new File(directoryPath).getAbsolutePath());
+        return new File(phenoteFxDir, String.format("smallfiles-%s.idx", key));
+    }
+
+    /**
+     * @param f a small file
+     * @return the cached contents of the file if it has not changed since it was indexed, otherwise empty.
+     */
+    Optional<V2SmallFile> lookup(File f) {
+        String path = f.getAbsolutePath();
+        IndexedFile indexed = previous.get(path);
+        if (indexed == null) {
+            return Optional.empty();
+        }
+        long size = f.length();
+        long mtime = f.lastModified();
+        if (size == indexed.size && mtime == indexed.mtime) {
+            if (! termsCurrent(indexed.smallFile)) {
+                return Optional.empty();
+            }
+            current.put(path, indexed);
+            return Optional.of(indexed.smallFile);
+        }
+        try {
+            byte[] hash = Checksums.sha256(f);
+            if (Arrays.equals(hash, indexed.hash) && termsCurrent(indexed.smallFile)) {
+                current.put(path, new IndexedFile(size, mtime, hash, indexed.smallFile));
+                modified = true;
+                return Optional.of(indexed.smallFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not compute checksum of {}: {}", path, e.toString());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Add a freshly parsed small file to the index.
+     * @param f the small file
+     * @param size size of the small file before it was parsed
+     * @param mtime modification time of the small file before it was parsed
+     * @param smallFile the parsed contents of f
+     */
+    void update(File f, long size, long mtime, V2SmallFile smallFile) {
+        try {
+            byte[] hash = Checksums.sha256(f);
+            current.put(f.getAbsolutePath(), new IndexedFile(size, mtime, hash, smallFile));
+            modified = true;
+        } catch (IOException e) {
+            logger.warn("Could not compute checksum of {}: {}", f.getAbsolutePath(), e.toString());
+        }
+    }
+
+    /** @return true if all of the phenotype ids of the small file are still in the ontology. */
+    private boolean termsCurrent(V2SmallFile smallFile) {
+        if (ontology == null) {
+            return true;
+        }
+        for (V2SmallFileEntry entry : smallFile.getOriginalEntryList()) {
+            if (! ontology.getTermMap().containsKey(entry.getPhenotypeId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the files that were looked up or added since the index was loaded. Small files that were not looked
+     * up (e.g., because they were deleted) are dropped from the index. Does nothing if nothing has changed.
+     */
+    void save() {
+        if (! modified && current.size() == previous.size()) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException e) {
+            logger.error("Could not write small file index to {}: {}", indexFile.getAbsolutePath(), e.toString());
+        }
+    }
+
+    private void load() {
+        // read into the heap rather than mapping, so that the index file can be replaced on all platforms
+        ByteBuffer buffer = snapshot.read();
+        if (buffer == null) {
+            return;
+        }
+        try {
+            String[] strings = StringTable.read(buffer);
+            int nFiles = buffer.getInt();
+            String[] fields = new String[N_FIELDS];
+            for (int i = 0; i < nFiles; i++) {
+                String path = strings[buffer.getInt()];
+                long size = buffer.getLong();
+                long mtime = buffer.getLong();
+                byte[] hash = new byte[HASH_LENGTH];
+                buffer.get(hash);
+                String basename = strings[buffer.getInt()];
+                int nEntries = buffer.getInt();
+                List<V2SmallFileEntry> entries = new ArrayList<>(nEntries);
+                for (int j = 0; j < nEntries; j++) {
+                    for (int k = 0; k < N_FIELDS; k++) {
+                        int idx = buffer.getInt();
+                        fields[k] = idx == StringTable.NULL_INDEX ? null : strings[idx];
+                    }
+                    entries.add(decode(fields));
+                }
+                previous.put(path, new IndexedFile(size, mtime, hash, new V2SmallFile(basename, entries)));
+            }
+            logger.trace("Read small file index with {} files from {}", previous.size(), indexFile.getAbsolutePath());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            logger.warn("Could not read small file index at {}: {}", indexFile.getAbsolutePath(), e.toString());
+            previous.clear();
+        }
+    }
+
+    /** Write the index to a temporary file and move it into place. */
+    private void write() throws IOException {
+        List<Map.Entry<String, IndexedFile>> files = new ArrayList<>(current.entrySet());
+        files.sort(Map.Entry.comparingByKey());
+        StringTable strings = new StringTable();
+        for (Map.Entry<String, IndexedFile> e : files) {
+            strings.intern(e.getKey());
+            strings.intern(e.getValue().smallFile.getBasename());
+            for (V2SmallFileEntry entry : e.getValue().smallFile.getOriginalEntryList()) {
+                for (String field : encode(entry)) {
+                    strings.intern(field);
+                }
+            }
+        }
+        snapshot.write(payload -> {
+            strings.write(payload);
+            payload.writeInt(files.size());
+            for (Map.Entry<String, IndexedFile> e : files) {
+                IndexedFile indexed = e.getValue();
+                payload.writeInt(strings.indexOf(e.getKey()));
+                payload.writeLong(indexed.size);
+                payload.writeLong(indexed.mtime);
+                payload.write(indexed.hash);
+                payload.writeInt(strings.indexOf(indexed.smallFile.getBasename()));
+                payload.writeInt(indexed.smallFile.getNumberOfAnnotations());
+                for (V2SmallFileEntry entry : indexed.smallFile.getOriginalEntryList()) {
+                    for (String field : encode(entry)) {
+                        payload.writeInt(strings.indexOf(field));
+                    }
+                }
+            }
+        });
+        logger.trace("Wrote small file index with {} files to {}", files.size(), indexFile.getAbsolutePath());
+    }
+
+    /** @return the fields of the entry in the order of the V2 small file columns. */
+    private static String[] encode(V2SmallFileEntry entry) {
+        return new String[]{
+                entry.getDiseaseID(),
+                entry.getDiseaseName(),
+                entry.getPhenotypeId().getIdWithPrefix(),
+                entry.getPhenotypeName(),
+                entry.getAgeOfOnsetId(),
+                entry.getAgeOfOnsetName(),
+                entry.getFrequencyModifier(),
+                entry.getSex(),
+                entry.getNegation(),
+                entry.getModifier(),
+                entry.getDescription(),
+                entry.getPublication(),
+                entry.getEvidenceCode(),
+                entry.getBiocuration()};
+    }
+
+    /** Inverse of {@link #encode(V2SmallFileEntry)}. */
+    private static V2SmallFileEntry decode(String[] fields) {
+        V2SmallFileEntry.Builder builder = new V2SmallFileEntry.Builder(fields[0],
+                fields[1],
+                TermId.constructWithPrefix(fields[2]),
+                fields[3],
+                fields[12],
+                fields[11],
+                fields[13]);
+        return builder.ageOfOnsetId(fields[4])
+                .ageOfOnsetName(fields[5])
+                .frequencyString(fields[6])
+                .sex(fields[7])
+                .negation(fields[8])
+                .modifier(fields[9])
+                .description(fields[10])
+                .build();
+    }
+}
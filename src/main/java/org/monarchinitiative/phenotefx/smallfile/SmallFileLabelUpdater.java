@@ -0,0 +1,166 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.io.SmallFileWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry.getHeaderV2;
+
+/**
+ * If we update a term's label, its id stays the same. The label in the annotation file will no longer be up to date.
+ * This class checks whether the term ids and labels of the annotated terms are up to date, replaces outdated ones,
+ * and (optionally) writes the corrected small files. It has no user interface, so that it can be used from the GUI
+ * as well as from the command line. {@link #updateSmallFile(V2SmallFile)} may be called concurrently; the
+ * corrected files are written to temporary files and only replace the originals on {@link #commitWrites()}.
+ * @author Peter Robinson
+ */
+public class SmallFileLabelUpdater {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final String smallFileDirectory;
+
+    private final HpoOntology ontology;
+    /** If false, the outdated ids and labels are only reported. */
+    private final boolean writeChanges;
+    /** Key: message describing an update; value: how often it was performed. */
+    private final Map<String, AtomicLong> messageCounts = new ConcurrentHashMap<>();
+    /** Base names of the small files with at least one update. */
+    private final Set<String> updatedDiseases = new ConcurrentSkipListSet<>();
+    /** Key: base name of a small file that could not be written; value: the reason. */
+    private final Map<String, String> writeErrors = new ConcurrentHashMap<>();
+
+    private final SmallFileWriter writer = new SmallFileWriter();
+
+    public SmallFileLabelUpdater(String smallFileDirectory, HpoOntology ontology, boolean writeChanges) {
+        this.smallFileDirectory = smallFileDirectory;
+        this.ontology = ontology;
+        this.writeChanges = writeChanges;
+    }
+
+    /**
+     * Check (and update) all small files in the directory, and commit the corrected files.
+     * @param nThreads number of threads with which the small files are parsed and checked
+     * @return the ingestor that was used (for its parse errors)
+     */
+    public V2SmallFileIngestor updateAll(int nThreads) {
+        V2SmallFileIngestor ingestor = V2SmallFileIngestor.streaming(smallFileDirectory, ontology);
+        ingestor.forEach(nThreads, this::updateSmallFile);
+        commitWrites();
+        return ingestor;
+    }
+
+    /**
+     * Replace the small files that were corrected by {@link #updateSmallFile(V2SmallFile)} since the last call.
+     * Files that cannot be replaced are recorded in {@link #getWriteErrors()}.
+     */
+    public void commitWrites() {
+        for (Map.Entry<File, String> e : writer.commit().entrySet()) {
+            writeErrors.put(e.getKey().getName(), e.getValue());
+        }
+    }
+
+    /**
+     * Replace the outdated ids and labels of one small file and, if {@link #writeChanges} is set, stage the
+     * corrected file for {@link #commitWrites()} if anything changed.
+     * @return true if the small file had outdated ids or labels
+     */
+    public boolean updateSmallFile(V2SmallFile v2) {
+        boolean changed=false;
+        List<V2SmallFileEntry> entrylist =new ArrayList<>(v2.getOriginalEntryList());
+        for (int i=0;i< entrylist.size();i++) {
+            V2SmallFileEntry entry =entrylist.get(i);
+            TermId tid = entry.getPhenotypeId();
+            String label = entry.getPhenotypeName();
+            TermId primaryId = ontology.getPrimaryTermId(tid);
+            if (!tid.equals(primaryId)) {
+                addMessage(String.format("Replacing outdated TermId [%s] with correct primary id [%s]",
+                        tid.getIdWithPrefix(),primaryId.getIdWithPrefix()));
+                entry = entry.withUpdatedPrimaryId(primaryId);
+                entrylist.set(i, entry);
+                changed=true;
+            }
+            String currentLabel = ontology.getTermMap().get(primaryId).getName();
+            if (! label.equals(currentLabel)) {
+                addMessage(String.format("Replacing outdated label [%s] with current label [%s]",label,currentLabel));
+                entrylist.set(i, entry.withUpdatedLabel(currentLabel));
+                changed=true;
+            }
+        }
+        if (changed) {
+            updatedDiseases.add(v2.getBasename());
+            if (writeChanges) {
+                writeUpdatedSmallFile(v2.getBasename(),entrylist);
+            }
+        }
+        return changed;
+    }
+
+    /** @return map from each kind of update to the number of times it was performed. */
+    public Map<String, Long> getMessageCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> e : messageCounts.entrySet()) {
+            counts.put(e.getKey(), e.getValue().get());
+        }
+        return counts;
+    }
+
+    /** @return base names of the small files that had outdated ids or labels. */
+    public Set<String> getUpdatedDiseases() {
+        return updatedDiseases;
+    }
+
+    /** @return map from the base names of small files that could not be written to the reason. */
+    public Map<String, String> getWriteErrors() {
+        return writeErrors;
+    }
+
+    private void addMessage(String msg) {
+        messageCounts.computeIfAbsent(msg, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private void writeUpdatedSmallFile(String v2basename,List<V2SmallFileEntry> updatedEntries) {
+        String path = String.format("%s%s%s",this.smallFileDirectory, File.separator,v2basename );
+        File f = new File(path);
+        if (! f.exists()) {
+            logger.error("Could not find file {}", f.getAbsolutePath());
+            writeErrors.put(v2basename, "File not found");
+            return;
+        }
+        try {
+            writer.add(f, getHeaderV2(), updatedEntries.stream().map(V2SmallFileEntry::getRow).collect(Collectors.toList()));
+        } catch (IOException e){
+            logger.error("Could not write {}: {}", f.getAbsolutePath(), e.getMessage());
+            writeErrors.put(v2basename, e.getMessage());
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
 import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.gui.Platform;
 import org.monarchinitiative.phenotefx.io.SmallfileParser;
 
 import java.io.BufferedReader;
@@ -35,11 +36,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * This class coordinates the input of all the V2 small files. If an
  * {@code omit-list.txt} is provided by the user, then these files are
- * omitted. The output of this class is a list of {@link V2SmallFile} objects
+ * omitted. The output of this class is a list of {@link V2SmallFile} objects.
+ * <p>
+ * The files can be input sequentially, by a pool of worker threads, or on demand (see
+ * {@link #streaming(String, HpoOntology)}), in which case callers can start to work on the first files before
+ * the last one has been read. Files that cannot be parsed are skipped and recorded in {@link #getFileErrors()}.
+ * <p>
+ * Parsed files are cached in a {@link SmallFileIndex} in the PhenoteFX directory, so that only small files that
+ * are new or have changed since the previous run are parsed again.
  * @author <a href="mailto:peter.robinson@jjax.org">Peter Robinson</a>
  */
 public class V2SmallFileIngestor {
@@ -54,47 +67,235 @@ public class V2SmallFileIngestor {
     private final Set<String> omitEntries;
 
     /** Total number of annotations of all of the annotation files. */
-    private int n_total_annotation_lines=0;
+    private final AtomicInteger n_total_annotation_lines=new AtomicInteger();
 
     private int n_total_omitted_entries=0;
 
     private List<String> errors = new ArrayList<>();
+    /** Key: path of a small file that could not be parsed; value: the reason. */
+    private final Map<String,String> fileErrors = new ConcurrentSkipListMap<>();
+    /** Cache of previously parsed small files (null if there is no PhenoteFX directory). */
+    private final SmallFileIndex index;
+    /** Number of small files that were served from {@link #index}. */
+    private final AtomicInteger n_indexed_files=new AtomicInteger();
 
     public List<V2SmallFile> getV2SmallFileEntries() {
         return v2SmallFileList;
     }
 
+    /** @return errors that occured while reading the omit list or the small file directory. */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /** @return map from the path of each small file that could not be parsed to the reason. */
+    public Map<String,String> getFileErrors() {
+        return fileErrors;
+    }
+
+    /** @return the paths of the small files to be input (not including the omitted entries). */
+    public List<String> getSmallFilePaths() {
+        return Collections.unmodifiableList(v2smallFilePaths);
+    }
+
+    /** @return the number of small files to be input (not including the omitted entries). */
+    public int getNumberOfSmallFiles() {
+        return v2smallFilePaths.size();
+    }
+
+    /** Input all of the small files in the directory one after the other. */
     public V2SmallFileIngestor(String directoryPath,  HpoOntology ontology) {
+        this(directoryPath, ontology, 1);
+    }
+
+    /**
+     * Input all of the small files in the directory with a pool of worker threads. The order of
+     * {@link #getV2SmallFileEntries()} does not depend on the number of threads.
+     * @param nThreads number of worker threads (1 means sequential input on the calling thread)
+     */
+    public V2SmallFileIngestor(String directoryPath,  HpoOntology ontology, int nThreads) {
+        this(directoryPath, ontology, nThreads, true);
+    }
+
+    private V2SmallFileIngestor(String directoryPath,  HpoOntology ontology, int nThreads, boolean inputNow) {
         String omitFile=String.format("%s%s%s",directoryPath, File.separator,"omit-list.txt");
         omitEntries=getOmitEntries(omitFile);
         v2smallFilePaths=getListOfV2SmallFiles(directoryPath);
         this.ontology=ontology;
-        inputV2files();
+        this.index=openIndex(directoryPath,ontology);
+        logger.trace("We found " + v2smallFilePaths.size() + " small files.");
+        if (! inputNow) {
+            return;
+        }
+        if (nThreads > 1) {
+            V2SmallFile[] parsed = new V2SmallFile[v2smallFilePaths.size()];
+            parseInParallel(nThreads, (i, v2sf) -> parsed[i] = v2sf);
+            for (V2SmallFile v2sf : parsed) {
+                if (v2sf != null) {
+                    v2SmallFileList.add(v2sf);
+                }
+            }
+        } else {
+            inputV2files();
+        }
+        saveIndex();
+        logger.trace("Finished with input of {} files with {} annotations ({} files from index)",
+                v2smallFilePaths.size(),n_total_annotation_lines.get(),n_indexed_files.get());
+        logger.trace("A total of {} entries found in the small file directory were omitted.",n_total_omitted_entries);
+    }
+
+    /**
+     * Create an ingestor that determines which small files are to be input but does not parse them. Use
+     * {@link #stream()} or {@link #forEach(int, Consumer)} to parse the files on demand;
+     * {@link #getV2SmallFileEntries()} remains empty.
+     */
+    public static V2SmallFileIngestor streaming(String directoryPath,  HpoOntology ontology) {
+        return new V2SmallFileIngestor(directoryPath, ontology, 0, false);
+    }
+
+    /**
+     * @return a parallel stream that parses the small files as they are consumed. Files that cannot be parsed are
+     * left out of the stream and recorded in {@link #getFileErrors()}. Closing the stream updates the small file
+     * index.
+     */
+    public Stream<V2SmallFile> stream() {
+        return v2smallFilePaths.parallelStream()
+                .map(this::parseSmallFile)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .onClose(this::saveIndex);
+    }
+
+    /**
+     * Parse all small files with a pool of worker threads and pass each one to the consumer as soon as it has
+     * been parsed. The consumer is called from the worker threads and must be thread safe. Returns when all
+     * files have been processed.
+     * @param nThreads number of worker threads
+     * @param consumer code to be run for each small file
+     */
+    public void forEach(int nThreads, Consumer<V2SmallFile> consumer) {
+        parseInParallel(nThreads, (i, v2sf) -> consumer.accept(v2sf));
+        saveIndex();
+    }
+
+    /** @return the number of small files that did not need to be parsed because they were in the index. */
+    public int getNumberOfIndexedFiles() {
+        return n_indexed_files.get();
+    }
+
+    private static SmallFileIndex openIndex(String directoryPath, HpoOntology ontology) {
+        File dir = Platform.getPhenoteFXDir();
+        if (dir == null || ! dir.isDirectory()) {
+            return null;
+        }
+        return new SmallFileIndex(SmallFileIndex.indexFileFor(directoryPath, dir), ontology);
+    }
+
+    private void saveIndex() {
+        if (index != null) {
+            index.save();
+        }
     }
 
     private void inputV2files() {
-        logger.trace("We found " + v2smallFilePaths.size() + " small files.");
         int i=0;
         for (String path : v2smallFilePaths) {
             if (++i%1000==0) {
                 logger.trace(String.format("Inputting %d-th file at %s",i,path));
             }
-            SmallfileParser parser=new SmallfileParser(new File(path),ontology);
+            parseSmallFile(path).ifPresent(v2SmallFileList::add);
+        }
+    }
+
+    /**
+     * Parse the small files on {@code nThreads} worker threads.
+     * @param callback receives the index of each successfully parsed file in {@link #v2smallFilePaths} and the
+     *                 corresponding {@link V2SmallFile} (on the worker thread).
+     */
+    private void parseInParallel(int nThreads, BiConsumer<Integer,V2SmallFile> callback) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, nThreads), runnable -> {
+            Thread thread = new Thread(runnable, "smallfile-ingestor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i=0;i<v2smallFilePaths.size();i++) {
+                final int idx=i;
+                futures.add(executor.submit(() -> parseSmallFile(v2smallFilePaths.get(idx))
+                        .ifPresent(v2sf -> callback.accept(idx, v2sf))));
+            }
+            for (int i=0;i<futures.size();i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    fileErrors.put(v2smallFilePaths.get(i), e.getCause().toString());
+                    logger.error("Error while processing {}: {}", v2smallFilePaths.get(i), e.getCause().toString());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errors.add("Input of small files was interrupted");
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    /**
+     * Wait until the workers have finished the small files they are processing (they are interrupted by
+     * {@code shutdownNow}, but the callback may still be running), so that nothing is done with a small file after
+     * {@link #parseInParallel} has returned. The interrupt status of the calling thread is preserved.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = Thread.interrupted();
+        while (! executor.isTerminated()) {
             try {
-                Optional<V2SmallFile> v2sfOpt = parser.parseV2SmallFile();
-                if (v2sfOpt.isPresent()) {
-                    V2SmallFile v2sf = v2sfOpt.get();
-                    n_total_annotation_lines += v2sf.getNumberOfAnnotations();
-                    v2SmallFileList.add(v2sf);
-                } else {
-                    logger.error("Could not parse V2 small file for {}", path);
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Parse one small file. Called concurrently by the worker threads.
+     * @return the parsed file, or empty if it could not be parsed (the reason is stored in {@link #fileErrors}).
+     */
+    private Optional<V2SmallFile> parseSmallFile(String path) {
+        File file = new File(path);
+        if (index != null) {
+            Optional<V2SmallFile> indexed = index.lookup(file);
+            if (indexed.isPresent()) {
+                n_indexed_files.incrementAndGet();
+                n_total_annotation_lines.addAndGet(indexed.get().getNumberOfAnnotations());
+                return indexed;
+            }
+        }
+        // record the state of the file before parsing, so that a concurrent change is picked up next time
+        long size = file.length();
+        long mtime = file.lastModified();
+        SmallfileParser parser=new SmallfileParser(file,ontology);
+        try {
+            Optional<V2SmallFile> v2sfOpt = parser.parseV2SmallFile();
+            if (v2sfOpt.isPresent()) {
+                n_total_annotation_lines.addAndGet(v2sfOpt.get().getNumberOfAnnotations());
+                if (index != null) {
+                    index.update(file, size, mtime, v2sfOpt.get());
                 }
-            } catch (PhenoteFxException e) {
-                e.printStackTrace();
+            } else {
+                fileErrors.put(path, "Could not parse V2 small file");
+                logger.error("Could not parse V2 small file for {}", path);
             }
+            return v2sfOpt;
+        } catch (PhenoteFxException e) {
+            fileErrors.put(path, e.getMessage());
+            logger.error("Could not parse V2 small file for {}: {}", path, e.getMessage());
+            return Optional.empty();
         }
-        logger.error("Finished with input of {} files with {} annotations",i,n_total_annotation_lines);
-        logger.error("A total of {} entries found in the small file directory were omitted.",n_total_omitted_entries);
     }
 
     /**
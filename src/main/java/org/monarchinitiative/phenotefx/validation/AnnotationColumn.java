@@ -0,0 +1,74 @@
+package org.monarchinitiative.phenotefx.validation;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry;
+
+import java.util.function.Function;
+
+/**
+ * The columns of a V2 small file, with access to the corresponding value of a {@link PhenoRow} (a row of the
+ * table) and of a {@link V2SmallFileEntry} (a line of a small file in the repository).
+ * @author Peter Robinson
+ */
+public enum AnnotationColumn {
+    DISEASE_ID("#diseaseID", PhenoRow::getDiseaseID, V2SmallFileEntry::getDiseaseID),
+    DISEASE_NAME("diseaseName", PhenoRow::getDiseaseName, V2SmallFileEntry::getDiseaseName),
+    PHENOTYPE_ID("phenotypeID", PhenoRow::getPhenotypeID, e -> e.getPhenotypeId().getIdWithPrefix()),
+    PHENOTYPE_NAME("phenotypeName", PhenoRow::getPhenotypeName, V2SmallFileEntry::getPhenotypeName),
+    ONSET_ID("onsetID", PhenoRow::getOnsetID, V2SmallFileEntry::getAgeOfOnsetId),
+    ONSET_NAME("onsetName", PhenoRow::getOnsetName, V2SmallFileEntry::getAgeOfOnsetName),
+    FREQUENCY("frequency", PhenoRow::getFrequency, V2SmallFileEntry::getFrequencyModifier),
+    SEX("sex", PhenoRow::getSex, V2SmallFileEntry::getSex),
+    NEGATION("negation", PhenoRow::getNegation, V2SmallFileEntry::getNegation),
+    MODIFIER("modifier", PhenoRow::getModifier, V2SmallFileEntry::getModifier),
+    DESCRIPTION("description", PhenoRow::getDescription, V2SmallFileEntry::getDescription),
+    PUBLICATION("publication", PhenoRow::getPublication, V2SmallFileEntry::getPublication),
+    EVIDENCE("evidence", PhenoRow::getEvidence, V2SmallFileEntry::getEvidenceCode),
+    BIOCURATION("biocuration", PhenoRow::getBiocuration, V2SmallFileEntry::getBiocuration);
+
+    /** The name of the column in the header of a small file. */
+    private final String name;
+    private final Function<PhenoRow, String> rowGetter;
+    private final Function<V2SmallFileEntry, String> entryGetter;
+
+    AnnotationColumn(String name, Function<PhenoRow, String> rowGetter, Function<V2SmallFileEntry, String> entryGetter) {
+        this.name = name;
+        this.rowGetter = rowGetter;
+        this.entryGetter = entryGetter;
+    }
+
+    /** @return the value of this column in a row of the table. */
+    public String getValue(PhenoRow row) {
+        return rowGetter.apply(row);
+    }
+
+    /** @return the value of this column in an entry of a small file. */
+    public String getValue(V2SmallFileEntry entry) {
+        return entryGetter.apply(entry);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
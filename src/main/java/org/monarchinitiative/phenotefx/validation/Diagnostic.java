@@ -0,0 +1,76 @@
+package org.monarchinitiative.phenotefx.validation;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * One problem found by the {@link ValidationEngine}: either in one column of one row of a small file, or in the
+ * file as a whole (e.g., more than one disease id).
+ * @author Peter Robinson
+ */
+public final class Diagnostic {
+
+    public enum Severity {
+        ERROR, WARNING
+    }
+
+    /** Index of the row (0-based, not counting the header), or -1 if the diagnostic concerns the whole file. */
+    private final int row;
+    /** The column of the problem, or null if it concerns the whole file. */
+    private final AnnotationColumn column;
+
+    private final Severity severity;
+    /** The phenotype name of the row (used to identify the row for the curator). */
+    private final String label;
+    /** The offending value (may be null). */
+    private final String value;
+
+    private final String message;
+
+    Diagnostic(int row, AnnotationColumn column, Severity severity, String label, String value, String message) {
+        this.row = row;
+        this.column = column;
+        this.severity = severity;
+        this.label = label;
+        this.value = value;
+        this.message = message;
+    }
+
+    public int getRow() { return row; }
+
+    public AnnotationColumn getColumn() { return column; }
+
+    public Severity getSeverity() { return severity; }
+
+    public String getLabel() { return label; }
+
+    public String getValue() { return value; }
+
+    public String getMessage() { return message; }
+
+    /** @return true if the diagnostic concerns the whole file rather than one row. */
+    public boolean isFileLevel() { return row < 0; }
+
+    /** @return the message, preceded by the phenotype name of the row (e.g., "Seizure: Invalid frequency"). */
+    @Override
+    public String toString() {
+        return isFileLevel() ? message : String.format("%s: %s", label, message);
+    }
+}
@@ -20,34 +20,20 @@ package org.monarchinitiative.phenotefx.validation;
  * #L%
  */
 
-import org.monarchinitiative.phenotefx.model.Frequency;
-
-import java.util.Map;
+import org.monarchinitiative.phenotefx.index.SubOntology;
+import org.monarchinitiative.phenotefx.index.SubOntologyIndex;
 
 /**
  * Created by peter on 27.05.17.
  */
 public class FrequencyValidator {
 
-
-
-
     /**
-     * A valid frequency can be an HPO term, n/m or nn%
+     * A valid frequency can be an HPO term, the label of a frequency term (e.g., Occasional), n/m or nn%. Frequency
+     * ids are checked against the ontology by the {@link SemanticValidator}.
+     * @param subOntologies provides the labels of the HPO frequency terms
      * @return true if s is a string like HP:0003214 */
-    public static  boolean isValid(String s) {
-        if (HPOValidator.isValid(s)) {
-            return true;
-        }
-        Map<String,String> freqmap = Frequency.factory().getFrequency2NameMap();
-        if (freqmap.containsKey(s))
-            return true;
-        if (s.equals("Rare"))
-            return true; /* todo seems to be missing */
-        String pattern = "\\d+/\\d+"; /* e.g., 7/12 */
-        if (s.matches(pattern))
-            return true;
-        String pattern2 ="\\d\\d%";
-        return (s.matches(pattern2));
+    public static  boolean isValid(String s, SubOntologyIndex subOntologies) {
+        return Scanners.isFrequency(s, subOntologies.getLabels(SubOntology.FREQUENCY));
     }
 }
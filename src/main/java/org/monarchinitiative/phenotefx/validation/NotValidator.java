@@ -25,7 +25,7 @@ package org.monarchinitiative.phenotefx.validation;
  */
 public class NotValidator {
     public static  boolean isValid(String s) {
-        return  (s==null || s.isEmpty() ||  s.equals("NOT"));
+        return Scanners.isNegation(s);
     }
 
 }
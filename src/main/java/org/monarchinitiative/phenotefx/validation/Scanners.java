@@ -0,0 +1,122 @@
+package org.monarchinitiative.phenotefx.validation;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collection;
+
+/**
+ * Hand-written scanners for the syntax of the fields of a small file. They do not allocate, compile regular
+ * expressions or use exceptions for control flow, so that they can be applied to every row of the repository.
+ * @author Peter Robinson
+ */
+final class Scanners {
+
+    private Scanners() {
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /** @return true for a word character as in the regular expression \w */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+    /** @return the number of consecutive digits at position i of s. */
+    private static int digits(String s, int i) {
+        int j = i;
+        while (j < s.length() && isDigit(s.charAt(j))) j++;
+        return j - i;
+    }
+
+    /** @return the number of consecutive word characters at position i of s. */
+    private static int wordChars(String s, int i, int end) {
+        int j = i;
+        while (j < end && isWordChar(s.charAt(j))) j++;
+        return j - i;
+    }
+
+    /** @return true if s is a string like HP:0003214 */
+    static boolean isHpoId(String s) {
+        return s != null && s.length() == 10 && s.startsWith("HP:") && digits(s, 3) == 7;
+    }
+
+    /** @return true if s is one of the evidence codes IEA, PCS or TAS. */
+    static boolean isEvidence(String s) {
+        return "IEA".equals(s) || "PCS".equals(s) || "TAS".equals(s);
+    }
+
+    /** @return true if s is empty or NOT. */
+    static boolean isNegation(String s) {
+        return s == null || s.isEmpty() || s.equals("NOT");
+    }
+
+    /**
+     * A valid frequency is an HPO id, the label of a frequency term, n/m or nn%.
+     * @param labels the labels of the HPO frequency terms
+     */
+    static boolean isFrequency(String s, Collection<String> labels) {
+        if (s == null) return false;
+        if (isHpoId(s) || labels.contains(s) || s.equals("Rare")) return true;
+        int n = digits(s, 0);
+        if (n > 0 && n < s.length() && s.charAt(n) == '/') {
+            int m = digits(s, n + 1);
+            return m > 0 && n + 1 + m == s.length(); /* e.g., 7/12 */
+        }
+        return n == 2 && s.length() == 3 && s.charAt(2) == '%'; /* e.g., 54% */
+    }
+
+    /**
+     * Check a biocuration string, i.e., one or more entries such as HPO:skoehler[2017-02-17] separated by
+     * semicolons (trailing semicolons are ignored).
+     */
+    static boolean isBiocuration(String s) {
+        if (s == null) return false;
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) == ';') end--;
+        if (end == 0) return false;
+        int i = 0;
+        while (true) {
+            i = biocurationEntryEnd(s, i, end);
+            if (i < 0) return false;
+            if (i == end) return true;
+            if (s.charAt(i) != ';') return false;
+            i++;
+        }
+    }
+
+    /** @return the end of the entry (e.g., HPO:skoehler[2017-02-17]) that starts at i, or -1 if it is malformed. */
+    private static int biocurationEntryEnd(String s, int i, int end) {
+        int n = wordChars(s, i, end);
+        if (n == 0 || i + n >= end || s.charAt(i + n) != ':') return -1;
+        i += n + 1;
+        n = wordChars(s, i, end);
+        if (n == 0 || i + n >= end || s.charAt(i + n) != '[') return -1;
+        i += n + 1;
+        // yyyy-mm-dd]
+        if (i + 11 > end) return -1;
+        if (digits(s, i) < 4 || s.charAt(i + 4) != '-') return -1;
+        if (!isDigit(s.charAt(i + 5)) || !isDigit(s.charAt(i + 6)) || s.charAt(i + 7) != '-') return -1;
+        if (!isDigit(s.charAt(i + 8)) || !isDigit(s.charAt(i + 9)) || s.charAt(i + 10) != ']') return -1;
+        return i + 11;
+    }
+}
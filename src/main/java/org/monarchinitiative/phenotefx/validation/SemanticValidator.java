@@ -0,0 +1,159 @@
+package org.monarchinitiative.phenotefx.validation;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.index.HpoAncestorIndex;
+import org.monarchinitiative.phenotefx.index.SubOntology;
+import org.monarchinitiative.phenotefx.index.SubOntologyIndex;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
+
+import java.util.*;
+
+/**
+ * Checks the annotations of a small file against the HPO hierarchy: onset ids must be terms below Onset
+ * (HP:0003674), modifiers must be terms below Clinical modifier (HP:0012823), frequencies given as HPO ids must be
+ * terms below Frequency (HP:0040279), phenotype ids must be current (not obsolete or alternate) ids, and a phenotype
+ * should not be annotated together with one of its descendants, since the more specific annotation implies it. All
+ * is-a checks are lookups in a precomputed {@link SubOntologyIndex} and {@link HpoAncestorIndex}.
+ * <p>
+ * Syntax errors (e.g., a malformed HPO id) are left to the {@link ValidationEngine}.
+ * @author Peter Robinson
+ */
+public final class SemanticValidator {
+
+    private final HpoAncestorIndex index;
+
+    private final SubOntologyIndex subOntologies;
+
+    public SemanticValidator(SubOntologyIndex subOntologies) {
+        this.index = subOntologies.getAncestorIndex();
+        this.subOntologies = subOntologies;
+    }
+
+    /** @return the diagnostics for the rows of the table, in the order of the rows. */
+    public List<Diagnostic> validate(List<PhenoRow> rows) {
+        return validate(rows, (row, column) -> column.getValue(row));
+    }
+
+    /** @return the diagnostics for the entries of a small file, in the order of the entries. */
+    public List<Diagnostic> validate(V2SmallFile smallFile) {
+        return validate(smallFile.getOriginalEntryList(), (entry, column) -> column.getValue(entry));
+    }
+
+    private <T> List<Diagnostic> validate(List<T> rows, ValidationEngine.FieldAccess<T> access) {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        int[] phenotypes = new int[rows.size()]; // index of the phenotype of each (non-negated) row, or -1
+        BitSet annotated = new BitSet(index.size());
+        int i = 0;
+        for (T row : rows) {
+            String label = access.get(row, AnnotationColumn.PHENOTYPE_NAME);
+            phenotypes[i] = checkPhenotype(i, label, access.get(row, AnnotationColumn.PHENOTYPE_ID), diagnostics);
+            if (phenotypes[i] >= 0 && !"NOT".equals(access.get(row, AnnotationColumn.NEGATION))) {
+                annotated.set(phenotypes[i]);
+            } else {
+                phenotypes[i] = -1;
+            }
+            String onset = access.get(row, AnnotationColumn.ONSET_ID);
+            if (onset != null && !onset.isEmpty() && !isIn(onset, SubOntology.ONSET)) {
+                diagnostics.add(new Diagnostic(i, AnnotationColumn.ONSET_ID, Diagnostic.Severity.ERROR, label, onset,
+                        String.format("Onset ID \"%s\" is not a subclass of Onset (%s)", onset,
+                                SubOntology.ONSET.getRoot().getIdWithPrefix())));
+            }
+            String frequency = access.get(row, AnnotationColumn.FREQUENCY);
+            // other frequencies (e.g., 7/12) are checked by the ValidationEngine
+            if (Scanners.isHpoId(frequency) && !isIn(frequency, SubOntology.FREQUENCY)) {
+                diagnostics.add(new Diagnostic(i, AnnotationColumn.FREQUENCY, Diagnostic.Severity.ERROR, label, frequency,
+                        String.format("Frequency \"%s\" is not a subclass of Frequency (%s)", frequency,
+                                SubOntology.FREQUENCY.getRoot().getIdWithPrefix())));
+            }
+            String modifiers = access.get(row, AnnotationColumn.MODIFIER);
+            if (modifiers != null && !modifiers.isEmpty()) {
+                for (String modifier : modifiers.split(";")) {
+                    if (!isIn(modifier, SubOntology.CLINICAL_MODIFIER)) {
+                        diagnostics.add(new Diagnostic(i, AnnotationColumn.MODIFIER, Diagnostic.Severity.ERROR, label, modifiers,
+                                String.format("Modifier \"%s\" is not a subclass of Clinical modifier (%s)",
+                                        modifier, SubOntology.CLINICAL_MODIFIER.getRoot().getIdWithPrefix())));
+                    }
+                }
+            }
+            i++;
+        }
+        checkRedundantAncestors(rows, access, phenotypes, annotated, diagnostics);
+        diagnostics.sort(Comparator.comparingInt(Diagnostic::getRow));
+        return diagnostics;
+    }
+
+    /** @return the index of the phenotype term, or -1 if it is malformed or not a current term. */
+    private int checkPhenotype(int row, String label, String id, List<Diagnostic> diagnostics) {
+        if (!Scanners.isHpoId(id)) {
+            return -1;
+        }
+        TermId tid = TermId.constructWithPrefix(id);
+        TermId current = index.getCurrentId(tid);
+        if (current == null) {
+            diagnostics.add(new Diagnostic(row, AnnotationColumn.PHENOTYPE_ID, Diagnostic.Severity.ERROR, label, id,
+                    String.format("Phenotype ID \"%s\" was not found in the ontology", id)));
+            return -1;
+        }
+        if (!current.equals(tid)) {
+            diagnostics.add(new Diagnostic(row, AnnotationColumn.PHENOTYPE_ID, Diagnostic.Severity.WARNING, label, id,
+                    String.format("Phenotype ID \"%s\" is obsolete or an alternate ID, use %s", id, current.getIdWithPrefix())));
+        }
+        return index.indexOf(current);
+    }
+
+    /** @return true if s is the id of a term in the subhierarchy. */
+    private boolean isIn(String s, SubOntology subhierarchy) {
+        return Scanners.isHpoId(s) && subOntologies.contains(subhierarchy, TermId.constructWithPrefix(s));
+    }
+
+    /**
+     * Warn about each (non-negated) row whose phenotype is an ancestor of the phenotype of another row, i.e., that
+     * is implied by the more specific annotation.
+     */
+    private <T> void checkRedundantAncestors(List<T> rows, ValidationEngine.FieldAccess<T> access, int[] phenotypes,
+                                             BitSet annotated, List<Diagnostic> diagnostics) {
+        Map<Integer, Integer> descendantRow = null; // key: an annotated ancestor; value: a row with a descendant
+        for (int i = 0; i < phenotypes.length; i++) {
+            if (phenotypes[i] < 0) continue;
+            for (int a : index.getAncestors(phenotypes[i])) {
+                if (annotated.get(a)) {
+                    if (descendantRow == null) descendantRow = new HashMap<>();
+                    descendantRow.putIfAbsent(a, i);
+                }
+            }
+        }
+        if (descendantRow == null) return;
+        for (int i = 0; i < phenotypes.length; i++) {
+            Integer d = phenotypes[i] < 0 ? null : descendantRow.get(phenotypes[i]);
+            if (d == null) continue;
+            T row = rows.get(i);
+            T descendant = rows.get(d);
+            diagnostics.add(new Diagnostic(i, AnnotationColumn.PHENOTYPE_ID, Diagnostic.Severity.WARNING,
+                    access.get(row, AnnotationColumn.PHENOTYPE_NAME), access.get(row, AnnotationColumn.PHENOTYPE_ID),
+                    String.format("Redundant, implied by the more specific annotation %s (%s)",
+                            access.get(descendant, AnnotationColumn.PHENOTYPE_NAME),
+                            access.get(descendant, AnnotationColumn.PHENOTYPE_ID))));
+        }
+    }
+}
@@ -22,52 +22,37 @@ package org.monarchinitiative.phenotefx.validation;
 
 import org.monarchinitiative.phenotefx.model.PhenoRow;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Checks the rows of the table with {@link ValidationEngine#saveChecks()} before they are saved.
+ */
 public class SmallFileValidator {
 
+    private final List<Diagnostic> diagnostics;
 
-    private final List<PhenoRow> rows;
-    private List<String> errors;
+    private final List<String> errors;
 
 
     public SmallFileValidator(List<PhenoRow> rows) {
-        errors=new ArrayList<>();
-        this.rows=rows;
-        analyze();
+        this.diagnostics = ValidationEngine.saveChecks().validate(rows);
+        this.errors = diagnostics.stream().map(Diagnostic::toString).collect(Collectors.toList());
     }
 
-    /**
-     * Look for some common errors in the annotation data.
-     */
-    private void analyze() {
-        Set<String> diseaseIdSet=new HashSet<>(); // check that one and only one disease id is used
-        for (PhenoRow row : rows) {
-            String label = row.getPhenotypeName();
-            String biocurator = row.getBiocuration();
-            if (biocurator.isEmpty()) {
-                errors.add(label+": Assigned by entry empty, but needs to be an id such as HPO:rrabbit");
-            } else if (biocurator.indexOf(':') <1) {
-                errors.add(label+": Malformed Assigned by string empty: needs to be an id such as HPO:rrabbit");
-            }
-            String diseaseId = row.getDiseaseID();
-            diseaseIdSet.add(diseaseId);
-
-        }
-        if (diseaseIdSet.isEmpty()) {
-            errors.add("Could not find a disease id");
-        } else if (diseaseIdSet.size()>1) {
-            errors.add("Multiple disease Ids found (this should be unique!): " + diseaseIdSet.stream().collect(Collectors.joining(";")));
-        }
+    /** @return the problems found, with the row and column of each. */
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
     }
 
 
 
 
+    /** @return the individual error messages. */
+    public List<String> getErrors() {
+        return errors;
+    }
+
     public String errorMessage() {
         return errors.stream().collect(Collectors.joining( "," ));
     }
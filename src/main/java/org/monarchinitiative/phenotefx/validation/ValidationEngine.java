@@ -0,0 +1,224 @@
+package org.monarchinitiative.phenotefx.validation;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenotefx.index.SubOntology;
+import org.monarchinitiative.phenotefx.index.SubOntologyIndex;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Validates all rows of a small file (either the rows of the table or a {@link V2SmallFile} of the repository)
+ * against a fixed set of rules and returns one {@link Diagnostic} for every violation. The rules are assembled
+ * once by the {@link Builder}; an engine is immutable and can be reused for any number of files, also from
+ * several threads at once.
+ * <p>
+ * {@link #saveChecks()} has the checks that must pass before the table is saved, {@link #standard(SubOntologyIndex)}
+ * adds the syntax checks of the individual fields that are applied to the files of the repository.
+ * @author Peter Robinson
+ */
+public final class ValidationEngine {
+
+    private static ValidationEngine saveChecks;
+
+    /** The rules, grouped by column and in the order in which they are applied to a row. */
+    private final Rule[] rules;
+    /** If true, all rows must have the same (non-empty) disease id. */
+    private final boolean uniqueDiseaseId;
+
+    /** A check of one field of a row. */
+    private static final class Rule {
+        final AnnotationColumn column;
+        final Predicate<String> check;
+        final Diagnostic.Severity severity;
+        /** Format for the message, with one %s for the offending value. */
+        final String message;
+        /** If true, null and empty values are not checked. */
+        final boolean optional;
+
+        Rule(AnnotationColumn column, Predicate<String> check, Diagnostic.Severity severity, String message, boolean optional) {
+            this.column = column;
+            this.check = check;
+            this.severity = severity;
+            this.message = message;
+            this.optional = optional;
+        }
+    }
+
+    /** Access to the fields of the two kinds of row that can be validated. */
+    interface FieldAccess<T> {
+        String get(T row, AnnotationColumn column);
+    }
+
+    private ValidationEngine(Builder builder) {
+        List<Rule> sorted = new ArrayList<>(builder.rules);
+        sorted.sort(Comparator.comparing(r -> r.column)); // stable, keeps the order of the rules within a column
+        this.rules = sorted.toArray(new Rule[0]);
+        this.uniqueDiseaseId = builder.uniqueDiseaseId;
+    }
+
+    /** @return the checks that the rows of the table must pass before they can be saved. */
+    public static synchronized ValidationEngine saveChecks() {
+        if (saveChecks == null) {
+            saveChecks = saveChecksBuilder().build();
+        }
+        return saveChecks;
+    }
+
+    /**
+     * @param subOntologies provides the labels of the HPO frequency terms, which are accepted in place of their ids
+     * @return the save checks plus syntax checks of the HPO id, evidence, negation, frequency and biocuration.
+     */
+    public static ValidationEngine standard(SubOntologyIndex subOntologies) {
+        Set<String> frequencyLabels = new HashSet<>(subOntologies.getLabels(SubOntology.FREQUENCY));
+        return saveChecksBuilder()
+                .rule(AnnotationColumn.PHENOTYPE_ID, Scanners::isHpoId, "Malformed HPO id \"%s\"")
+                .rule(AnnotationColumn.EVIDENCE, Scanners::isEvidence, "Invalid evidence code \"%s\"")
+                .rule(AnnotationColumn.NEGATION, Scanners::isNegation, "Invalid negation \"%s\"")
+                .optionalRule(AnnotationColumn.FREQUENCY, s -> Scanners.isFrequency(s, frequencyLabels), "Invalid frequency \"%s\"")
+                .optionalRule(AnnotationColumn.BIOCURATION, Scanners::isBiocuration, "Invalid biocuration entry \"%s\"")
+                .build();
+    }
+
+    private static Builder saveChecksBuilder() {
+        return builder()
+                .rule(AnnotationColumn.BIOCURATION, s -> s != null && !s.isEmpty(),
+                        "Assigned by entry empty, but needs to be an id such as HPO:rrabbit")
+                .optionalRule(AnnotationColumn.BIOCURATION, s -> s.indexOf(':') > 0,
+                        "Malformed Assigned by string empty: needs to be an id such as HPO:rrabbit")
+                .requireUniqueDiseaseId(true);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** @return the diagnostics for the rows of the table, in the order of the rows. */
+    public List<Diagnostic> validate(List<PhenoRow> rows) {
+        return validate(rows, (row, column) -> column.getValue(row));
+    }
+
+    /** @return the diagnostics for the entries of a small file, in the order of the entries. */
+    public List<Diagnostic> validate(V2SmallFile smallFile) {
+        return validate(smallFile.getOriginalEntryList(), (entry, column) -> column.getValue(entry));
+    }
+
+    private <T> List<Diagnostic> validate(List<T> rows, FieldAccess<T> access) {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        int i = 0;
+        for (T row : rows) {
+            AnnotationColumn column = null;
+            String value = null;
+            boolean failed = false;
+            for (Rule rule : rules) {
+                if (rule.column != column) {
+                    column = rule.column;
+                    value = access.get(row, column);
+                    failed = false;
+                }
+                if (failed || (rule.optional && (value == null || value.isEmpty()))) {
+                    continue; // after the first violation, the remaining rules of the column would only repeat it
+                }
+                if (!rule.check.test(value)) {
+                    String label = access.get(row, AnnotationColumn.PHENOTYPE_NAME);
+                    diagnostics.add(new Diagnostic(i, column, rule.severity, label, value, String.format(rule.message, value)));
+                    failed = true;
+                }
+            }
+            i++;
+        }
+        if (uniqueDiseaseId) {
+            checkDiseaseId(rows, access, diagnostics);
+        }
+        return diagnostics;
+    }
+
+    /** Add a file-level diagnostic if there is no disease id or more than one. */
+    private static <T> void checkDiseaseId(List<T> rows, FieldAccess<T> access, List<Diagnostic> diagnostics) {
+        if (rows.isEmpty()) {
+            diagnostics.add(new Diagnostic(-1, null, Diagnostic.Severity.ERROR, null, null, "Could not find a disease id"));
+            return;
+        }
+        String first = access.get(rows.get(0), AnnotationColumn.DISEASE_ID);
+        Set<String> ids = null; // only needed if there is more than one id
+        for (T row : rows) {
+            String id = access.get(row, AnnotationColumn.DISEASE_ID);
+            if (ids == null && !Objects.equals(first, id)) {
+                ids = new LinkedHashSet<>();
+                ids.add(first);
+            }
+            if (ids != null) {
+                ids.add(id);
+            }
+        }
+        if (ids != null) {
+            diagnostics.add(new Diagnostic(-1, AnnotationColumn.DISEASE_ID, Diagnostic.Severity.ERROR, null, null,
+                    "Multiple disease Ids found (this should be unique!): " + String.join(";", ids)));
+        }
+    }
+
+    /**
+     * Assembles the rules of a {@link ValidationEngine}. Rules of the same column are applied in the order in
+     * which they were added.
+     */
+    public static final class Builder {
+        private final List<Rule> rules = new ArrayList<>();
+        private boolean uniqueDiseaseId = false;
+
+        private Builder() {
+        }
+
+        /**
+         * Add a rule that every value of the column must pass (including null and empty values).
+         * @param message format of the message, with one %s for the offending value
+         */
+        public Builder rule(AnnotationColumn column, Predicate<String> check, String message) {
+            rules.add(new Rule(column, check, Diagnostic.Severity.ERROR, message, false));
+            return this;
+        }
+
+        /** Add a rule that is only applied to non-empty values of the column. */
+        public Builder optionalRule(AnnotationColumn column, Predicate<String> check, String message) {
+            rules.add(new Rule(column, check, Diagnostic.Severity.ERROR, message, true));
+            return this;
+        }
+
+        /** Add a rule whose violations are reported as warnings; it is only applied to non-empty values. */
+        public Builder warning(AnnotationColumn column, Predicate<String> check, String message) {
+            rules.add(new Rule(column, check, Diagnostic.Severity.WARNING, message, true));
+            return this;
+        }
+
+        /** If true, all rows must have the same disease id. */
+        public Builder requireUniqueDiseaseId(boolean b) {
+            this.uniqueDiseaseId = b;
+            return this;
+        }
+
+        public ValidationEngine build() {
+            return new ValidationEngine(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.monarchinitiative.phenotefx.worker;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.concurrent.Task;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenotefx.index.HpoAncestorIndex;
+import org.monarchinitiative.phenotefx.index.HpoAnnotationIndex;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileIngestor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads all small files of a directory on a pool of worker threads (with one progress step per small file) and
+ * builds an {@link HpoAnnotationIndex} of their annotations for the repository search. Small files that have not
+ * changed since they were last read are served from the small file index of the {@link V2SmallFileIngestor}.
+ * @author Peter Robinson
+ */
+public class RepositoryIndexer extends Task<HpoAnnotationIndex> {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final String smallFilePath;
+    private final HpoOntology ontology;
+    private final HpoAncestorIndex ancestorIndex;
+    /** Number of threads with which the small files are read. */
+    private final int nThreads;
+
+    public RepositoryIndexer(String smallFilePath, HpoOntology ontology, HpoAncestorIndex ancestorIndex) {
+        this.smallFilePath = smallFilePath;
+        this.ontology = ontology;
+        this.ancestorIndex = ancestorIndex;
+        this.nThreads = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    protected HpoAnnotationIndex call() {
+        updateMessage("Reading small files...");
+        V2SmallFileIngestor ingestor = V2SmallFileIngestor.streaming(smallFilePath, ontology);
+        final int total = ingestor.getNumberOfSmallFiles();
+        Queue<V2SmallFile> smallFiles = new ConcurrentLinkedQueue<>();
+        AtomicInteger done = new AtomicInteger();
+        ingestor.forEach(nThreads, v2 -> {
+            if (isCancelled()) {
+                return;
+            }
+            smallFiles.add(v2);
+            int n = done.incrementAndGet();
+            updateProgress(n, total);
+            updateMessage(String.format("Read %d of %d small files", n, total));
+        });
+        if (isCancelled()) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        HpoAnnotationIndex index = HpoAnnotationIndex.build(smallFiles, ancestorIndex);
+        logger.trace("Indexed {} annotations of {} small files in {} ms", index.getNumberOfAnnotations(),
+                index.getNumberOfSmallFiles(), System.currentTimeMillis() - start);
+        return index;
+    }
+}
@@ -0,0 +1,201 @@
+package org.monarchinitiative.phenotefx.worker;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenotefx.exception.PhenoteFxException;
+import org.monarchinitiative.phenotefx.index.HpoAncestorIndex;
+import org.monarchinitiative.phenotefx.index.SubOntologyIndex;
+import org.monarchinitiative.phenotefx.io.HPOParser;
+import org.monarchinitiative.phenotefx.io.MedGenParser;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the resources that PhenoteFX needs at startup (the MedGen disease names and the HPO) on two background
+ * workers, so that the main window stays responsive. Each resource is handed to the GUI as soon as it is ready;
+ * all callbacks as well as updates of {@link #statusProperty()} and {@link #progressProperty()} take place on the
+ * JavaFX application thread.
+ * <p>
+ * The HPO labels and synonyms come from the snapshot of hp.obo if it is current, so that autocompletion is
+ * available early. The snapshot does not contain the ontology itself: hp.obo is still parsed at every launch in
+ * the {@link Stage#HPO_ONTOLOGY} stage, because the hierarchy and the onset, frequency and modifier lists are
+ * derived from it.
+ * @author Peter Robinson
+ */
+public class StartupPipeline {
+    private static final Logger logger = LogManager.getLogger();
+
+    /** The stages of the pipeline in the order in which they are usually completed. */
+    public enum Stage {
+        MEDGEN("MedGen disease names"),
+        HPO_LABELS("HPO labels and synonyms"),
+        HPO_ONTOLOGY("HPO ontology"),
+        HPO_HIERARCHY("HPO hierarchy index"),
+        HPO_SUBONTOLOGIES("Modifier, onset, frequency and inheritance terms");
+
+        private final String name;
+
+        Stage(String n) { this.name = n; }
+
+        @Override
+        public String toString() { return this.name; }
+    }
+
+    private final ReadOnlyStringWrapper status = new ReadOnlyStringWrapper(this, "status", "");
+
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(this, "progress", 0.0);
+    /** Time in milliseconds that each completed stage took (only accessed on the JavaFX application thread). */
+    private final Map<Stage, Long> timings = new EnumMap<>(Stage.class);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "phenotefx-startup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Consumer<MedGenParser> onMedGenReady = medgen -> {};
+    private Consumer<HPOParser> onHpoLabelsReady = parser -> {};
+    private Consumer<HpoOntology> onOntologyReady = ontology -> {};
+    private Consumer<HpoAncestorIndex> onAncestorIndexReady = index -> {};
+    private Consumer<SubOntologyIndex> onSubOntologiesReady = subOntologies -> {};
+    private BiConsumer<Stage, Throwable> onFailed = (stage, throwable) -> {};
+
+    public void setOnMedGenReady(Consumer<MedGenParser> c) { this.onMedGenReady = c; }
+
+    public void setOnHpoLabelsReady(Consumer<HPOParser> c) { this.onHpoLabelsReady = c; }
+
+    public void setOnOntologyReady(Consumer<HpoOntology> c) { this.onOntologyReady = c; }
+
+    public void setOnAncestorIndexReady(Consumer<HpoAncestorIndex> c) { this.onAncestorIndexReady = c; }
+
+    public void setOnSubOntologiesReady(Consumer<SubOntologyIndex> c) { this.onSubOntologiesReady = c; }
+
+    public void setOnFailed(BiConsumer<Stage, Throwable> c) { this.onFailed = c; }
+
+    /** @return a summary of the stages that are completed (with timing), or are still running. */
+    public ReadOnlyStringProperty statusProperty() { return status.getReadOnlyProperty(); }
+
+    /** @return the fraction of the stages that are completed. */
+    public ReadOnlyDoubleProperty progressProperty() { return progress.getReadOnlyProperty(); }
+
+    /** Start loading MedGen and the HPO at the same time. Returns immediately. */
+    public void start() {
+        status.set("Loading " + Arrays.stream(Stage.values()).map(Stage::toString).collect(Collectors.joining(", ")) + "...");
+        Task<Void> medgenTask = new Task<Void>() {
+            @Override
+            protected Void call() {
+                long start = System.currentTimeMillis();
+                MedGenParser medGenParser = new MedGenParser();
+                medGenParser.getSuggestionIndex(); // build the autocompletion index off the FX thread
+                stageCompleted(Stage.MEDGEN, start, () -> onMedGenReady.accept(medGenParser));
+                return null;
+            }
+        };
+        Task<Void> hpoTask = new Task<Void>() {
+            @Override
+            protected Void call() throws PhenoteFxException {
+                long start = System.currentTimeMillis();
+                HPOParser parser = new HPOParser();
+                // build the autocompletion indexes off the FX thread
+                parser.getSuggestionIndex();
+                parser.getFuzzyIndex();
+                stageCompleted(Stage.HPO_LABELS, start, () -> onHpoLabelsReady.accept(parser));
+                start = System.currentTimeMillis();
+                HpoOntology ontology = parser.getHpoOntology();
+                if (ontology == null) {
+                    throw new PhenoteFxException("Could not parse the HPO ontology (see log for details)");
+                }
+                stageCompleted(Stage.HPO_ONTOLOGY, start, () -> onOntologyReady.accept(ontology));
+                start = System.currentTimeMillis();
+                HpoAncestorIndex ancestorIndex = HpoAncestorIndex.build(ontology);
+                stageCompleted(Stage.HPO_HIERARCHY, start, () -> onAncestorIndexReady.accept(ancestorIndex));
+                start = System.currentTimeMillis();
+                SubOntologyIndex subOntologies = SubOntologyIndex.build(ontology, ancestorIndex);
+                stageCompleted(Stage.HPO_SUBONTOLOGIES, start, () -> onSubOntologiesReady.accept(subOntologies));
+                return null;
+            }
+        };
+        medgenTask.setOnFailed(e -> stageFailed(Stage.MEDGEN, medgenTask.getException()));
+        hpoTask.setOnFailed(e -> stageFailed(nextHpoStage(), hpoTask.getException()));
+        executor.submit(medgenTask);
+        executor.submit(hpoTask);
+        executor.shutdown();
+    }
+
+    /** Record the timing of a stage and hand its result to the GUI. Called from the worker threads. */
+    private void stageCompleted(Stage stage, long start, Runnable callback) {
+        long elapsed = System.currentTimeMillis() - start;
+        logger.trace(String.format("Startup stage \"%s\" completed in %d ms", stage, elapsed));
+        Platform.runLater(() -> {
+            timings.put(stage, elapsed);
+            updateStatus();
+            callback.run();
+        });
+    }
+
+    private void stageFailed(Stage stage, Throwable t) {
+        logger.error(String.format("Startup stage \"%s\" failed: %s", stage, t));
+        status.set(String.format("Could not load %s: %s", stage, t.getMessage()));
+        onFailed.accept(stage, t);
+    }
+
+    /** @return the first HPO stage that has not been completed (this is the one that failed). */
+    private Stage nextHpoStage() {
+        for (Stage stage : Stage.values()) {
+            if (stage != Stage.MEDGEN && !timings.containsKey(stage)) {
+                return stage;
+            }
+        }
+        return Stage.HPO_SUBONTOLOGIES;
+    }
+
+    private void updateStatus() {
+        progress.set((double) timings.size() / Stage.values().length);
+        List<String> done = new ArrayList<>();
+        List<String> pending = new ArrayList<>();
+        for (Stage stage : Stage.values()) {
+            if (timings.containsKey(stage)) {
+                done.add(String.format("%s (%.1f s)", stage, timings.get(stage) / 1000.0));
+            } else {
+                pending.add(stage.toString());
+            }
+        }
+        String s = "Loaded " + String.join(", ", done);
+        if (!pending.isEmpty()) {
+            s += ". Loading " + String.join(", ", pending) + "...";
+        }
+        status.set(s);
+    }
+}
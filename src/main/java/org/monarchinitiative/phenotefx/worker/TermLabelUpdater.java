@@ -20,7 +20,9 @@ package org.monarchinitiative.phenotefx.worker;
  * #L%
  */
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.collections.ObservableList;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -29,96 +31,110 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
-import org.monarchinitiative.phenol.ontology.data.TermId;
-import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
-import org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry;
+import org.monarchinitiative.phenotefx.smallfile.SmallFileLabelUpdater;
 import org.monarchinitiative.phenotefx.smallfile.V2SmallFileIngestor;
 
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
-import static org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry.getHeaderV2;
-
 /**
  * If we update a term's label, its id stays the same. The label in the annotation file will no longer be up to date
  * This function checks whether the term labels of the annotated terms are up to date. It proceeds to update the
- * labels and to output a summary so the user of Phenote can visually check that no nonsense has taken place.
+ * labels (with {@link SmallFileLabelUpdater}) and to output a summary so the user of Phenote can visually check that
+ * no nonsense has taken place.
+ * <p>
+ * This is a {@link Task}: the small files are parsed, checked and written on a pool of worker threads, with one
+ * progress step per small file. If the task is cancelled, the files that have not been processed yet are left
+ * untouched. Only the final summary is shown on the JavaFX application thread. Note that a cancelled task is
+ * reported as cancelled (and its onCancelled handler is called) as soon as {@link #cancel()} is called, while
+ * the files that were already checked are still being written; the summary of a cancelled update is therefore
+ * shown by the task itself once they have been written.
  * @author Peter Robinon
  */
-public class TermLabelUpdater {
+public class TermLabelUpdater extends Task<SmallFileLabelUpdater> {
     private final String smallFilePath;
     private final HpoOntology ontology;
-    private final List<V2SmallFile> smallFiles;
-
-    private List<String> messages = new ArrayList<>();
+    /** Number of threads with which the small files are processed. */
+    private final int nThreads;
+    /** Small files that could not be read or checked (set once all files have been processed). */
+    private volatile Map<String, String> fileErrors = Collections.emptyMap();
 
     public TermLabelUpdater(String smallFilePath, HpoOntology ontology) {
+        this(smallFilePath, ontology, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TermLabelUpdater(String smallFilePath, HpoOntology ontology, int nThreads) {
             this.ontology=ontology;
             this.smallFilePath=smallFilePath;
-            V2SmallFileIngestor ingestor = new V2SmallFileIngestor(smallFilePath,ontology);
-            this.smallFiles = ingestor.getV2SmallFileEntries();
+            this.nThreads=nThreads;
     }
 
 
-    public void replaceOutOfDateLabels() {
-        javafx.application.Platform.runLater(() -> {
-            Set<String> updatedDiseases=new HashSet<>();
-        for (V2SmallFile v2 : smallFiles) {
-            boolean changed=false;
-            List<V2SmallFileEntry> entrylist =new ArrayList<>(v2.getOriginalEntryList());
-            for (int i=0;i< entrylist.size();i++) {
-                V2SmallFileEntry entry =entrylist.get(i);
-                TermId tid = entry.getPhenotypeId();
-                String label = entry.getPhenotypeName();
-                TermId primaryId = ontology.getPrimaryTermId(tid);
-                if (!tid.equals(primaryId)) {
-                    updatedDiseases.add(v2.getBasename());
-                    String msg = String.format("Replacing outdated TermId [%s] with correct primary id [%s]",tid.getIdWithPrefix(),primaryId.getIdWithPrefix() );
-                    messages.add(msg);
-                    V2SmallFileEntry replacement = entry.withUpdatedPrimaryId(primaryId);
-                    entrylist.set(i, replacement);
-                    changed=true;
-                }
-                String currentLabel = ontology.getTermMap().get(primaryId).getName();
-                if (! label.equals(currentLabel)) {
-                    updatedDiseases.add(v2.getBasename());
-                    String msg = String.format("Replacing outdated label [%s] with current label [%s]",label,currentLabel );
-                    messages.add(msg);
-                    V2SmallFileEntry replacement = entry.withUpdatedLabel(currentLabel);
-                    entrylist.set(i, replacement);
-                    changed=true;
-                }
-            }
-            if (changed) {
-                writeUpdatedSmallFile(v2.getBasename(),entrylist);
+    @Override
+    protected SmallFileLabelUpdater call() {
+        updateMessage("Reading small files...");
+        SmallFileLabelUpdater updater = new SmallFileLabelUpdater(smallFilePath, ontology, true);
+        V2SmallFileIngestor ingestor = V2SmallFileIngestor.streaming(smallFilePath, ontology);
+        final int total = ingestor.getNumberOfSmallFiles();
+        AtomicInteger done = new AtomicInteger();
+        // cancel() interrupts this thread, which stops forEach from starting any further small files. forEach
+        // returns only once all workers have finished, so no file is staged after the commit below. Exceptions
+        // thrown while checking a file are recorded in the file errors of the ingestor.
+        ingestor.forEach(nThreads, v2 -> {
+            if (isCancelled()) {
+                return;
             }
+            updater.updateSmallFile(v2);
+            int n = done.incrementAndGet();
+            updateProgress(n, total);
+            updateMessage(String.format("Checked %d of %d small files", n, total));
+        });
+        fileErrors = ingestor.getFileErrors();
+        // also when cancelled: the files that were checked so far are replaced
+        updater.commitWrites();
+        updateProgress(total, total);
+        if (isCancelled()) {
+            Platform.runLater(() -> showList(updater, fileErrors,
+                    "Label update was cancelled; small files that were already checked have been updated"));
         }
-            showList(messages,updatedDiseases);
-        }); // end of run-later ToDo--wrap this in a Task!
+        return updater;
+    }
+
+    @Override
+    protected void succeeded() {
+        showList(getValue(), fileErrors, null);
     }
 
 
 
-    private void showList(List<String> messages, Set<String> diseases) {
+    /**
+     * @param fileErrors small files that could not be read or checked (key: path, value: reason)
+     * @param note line shown above the summary (may be null).
+     */
+    private void showList(SmallFileLabelUpdater updater, Map<String, String> fileErrors, String note) {
+        Set<String> diseases = updater.getUpdatedDiseases();
         String diseasestring=String.format("Updates performed on %d disease files",diseases.size());
         String diseaselist = diseases.stream().collect(Collectors.joining(", "));
-        Map<String, Long> counted = messages.stream()
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
         List<String> uniqued=new ArrayList<>();
-        for (Map.Entry<String,Long> entry: counted.entrySet()) {
+        for (Map.Entry<String,Long> entry: updater.getMessageCounts().entrySet()) {
             String s = String.format("n=%d: %s",entry.getValue(),entry.getKey());
             uniqued.add(s);
         }
+        for (Map.Entry<String,String> entry: fileErrors.entrySet()) {
+            uniqued.add(String.format("Could not check %s: %s",entry.getKey(),entry.getValue()));
+        }
+        for (Map.Entry<String,String> entry: updater.getWriteErrors().entrySet()) {
+            uniqued.add(String.format("Could not write %s: %s",entry.getKey(),entry.getValue()));
+        }
 
 
 
         final ObservableList<String> data =   FXCollections.observableArrayList();
+        if (note != null) {
+            data.add(note);
+        }
         data.add(diseasestring);
         data.add(diseaselist);
         data.addAll(uniqued);
@@ -138,30 +154,4 @@ public class TermLabelUpdater {
         stage.show();
     }
 
-
-
-
-
-    private void writeUpdatedSmallFile(String v2basename,List<V2SmallFileEntry> updatedEntries) {
-        String path = String.format("%s%s%s",this.smallFilePath, File.separator,v2basename );
-        File f = new File(path);
-        if (! f.exists()) {
-            System.err.println(String.format("Could not find file %s",f.getAbsolutePath()));
-            return;
-        }
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(f));
-            String header = getHeaderV2();
-            writer.write(header + "\n");
-            for (V2SmallFileEntry entry : updatedEntries) {
-                String row = entry.getRow();
-                writer.write(row + "\n");
-            }
-            writer.close();
-
-        } catch (IOException e){
-            e.printStackTrace();
-        }
-    }
-
 }
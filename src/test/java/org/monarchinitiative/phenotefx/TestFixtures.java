@@ -0,0 +1,88 @@
+package org.monarchinitiative.phenotefx;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.monarchinitiative.phenol.base.PhenolException;
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenol.io.obo.hpo.HpOboParser;
+import org.monarchinitiative.phenotefx.index.HpoAncestorIndex;
+import org.monarchinitiative.phenotefx.index.SubOntologyIndex;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * Test data that is shared by several test classes: the excerpt of the HPO in hp-small.obo (Seizure, Microcephaly,
+ * Intellectual disability and the onset, frequency, modifier and inheritance subontologies), the indexes built
+ * from it, and rows of the annotation table. The ontology and the indexes are built at the first request and then
+ * reused by all tests, which must not modify them.
+ * @author Peter Robinson
+ */
+public final class TestFixtures {
+
+    private static HpoOntology ontology;
+
+    private static HpoAncestorIndex ancestorIndex;
+
+    private static SubOntologyIndex subOntologyIndex;
+
+    private TestFixtures() {
+    }
+
+    /** @return the ontology of the test resource hp-small.obo */
+    public static synchronized HpoOntology hpoSmall() {
+        if (ontology == null) {
+            File obo = new File(TestFixtures.class.getResource("/hp-small.obo").getFile());
+            try {
+                ontology = new HpOboParser(obo).parse();
+            } catch (PhenolException | FileNotFoundException e) {
+                throw new IllegalStateException("Could not parse " + obo, e);
+            }
+        }
+        return ontology;
+    }
+
+    /** @return the {@link HpoAncestorIndex} of hp-small.obo */
+    public static synchronized HpoAncestorIndex ancestorIndex() {
+        if (ancestorIndex == null) {
+            ancestorIndex = HpoAncestorIndex.build(hpoSmall());
+        }
+        return ancestorIndex;
+    }
+
+    /** @return the {@link SubOntologyIndex} of hp-small.obo */
+    public static synchronized SubOntologyIndex subOntologyIndex() {
+        if (subOntologyIndex == null) {
+            subOntologyIndex = SubOntologyIndex.build(hpoSmall(), ancestorIndex());
+        }
+        return subOntologyIndex;
+    }
+
+    /** @return a row of the disease OMIM:123456 with the phenotype, and all other fields empty */
+    public static PhenoRow row(String phenotypeId, String phenotypeName) {
+        PhenoRow row = new PhenoRow();
+        row.setDiseaseID("OMIM:123456");
+        row.setPhenotypeID(phenotypeId);
+        row.setPhenotypeName(phenotypeName);
+        return row;
+    }
+}
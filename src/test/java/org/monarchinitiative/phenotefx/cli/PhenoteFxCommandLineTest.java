@@ -0,0 +1,159 @@
+package org.monarchinitiative.phenotefx.cli;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.phenotefx.io.SmallfileParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the validate command on a directory with one small file and checks the exit code and the JSON report that
+ * is written to standard output. The logging is configured as by {@link org.monarchinitiative.phenotefx.PhenoteFxLauncher},
+ * so the error that is logged for a malformed small file must show up on standard error.
+ */
+public class PhenoteFxCommandLineTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String userHome;
+    private File hpo;
+    private File smallFileDir;
+    /** What the last command wrote to standard output and standard error. */
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+    @BeforeClass
+    public static void configureLogging() {
+        PhenoteFxCommandLine.configureLogging();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        // keep the PhenoteFX directory of the user (index, snapshots) out of the test
+        userHome = System.getProperty("user.home");
+        System.setProperty("user.home", folder.newFolder("home").getAbsolutePath());
+        hpo = new File(folder.getRoot(), "hp.obo");
+        Files.copy(getClass().getResourceAsStream("/hp-small.obo"), hpo.toPath());
+        smallFileDir = folder.newFolder("annotated");
+        Files.write(new File(smallFileDir, "omit-list.txt").toPath(), new byte[0]);
+    }
+
+    @After
+    public void restoreUserHome() {
+        System.setProperty("user.home", userHome);
+    }
+
+    private int run(String... args) {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        System.setOut(new PrintStream(stdout, true));
+        System.setErr(new PrintStream(stderr, true));
+        try {
+            return PhenoteFxCommandLine.run(args);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+
+    /** @return standard output of the last run, which must consist of one JSON object. */
+    private JsonNode report() throws IOException {
+        return new ObjectMapper().readerFor(JsonNode.class)
+                .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+                .readValue(stdout.toByteArray());
+    }
+
+    private void writeSmallFile(String... lines) throws IOException {
+        StringBuilder sb = new StringBuilder(SmallfileParser.getStandardHeaderLine()).append('\n');
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        Files.write(new File(smallFileDir, "OMIM-123456.tab").toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String line(String... fields) {
+        return String.join("\t", Arrays.asList(fields));
+    }
+
+    @Test
+    public void testUnknownCommand() {
+        assertEquals(PhenoteFxCommandLine.EXIT_USAGE, run());
+        assertEquals(PhenoteFxCommandLine.EXIT_USAGE, run("check", "--dir", smallFileDir.getPath()));
+        assertEquals(0, stdout.size());
+        assertTrue(stderr.toString().contains("Usage:"));
+    }
+
+    @Test
+    public void testBadOptions() {
+        String dir = smallFileDir.getPath();
+        assertEquals(PhenoteFxCommandLine.EXIT_USAGE, run("validate", "--hpo", hpo.getPath()));
+        assertEquals(PhenoteFxCommandLine.EXIT_USAGE, run("validate", "--dir", dir, "--hpo", hpo.getPath(), "--threads", "0"));
+        assertEquals(PhenoteFxCommandLine.EXIT_USAGE, run("validate", "--dir", dir, "--hpo", hpo.getPath(), "--threads"));
+        assertEquals(PhenoteFxCommandLine.EXIT_USAGE, run("validate", "--dir", dir, "--hpo", hpo.getPath(), "--verbose"));
+        assertEquals(PhenoteFxCommandLine.EXIT_USAGE, run("validate", "--dir", dir, "--hpo", new File(dir, "hp.obo").getPath()));
+        assertEquals(PhenoteFxCommandLine.EXIT_USAGE, run("search", "--dir", dir, "--hpo", hpo.getPath()));
+        assertEquals(PhenoteFxCommandLine.EXIT_USAGE, run("search", "--dir", dir, "--hpo", hpo.getPath(), "--term", "HP:12"));
+        assertEquals(0, stdout.size());
+        assertTrue(stderr.toString().contains("Malformed HPO id HP:12"));
+    }
+
+    @Test
+    public void testValidSmallFile() throws IOException {
+        writeSmallFile(line("OMIM:123456", "Example syndrome", "HP:0001250", "Seizure", "", "", "", "", "", "", "",
+                "OMIM:123456", "IEA", "HPO:probinson[2018-07-13]"));
+        assertEquals(PhenoteFxCommandLine.EXIT_OK,
+                run("validate", "--dir", smallFileDir.getPath(), "--hpo", hpo.getPath(), "--threads", "2"));
+        JsonNode report = report();
+        assertEquals("validate", report.get("command").asText());
+        assertEquals(1, report.get("smallFiles").asInt());
+        assertEquals(0, report.get("invalidFiles").asInt());
+        assertEquals(PhenoteFxCommandLine.EXIT_OK, report.get("exitCode").asInt());
+    }
+
+    @Test
+    public void testInvalidSmallFile() throws IOException {
+        // the second line lacks the biocuration field
+        writeSmallFile(line("OMIM:123456", "Example syndrome", "HP:0001250", "Seizure", "", "", "", "", "", "", "",
+                "OMIM:123456", "IEA", "HPO:probinson[2018-07-13]"),
+                line("OMIM:123456", "Example syndrome", "HP:0001249", "Intellectual disability", "", "", "", "", "", "", "",
+                        "OMIM:123456", "IEA"));
+        assertEquals(PhenoteFxCommandLine.EXIT_CHECKS_FAILED,
+                run("validate", "--dir", smallFileDir.getPath(), "--hpo", hpo.getPath()));
+        JsonNode report = report();
+        assertEquals(1, report.get("invalidFiles").asInt());
+        assertTrue(report.get("errors").has("OMIM-123456.tab"));
+        assertEquals(PhenoteFxCommandLine.EXIT_CHECKS_FAILED, report.get("exitCode").asInt());
+        assertTrue(stderr.toString().contains("[ERROR] We were expecting 14 fields but got 13"));
+    }
+}
@@ -0,0 +1,187 @@
+package org.monarchinitiative.phenotefx.edit;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+import static org.monarchinitiative.phenotefx.TestFixtures.row;
+
+/**
+ * Tests that the rows of the table can be recovered from the {@link AutosaveJournal}.
+ */
+public class AutosaveJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String SOURCE = "/data/OMIM-123456.tab";
+
+    private ObservableList<PhenoRow> rows;
+
+    private AutosaveJournal journal;
+
+    @Before
+    public void setUp() {
+        rows = FXCollections.observableArrayList(row("HP:0001250", "Seizure"), row("HP:0000252", "Microcephaly"));
+        RowListObserver observer = new RowListObserver(new SimpleObjectProperty<>(rows));
+        journal = new AutosaveJournal(folder.getRoot(), observer);
+        journal.start(SOURCE);
+    }
+
+    private static List<String> lines(List<PhenoRow> rows) {
+        return rows.stream().map(PhenoRow::toString).collect(Collectors.toList());
+    }
+
+    private void edit() {
+        rows.get(0).setFrequency("3/7");
+        rows.add(row("HP:0001263", "Global developmental delay"));
+        rows.remove(1);
+        FXCollections.sort(rows, Comparator.comparing(PhenoRow::getPhenotypeName));
+        rows.forEach(r -> r.setDiseaseName("Some syndrome"));
+    }
+
+    @Test
+    public void testRecoverChanges() {
+        edit();
+        journal.close();
+        List<AutosaveJournal.Recovery> recoverable = AutosaveJournal.findRecoverable(folder.getRoot());
+        assertEquals(1, recoverable.size());
+        assertEquals(SOURCE, recoverable.get(0).getSourcePath());
+        assertEquals(lines(rows), lines(recoverable.get(0).getRows()));
+    }
+
+    @Test
+    public void testNothingToRecoverAfterSave() {
+        edit();
+        journal.markSaved(SOURCE);
+        journal.close();
+        assertTrue(AutosaveJournal.findRecoverable(folder.getRoot()).isEmpty());
+    }
+
+    @Test
+    public void testDiscard() {
+        edit();
+        journal.discard();
+        journal.close();
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testIncompleteLastRecordIsIgnored() throws IOException {
+        rows.get(0).setFrequency("3/7");
+        List<String> expected = lines(rows);
+        rows.get(1).setSex("MALE");
+        journal.close();
+        File file = folder.getRoot().listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        List<AutosaveJournal.Recovery> recoverable = AutosaveJournal.findRecoverable(folder.getRoot());
+        assertEquals(1, recoverable.get(0).getNumberOfChanges());
+        assertEquals(expected, lines(recoverable.get(0).getRows()));
+    }
+
+    /** Start a new session with the rows recovered from the journal. */
+    private void recover() {
+        List<AutosaveJournal.Recovery> recoverable = AutosaveJournal.findRecoverable(folder.getRoot());
+        assertEquals(1, recoverable.size());
+        rows = FXCollections.observableArrayList(recoverable.get(0).getRows());
+        journal = new AutosaveJournal(folder.getRoot(), new RowListObserver(new SimpleObjectProperty<>(rows)));
+        journal.start(recoverable.get(0).getSourcePath(), true);
+    }
+
+    /** The rows recovered after a crash are recovered again after a second crash, even if they were not changed. */
+    @Test
+    public void testRecoverTwice() {
+        edit();
+        List<String> expected = lines(rows);
+        journal.close();
+        recover();
+        assertEquals(expected, lines(rows));
+        journal.close();
+        recover();
+        assertEquals(expected, lines(rows));
+        rows.get(0).setSex("FEMALE");
+        journal.markSaved(SOURCE);
+        journal.close();
+        assertTrue(AutosaveJournal.findRecoverable(folder.getRoot()).isEmpty());
+    }
+
+    /** A record of an unknown type stops the replay like a corrupt record. */
+    @Test
+    public void testUnknownRecordTypeIsIgnored() throws IOException {
+        rows.get(0).setFrequency("3/7");
+        List<String> expected = lines(rows);
+        journal.close();
+        File file = folder.getRoot().listFiles()[0];
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true))) {
+            byte[] payload = {99, 0, 0, 0, 0};
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt((int) crc.getValue());
+        }
+        List<AutosaveJournal.Recovery> recoverable = AutosaveJournal.findRecoverable(folder.getRoot());
+        assertEquals(1, recoverable.get(0).getNumberOfChanges());
+        assertEquals(expected, lines(recoverable.get(0).getRows()));
+    }
+
+    /** The changes before a compaction are recoverable even if no change follows the new snapshot. */
+    @Test
+    public void testRecoverableAfterCompaction() {
+        for (int i = 0; i < 5000; i++) {
+            rows.get(i % 2).setDescription("revision " + i);
+        }
+        journal.close();
+        AutosaveJournal.Recovery recovery = AutosaveJournal.findRecoverable(folder.getRoot()).get(0);
+        assertEquals(0, recovery.getNumberOfChanges());
+        assertEquals(lines(rows), lines(recovery.getRows()));
+    }
+
+    @Test
+    public void testCompaction() {
+        for (int i = 0; i < 12000; i++) {
+            rows.get(i % 2).setDescription("revision " + i);
+        }
+        journal.close();
+        AutosaveJournal.Recovery recovery = AutosaveJournal.findRecoverable(folder.getRoot()).get(0);
+        assertTrue(recovery.getNumberOfChanges() < 5000);
+        assertEquals(lines(rows), lines(recovery.getRows()));
+    }
+}
@@ -0,0 +1,220 @@
+package org.monarchinitiative.phenotefx.edit;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.monarchinitiative.phenotefx.TestFixtures.row;
+
+/**
+ * Tests undo and redo of the {@link EditJournal}.
+ */
+public class EditJournalTest {
+
+    private ObservableList<PhenoRow> rows;
+
+    private EditJournal journal;
+    /** The tasks that the journal runs after the current event (in the application: the next pulse). */
+    private final List<Runnable> endOfEvent = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        rows = FXCollections.observableArrayList(row("HP:0001250", "Seizure"), row("HP:0000252", "Microcephaly"),
+                row("HP:0001263", "Global developmental delay"));
+        journal = new EditJournal(new RowListObserver(new SimpleObjectProperty<>(rows)), endOfEvent::add);
+    }
+
+    /** Simulates the end of the event in which changes were made outside of {@link EditJournal#edit}. */
+    private void endEvent() {
+        endOfEvent.forEach(Runnable::run);
+        endOfEvent.clear();
+    }
+
+    private static List<String> labels(List<PhenoRow> rows) {
+        return rows.stream().map(PhenoRow::getPhenotypeName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testUndoRedoSet() {
+        journal.edit("change of frequency", () -> rows.get(1).setFrequency("3/7"));
+        assertTrue(journal.canUndoProperty().get());
+        assertEquals("change of frequency", journal.undoDescriptionProperty().get());
+        journal.undo();
+        assertEquals("", rows.get(1).getFrequency());
+        assertFalse(journal.canUndoProperty().get());
+        assertTrue(journal.canRedoProperty().get());
+        journal.redo();
+        assertEquals("3/7", rows.get(1).getFrequency());
+    }
+
+    @Test
+    public void testUndoRedoAdd() {
+        PhenoRow added = row("HP:0001249", "Intellectual disability");
+        rows.add(added);
+        endEvent();
+        assertEquals("addition of a row", journal.undoDescriptionProperty().get());
+        journal.undo();
+        assertEquals(Arrays.asList("Seizure", "Microcephaly", "Global developmental delay"), labels(rows));
+        journal.redo();
+        assertSame(added, rows.get(3));
+    }
+
+    @Test
+    public void testUndoRedoRemove() {
+        PhenoRow removed = rows.remove(1);
+        endEvent();
+        assertEquals("deletion of a row", journal.undoDescriptionProperty().get());
+        journal.undo();
+        assertSame(removed, rows.get(1));
+        journal.redo();
+        assertEquals(Arrays.asList("Seizure", "Global developmental delay"), labels(rows));
+    }
+
+    /** An undone update no longer adds a biocuration entry when the row is saved. */
+    @Test
+    public void testUndoRedoNewBiocurationEntry() {
+        PhenoRow row = rows.get(1);
+        row.setBiocuration("HPO:probinson[2017-05-22]");
+        endEvent();
+        String saved = row.toString();
+        assertTrue(journal.edit("update of frequency", () -> {
+            row.setFrequency("3/7");
+            row.setNewBiocurationEntry("HPO:skoehler[2018-07-13]");
+        }));
+        assertTrue(row.toString().endsWith("\tHPO:probinson[2017-05-22];HPO:skoehler[2018-07-13]"));
+        journal.undo();
+        assertNull(row.getNewBiocurationEntry());
+        assertEquals(saved, row.toString());
+        journal.redo();
+        assertEquals("3/7", row.getFrequency());
+        assertEquals("HPO:skoehler[2018-07-13]", row.getNewBiocurationEntry());
+    }
+
+    @Test
+    public void testEditWithoutChangesIsNotRecorded() {
+        journal.edit("change of frequency", () -> rows.get(0).setFrequency("1/7"));
+        assertFalse(journal.edit("change of frequency", () -> rows.get(0).setFrequency("1/7")));
+        journal.undo();
+        assertEquals("", rows.get(0).getFrequency());
+        assertFalse(journal.canUndoProperty().get());
+    }
+
+    /** Changes made during one event are one step; repeated changes of a field keep the first old value. */
+    @Test
+    public void testCoalescedEdits() {
+        rows.get(0).setFrequency("1/7");
+        rows.get(0).setFrequency("2/7");
+        rows.get(0).setFrequency("3/7");
+        rows.remove(2);
+        endEvent();
+        rows.get(1).setOnsetID("HP:0003577");
+        endEvent();
+        journal.undo();
+        assertEquals("", rows.get(1).getOnsetID());
+        assertEquals("3/7", rows.get(0).getFrequency());
+        journal.undo();
+        assertEquals("", rows.get(0).getFrequency());
+        assertEquals(3, rows.size());
+        assertFalse(journal.canUndoProperty().get());
+        journal.redo();
+        assertEquals("3/7", rows.get(0).getFrequency());
+        assertEquals(2, rows.size());
+    }
+
+    /** Nested edits are one step. */
+    @Test
+    public void testNestedEdit() {
+        journal.edit("text-mining merge", () -> {
+            rows.get(0).setFrequency("1/2");
+            journal.edit("inner", () -> rows.add(row("HP:0001249", "Intellectual disability")));
+        });
+        assertEquals("text-mining merge", journal.undoDescriptionProperty().get());
+        journal.undo();
+        assertEquals(3, rows.size());
+        assertEquals("", rows.get(0).getFrequency());
+    }
+
+    /** A sort within an edit is undone and redone in place, i.e., as a permutation rather than a new list. */
+    @Test
+    public void testUndoRedoPermutation() {
+        journal.edit("sort", () -> FXCollections.sort(rows, Comparator.comparing(PhenoRow::getPhenotypeName)));
+        assertEquals(Arrays.asList("Global developmental delay", "Microcephaly", "Seizure"), labels(rows));
+        List<Boolean> permutations = new ArrayList<>();
+        rows.addListener((ListChangeListener<PhenoRow>) c -> {
+            while (c.next()) {
+                permutations.add(c.wasPermutated());
+            }
+        });
+        journal.undo();
+        assertEquals(Arrays.asList("Seizure", "Microcephaly", "Global developmental delay"), labels(rows));
+        journal.redo();
+        assertEquals(Arrays.asList("Global developmental delay", "Microcephaly", "Seizure"), labels(rows));
+        assertEquals(Arrays.asList(true, true), permutations);
+    }
+
+    /** A sort by the table (a click on a column header) is not an edit and keeps the redo stack. */
+    @Test
+    public void testViewSortIsNotRecorded() {
+        journal.edit("change of frequency", () -> rows.get(2).setFrequency("3/7"));
+        journal.undo();
+        FXCollections.sort(rows, Comparator.comparing(PhenoRow::getPhenotypeName));
+        endEvent();
+        assertFalse(journal.canUndoProperty().get());
+        assertTrue(journal.canRedoProperty().get());
+        journal.redo();
+        assertEquals("3/7", rows.get(0).getFrequency());
+    }
+
+    /** Edits recorded before a sort by the table are undone on the same rows. */
+    @Test
+    public void testUndoAfterViewSort() {
+        PhenoRow added = row("HP:0001249", "Intellectual disability");
+        rows.add(added);
+        endEvent();
+        PhenoRow removed = rows.remove(0);
+        endEvent();
+        FXCollections.sort(rows, Comparator.comparing(PhenoRow::getPhenotypeName));
+        assertEquals(Arrays.asList("Global developmental delay", "Intellectual disability", "Microcephaly"),
+                labels(rows));
+        journal.undo();
+        assertSame(removed, rows.get(0));
+        journal.undo();
+        assertFalse(rows.contains(added));
+        assertEquals(Arrays.asList("Seizure", "Global developmental delay", "Microcephaly"), labels(rows));
+        journal.redo();
+        assertTrue(rows.contains(added));
+        journal.redo();
+        assertFalse(rows.contains(removed));
+    }
+}
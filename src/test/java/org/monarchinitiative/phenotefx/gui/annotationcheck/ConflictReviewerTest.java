@@ -0,0 +1,167 @@
+package org.monarchinitiative.phenotefx.gui.annotationcheck;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Applies the decisions about text-mined annotations whose terms are already in the table (Seizure at position 0,
+ * Microcephaly at position 1) with {@link ConflictReviewer#apply(List, ObservableList)}; the review window is
+ * not needed for this.
+ */
+public class ConflictReviewerTest {
+
+    private ObservableList<PhenoRow> rows;
+    /** The number of changes of the list that its listeners received. */
+    private int listChanges;
+
+    private static PhenoRow curated(String id, String label) {
+        PhenoRow row = new PhenoRow();
+        row.setDiseaseID("OMIM:123456");
+        row.setPhenotypeID(id);
+        row.setPhenotypeName(label);
+        row.setFrequency("1/7");
+        row.setPublication("OMIM:123456");
+        row.setEvidence("TAS");
+        row.setBiocuration("HPO:probinson[2017-05-22]");
+        return row;
+    }
+
+    private static PhenoRow textMined(String id, String label) {
+        PhenoRow row = new PhenoRow();
+        row.setDiseaseID("OMIM:123456");
+        row.setPhenotypeID(id);
+        row.setPhenotypeName(label);
+        row.setFrequency("3/7");
+        row.setPublication("PMID:29925877");
+        row.setEvidence("PCS");
+        row.setBiocuration("HPO:skoehler[2018-07-13]");
+        return row;
+    }
+
+    @Before
+    public void setUp() {
+        rows = FXCollections.observableArrayList(curated("HP:0001250", "Seizure"),
+                curated("HP:0000252", "Microcephaly"));
+        listChanges = 0;
+        rows.addListener((ListChangeListener<PhenoRow>) c -> listChanges++);
+    }
+
+    private AnnotationConflict conflict(int position) {
+        PhenoRow old = rows.get(position);
+        return new AnnotationConflict(position, old, textMined(old.getPhenotypeID(), old.getPhenotypeName()));
+    }
+
+    @Test
+    public void testNewAnnotationIsAddedByDefault() {
+        AnnotationConflict conflict = conflict(0);
+        assertEquals(AnnotationConflict.Resolution.ADD_AS_NEW_ROW, conflict.getResolution());
+        assertEquals(1, ConflictReviewer.apply(Arrays.asList(conflict), rows));
+        assertEquals(3, rows.size());
+        assertSame(conflict.getNewRow(), rows.get(2));
+        assertEquals("1/7", rows.get(0).getFrequency());
+    }
+
+    @Test
+    public void testTakeNewKeepsOldBiocuration() {
+        AnnotationConflict conflict = conflict(1);
+        conflict.setResolution(AnnotationConflict.Resolution.TAKE_NEW);
+        assertEquals(1, ConflictReviewer.apply(Arrays.asList(conflict), rows));
+        assertEquals(2, rows.size());
+        PhenoRow taken = rows.get(1);
+        assertEquals("HP:0000252", taken.getPhenotypeID());
+        assertEquals("3/7", taken.getFrequency());
+        assertEquals("PMID:29925877", taken.getPublication());
+        assertEquals("HPO:probinson[2017-05-22]", taken.getBiocuration());
+        // the rows of the conflict are not modified
+        assertEquals("HPO:skoehler[2018-07-13]", conflict.getNewRow().getBiocuration());
+        assertEquals("1/7", conflict.getOldRow().getFrequency());
+    }
+
+    @Test
+    public void testTakeNewAndAssignedBy() {
+        AnnotationConflict conflict = conflict(0);
+        conflict.setResolution(AnnotationConflict.Resolution.TAKE_NEW_AND_ASSIGNED_BY);
+        ConflictReviewer.apply(Arrays.asList(conflict), rows);
+        assertSame(conflict.getNewRow(), rows.get(0));
+    }
+
+    @Test
+    public void testTakeSelectedFields() {
+        AnnotationConflict conflict = conflict(0);
+        conflict.selectField(AnnotationConflict.Field.FREQUENCY, true);
+        conflict.selectField(AnnotationConflict.Field.PUBLICATION, true);
+        assertEquals(AnnotationConflict.Resolution.TAKE_SELECTED_FIELDS, conflict.getResolution());
+        assertEquals(1, ConflictReviewer.apply(Arrays.asList(conflict), rows));
+        PhenoRow merged = rows.get(0);
+        assertEquals("3/7", merged.getFrequency());
+        assertEquals("PMID:29925877", merged.getPublication());
+        assertEquals("TAS", merged.getEvidence());
+        assertEquals("HPO:probinson[2017-05-22]", merged.getBiocuration());
+        assertEquals("1/7", conflict.getOldRow().getFrequency());
+    }
+
+    @Test
+    public void testNoSelectedFieldsKeepsOldRow() {
+        AnnotationConflict conflict = conflict(0);
+        conflict.setResolution(AnnotationConflict.Resolution.TAKE_SELECTED_FIELDS);
+        PhenoRow old = rows.get(0);
+        assertEquals(0, ConflictReviewer.apply(Arrays.asList(conflict), rows));
+        assertSame(old, rows.get(0));
+        assertEquals(0, listChanges);
+    }
+
+    @Test
+    public void testKeepOld() {
+        AnnotationConflict conflict = conflict(1);
+        conflict.setResolution(AnnotationConflict.Resolution.KEEP_OLD);
+        assertEquals(0, ConflictReviewer.apply(Arrays.asList(conflict), rows));
+        assertEquals(2, rows.size());
+        assertEquals(0, listChanges);
+    }
+
+    /** A term that is annotated in two rows is added only once, and all new rows are added with one change. */
+    @Test
+    public void testAddAsNewRowIsDeduplicated() {
+        rows.add(curated("HP:0001250", "Seizure"));
+        listChanges = 0;
+        List<AnnotationConflict> conflicts = new ArrayList<>();
+        conflicts.add(conflict(0));
+        conflicts.add(conflict(1));
+        conflicts.add(conflict(2));
+        assertEquals(2, ConflictReviewer.apply(conflicts, rows));
+        assertEquals(5, rows.size());
+        assertSame(conflicts.get(0).getNewRow(), rows.get(3));
+        assertSame(conflicts.get(1).getNewRow(), rows.get(4));
+        assertEquals(1, listChanges);
+    }
+}
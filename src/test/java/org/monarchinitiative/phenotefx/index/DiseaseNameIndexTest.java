@@ -0,0 +1,81 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the {@link DiseaseNameIndex.Builder} merges names that are added more than once.
+ */
+public class DiseaseNameIndexTest {
+
+    @Test
+    public void testDuplicatesAreMergedAndLastMimNumberWins() {
+        char[] buffer = "xxMARFAN SYNDROMEyy".toCharArray();
+        DiseaseNameIndex index = DiseaseNameIndex.builder()
+                .add("MARFAN SYNDROME", 154700)
+                .add("Marfan syndrome", 154705)
+                .add("ACTIVATED PI3K-DELTA SYNDROME", 615513)
+                .add(buffer, 2, 15, 154701)
+                .add("ACTIVATED PI3K-DELTA SYNDROME", 613962)
+                .build();
+        assertEquals(3, index.size());
+        assertEquals(154701, index.getMimNumber("MARFAN SYNDROME"));
+        assertEquals(154705, index.getMimNumber("Marfan syndrome"));
+        assertEquals("613962", index.getMimId("ACTIVATED PI3K-DELTA SYNDROME"));
+        assertEquals(-1, index.getMimNumber("MARFAN"));
+    }
+
+    @Test
+    public void testManyNames() {
+        DiseaseNameIndex.Builder builder = DiseaseNameIndex.builder();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 5000; i++) {
+                builder.add("DISEASE " + i, 100000 * round + i);
+            }
+        }
+        DiseaseNameIndex index = builder.build();
+        assertEquals(5000, index.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(100000 + i, index.getMimNumber("DISEASE " + i));
+        }
+        String[] names = index.names().toArray(new String[0]);
+        String[] sorted = names.clone();
+        Arrays.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+        assertArrayEquals(sorted, names);
+    }
+
+    @Test
+    public void testPrefixRange() {
+        DiseaseNameIndex index = DiseaseNameIndex.builder()
+                .add("MARFAN SYNDROME", 154700)
+                .add("MARFAN LIPODYSTROPHY SYNDROME", 616914)
+                .add("NOONAN SYNDROME 1", 163950)
+                .build();
+        int[] range = index.prefixRange("marfan");
+        assertEquals(2, range[1] - range[0]);
+        assertEquals("MARFAN LIPODYSTROPHY SYNDROME", index.getName(range[0]));
+    }
+}
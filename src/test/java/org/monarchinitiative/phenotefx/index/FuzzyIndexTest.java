@@ -0,0 +1,119 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the typo-tolerant lookup of the {@link FuzzyIndex}.
+ */
+public class FuzzyIndexTest {
+
+    private FuzzyIndex index;
+
+    @Before
+    public void setUp() {
+        Set<String> labels = new HashSet<>(Arrays.asList("Seizure", "Seizures", "Hypotonia", "Microcephaly",
+                "Global developmental delay"));
+        List<String> suggestions = new ArrayList<>(labels);
+        suggestions.add("Seizura");
+        suggestions.add("Decreased muscle tone");
+        index = FuzzyIndex.create(suggestions, labels);
+    }
+
+    private static List<String> result(FuzzyIndex index, int[] ids, int n) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            result.add(index.get(ids[i]));
+        }
+        return result;
+    }
+
+    private List<String> closest(String text) {
+        int[] ids = new int[10];
+        return result(index, ids, index.closest(text, 10, ids));
+    }
+
+    private List<String> suggest(String text) {
+        int[] ids = new int[10];
+        return result(index, ids, index.suggest(text, 10, ids));
+    }
+
+    @Test
+    public void testOneEdit() {
+        assertEquals(Collections.singletonList("Hypotonia"), closest("Hypotnia"));
+        assertEquals(Collections.singletonList("Hypotonia"), closest("Hypottonia"));
+        assertEquals(Collections.singletonList("Microcephaly"), closest("macrocephaly"));
+    }
+
+    @Test
+    public void testTwoEditsForLongerTexts() {
+        // a transposition counts as two edits
+        assertEquals("Seizure", closest("Seizrue").get(0));
+        assertEquals(Collections.singletonList("Global developmental delay"), closest("Global develpomental delay"));
+    }
+
+    @Test
+    public void testRankedByDistanceThenLabelsBeforeSynonyms() {
+        assertEquals(Arrays.asList("Seizure", "Seizura", "Seizures"), closest("Seizurx"));
+        // one insertion for Seizure and Seizura, two for Seizures
+        assertEquals(Arrays.asList("Seizure", "Seizura", "Seizures"), closest("Seizur"));
+    }
+
+    @Test
+    public void testPrefixOfPartiallyTypedText() {
+        assertEquals(Collections.singletonList("Hypotonia"), suggest("Hypotn"));
+        assertEquals(Collections.singletonList("Global developmental delay"), suggest("Glbal devel"));
+        // the whole text must be close for closest(), so a prefix is not enough
+        assertTrue(closest("Glbal devel").isEmpty());
+    }
+
+    @Test
+    public void testShortTextsAreNotSearched() {
+        assertTrue(suggest("Hyp").isEmpty());
+        assertTrue(closest("Se").isEmpty());
+        assertTrue(closest("").isEmpty());
+        assertTrue(closest(null).isEmpty());
+    }
+
+    @Test
+    public void testNoMatchBeyondMaximumDistance() {
+        assertTrue(closest("Hypertelorism").isEmpty());
+        assertTrue(closest("Muscle weakness").isEmpty());
+    }
+
+    @Test
+    public void testNumberOfResultsIsBounded() {
+        int[] ids = new int[1];
+        assertEquals(1, index.closest("Seizurx", 1, ids));
+        assertEquals("Seizure", index.get(ids[0]));
+    }
+}
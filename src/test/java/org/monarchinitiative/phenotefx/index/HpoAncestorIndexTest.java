@@ -0,0 +1,113 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.TestFixtures;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the dense numbering of the current terms by the {@link HpoAncestorIndex}, and the ancestors and
+ * descendants that it stores for each term.
+ */
+public class HpoAncestorIndexTest {
+
+    private static HpoAncestorIndex index;
+
+    private static final TermId ALL = TermId.constructWithPrefix("HP:0000001");
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.constructWithPrefix("HP:0000118");
+    private static final TermId NERVOUS_SYSTEM = TermId.constructWithPrefix("HP:0000707");
+    private static final TermId SEIZURE = TermId.constructWithPrefix("HP:0001250");
+    private static final TermId GTCS = TermId.constructWithPrefix("HP:0002069");
+    private static final TermId INTELLECTUAL_DISABILITY = TermId.constructWithPrefix("HP:0001249");
+
+    @BeforeClass
+    public static void setUp() {
+        index = TestFixtures.ancestorIndex();
+    }
+
+    private static Set<TermId> termIds(int[] indices) {
+        return Arrays.stream(indices).mapToObj(index::getTermId).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testCurrentTermsOnly() {
+        assertEquals(34, index.size());
+        assertEquals(-1, index.indexOf(TermId.constructWithPrefix("HP:0000008"))); // obsolete
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(i, index.indexOf(index.getTermId(i)));
+        }
+    }
+
+    @Test
+    public void testAncestors() {
+        Set<TermId> expected = new HashSet<>(Arrays.asList(SEIZURE, NERVOUS_SYSTEM, PHENOTYPIC_ABNORMALITY, ALL));
+        assertEquals(expected, termIds(index.getAncestors(index.indexOf(GTCS))));
+        assertEquals(0, index.getAncestors(index.indexOf(ALL)).length);
+    }
+
+    @Test
+    public void testDescendants() {
+        Set<TermId> expected = new HashSet<>(Arrays.asList(SEIZURE, GTCS, INTELLECTUAL_DISABILITY));
+        assertEquals(expected, termIds(index.getDescendants(index.indexOf(NERVOUS_SYSTEM))));
+        assertEquals(0, index.getDescendants(index.indexOf(GTCS)).length);
+        assertEquals(index.size() - 1, index.getDescendants(index.indexOf(ALL)).length);
+    }
+
+    /** The ancestor and descendant lists are sorted and are the inverse of each other. */
+    @Test
+    public void testDescendantsAreInverseOfAncestors() {
+        for (int i = 0; i < index.size(); i++) {
+            int[] ancestors = index.getAncestors(i);
+            int[] sorted = ancestors.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(sorted, ancestors);
+            for (int a : ancestors) {
+                assertTrue(Arrays.binarySearch(index.getDescendants(a), i) >= 0);
+            }
+            for (int d : index.getDescendants(i)) {
+                assertTrue(Arrays.binarySearch(index.getAncestors(d), i) >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testCurrentId() {
+        assertEquals(SEIZURE, index.getCurrentId(SEIZURE));
+        assertEquals(SEIZURE, index.getCurrentId(TermId.constructWithPrefix("HP:0001255"))); // alt_id
+        assertNull(index.getCurrentId(TermId.constructWithPrefix("HP:9999999")));
+    }
+
+    @Test
+    public void testSubhierarchy() {
+        BitSet onset = index.getSubhierarchy(TermId.constructWithPrefix("HP:0003674"));
+        assertEquals(14, onset.cardinality()); // Onset and 13 descendants
+        assertTrue(onset.get(index.indexOf(TermId.constructWithPrefix("HP:0003577"))));
+        assertFalse(onset.get(index.indexOf(SEIZURE)));
+        assertTrue(index.getSubhierarchy(TermId.constructWithPrefix("HP:9999999")).isEmpty());
+    }
+}
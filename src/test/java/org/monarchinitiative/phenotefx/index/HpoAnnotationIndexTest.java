@@ -0,0 +1,122 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.TestFixtures;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFile;
+import org.monarchinitiative.phenotefx.smallfile.V2SmallFileEntry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Builds an {@link HpoAnnotationIndex} from four small files (one of them empty, one with an unknown term and one
+ * with an alternate id) and queries the diseases that are annotated to a term or to one of its descendants.
+ */
+public class HpoAnnotationIndexTest {
+
+    private static final TermId NERVOUS_SYSTEM = TermId.constructWithPrefix("HP:0000707");
+    private static final TermId SEIZURE = TermId.constructWithPrefix("HP:0001250");
+    private static final TermId GTCS = TermId.constructWithPrefix("HP:0002069");
+    private static final TermId MICROCEPHALY = TermId.constructWithPrefix("HP:0000252");
+
+    private static HpoAnnotationIndex index;
+
+    private static V2SmallFileEntry entry(String diseaseId, String termId, String negation) {
+        return new V2SmallFileEntry.Builder(diseaseId, "SYNDROME " + diseaseId, TermId.constructWithPrefix(termId),
+                "label", "TAS", diseaseId, "HPO:probinson[2018-06-15]")
+                .negation(negation)
+                .build();
+    }
+
+    @BeforeClass
+    public static void setUp() {
+        // not sorted by basename, as when the small files are parsed by several threads
+        List<V2SmallFile> smallFiles = Arrays.asList(
+                new V2SmallFile("OMIM-300000.tab", Arrays.asList(
+                        entry("OMIM:300000", "HP:0000252", ""),
+                        entry("OMIM:300000", "HP:0001250", "NOT"))),
+                new V2SmallFile("OMIM-100000.tab", Arrays.asList(
+                        entry("OMIM:100000", "HP:0000252", ""),
+                        entry("OMIM:100000", "HP:0002069", ""),
+                        entry("OMIM:100000", "HP:9999999", ""))),
+                new V2SmallFile("OMIM-200000.tab", Arrays.asList(
+                        entry("OMIM:200000", "HP:0001255", ""))), // alternate id of Seizure
+                new V2SmallFile("OMIM-400000.tab", Arrays.asList()));
+        index = HpoAnnotationIndex.build(smallFiles, TestFixtures.ancestorIndex());
+    }
+
+    private static List<String> rows(List<HpoAnnotationIndex.Match> matches) {
+        return matches.stream()
+                .map(m -> String.format("%s:%d:%s%s", m.getBasename(), m.getRow(), m.getTermId().getIdWithPrefix(),
+                        m.isNegated() ? ":NOT" : ""))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testCounts() {
+        assertEquals(4, index.getNumberOfSmallFiles());
+        assertEquals(6, index.getNumberOfAnnotations());
+        assertEquals(1, index.getNumberOfUnindexedAnnotations()); // HP:9999999
+    }
+
+    @Test
+    public void testSearchTerm() {
+        assertEquals(Arrays.asList("OMIM-100000.tab:0:HP:0000252", "OMIM-300000.tab:0:HP:0000252"),
+                rows(index.search(MICROCEPHALY, false, false)));
+        HpoAnnotationIndex.Match match = index.search(MICROCEPHALY, false, false).get(0);
+        assertEquals("OMIM:100000", match.getDiseaseId());
+        assertEquals("SYNDROME OMIM:100000", match.getDiseaseName());
+    }
+
+    /** The alternate id in the small file is indexed (and reported) under the current id. */
+    @Test
+    public void testAlternateId() {
+        assertEquals(Arrays.asList("OMIM-200000.tab:0:HP:0001250"), rows(index.search(SEIZURE, false, false)));
+        assertEquals(rows(index.search(SEIZURE, false, false)),
+                rows(index.search(TermId.constructWithPrefix("HP:0001255"), false, false)));
+    }
+
+    @Test
+    public void testSearchWithDescendants() {
+        assertEquals(Arrays.asList("OMIM-100000.tab:1:HP:0002069", "OMIM-200000.tab:0:HP:0001250"),
+                rows(index.search(NERVOUS_SYSTEM, true, false)));
+        assertTrue(index.search(NERVOUS_SYSTEM, false, false).isEmpty());
+        assertEquals(Arrays.asList("OMIM-100000.tab:1:HP:0002069"), rows(index.search(GTCS, true, false)));
+    }
+
+    @Test
+    public void testNegated() {
+        assertEquals(Arrays.asList("OMIM-100000.tab:1:HP:0002069", "OMIM-200000.tab:0:HP:0001250",
+                "OMIM-300000.tab:1:HP:0001250:NOT"), rows(index.search(NERVOUS_SYSTEM, true, true)));
+    }
+
+    @Test
+    public void testUnknownTerm() {
+        assertTrue(index.search(TermId.constructWithPrefix("HP:9999999"), true, true).isEmpty());
+    }
+}
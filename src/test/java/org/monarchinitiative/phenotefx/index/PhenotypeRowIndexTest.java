@@ -0,0 +1,143 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.monarchinitiative.phenotefx.edit.RowListObserver;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changes the rows of a table (as the annotation table does) and checks that the positions that the
+ * {@link PhenotypeRowIndex} reports are those of the rows after each change, whether the index was updated in
+ * place or rebuilt.
+ */
+public class PhenotypeRowIndexTest {
+    private static final String SEIZURE = "HP:0001250";
+    private static final String MICROCEPHALY = "HP:0000252";
+    private static final String INTELLECTUAL_DISABILITY = "HP:0001249";
+
+    private SimpleObjectProperty<ObservableList<PhenoRow>> items;
+
+    private PhenotypeRowIndex index;
+
+    private static PhenoRow annotation(String phenotypeId) {
+        PhenoRow row = new PhenoRow();
+        row.setDiseaseID("OMIM:123456");
+        row.setPhenotypeID(phenotypeId);
+        return row;
+    }
+
+    @Before
+    public void setUp() {
+        items = new SimpleObjectProperty<>(FXCollections.observableArrayList(annotation(SEIZURE),
+                annotation(MICROCEPHALY), annotation(SEIZURE)));
+        index = new PhenotypeRowIndex(new RowListObserver(items));
+    }
+
+    private ObservableList<PhenoRow> rows() {
+        return items.get();
+    }
+
+    @Test
+    public void testInitialPositions() {
+        assertEquals(Arrays.asList(0, 2), index.getPositions(SEIZURE));
+        assertEquals(Collections.singletonList(1), index.getPositions(MICROCEPHALY));
+        assertFalse(index.contains(INTELLECTUAL_DISABILITY));
+    }
+
+    @Test
+    public void testSet() {
+        index.getPositions(SEIZURE);
+        rows().set(0, annotation(INTELLECTUAL_DISABILITY));
+        assertEquals(Collections.singletonList(2), index.getPositions(SEIZURE));
+        assertEquals(Collections.singletonList(0), index.getPositions(INTELLECTUAL_DISABILITY));
+        rows().set(1, annotation(SEIZURE));
+        assertEquals(Arrays.asList(1, 2), index.getPositions(SEIZURE));
+        assertFalse(index.contains(MICROCEPHALY));
+    }
+
+    @Test
+    public void testAddAll() {
+        index.getPositions(SEIZURE);
+        rows().addAll(annotation(MICROCEPHALY), annotation(SEIZURE));
+        assertEquals(Arrays.asList(0, 2, 4), index.getPositions(SEIZURE));
+        assertEquals(Arrays.asList(1, 3), index.getPositions(MICROCEPHALY));
+        // rows inserted before others move the positions of the following rows
+        rows().addAll(0, Arrays.asList(annotation(INTELLECTUAL_DISABILITY), annotation(SEIZURE)));
+        assertEquals(Arrays.asList(1, 2, 4, 6), index.getPositions(SEIZURE));
+        assertEquals(Arrays.asList(3, 5), index.getPositions(MICROCEPHALY));
+        assertEquals(Collections.singletonList(0), index.getPositions(INTELLECTUAL_DISABILITY));
+    }
+
+    @Test
+    public void testRemoveAll() {
+        index.getPositions(SEIZURE);
+        PhenoRow first = rows().get(0);
+        rows().removeAll(Collections.singletonList(first));
+        assertEquals(Collections.singletonList(1), index.getPositions(SEIZURE));
+        assertEquals(Collections.singletonList(0), index.getPositions(MICROCEPHALY));
+        rows().removeAll(rows().get(1));
+        assertFalse(index.contains(SEIZURE));
+        assertEquals(Collections.singletonList(0), index.getPositions(MICROCEPHALY));
+    }
+
+    @Test
+    public void testSort() {
+        index.getPositions(SEIZURE);
+        rows().add(annotation(INTELLECTUAL_DISABILITY));
+        FXCollections.sort(rows(), Comparator.comparing(PhenoRow::getPhenotypeID));
+        // HP:0000252, HP:0001249, HP:0001250, HP:0001250
+        assertEquals(Collections.singletonList(0), index.getPositions(MICROCEPHALY));
+        assertEquals(Collections.singletonList(1), index.getPositions(INTELLECTUAL_DISABILITY));
+        assertEquals(Arrays.asList(2, 3), index.getPositions(SEIZURE));
+    }
+
+    @Test
+    public void testEditOfPhenotypeId() {
+        index.getPositions(SEIZURE);
+        rows().get(2).setPhenotypeID(INTELLECTUAL_DISABILITY);
+        assertEquals(Collections.singletonList(0), index.getPositions(SEIZURE));
+        assertEquals(Collections.singletonList(2), index.getPositions(INTELLECTUAL_DISABILITY));
+    }
+
+    /** The index follows the table to a new list (a file was opened) and no longer sees the old one. */
+    @Test
+    public void testNewList() {
+        index.getPositions(SEIZURE);
+        ObservableList<PhenoRow> old = rows();
+        items.set(FXCollections.observableArrayList(annotation(MICROCEPHALY)));
+        old.add(annotation(MICROCEPHALY));
+        assertFalse(index.contains(SEIZURE));
+        assertEquals(Collections.singletonList(0), index.getPositions(MICROCEPHALY));
+        rows().add(annotation(SEIZURE));
+        assertEquals(Collections.singletonList(1), index.getPositions(SEIZURE));
+    }
+}
@@ -0,0 +1,83 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.TestFixtures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the labels that the {@link SubOntologyIndex} offers for the onset, frequency, modifier and inheritance
+ * columns, their order, and the lookup of terms by label and by id.
+ */
+public class SubOntologyIndexTest {
+
+    private static SubOntologyIndex index;
+
+    @BeforeClass
+    public static void setUp() {
+        index = TestFixtures.subOntologyIndex();
+    }
+
+    /** Onset terms are listed by age, each followed by its subclasses. */
+    @Test
+    public void testOnsetLabelsInDevelopmentalOrder() {
+        assertEquals(Arrays.asList("Antenatal onset", "Embryonal onset", "Fetal onset", "Congenital onset",
+                "Neonatal onset", "Pediatric onset", "Infantile onset", "Childhood onset", "Juvenile onset",
+                "Adult onset", "Young adult onset", "Middle age onset", "Late onset"),
+                index.getLabels(SubOntology.ONSET));
+    }
+
+    @Test
+    public void testFrequencyLabelsInOntologyOrder() {
+        assertEquals(Arrays.asList("Obligate", "Very frequent", "Frequent", "Occasional", "Very rare", "Excluded"),
+                index.getLabels(SubOntology.FREQUENCY));
+    }
+
+    /** The label map (for lookup) is sorted by label and includes the root. */
+    @Test
+    public void testLabel2IdMap() {
+        List<String> labels = new ArrayList<>(index.getLabel2IdMap(SubOntology.FREQUENCY).keySet());
+        assertEquals(Arrays.asList("Excluded", "Frequency", "Frequent", "Obligate", "Occasional", "Very frequent",
+                "Very rare"), labels);
+        assertEquals("HP:0003577", index.getId(SubOntology.ONSET, "Congenital onset"));
+        assertNull(index.getId(SubOntology.ONSET, "Seizure"));
+    }
+
+    @Test
+    public void testMembership() {
+        assertTrue(index.contains(SubOntology.CLINICAL_MODIFIER, TermId.constructWithPrefix("HP:0012825")));
+        // Onset is below Clinical modifier
+        assertTrue(index.contains(SubOntology.CLINICAL_MODIFIER, TermId.constructWithPrefix("HP:0003577")));
+        assertFalse(index.contains(SubOntology.ONSET, TermId.constructWithPrefix("HP:0040283")));
+        assertTrue(index.contains(SubOntology.MODE_OF_INHERITANCE, TermId.constructWithPrefix("HP:0000006")));
+        assertFalse(index.contains(SubOntology.FREQUENCY, TermId.constructWithPrefix("HP:9999999")));
+        assertEquals("Occasional", index.getLabel(TermId.constructWithPrefix("HP:0040283")));
+        assertNull(index.getLabel(TermId.constructWithPrefix("HP:0001250")));
+    }
+}
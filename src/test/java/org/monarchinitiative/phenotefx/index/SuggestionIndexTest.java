@@ -0,0 +1,125 @@
+package org.monarchinitiative.phenotefx.index;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the ranking of the suggestions of a {@link SuggestionIndex}.
+ */
+public class SuggestionIndexTest {
+
+    private SuggestionIndex index;
+
+    @Before
+    public void setUp() {
+        Set<String> labels = new HashSet<>(Arrays.asList("Seizure", "Seizure cluster", "Febrile seizure",
+                "Nonseizure episode", "Microcephaly", "Hypotonia"));
+        List<String> suggestions = new ArrayList<>(labels);
+        suggestions.add("Seizure attack");
+        suggestions.add("Epileptic seizure");
+        suggestions.add("Small head");
+        index = SuggestionIndex.create(suggestions, labels);
+    }
+
+    private List<String> suggest(String userText, int k) {
+        int[] ids = new int[k];
+        int n = index.suggest(userText, k, ids);
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            result.add(index.get(ids[i]));
+        }
+        return result;
+    }
+
+    @Test
+    public void testExactBeforePrefixBeforeWordStartBeforeInfix() {
+        List<String> result = suggest("seizure", 10);
+        assertEquals("Seizure", result.get(0));
+        assertTrue(result.indexOf("Seizure cluster") < result.indexOf("Febrile seizure"));
+        assertTrue(result.indexOf("Febrile seizure") < result.indexOf("Nonseizure episode"));
+        assertEquals("Nonseizure episode", result.get(result.size() - 1));
+    }
+
+    @Test
+    public void testLabelsBeforeSynonyms() {
+        List<String> result = suggest("seizure", 10);
+        // both are prefix matches, and the synonym is shorter
+        assertTrue(result.indexOf("Seizure cluster") < result.indexOf("Seizure attack"));
+        // both are word-start matches
+        assertTrue(result.indexOf("Febrile seizure") < result.indexOf("Epileptic seizure"));
+        assertEquals("Small head", suggest("small head", 10).get(0));
+        assertTrue(index.isSynonym(idOf("Small head")));
+        assertFalse(index.isSynonym(idOf("Seizure")));
+    }
+
+    @Test
+    public void testMatchingIsCaseAndWhitespaceInsensitive() {
+        assertEquals(suggest("seizure", 10), suggest("  SEIZURE ", 10));
+        assertEquals(Collections.singletonList("Seizure cluster"), suggest("seizure   clu", 10));
+    }
+
+    @Test
+    public void testNumberOfSuggestionsIsBounded() {
+        assertEquals(Arrays.asList("Seizure", "Seizure cluster"), suggest("seizure", 2));
+        assertEquals(6, suggest("seizure", 50).size());
+    }
+
+    @Test
+    public void testShortQueriesOnlyMatchWordStarts() {
+        List<String> result = suggest("se", 10);
+        assertTrue(result.contains("Seizure"));
+        assertTrue(result.contains("Febrile seizure"));
+        assertFalse(result.contains("Nonseizure episode"));
+        assertEquals(Collections.singletonList("Hypotonia"), suggest("h", 10).subList(0, 1));
+    }
+
+    @Test
+    public void testEmptyQuery() {
+        assertTrue(suggest("", 10).isEmpty());
+        assertTrue(suggest("   ", 10).isEmpty());
+        assertTrue(suggest(null, 10).isEmpty());
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertTrue(suggest("macrocephaly", 10).isEmpty());
+    }
+
+    private int idOf(String suggestion) {
+        for (int i = 0; i < index.size(); i++) {
+            if (index.get(i).equals(suggestion)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
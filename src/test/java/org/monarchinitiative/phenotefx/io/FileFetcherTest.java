@@ -0,0 +1,211 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link FileFetcher} against a local HTTP server that supports ETags and byte ranges.
+ */
+public class FileFetcherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private URL url;
+    /* state of the server */
+    private byte[] content;
+    private String etag;
+    /** If not negative, the server closes the connection after this many bytes of the body. */
+    private int failAfter = -1;
+    private final List<String> rangeRequests = new ArrayList<>();
+
+    @Before
+    public void startServer() throws IOException {
+        setContent("format-version: 1.2\ndata-version: hp/releases/2018-10-09\n", "\"v1\"");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/hp.obo", this::handle);
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/hp.obo");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void setContent(String s, String tag) {
+        StringBuilder sb = new StringBuilder(s);
+        for (int i = 0; i < 5000; i++) {
+            sb.append("[Term]\nid: HP:").append(String.format("%07d", i)).append("\nname: term ").append(i).append("\n\n");
+        }
+        content = sb.toString().getBytes(StandardCharsets.UTF_8);
+        etag = tag;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        int start = 0;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && etag.equals(exchange.getRequestHeaders().getFirst("If-Range"))) {
+            rangeRequests.add(range);
+            start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+            if (start >= content.length) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range",
+                    String.format("bytes %d-%d/%d", start, content.length - 1, content.length));
+            exchange.sendResponseHeaders(206, content.length - start);
+        } else {
+            exchange.sendResponseHeaders(200, content.length);
+        }
+        try (OutputStream out = exchange.getResponseBody()) {
+            int end = failAfter >= 0 ? Math.min(content.length, start + failAfter) : content.length;
+            out.write(content, start, end - start);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private File target() {
+        return new File(folder.getRoot(), "hp.obo");
+    }
+
+    @Test
+    public void testDownloadAndNotModified() throws IOException {
+        assertEquals(FileFetcher.Result.DOWNLOADED, new FileFetcher(url, target()).fetch());
+        assertArrayEquals(content, Files.readAllBytes(target().toPath()));
+        assertFalse(new File(folder.getRoot(), "hp.obo.part").exists());
+        assertEquals(FileFetcher.Result.NOT_MODIFIED, new FileFetcher(url, target()).fetch());
+    }
+
+    @Test
+    public void testChangedFileIsDownloadedAgain() throws IOException {
+        new FileFetcher(url, target()).fetch();
+        setContent("format-version: 1.2\ndata-version: hp/releases/2018-12-01\n", "\"v2\"");
+        assertEquals(FileFetcher.Result.DOWNLOADED, new FileFetcher(url, target()).fetch());
+        assertArrayEquals(content, Files.readAllBytes(target().toPath()));
+    }
+
+    @Test
+    public void testModifiedLocalFileIsDownloadedAgain() throws IOException {
+        new FileFetcher(url, target()).fetch();
+        Files.write(target().toPath(), "broken".getBytes(StandardCharsets.UTF_8));
+        assertEquals(FileFetcher.Result.DOWNLOADED, new FileFetcher(url, target()).fetch());
+        assertArrayEquals(content, Files.readAllBytes(target().toPath()));
+    }
+
+    @Test
+    public void testInterruptedDownloadKeepsOldFileAndResumes() throws IOException {
+        byte[] old = "old hp.obo".getBytes(StandardCharsets.UTF_8);
+        Files.write(target().toPath(), old);
+        failAfter = 20000;
+        try {
+            new FileFetcher(url, target()).fetch();
+            fail("Expected the truncated download to fail");
+        } catch (IOException e) {
+            // expected
+        }
+        assertArrayEquals(old, Files.readAllBytes(target().toPath()));
+        assertEquals(20000, new File(folder.getRoot(), "hp.obo.part").length());
+        failAfter = -1;
+        assertEquals(FileFetcher.Result.RESUMED, new FileFetcher(url, target()).fetch());
+        assertEquals("bytes=20000-", rangeRequests.get(0));
+        assertArrayEquals(content, Files.readAllBytes(target().toPath()));
+    }
+
+    @Test
+    public void testCompletePartialFileIsDownloadedAgain() throws IOException {
+        failAfter = 20000;
+        try {
+            new FileFetcher(url, target()).fetch();
+            fail("Expected the truncated download to fail");
+        } catch (IOException e) {
+            // expected
+        }
+        // the partial file has all of the bytes, e.g., because it could not be moved into place
+        File part = new File(folder.getRoot(), "hp.obo.part");
+        Files.write(part.toPath(), content);
+        failAfter = -1;
+        assertEquals(FileFetcher.Result.DOWNLOADED, new FileFetcher(url, target()).fetch());
+        assertEquals("bytes=" + content.length + "-", rangeRequests.get(0));
+        assertEquals(1, rangeRequests.size());
+        assertArrayEquals(content, Files.readAllBytes(target().toPath()));
+        assertFalse(part.exists());
+    }
+
+    @Test
+    public void testChecksumMismatchKeepsValidators() throws IOException {
+        new FileFetcher(url, target()).fetch();
+        byte[] downloaded = content;
+        setContent("format-version: 1.2\ndata-version: hp/releases/2018-12-01\n", "\"v2\"");
+        try {
+            new FileFetcher(url, target()).setExpectedSha256("00").fetch();
+            fail("Expected a checksum mismatch");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Checksum mismatch"));
+        }
+        // the server reverts to the file that was downloaded first, which is still known to be current
+        setContent("format-version: 1.2\ndata-version: hp/releases/2018-10-09\n", "\"v1\"");
+        assertEquals(FileFetcher.Result.NOT_MODIFIED, new FileFetcher(url, target()).fetch());
+        assertArrayEquals(downloaded, Files.readAllBytes(target().toPath()));
+    }
+
+    @Test
+    public void testChecksumMismatch() throws IOException {
+        byte[] old = "old hp.obo".getBytes(StandardCharsets.UTF_8);
+        Files.write(target().toPath(), old);
+        try {
+            new FileFetcher(url, target()).setExpectedSha256("00").fetch();
+            fail("Expected a checksum mismatch");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Checksum mismatch"));
+        }
+        assertArrayEquals(old, Files.readAllBytes(target().toPath()));
+        assertFalse(new File(folder.getRoot(), "hp.obo.part").exists());
+    }
+}
@@ -0,0 +1,138 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.phenotefx.model.HPO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the maps derived from hp.obo survive a round trip through the {@link HpoSnapshot}, and that a stale or
+ * corrupt snapshot is rejected.
+ */
+public class HpoSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File oboFile;
+    private File snapshotDir;
+
+    private final Map<String, HPO> hpoMap = new HashMap<>();
+    private final Map<String, String> name2id = new HashMap<>();
+    private final Map<String, String> synonym2label = new HashMap<>();
+    private final Map<String, String> modifiers = new HashMap<>();
+
+    private void addTerm(String id, String label) {
+        HPO hp = new HPO();
+        hp.setHpoId(id);
+        hp.setHpoName(label);
+        hpoMap.put(id, hp);
+        name2id.put(label, id);
+        synonym2label.put(label, label);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        oboFile = folder.newFile("hp.obo");
+        snapshotDir = folder.newFolder("phenotefx");
+        Files.write(oboFile.toPath(), "format-version: 1.2\n".getBytes(StandardCharsets.UTF_8));
+        addTerm("HP:0001250", "Seizure");
+        addTerm("HP:0000252", "Microcephaly");
+        addTerm("HP:0012828", "Severe");
+        synonym2label.put("Seizures", "Seizure");
+        synonym2label.put("Epileptic seizure", "Seizure");
+        modifiers.put("Severe", "HP:0012828");
+    }
+
+    @Test
+    public void testSnapshotIsStoredInSnapshotDirectory() throws IOException {
+        File snapshotFile = new HpoSnapshot(oboFile, snapshotDir).getSnapshotFile();
+        assertEquals(snapshotDir, snapshotFile.getParentFile());
+        assertTrue(snapshotFile.getName().startsWith("hp.obo-"));
+        assertTrue(snapshotFile.getName().endsWith(SnapshotFile.SUFFIX));
+        // a copy of hp.obo elsewhere has a snapshot of its own
+        File copy = new File(folder.newFolder("copy"), "hp.obo");
+        assertNotEquals(snapshotFile, new HpoSnapshot(copy, snapshotDir).getSnapshotFile());
+        assertEquals(snapshotFile, new HpoSnapshot(oboFile, snapshotDir).getSnapshotFile());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        new HpoSnapshot(oboFile, snapshotDir).write(hpoMap, name2id, synonym2label, modifiers);
+        Map<String, HPO> hpoMap2 = new HashMap<>();
+        Map<String, String> name2id2 = new HashMap<>();
+        Map<String, String> synonym2label2 = new HashMap<>();
+        Map<String, String> modifiers2 = new HashMap<>();
+        assertTrue(new HpoSnapshot(oboFile, snapshotDir).load(hpoMap2, name2id2, synonym2label2, modifiers2));
+        assertEquals(hpoMap.keySet(), hpoMap2.keySet());
+        for (HPO hp : hpoMap.values()) {
+            assertEquals(hp.getHpoName(), hpoMap2.get(hp.getHpoId()).getHpoName());
+        }
+        assertEquals(name2id, name2id2);
+        assertEquals(synonym2label, synonym2label2);
+        assertEquals(modifiers, modifiers2);
+    }
+
+    @Test
+    public void testMissingSnapshotIsNotLoaded() {
+        assertFalse(new HpoSnapshot(oboFile, snapshotDir).load(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>()));
+    }
+
+    @Test
+    public void testStaleSnapshotIsRejected() throws IOException {
+        HpoSnapshot snapshot = new HpoSnapshot(oboFile, snapshotDir);
+        snapshot.write(hpoMap, name2id, synonym2label, modifiers);
+        Files.write(oboFile.toPath(), "format-version: 1.4\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(snapshot.load(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>()));
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected() throws IOException {
+        HpoSnapshot snapshot = new HpoSnapshot(oboFile, snapshotDir);
+        snapshot.write(hpoMap, name2id, synonym2label, modifiers);
+        try (RandomAccessFile raf = new RandomAccessFile(snapshot.getSnapshotFile(), "rw")) {
+            // change one character of the first string of the string table (after the 56-byte header, the number
+            // of strings and the length of the first string); the payload still parses, only the CRC differs
+            long pos = 56 + 4 + 4;
+            raf.seek(pos);
+            int b = raf.read();
+            raf.seek(pos);
+            raf.write(b ^ 0x01);
+        }
+        Map<String, HPO> hpoMap2 = new HashMap<>();
+        Map<String, String> name2id2 = new HashMap<>();
+        assertFalse(snapshot.load(hpoMap2, name2id2, new HashMap<>(), new HashMap<>()));
+        assertTrue(hpoMap2.isEmpty());
+        assertTrue(name2id2.isEmpty());
+    }
+}
@@ -0,0 +1,146 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the {@link SmallFileWriter} replaces small files only on commit, and leaves no temporary files
+ * behind.
+ */
+public class SmallFileWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String HEADER = "#diseaseID\tdiseaseName\tphenotypeID";
+
+    private File first;
+    private File second;
+
+    private static List<String> lines(File f) throws IOException {
+        return Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+    }
+
+    private Set<String> filesInFolder() {
+        return new HashSet<>(Arrays.asList(folder.getRoot().list()));
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        first = folder.newFile("OMIM-100100.tab");
+        second = folder.newFile("OMIM-100200.tab");
+        SmallFileWriter.write(first, HEADER, Collections.singletonList("OMIM:100100\tOld name\tHP:0001250"));
+        SmallFileWriter.write(second, HEADER, Collections.singletonList("OMIM:100200\tOld name\tHP:0000252"));
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        assertEquals(Arrays.asList(HEADER, "OMIM:100100\tOld name\tHP:0001250"), lines(first));
+        assertEquals(new HashSet<>(Arrays.asList(first.getName(), second.getName())), filesInFolder());
+    }
+
+    @Test
+    public void testPermissionsAreKept() throws IOException {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Set<PosixFilePermission> groupWritable = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(first.toPath(), groupWritable);
+        SmallFileWriter.write(first, HEADER, Collections.singletonList("OMIM:100100\tNew name\tHP:0001250"));
+        assertEquals(groupWritable, Files.getPosixFilePermissions(first.toPath()));
+
+        Set<PosixFilePermission> readOnly = PosixFilePermissions.fromString("r--r-----");
+        Files.setPosixFilePermissions(second.toPath(), readOnly);
+        SmallFileWriter writer = new SmallFileWriter();
+        writer.add(second, HEADER, Collections.singletonList("OMIM:100200\tNew name\tHP:0000252"));
+        assertTrue(writer.commit().isEmpty());
+        assertEquals(readOnly, Files.getPosixFilePermissions(second.toPath()));
+
+        // a new small file gets the same permissions as any other new file in the directory
+        File created = folder.newFile("created.txt");
+        File third = new File(folder.getRoot(), "OMIM-100300.tab");
+        SmallFileWriter.write(third, HEADER, Collections.singletonList("OMIM:100300\tName\tHP:0001249"));
+        assertEquals(Files.getPosixFilePermissions(created.toPath()), Files.getPosixFilePermissions(third.toPath()));
+    }
+
+    @Test
+    public void testFilesAreReplacedOnCommit() throws IOException {
+        SmallFileWriter writer = new SmallFileWriter();
+        writer.add(first, HEADER, Collections.singletonList("OMIM:100100\tNew name\tHP:0001250"));
+        writer.add(second, HEADER, Collections.singletonList("OMIM:100200\tNew name\tHP:0000252"));
+        assertEquals(2, writer.getNumberOfPendingFiles());
+        // nothing has changed yet, and the new contents are not among the small files
+        assertEquals(Arrays.asList(HEADER, "OMIM:100100\tOld name\tHP:0001250"), lines(first));
+        assertEquals(new HashSet<>(Arrays.asList(first.getName(), second.getName(),
+                SmallFileWriter.STAGING_DIRECTORY)), filesInFolder());
+
+        Map<File, String> failures = writer.commit();
+        assertTrue(failures.isEmpty());
+        assertEquals(0, writer.getNumberOfPendingFiles());
+        assertEquals(Arrays.asList(HEADER, "OMIM:100100\tNew name\tHP:0001250"), lines(first));
+        assertEquals(Arrays.asList(HEADER, "OMIM:100200\tNew name\tHP:0000252"), lines(second));
+        assertEquals(new HashSet<>(Arrays.asList(first.getName(), second.getName())), filesInFolder());
+    }
+
+    @Test
+    public void testLastAddWins() throws IOException {
+        SmallFileWriter writer = new SmallFileWriter();
+        writer.add(first, HEADER, Collections.singletonList("OMIM:100100\tFirst try\tHP:0001250"));
+        writer.add(first, HEADER, Collections.singletonList("OMIM:100100\tSecond try\tHP:0001250"));
+        assertEquals(1, writer.getNumberOfPendingFiles());
+        assertEquals(1, new File(folder.getRoot(), SmallFileWriter.STAGING_DIRECTORY).list().length);
+        writer.commit();
+        assertEquals(Arrays.asList(HEADER, "OMIM:100100\tSecond try\tHP:0001250"), lines(first));
+    }
+
+    @Test
+    public void testAbortKeepsFilesAndRemovesTemporaryFiles() throws IOException {
+        SmallFileWriter writer = new SmallFileWriter();
+        writer.add(first, HEADER, Collections.singletonList("OMIM:100100\tNew name\tHP:0001250"));
+        writer.add(second, HEADER, Collections.singletonList("OMIM:100200\tNew name\tHP:0000252"));
+        writer.abort();
+        assertEquals(0, writer.getNumberOfPendingFiles());
+        assertEquals(Arrays.asList(HEADER, "OMIM:100100\tOld name\tHP:0001250"), lines(first));
+        assertEquals(Arrays.asList(HEADER, "OMIM:100200\tOld name\tHP:0000252"), lines(second));
+        assertEquals(new HashSet<>(Arrays.asList(first.getName(), second.getName())), filesInFolder());
+        // a commit after an abort has nothing to do
+        assertTrue(writer.commit().isEmpty());
+        assertEquals(Arrays.asList(HEADER, "OMIM:100100\tOld name\tHP:0001250"), lines(first));
+    }
+}
@@ -0,0 +1,169 @@
+package org.monarchinitiative.phenotefx.io;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the {@link TabTokenizer} splits lines as {@code line.split("\t")} would, also when lines end in
+ * "\r\n" or are split across reads.
+ */
+public class TabTokenizerTest {
+
+    /** Returns at most {@code chunk} characters per read, so that lines (and "\r\n") span several reads. */
+    private static final class ChunkedReader extends FilterReader {
+        private final int chunk;
+
+        ChunkedReader(String s, int chunk) {
+            super(new StringReader(s));
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, chunk));
+        }
+    }
+
+    /** @return the fields of each line, as far as they are counted by {@link TabTokenizer#getFieldCount()}. */
+    private static List<List<String>> tokenize(Reader reader) throws IOException {
+        TabTokenizer tokenizer = new TabTokenizer(reader);
+        List<List<String>> lines = new ArrayList<>();
+        while (tokenizer.nextLine()) {
+            List<String> fields = new ArrayList<>();
+            for (int i = 0; i < tokenizer.getFieldCount(); i++) {
+                fields.add(tokenizer.field(i));
+            }
+            lines.add(fields);
+        }
+        return lines;
+    }
+
+    /** @return the fields of each line as {@code line.split("\t")} gives them. */
+    private static List<List<String>> split(String... lines) {
+        List<List<String>> result = new ArrayList<>();
+        for (String line : lines) {
+            result.add(Arrays.asList(line.split("\t")));
+        }
+        return result;
+    }
+
+    private static void assertSplitLikeString(String input, String... lines) throws IOException {
+        List<List<String>> expected = split(lines);
+        assertEquals(expected, tokenize(new StringReader(input)));
+        for (int chunk = 1; chunk <= 4; chunk++) {
+            assertEquals("chunk size " + chunk, expected, tokenize(new ChunkedReader(input, chunk)));
+        }
+    }
+
+    @Test
+    public void testSimpleLines() throws IOException {
+        assertSplitLikeString("a\tb\tc\nd\te\tf\n", "a\tb\tc", "d\te\tf");
+        // the last line need not be terminated
+        assertSplitLikeString("a\tb\tc\nd\te\tf", "a\tb\tc", "d\te\tf");
+    }
+
+    @Test
+    public void testEmptyFields() throws IOException {
+        assertSplitLikeString("a\t\tc\n\tb\tc\n", "a\t\tc", "\tb\tc");
+        TabTokenizer tokenizer = new TabTokenizer(new StringReader("a\t\tc\n"));
+        assertTrue(tokenizer.nextLine());
+        assertTrue(tokenizer.isFieldEmpty(1));
+        assertFalse(tokenizer.isFieldEmpty(2));
+    }
+
+    @Test
+    public void testTrailingTabsAreNotCounted() throws IOException {
+        assertSplitLikeString("a\tb\t\t\nc\t\n", "a\tb\t\t", "c\t");
+        TabTokenizer tokenizer = new TabTokenizer(new StringReader("a\tb\t\t\n"));
+        assertTrue(tokenizer.nextLine());
+        assertEquals(2, tokenizer.getFieldCount());
+        assertEquals("a\tb\t\t", tokenizer.line());
+    }
+
+    @Test
+    public void testEmptyLines() throws IOException {
+        assertSplitLikeString("a\tb\n\nc\n", "a\tb", "", "c");
+        // a line with nothing but tabs has no fields at all, as with split
+        assertSplitLikeString("\t\t\n", "\t\t");
+        assertEquals(Collections.emptyList(), tokenize(new StringReader("")));
+        TabTokenizer tokenizer = new TabTokenizer(new StringReader("\n"));
+        assertTrue(tokenizer.nextLine());
+        assertTrue(tokenizer.isLineEmpty());
+        assertEquals(1, tokenizer.getFieldCount());
+    }
+
+    @Test
+    public void testCrLfLines() throws IOException {
+        assertSplitLikeString("a\tb\r\nc\td\r\n", "a\tb", "c\td");
+        assertSplitLikeString("a\tb\t\r\n\r\nc\r\n", "a\tb\t", "", "c");
+        // a lone '\r' also ends a line
+        assertSplitLikeString("a\tb\rc\td\n", "a\tb", "c\td");
+    }
+
+    @Test
+    public void testFewerColumnsThanHeader() throws IOException {
+        String input = "#diseaseID\tdiseaseName\tphenotypeID\tphenotypeName\n"
+                + "OMIM:100100\tSome disease\n"
+                + "OMIM:100100\tSome disease\tHP:0001250\n";
+        assertSplitLikeString(input, "#diseaseID\tdiseaseName\tphenotypeID\tphenotypeName",
+                "OMIM:100100\tSome disease", "OMIM:100100\tSome disease\tHP:0001250");
+        TabTokenizer tokenizer = new TabTokenizer(new StringReader(input));
+        assertTrue(tokenizer.nextLine());
+        assertTrue(tokenizer.lineStartsWith('#'));
+        assertEquals(4, tokenizer.getFieldCount());
+        assertTrue(tokenizer.nextLine());
+        assertEquals(2, tokenizer.getFieldCount());
+        assertTrue(tokenizer.fieldStartsWith(0, "OMIM:"));
+        assertTrue(tokenizer.nextLine());
+        assertEquals(3, tokenizer.getFieldCount());
+        assertFalse(tokenizer.nextLine());
+    }
+
+    @Test
+    public void testLineLongerThanBuffer() throws IOException {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'x');
+        String longField = new String(chars);
+        assertSplitLikeString("a\t" + longField + "\tb\nc\n", "a\t" + longField + "\tb", "c");
+    }
+
+    @Test
+    public void testInternedFieldsAreShared() throws IOException {
+        TabTokenizer tokenizer = new TabTokenizer(new StringReader("HPO:probinson\tx\nHPO:probinson\ty\n"));
+        assertTrue(tokenizer.nextLine());
+        String first = tokenizer.internedField(0);
+        assertTrue(tokenizer.nextLine());
+        assertSame(first, tokenizer.internedField(0));
+        assertEquals("y", tokenizer.internedField(1));
+    }
+}
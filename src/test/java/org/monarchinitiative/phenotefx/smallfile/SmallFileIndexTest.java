@@ -0,0 +1,164 @@
+package org.monarchinitiative.phenotefx.smallfile;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.phenol.formats.hpo.HpoOntology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenotefx.TestFixtures;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * Each test indexes small files in one run and looks them up in a new {@link SmallFileIndex} for the same index
+ * file, as the next run of {@link V2SmallFileIngestor} would.
+ */
+public class SmallFileIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final HpoOntology ontology = TestFixtures.hpoSmall();
+
+    private File indexFile;
+    private File seizures;
+    private File microcephaly;
+
+    @Before
+    public void setUp() throws IOException {
+        indexFile = new File(folder.newFolder("phenotefx"), "smallfiles.idx");
+        seizures = folder.newFile("OMIM-100100.tab");
+        microcephaly = folder.newFile("OMIM-100200.tab");
+        Files.write(seizures.toPath(), "seizures".getBytes(StandardCharsets.UTF_8));
+        Files.write(microcephaly.toPath(), "microcephaly".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static V2SmallFile smallFile(File f, String termId, String label) {
+        V2SmallFileEntry entry = new V2SmallFileEntry.Builder("OMIM:100100", "Example syndrome",
+                TermId.constructWithPrefix(termId), label, "IEA", "OMIM:100100", "HPO:probinson[2018-07-13]")
+                .build();
+        return new V2SmallFile(f.getName(), Collections.singletonList(entry));
+    }
+
+    /** Add the file to a new index (as if it had just been parsed) and save the index. */
+    private void index(HpoOntology onto, File f, V2SmallFile parsed) {
+        SmallFileIndex index = new SmallFileIndex(indexFile, onto);
+        index.update(f, f.length(), f.lastModified(), parsed);
+        index.save();
+    }
+
+    @Test
+    public void testUnchangedFileIsServedFromIndex() {
+        index(ontology, seizures, smallFile(seizures, "HP:0001250", "Seizure"));
+        // no temporary file is left behind
+        assertArrayEquals(new String[]{indexFile.getName()}, indexFile.getParentFile().list());
+        Optional<V2SmallFile> cached = new SmallFileIndex(indexFile, ontology).lookup(seizures);
+        assertTrue(cached.isPresent());
+        assertEquals(seizures.getName(), cached.get().getBasename());
+        V2SmallFileEntry entry = cached.get().getOriginalEntryList().get(0);
+        assertEquals(TermId.constructWithPrefix("HP:0001250"), entry.getPhenotypeId());
+        assertEquals("Seizure", entry.getPhenotypeName());
+        assertEquals("HPO:probinson[2018-07-13]", entry.getBiocuration());
+        assertFalse(new SmallFileIndex(indexFile, ontology).lookup(microcephaly).isPresent());
+    }
+
+    @Test
+    public void testTouchedFileIsServedByHash() {
+        index(ontology, seizures, smallFile(seizures, "HP:0001250", "Seizure"));
+        assertTrue(seizures.setLastModified(seizures.lastModified() + 60_000));
+        SmallFileIndex index = new SmallFileIndex(indexFile, ontology);
+        assertTrue(index.lookup(seizures).isPresent());
+        index.save();
+        // the new modification time has been recorded
+        assertTrue(new SmallFileIndex(indexFile, ontology).lookup(seizures).isPresent());
+    }
+
+    @Test
+    public void testChangedFileIsNotServed() throws IOException {
+        index(ontology, seizures, smallFile(seizures, "HP:0001250", "Seizure"));
+        Files.write(seizures.toPath(), "more seizures".getBytes(StandardCharsets.UTF_8));
+        assertFalse(new SmallFileIndex(indexFile, ontology).lookup(seizures).isPresent());
+    }
+
+    @Test
+    public void testFileWithRemovedTermIsNotServed() {
+        // indexed without checking the terms; HP:0009999 is not in the current ontology
+        index(null, seizures, smallFile(seizures, "HP:0009999", "Removed term"));
+        assertTrue(new SmallFileIndex(indexFile, null).lookup(seizures).isPresent());
+        assertFalse(new SmallFileIndex(indexFile, ontology).lookup(seizures).isPresent());
+    }
+
+    @Test
+    public void testCorruptIndexIsIgnored() throws IOException {
+        index(ontology, seizures, smallFile(seizures, "HP:0001250", "Seizure"));
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+            // flip a bit of the last byte of the payload, which is followed by the 8-byte CRC
+            long pos = raf.length() - 9;
+            raf.seek(pos);
+            int b = raf.read();
+            raf.seek(pos);
+            raf.write(b ^ 0x01);
+        }
+        assertFalse(new SmallFileIndex(indexFile, ontology).lookup(seizures).isPresent());
+    }
+
+    @Test
+    public void testDeletedFileIsDroppedOnSave() throws IOException {
+        SmallFileIndex first = new SmallFileIndex(indexFile, ontology);
+        first.update(seizures, seizures.length(), seizures.lastModified(), smallFile(seizures, "HP:0001250", "Seizure"));
+        first.update(microcephaly, microcephaly.length(), microcephaly.lastModified(),
+                smallFile(microcephaly, "HP:0000252", "Microcephaly"));
+        first.save();
+        long mtime = microcephaly.lastModified();
+        assertTrue(microcephaly.delete());
+        SmallFileIndex second = new SmallFileIndex(indexFile, ontology);
+        assertTrue(second.lookup(seizures).isPresent());
+        second.save();
+        // an identical file at the same place is no longer known to the index
+        Files.write(microcephaly.toPath(), "microcephaly".getBytes(StandardCharsets.UTF_8));
+        assertTrue(microcephaly.setLastModified(mtime));
+        SmallFileIndex third = new SmallFileIndex(indexFile, ontology);
+        assertTrue(third.lookup(seizures).isPresent());
+        assertFalse(third.lookup(microcephaly).isPresent());
+    }
+
+    @Test
+    public void testIndexFileFor() throws IOException {
+        File phenoteFxDir = folder.getRoot();
+        File annotated = SmallFileIndex.indexFileFor(folder.newFolder("annotated").getPath(), phenoteFxDir);
+        File other = SmallFileIndex.indexFileFor(folder.newFolder("other").getPath(), phenoteFxDir);
+        assertEquals(phenoteFxDir, annotated.getParentFile());
+        assertTrue(annotated.getName().matches("smallfiles-[0-9a-f]{16}\\.idx"));
+        assertNotEquals(annotated, other);
+        assertEquals(annotated, SmallFileIndex.indexFileFor(new File(phenoteFxDir, "annotated").getAbsolutePath(),
+                phenoteFxDir));
+    }
+}
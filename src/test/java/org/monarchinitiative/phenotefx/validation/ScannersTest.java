@@ -0,0 +1,171 @@
+package org.monarchinitiative.phenotefx.validation;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the hand-written {@link Scanners} on boundary cases and checks that each scanner accepts exactly the
+ * strings that were accepted by the regular expression (or parseInt check) that it replaced.
+ */
+public class ScannersTest {
+
+    private static final Set<String> LABELS = new HashSet<>(Arrays.asList("Very frequent", "Occasional"));
+
+    /** Strings that are tried with every scanner. */
+    private static final List<String> INPUTS = Arrays.asList("", " ", "0", "/", "%", ";", ";;",
+            "HP:0003214", "HP:000321", "HP:00032145", "HP:123456", "HP:12345678", "hp:0003214", "HP_0003214",
+            "HP:000321a", "HP:0003214 ", " HP:0003214", "HP:",
+            "OMIM:123456", "OMIM:12345", "OMIM:1234567", "PMID:123456", "PMID:12345678", "PMID:", "ORPHA:558",
+            "0/0", "7/12", "7/", "/12", "7//12", "7/12/", "07/012", "7/12;", " 7/12", "7 / 12", "1/2/3",
+            "54%", "0%", "5%", "100%", "1.5%", "54.%", "%54", "54%%", "54% ", "-5%",
+            "Very frequent", "very frequent", "Occasional ", "Rare", "rare",
+            "HPO:skoehler[2017-02-17]", "HPO:skoehler[2017-02-17];", "HPO:skoehler[2017-02-17];;",
+            ";HPO:skoehler[2017-02-17]", "HPO:skoehler[2017-02-17];HPO:lcarmody[2018-07-15]",
+            "HPO:skoehler[2017-02-17];;HPO:lcarmody[2018-07-15]", "HPO:skoehler[2017-02-17] ",
+            "HPO:skoehler[2017-2-17]", "HPO:skoehler[17-02-17]", "HPO:skoehler[20170-02-17]",
+            "HPO:skoehler[2017-02-1]", "HPO:skoehler[2017-02-170]", "HPO:skoehler[2017/02/17]",
+            "HPO:skoehler[2017-02-17", "HPO:skoehler2017-02-17]", "HPO:[2017-02-17]", ":skoehler[2017-02-17]",
+            "HPO:s.koehler[2017-02-17]", "HPO:skoehler:x[2017-02-17]", "PMID:123456[2017-02-17]",
+            "HPO:skoehler[0000-00-00]", "HPO:skoehler[abcd-ef-gh]", "HPO_1:s_k[2017-02-17]");
+
+    private static final Pattern BIOCURATION_ENTRY = Pattern.compile("\\w+:\\w+\\[\\d{4}-\\d{2}-\\d{2}\\]");
+
+    /** The check of BiocurationValidator that was replaced by {@link Scanners#isBiocuration(String)}. */
+    private static boolean oldIsBiocuration(String s) {
+        String[] fields = s.split(";");
+        if (fields.length < 1) return false;
+        for (String f : fields) {
+            if (!BIOCURATION_ENTRY.matcher(f).matches()) return false;
+        }
+        return true;
+    }
+
+    /** The regular expression for an HPO id; see {@link #testHpoIdParseIntSign()} for the sign. */
+    private static boolean oldIsHpoId(String s) {
+        return s.matches("HP:\\d{7}");
+    }
+
+    /** The check of FrequencyValidator that was replaced by {@link Scanners#isFrequency(String, java.util.Collection)}. */
+    private static boolean oldIsFrequency(String s) {
+        return oldIsHpoId(s) || LABELS.contains(s) || s.equals("Rare") || s.matches("\\d+/\\d+") || s.matches("\\d\\d%");
+    }
+
+    @Test
+    public void testHpoIdAgainstRegex() {
+        for (String s : INPUTS) {
+            assertEquals(s, oldIsHpoId(s), Scanners.isHpoId(s));
+        }
+    }
+
+    /** The old check used Integer.parseInt, which accepted a sign, e.g., HP:-000321; the scanner does not. */
+    @Test
+    public void testHpoIdParseIntSign() {
+        assertFalse(Scanners.isHpoId("HP:-000321"));
+        assertFalse(Scanners.isHpoId("HP:+000321"));
+    }
+
+    @Test
+    public void testHpoIdBoundaries() {
+        assertTrue(Scanners.isHpoId("HP:0000001"));
+        assertFalse(Scanners.isHpoId(null));
+        assertFalse(Scanners.isHpoId(""));
+        assertFalse(Scanners.isHpoId("HP:123456")); // 6 digits
+        assertFalse(Scanners.isHpoId("HP:12345678")); // 8 digits
+        assertFalse(Scanners.isHpoId("OMIM:123456"));
+        assertFalse(Scanners.isHpoId("PMID:1234567"));
+    }
+
+    @Test
+    public void testFrequencyAgainstRegex() {
+        for (String s : INPUTS) {
+            assertEquals(s, oldIsFrequency(s), Scanners.isFrequency(s, LABELS));
+        }
+    }
+
+    @Test
+    public void testFrequencyBoundaries() {
+        assertFalse(Scanners.isFrequency(null, LABELS));
+        assertFalse(Scanners.isFrequency("", LABELS));
+        assertTrue(Scanners.isFrequency("0/0", LABELS));
+        assertTrue(Scanners.isFrequency("7/12", LABELS));
+        assertFalse(Scanners.isFrequency("7/12/", LABELS));
+        assertTrue(Scanners.isFrequency("54%", LABELS));
+        assertFalse(Scanners.isFrequency("5%", LABELS));
+        assertFalse(Scanners.isFrequency("100%", LABELS));
+        assertFalse(Scanners.isFrequency("1.5%", LABELS));
+        assertTrue(Scanners.isFrequency("HP:0040283", LABELS));
+        assertTrue(Scanners.isFrequency("Occasional", LABELS));
+        assertTrue(Scanners.isFrequency("Rare", LABELS));
+        assertFalse(Scanners.isFrequency("OMIM:123456", LABELS));
+    }
+
+    @Test
+    public void testBiocurationAgainstRegex() {
+        for (String s : INPUTS) {
+            assertEquals(s, oldIsBiocuration(s), Scanners.isBiocuration(s));
+        }
+    }
+
+    @Test
+    public void testBiocurationBoundaries() {
+        assertFalse(Scanners.isBiocuration(null));
+        assertFalse(Scanners.isBiocuration(""));
+        assertFalse(Scanners.isBiocuration(";"));
+        assertTrue(Scanners.isBiocuration("HPO:skoehler[2017-02-17];;"));
+        assertFalse(Scanners.isBiocuration(";HPO:skoehler[2017-02-17]"));
+        assertFalse(Scanners.isBiocuration("HPO:skoehler[2017-02-17];;HPO:lcarmody[2018-07-15]"));
+        assertTrue(Scanners.isBiocuration("HPO:skoehler[2017-02-17];HPO:lcarmody[2018-07-15]"));
+    }
+
+    /** The date of a biocuration entry must be yyyy-mm-dd (the digits are not checked for a valid date). */
+    @Test
+    public void testBiocurationDate() {
+        assertTrue(Scanners.isBiocuration("HPO:skoehler[0000-00-00]"));
+        assertFalse(Scanners.isBiocuration("HPO:skoehler[2017-2-17]"));
+        assertFalse(Scanners.isBiocuration("HPO:skoehler[20170-02-17]"));
+        assertFalse(Scanners.isBiocuration("HPO:skoehler[2017-02-170]"));
+        assertFalse(Scanners.isBiocuration("HPO:skoehler[2017/02/17]"));
+        assertFalse(Scanners.isBiocuration("HPO:skoehler[2017-02-17"));
+    }
+
+    @Test
+    public void testEvidenceAndNegation() {
+        for (String s : Arrays.asList("IEA", "PCS", "TAS")) {
+            assertTrue(Scanners.isEvidence(s));
+        }
+        assertFalse(Scanners.isEvidence(null));
+        assertFalse(Scanners.isEvidence(""));
+        assertFalse(Scanners.isEvidence("iea"));
+        assertTrue(Scanners.isNegation(null));
+        assertTrue(Scanners.isNegation(""));
+        assertTrue(Scanners.isNegation("NOT"));
+        assertFalse(Scanners.isNegation("not"));
+    }
+}
@@ -0,0 +1,137 @@
+package org.monarchinitiative.phenotefx.validation;
+
+/*
+ * #%L
+ * PhenoteFX
+ * %%
+ * Copyright (C) 2017 - 2018 Peter Robinson
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.monarchinitiative.phenotefx.TestFixtures;
+import org.monarchinitiative.phenotefx.index.SubOntologyIndex;
+import org.monarchinitiative.phenotefx.model.PhenoRow;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.monarchinitiative.phenotefx.TestFixtures.row;
+
+/**
+ * Checks the diagnostics that the {@link SemanticValidator} reports for rows of the annotation table: onset,
+ * frequency and modifier terms from the wrong subontology, alternate and unknown phenotype ids, and annotations
+ * to an ancestor of another annotated term.
+ */
+public class SemanticValidatorTest {
+
+    private static SubOntologyIndex subOntologies;
+
+    private static SemanticValidator validator;
+
+    @BeforeClass
+    public static void setUp() {
+        subOntologies = TestFixtures.subOntologyIndex();
+        validator = new SemanticValidator(subOntologies);
+    }
+
+    /** @return the only diagnostic */
+    private static Diagnostic single(List<Diagnostic> diagnostics) {
+        assertEquals(diagnostics.toString(), 1, diagnostics.size());
+        return diagnostics.get(0);
+    }
+
+    @Test
+    public void testValidRows() {
+        PhenoRow seizure = row("HP:0001250", "Seizure");
+        seizure.setOnsetID("HP:0003593");
+        seizure.setFrequency("HP:0040283");
+        seizure.setModifier("HP:0012825");
+        PhenoRow microcephaly = row("HP:0000252", "Microcephaly");
+        microcephaly.setFrequency("7/12");
+        assertTrue(validator.validate(Arrays.asList(seizure, microcephaly)).isEmpty());
+    }
+
+    @Test
+    public void testOnsetNotBelowOnset() {
+        PhenoRow row = row("HP:0001250", "Seizure");
+        row.setOnsetID("HP:0040283");
+        Diagnostic d = single(validator.validate(Arrays.asList(row)));
+        assertEquals(AnnotationColumn.ONSET_ID, d.getColumn());
+        assertEquals(Diagnostic.Severity.ERROR, d.getSeverity());
+        assertEquals("HP:0040283", d.getValue());
+    }
+
+    @Test
+    public void testFrequencyNotBelowFrequency() {
+        PhenoRow row = row("HP:0001250", "Seizure");
+        row.setFrequency("HP:0003577");
+        Diagnostic d = single(validator.validate(Arrays.asList(row)));
+        assertEquals(AnnotationColumn.FREQUENCY, d.getColumn());
+        assertEquals(Diagnostic.Severity.ERROR, d.getSeverity());
+    }
+
+    @Test
+    public void testModifierNotBelowClinicalModifier() {
+        PhenoRow row = row("HP:0001250", "Seizure");
+        row.setModifier("HP:0012825;HP:0000252");
+        Diagnostic d = single(validator.validate(Arrays.asList(row)));
+        assertEquals(AnnotationColumn.MODIFIER, d.getColumn());
+        assertTrue(d.getMessage(), d.getMessage().contains("HP:0000252"));
+    }
+
+    @Test
+    public void testAlternateAndUnknownPhenotypeIds() {
+        Diagnostic alternate = single(validator.validate(Arrays.asList(row("HP:0001255", "Seizure"))));
+        assertEquals(Diagnostic.Severity.WARNING, alternate.getSeverity());
+        assertTrue(alternate.getMessage(), alternate.getMessage().endsWith("use HP:0001250"));
+        Diagnostic unknown = single(validator.validate(Arrays.asList(row("HP:9999999", "Unknown"))));
+        assertEquals(Diagnostic.Severity.ERROR, unknown.getSeverity());
+        assertEquals(AnnotationColumn.PHENOTYPE_ID, unknown.getColumn());
+    }
+
+    /** The syntax checks accept the labels of the frequency terms of the ontology (but not the root, Frequency). */
+    @Test
+    public void testFrequencyLabelsOfOntology() {
+        ValidationEngine engine = ValidationEngine.standard(subOntologies);
+        PhenoRow row = row("HP:0001250", "Seizure");
+        row.setEvidence("TAS");
+        row.setBiocuration("HPO:probinson[2018-06-15]");
+        for (String frequency : Arrays.asList("Obligate", "Very rare", "7/12", "HP:0040283")) {
+            row.setFrequency(frequency);
+            assertTrue(frequency, engine.validate(Arrays.asList(row)).isEmpty());
+            assertTrue(frequency, FrequencyValidator.isValid(frequency, subOntologies));
+        }
+        row.setFrequency("Frequency");
+        assertEquals(AnnotationColumn.FREQUENCY, single(engine.validate(Arrays.asList(row))).getColumn());
+        assertFalse(FrequencyValidator.isValid("Seizure", subOntologies));
+    }
+
+    /** The less specific of two annotations on the same branch is redundant unless it is negated. */
+    @Test
+    public void testRedundantAncestor() {
+        PhenoRow seizure = row("HP:0001250", "Seizure");
+        PhenoRow gtcs = row("HP:0002069", "Generalized tonic-clonic seizure");
+        PhenoRow disability = row("HP:0001249", "Intellectual disability");
+        Diagnostic d = single(validator.validate(Arrays.asList(disability, seizure, gtcs)));
+        assertEquals(1, d.getRow());
+        assertEquals(Diagnostic.Severity.WARNING, d.getSeverity());
+        assertTrue(d.getMessage(), d.getMessage().contains("HP:0002069"));
+        seizure.setNegation("NOT");
+        assertTrue(validator.validate(Arrays.asList(disability, seizure, gtcs)).isEmpty());
+    }
+}